@@ -107,4 +107,17 @@ public interface ConnectionPool extends Closeable
          */
         void setMaxMultiplex(int maxMultiplex);
     }
+
+    /**
+     * <p>Marks a connection as subject to flow control, so that connection pools
+     * can take into account the data that the connection could not send yet.</p>
+     */
+    interface FlowControlled
+    {
+        /**
+         * @return the number of bytes queued on the connection that are waiting
+         * for the flow control send window to be enlarged
+         */
+        long getSendBacklog();
+    }
 }
@@ -0,0 +1,329 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.eclipse.jetty.client.api.Connection;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.component.Dumpable;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>A connection pool for multiplexed connections that sends each request
+ * on the least loaded connection.</p>
+ * <p>The load of a connection is the number of requests in-flight on that
+ * connection, plus a penalty for the bytes that the connection could not
+ * send because the flow control window was exhausted (see
+ * {@link ConnectionPool.FlowControlled}), so that new requests are not piled
+ * up on a congested connection.</p>
+ * <p>When all the connections are loaded at or above the
+ * {@link #getOpenRatio() open ratio} of their max multiplex, a new connection
+ * is opened in advance, so that requests do not have to wait for the
+ * connection establishment when the max multiplex is reached.</p>
+ */
+@ManagedObject
+public class LeastLoadedConnectionPool extends AbstractConnectionPool implements ConnectionPool.Multiplexable
+{
+    private static final Logger LOG = Log.getLogger(LeastLoadedConnectionPool.class);
+
+    private final HttpDestination destination;
+    private final List<Entry> entries;
+    private int maxMultiplex;
+    private int backlogBytesPerRequest = 64 * 1024;
+    private double openRatio = 0.75D;
+
+    public LeastLoadedConnectionPool(HttpDestination destination, int maxConnections, Callback requester, int maxMultiplex)
+    {
+        super(destination, maxConnections, requester);
+        this.destination = destination;
+        this.entries = new ArrayList<>(maxConnections);
+        this.maxMultiplex = maxMultiplex;
+    }
+
+    @Override
+    public Connection acquire()
+    {
+        Connection connection = activate();
+        if (connection == null)
+        {
+            int maxPending = 1 + destination.getQueuedRequestCount() / getMaxMultiplex();
+            tryCreate(maxPending);
+            connection = activate();
+        }
+        return connection;
+    }
+
+    @Override
+    @ManagedAttribute(value = "The max number of requests per connection", readonly = true)
+    public int getMaxMultiplex()
+    {
+        synchronized (this)
+        {
+            return maxMultiplex;
+        }
+    }
+
+    @Override
+    public void setMaxMultiplex(int maxMultiplex)
+    {
+        synchronized (this)
+        {
+            this.maxMultiplex = maxMultiplex;
+        }
+    }
+
+    @ManagedAttribute("The number of flow control stalled bytes that count as one in-flight request")
+    public int getBacklogBytesPerRequest()
+    {
+        synchronized (this)
+        {
+            return backlogBytesPerRequest;
+        }
+    }
+
+    /**
+     * @param backlogBytesPerRequest the number of bytes waiting for the flow control
+     * window that weigh on the connection load as much as one in-flight request
+     */
+    public void setBacklogBytesPerRequest(int backlogBytesPerRequest)
+    {
+        if (backlogBytesPerRequest <= 0)
+            throw new IllegalArgumentException("Invalid backlog bytes per request " + backlogBytesPerRequest);
+        synchronized (this)
+        {
+            this.backlogBytesPerRequest = backlogBytesPerRequest;
+        }
+    }
+
+    @ManagedAttribute("The max multiplex ratio above which a new connection is opened in advance")
+    public double getOpenRatio()
+    {
+        synchronized (this)
+        {
+            return openRatio;
+        }
+    }
+
+    /**
+     * @param openRatio the ratio, between 0 and 1, of the max multiplex above which
+     * a new connection is opened in advance, or a value greater than 1 to open new
+     * connections only when all connections are at their max multiplex
+     */
+    public void setOpenRatio(double openRatio)
+    {
+        if (openRatio <= 0)
+            throw new IllegalArgumentException("Invalid open ratio " + openRatio);
+        synchronized (this)
+        {
+            this.openRatio = openRatio;
+        }
+    }
+
+    @Override
+    protected void onCreated(Connection connection)
+    {
+        synchronized (this)
+        {
+            entries.add(new Entry(connection));
+        }
+        idle(connection, false);
+    }
+
+    @Override
+    protected Connection activate()
+    {
+        Entry selected = null;
+        boolean open = true;
+        synchronized (this)
+        {
+            long selectedLoad = Long.MAX_VALUE;
+            int threshold = (int)Math.ceil(maxMultiplex * openRatio);
+            for (Entry entry : entries)
+            {
+                if (entry.active < threshold)
+                    open = false;
+                if (entry.active >= maxMultiplex)
+                    continue;
+                long load = load(entry);
+                if (load < selectedLoad)
+                {
+                    selected = entry;
+                    selectedLoad = load;
+                }
+            }
+            if (selected != null)
+            {
+                ++selected.active;
+                ++selected.used;
+                // Account for the request just added.
+                if (selected.active < threshold)
+                    open = false;
+            }
+        }
+
+        if (selected == null)
+            return null;
+
+        if (open)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Opening connection in advance, all connections loaded {}", this);
+            // Open at most one connection in advance.
+            tryCreate(1);
+        }
+
+        return active(selected.connection);
+    }
+
+    private long load(Entry entry)
+    {
+        long load = entry.active;
+        if (entry.connection instanceof ConnectionPool.FlowControlled)
+        {
+            long backlog = ((ConnectionPool.FlowControlled)entry.connection).getSendBacklog();
+            if (backlog > 0)
+                load += 1 + backlog / backlogBytesPerRequest;
+        }
+        return load;
+    }
+
+    @Override
+    public boolean isActive(Connection connection)
+    {
+        synchronized (this)
+        {
+            Entry entry = find(connection);
+            return entry != null && entry.active > 0;
+        }
+    }
+
+    @Override
+    public boolean release(Connection connection)
+    {
+        boolean idle;
+        synchronized (this)
+        {
+            Entry entry = find(connection);
+            if (entry == null)
+                return false;
+            idle = --entry.active == 0;
+        }
+        released(connection);
+        if (idle)
+            return idle(connection, isClosed());
+        return true;
+    }
+
+    @Override
+    public boolean remove(Connection connection)
+    {
+        boolean removed;
+        synchronized (this)
+        {
+            Entry entry = find(connection);
+            removed = entry != null && entries.remove(entry);
+        }
+        if (removed)
+        {
+            released(connection);
+            removed(connection);
+        }
+        return removed;
+    }
+
+    private Entry find(Connection connection)
+    {
+        for (Entry entry : entries)
+        {
+            if (entry.connection == connection)
+                return entry;
+        }
+        return null;
+    }
+
+    @Override
+    public void close()
+    {
+        super.close();
+        List<Connection> connections;
+        synchronized (this)
+        {
+            connections = entries.stream().map(entry -> entry.connection).collect(Collectors.toList());
+            entries.clear();
+        }
+        close(connections);
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        List<Entry> connections;
+        synchronized (this)
+        {
+            connections = new ArrayList<>(entries);
+        }
+        Dumpable.dumpObjects(out, indent, this, connections);
+    }
+
+    @Override
+    public String toString()
+    {
+        int present;
+        int active = 0;
+        synchronized (this)
+        {
+            present = entries.size();
+            for (Entry entry : entries)
+            {
+                active += entry.active;
+            }
+        }
+        return String.format("%s@%x[c=%d/%d,a=%d]",
+            getClass().getSimpleName(),
+            hashCode(),
+            present,
+            getMaxConnectionCount(),
+            active);
+    }
+
+    private static class Entry
+    {
+        private final Connection connection;
+        private int active;
+        private long used;
+
+        private Entry(Connection connection)
+        {
+            this.connection = connection;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("{a=%d,u=%d,c=%s}", active, used, connection);
+        }
+    }
+}
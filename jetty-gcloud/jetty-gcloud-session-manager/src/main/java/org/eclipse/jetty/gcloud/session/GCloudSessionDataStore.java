@@ -19,7 +19,7 @@
 package org.eclipse.jetty.gcloud.session;
 
 import java.io.ByteArrayOutputStream;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -41,7 +41,6 @@ import org.eclipse.jetty.server.session.SessionContext;
 import org.eclipse.jetty.server.session.SessionData;
 import org.eclipse.jetty.server.session.UnreadableSessionDataException;
 import org.eclipse.jetty.server.session.UnwriteableSessionDataException;
-import org.eclipse.jetty.util.ClassLoadingObjectInputStream;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
@@ -868,10 +867,9 @@ public class GCloudSessionDataStore extends AbstractSessionDataStore
         Entity entity = null;
 
         //serialize the attribute map
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             ObjectOutputStream oos = new ObjectOutputStream(baos))
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream())
         {
-            SessionData.serializeAttributes(session, oos);
+            _serializer.serializeAttributes(session, baos);
 
             //turn a session into an entity         
             entity = Entity.newBuilder(key)
@@ -935,9 +933,9 @@ public class GCloudSessionDataStore extends AbstractSessionDataStore
         session.setLastNode(lastNode);
         session.setLastSaved(lastSaved);
         session.setExpiry(expiry);
-        try (ClassLoadingObjectInputStream ois = new ClassLoadingObjectInputStream(blob.asInputStream()))
+        try (InputStream is = blob.asInputStream())
         {
-            SessionData.deserializeAttributes(session, ois);
+            _serializer.deserializeAttributes(session, is);
         }
         catch (Exception e)
         {
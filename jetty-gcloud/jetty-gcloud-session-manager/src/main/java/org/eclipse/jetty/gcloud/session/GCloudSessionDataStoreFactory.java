@@ -90,6 +90,7 @@ public class GCloudSessionDataStoreFactory extends AbstractSessionDataStoreFacto
         ds.setGracePeriodSec(getGracePeriodSec());
         ds.setNamespace(_namespace);
         ds.setSavePeriodSec(getSavePeriodSec());
+        ds.setSerializer(getSerializer());
         return ds;
     }
 }
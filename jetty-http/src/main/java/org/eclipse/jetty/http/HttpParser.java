@@ -1856,6 +1856,23 @@ public class HttpParser
         _headerComplete = false;
     }
 
+    /**
+     * <p>Resets the parser to its initial state, even if it has been
+     * {@link #close() closed} or has seen EOF, so that it can parse
+     * the messages of a new connection.</p>
+     */
+    public void recycle()
+    {
+        if (debug)
+            LOG.debug("recycle {}", this);
+        _eof = false;
+        _cr = false;
+        _fieldCache = null;
+        _fieldState = FieldState.FIELD;
+        setState(State.START);
+        reset();
+    }
+
     protected void setState(State state)
     {
         if (debug)
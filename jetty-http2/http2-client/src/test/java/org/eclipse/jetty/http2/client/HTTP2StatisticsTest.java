@@ -0,0 +1,109 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http2.client;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.HTTP2Statistics;
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.api.Stream;
+import org.eclipse.jetty.http2.api.server.ServerSessionListener;
+import org.eclipse.jetty.http2.frames.FrameType;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.Promise;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HTTP2StatisticsTest extends AbstractTest
+{
+    @Test
+    public void testStatistics() throws Exception
+    {
+        start(new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, HttpStatus.OK_200, new HttpFields());
+                stream.headers(new HeadersFrame(stream.getId(), response, null, true), Callback.NOOP);
+                return null;
+            }
+        });
+        HTTP2Statistics statistics = new HTTP2Statistics();
+        connector.addBean(statistics);
+
+        Session session = newClient(new Session.Listener.Adapter());
+
+        int requests = 3;
+        for (int i = 0; i < requests; ++i)
+        {
+            HttpFields fields = new HttpFields();
+            fields.put("X-Statistics", "test");
+            MetaData.Request metaData = newRequest("GET", fields);
+            CountDownLatch latch = new CountDownLatch(1);
+            session.newStream(new HeadersFrame(metaData, null, true), new Promise.Adapter<>(), new Stream.Listener.Adapter()
+            {
+                @Override
+                public void onHeaders(Stream stream, HeadersFrame frame)
+                {
+                    if (frame.isEndStream())
+                        latch.countDown();
+                }
+            });
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, statistics.getSessions());
+        assertEquals(requests, statistics.getStreamsOpened());
+        assertEquals(requests, statistics.getFramesReceived(FrameType.HEADERS));
+        assertEquals(requests, statistics.getFramesSent(FrameType.HEADERS));
+        assertEquals(requests, statistics.getFramesReceived("headers"));
+        assertEquals(0, statistics.getStreamsReset());
+        assertEquals(0, statistics.getStreamsRefused());
+        assertEquals(0, statistics.getRateControlRejections());
+        // Subsequent requests reference the fields added to the dynamic table by the first request.
+        assertThat(statistics.getHpackDecoderHitRatio(), greaterThan(0D));
+        assertThat(statistics.getHpackEncoderHitRatio(), greaterThan(0D));
+
+        CountDownLatch closeLatch = new CountDownLatch(1);
+        session.close(0, null, Callback.from(closeLatch::countDown, x -> {}));
+        assertTrue(closeLatch.await(5, TimeUnit.SECONDS));
+
+        // The statistics of closed sessions are retained.
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (statistics.getSessions() > 0 && System.nanoTime() < end)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(0, statistics.getSessions());
+        assertEquals(1, statistics.getSessionsTotal());
+        assertEquals(requests, statistics.getStreamsOpened());
+        assertEquals(1, statistics.getFramesReceived(FrameType.GO_AWAY));
+    }
+}
@@ -22,7 +22,10 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritePendingException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
@@ -893,6 +896,83 @@ public class HTTP2Test extends AbstractTest
         assertTrue(resetLatch.await(5, TimeUnit.SECONDS));
     }
 
+    @Test
+    public void testRetainedDataNotOverwritten() throws Exception
+    {
+        int frames = 64;
+        int frameSize = 128;
+        List<Throwable> failures = new ArrayList<>();
+        start(new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                List<ByteBuffer> retained = new ArrayList<>();
+                List<Callback> callbacks = new ArrayList<>();
+                return new Stream.Listener.Adapter()
+                {
+                    @Override
+                    public void onData(Stream stream, DataFrame frame, Callback callback)
+                    {
+                        // Do not complete the callbacks until the last frame,
+                        // so that the network buffer remains retained.
+                        retained.add(frame.getData());
+                        callbacks.add(callback);
+                        if (!frame.isEndStream())
+                            return;
+
+                        ByteBuffer content = ByteBuffer.allocate(frames * frameSize);
+                        retained.forEach(content::put);
+                        content.flip();
+                        for (int i = 0; i < frames; ++i)
+                        {
+                            for (int j = 0; j < frameSize; ++j)
+                            {
+                                byte b = content.get();
+                                if (b != (byte)i)
+                                    failures.add(new AssertionError("frame " + i + " byte " + j + ": " + b));
+                            }
+                        }
+                        callbacks.forEach(Callback::succeeded);
+
+                        MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, HttpStatus.OK_200, new HttpFields());
+                        stream.headers(new HeadersFrame(stream.getId(), response, null, true), Callback.NOOP);
+                    }
+                };
+            }
+        });
+
+        Session session = newClient(new Session.Listener.Adapter());
+        MetaData.Request metaData = newRequest("POST", new HttpFields());
+        FuturePromise<Stream> promise = new FuturePromise<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        session.newStream(new HeadersFrame(metaData, null, false), promise, new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onHeaders(Stream stream, HeadersFrame frame)
+            {
+                MetaData.Response response = (MetaData.Response)frame.getMetaData();
+                if (response.getStatus() == HttpStatus.OK_200)
+                    latch.countDown();
+            }
+        });
+        Stream stream = promise.get(5, TimeUnit.SECONDS);
+
+        // Send small DATA frames one by one, so that the server
+        // reads them with multiple fills of the same network buffer.
+        for (int i = 0; i < frames; ++i)
+        {
+            byte[] bytes = new byte[frameSize];
+            Arrays.fill(bytes, (byte)i);
+            Callback.Completable completable = new Callback.Completable();
+            stream.data(new DataFrame(stream.getId(), ByteBuffer.wrap(bytes), i == frames - 1), completable);
+            completable.get(5, TimeUnit.SECONDS);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(failures.isEmpty(), failures.toString());
+    }
+
     private static void sleep(long time)
     {
         try
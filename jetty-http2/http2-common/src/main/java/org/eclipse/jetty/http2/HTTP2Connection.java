@@ -256,14 +256,17 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
                         if (task != null)
                             return task;
 
-                        // If more references than 1 (ie not just us), don't refill into buffer and risk compaction.
-                        if (networkBuffer.getReferences() > 1)
+                        // If more references than 1 (ie not just us), don't refill into buffer and risk compaction,
+                        // but keep filling the space after the retained content, if there is enough of it.
+                        if (networkBuffer.getReferences() > 1 && networkBuffer.space() < bufferSize / 4)
                             reacquireNetworkBuffer();
                     }
 
-                    // Here we know that this.networkBuffer is not retained by
-                    // application code: either it has been released, or it's a new one.
-                    int filled = fill(getEndPoint(), networkBuffer.getBuffer());
+                    // Here we know that this.networkBuffer is either not retained by application code,
+                    // or it is retained and must be filled after the retained content.
+                    int filled = networkBuffer.getReferences() > 1
+                        ? networkBuffer.fillAfterRetained(getEndPoint())
+                        : fill(getEndPoint(), networkBuffer.getBuffer());
                     if (LOG.isDebugEnabled())
                         LOG.debug("Filled {} bytes in {}", filled, networkBuffer);
 
@@ -397,6 +400,39 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
             BufferUtil.append(getBuffer(), source);
         }
 
+        private int space()
+        {
+            ByteBuffer buffer = getBuffer();
+            return buffer.capacity() - buffer.limit();
+        }
+
+        /**
+         * <p>Fills the space after the limit of this buffer, without moving
+         * the content that has been retained by the application as slices
+         * of this buffer, so that a new buffer needs not to be acquired.</p>
+         *
+         * @param endPoint the endPoint to fill from
+         * @return the number of bytes filled
+         */
+        private int fillAfterRetained(EndPoint endPoint)
+        {
+            ByteBuffer buffer = getBuffer();
+            int limit = buffer.limit();
+            ByteBuffer space = buffer.duplicate();
+            space.limit(buffer.capacity());
+            space.position(limit);
+            space = space.slice();
+            // The slice must be in flush mode, with no content.
+            space.limit(0);
+            int filled = fill(endPoint, space);
+            if (filled > 0)
+            {
+                buffer.limit(limit + filled);
+                buffer.position(limit);
+            }
+            return filled;
+        }
+
         @Override
         public void succeeded()
         {
@@ -52,6 +52,7 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
     private final ByteBufferPool.Lease lease;
     private Throwable terminated;
     private Entry stalledEntry;
+    private volatile long dataBytesPending;
 
     public HTTP2Flusher(HTTP2Session session)
     {
@@ -127,6 +128,15 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
         }
     }
 
+    /**
+     * @return the number of DATA bytes that could not be sent in the last
+     * flush, typically because the flow control window was exhausted
+     */
+    public long getDataBytesPending()
+    {
+        return dataBytesPending;
+    }
+
     @Override
     protected Action process() throws Throwable
     {
@@ -153,6 +163,7 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
 
         if (pendingEntries.isEmpty())
         {
+            dataBytesPending = 0;
             if (LOG.isDebugEnabled())
                 LOG.debug("Flushed {}", session);
             return Action.IDLE;
@@ -240,6 +251,13 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
             }
         }
 
+        long pendingBytes = 0;
+        for (Entry entry : pendingEntries)
+        {
+            pendingBytes += entry.getDataBytesRemaining();
+        }
+        dataBytesPending = pendingBytes;
+
         List<ByteBuffer> byteBuffers = lease.getByteBuffers();
         if (byteBuffers.isEmpty())
         {
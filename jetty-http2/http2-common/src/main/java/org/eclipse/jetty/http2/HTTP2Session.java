@@ -25,8 +25,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -57,6 +55,7 @@ import org.eclipse.jetty.io.WriteFlusher;
 import org.eclipse.jetty.util.AtomicBiInteger;
 import org.eclipse.jetty.util.Atomics;
 import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.ConcurrentIntHashMap;
 import org.eclipse.jetty.util.CountingCallback;
 import org.eclipse.jetty.util.MathUtils;
 import org.eclipse.jetty.util.Promise;
@@ -73,7 +72,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
 {
     private static final Logger LOG = Log.getLogger(HTTP2Session.class);
 
-    private final ConcurrentMap<Integer, IStream> streams = new ConcurrentHashMap<>();
+    private final ConcurrentIntHashMap<IStream> streams = new ConcurrentIntHashMap<>();
     private final AtomicInteger localStreamIds = new AtomicInteger();
     private final AtomicInteger lastRemoteStreamId = new AtomicInteger();
     private final AtomicInteger localStreamCount = new AtomicInteger();
@@ -82,6 +81,8 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
     private final AtomicInteger recvWindow = new AtomicInteger();
     private final AtomicReference<CloseState> closed = new AtomicReference<>(CloseState.NOT_CLOSED);
     private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong streamsOpened = new AtomicLong();
+    private final AtomicLong streamsRefused = new AtomicLong();
     private final Scheduler scheduler;
     private final EndPoint endPoint;
     private final Generator generator;
@@ -219,6 +220,18 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         return bytesWritten.get();
     }
 
+    @ManagedAttribute(value = "The number of streams opened", readonly = true)
+    public long getStreamsOpened()
+    {
+        return streamsOpened.get();
+    }
+
+    @ManagedAttribute(value = "The number of remote streams refused because the max concurrent streams was exceeded", readonly = true)
+    public long getStreamsRefused()
+    {
+        return streamsRefused.get();
+    }
+
     @Override
     public void onData(DataFrame frame)
     {
@@ -750,6 +763,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         {
             stream.setIdleTimeout(getStreamIdleTimeout());
             flowControl.onStreamCreated(stream);
+            streamsOpened.incrementAndGet();
             if (LOG.isDebugEnabled())
                 LOG.debug("Created local {}", stream);
             return stream;
@@ -772,6 +786,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
             int maxCount = getMaxRemoteStreams();
             if (maxCount >= 0 && remoteCount - remoteClosing >= maxCount)
             {
+                streamsRefused.incrementAndGet();
                 reset(new ResetFrame(streamId, ErrorCode.REFUSED_STREAM_ERROR.code), Callback.NOOP);
                 return null;
             }
@@ -787,6 +802,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
             updateLastRemoteStreamId(streamId);
             stream.setIdleTimeout(getStreamIdleTimeout());
             flowControl.onStreamCreated(stream);
+            streamsOpened.incrementAndGet();
             if (LOG.isDebugEnabled())
                 LOG.debug("Created remote {}", stream);
             return stream;
@@ -849,6 +865,12 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         return sendWindow.get();
     }
 
+    @ManagedAttribute(value = "The number of DATA bytes waiting for the flow control send window", readonly = true)
+    public long getDataBytesPending()
+    {
+        return flusher.getDataBytesPending();
+    }
+
     @ManagedAttribute(value = "The flow control receive window", readonly = true)
     public int getRecvWindow()
     {
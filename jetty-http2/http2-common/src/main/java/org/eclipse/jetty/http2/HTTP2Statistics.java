@@ -0,0 +1,338 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import org.eclipse.jetty.http2.frames.FrameType;
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.component.Dumpable;
+import org.eclipse.jetty.util.component.DumpableCollection;
+import org.eclipse.jetty.util.statistic.CounterStatistic;
+
+/**
+ * <p>A {@link Connection.Listener} that tracks HTTP/2 session and stream statistics.</p>
+ * <p>Adding an instance of this class as a bean to a server Connector, or to
+ * an HTTP/2 server ConnectionFactory, will trigger the tracking of the HTTP/2
+ * statistics for all the HTTP/2 connections created by the Connector or by
+ * the ConnectionFactory.</p>
+ * <p>Statistics are the sum of the values of the sessions that have been
+ * closed and of the values of the sessions that are currently open.</p>
+ */
+@ManagedObject("Tracks statistics on HTTP/2 sessions")
+public class HTTP2Statistics extends AbstractLifeCycle implements Connection.Listener, Dumpable
+{
+    private static final FrameType[] FRAME_TYPES = {
+        FrameType.DATA, FrameType.HEADERS, FrameType.PRIORITY, FrameType.RST_STREAM, FrameType.SETTINGS,
+        FrameType.PUSH_PROMISE, FrameType.PING, FrameType.GO_AWAY, FrameType.WINDOW_UPDATE, FrameType.CONTINUATION
+    };
+
+    private final Set<HTTP2Connection> connections = ConcurrentHashMap.newKeySet();
+    private final CounterStatistic sessions = new CounterStatistic();
+    private final Map<FrameType, Metric> framesReceived = new EnumMap<>(FrameType.class);
+    private final Map<FrameType, Metric> framesSent = new EnumMap<>(FrameType.class);
+    private final Metric streamsOpened = new Metric(connection -> session(connection).getStreamsOpened());
+    private final Metric streamsRefused = new Metric(connection -> session(connection).getStreamsRefused());
+    private final Metric sessionStallTime = new Metric(HTTP2Statistics::getSessionStallTime);
+    private final Metric streamsStallTime = new Metric(HTTP2Statistics::getStreamsStallTime);
+    private final Metric hpackEncodedFields = new Metric(connection -> session(connection).getGenerator().getHpackEncoder().getEncodedFields());
+    private final Metric hpackEncodedIndexedFields = new Metric(connection -> session(connection).getGenerator().getHpackEncoder().getIndexedFields());
+    private final Metric hpackDecodedFields = new Metric(connection -> connection.getParser().getHpackDecoder().getDecodedFields());
+    private final Metric hpackDecodedIndexedFields = new Metric(connection -> connection.getParser().getHpackDecoder().getIndexedFields());
+    private final Metric rateControlRejections = new Metric(connection -> connection.getParser().getRateControlRejections());
+
+    public HTTP2Statistics()
+    {
+        for (FrameType frameType : FRAME_TYPES)
+        {
+            framesReceived.put(frameType, new Metric(connection -> connection.getParser().getFramesReceived(frameType)));
+            framesSent.put(frameType, new Metric(connection -> session(connection).getGenerator().getFramesSent(frameType)));
+        }
+    }
+
+    private static HTTP2Session session(HTTP2Connection connection)
+    {
+        return (HTTP2Session)connection.getSession();
+    }
+
+    private static long getSessionStallTime(HTTP2Connection connection)
+    {
+        FlowControlStrategy flowControl = session(connection).getFlowControlStrategy();
+        return flowControl instanceof AbstractFlowControlStrategy ? ((AbstractFlowControlStrategy)flowControl).getSessionStallTime() : 0;
+    }
+
+    private static long getStreamsStallTime(HTTP2Connection connection)
+    {
+        FlowControlStrategy flowControl = session(connection).getFlowControlStrategy();
+        return flowControl instanceof AbstractFlowControlStrategy ? ((AbstractFlowControlStrategy)flowControl).getStreamsStallTime() : 0;
+    }
+
+    /**
+     * <p>Resets the statistics accumulated by the sessions that have been closed.</p>
+     */
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void reset()
+    {
+        sessions.reset(connections.size());
+        framesReceived.values().forEach(Metric::reset);
+        framesSent.values().forEach(Metric::reset);
+        streamsOpened.reset();
+        streamsRefused.reset();
+        sessionStallTime.reset();
+        streamsStallTime.reset();
+        hpackEncodedFields.reset();
+        hpackEncodedIndexedFields.reset();
+        hpackDecodedFields.reset();
+        hpackDecodedIndexedFields.reset();
+        rateControlRejections.reset();
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        reset();
+    }
+
+    @Override
+    public void onOpened(Connection connection)
+    {
+        if (!isStarted())
+            return;
+        if (!(connection instanceof HTTP2Connection))
+            return;
+        HTTP2Connection http2Connection = (HTTP2Connection)connection;
+        if (!(http2Connection.getSession() instanceof HTTP2Session))
+            return;
+
+        if (connections.add(http2Connection))
+            sessions.increment();
+    }
+
+    @Override
+    public void onClosed(Connection connection)
+    {
+        if (!(connection instanceof HTTP2Connection))
+            return;
+
+        HTTP2Connection http2Connection = (HTTP2Connection)connection;
+        if (!connections.remove(http2Connection))
+            return;
+
+        sessions.decrement();
+        framesReceived.values().forEach(metric -> metric.onClosed(http2Connection));
+        framesSent.values().forEach(metric -> metric.onClosed(http2Connection));
+        streamsOpened.onClosed(http2Connection);
+        streamsRefused.onClosed(http2Connection);
+        sessionStallTime.onClosed(http2Connection);
+        streamsStallTime.onClosed(http2Connection);
+        hpackEncodedFields.onClosed(http2Connection);
+        hpackEncodedIndexedFields.onClosed(http2Connection);
+        hpackDecodedFields.onClosed(http2Connection);
+        hpackDecodedIndexedFields.onClosed(http2Connection);
+        rateControlRejections.onClosed(http2Connection);
+    }
+
+    @ManagedAttribute("The current number of open sessions")
+    public long getSessions()
+    {
+        return sessions.getCurrent();
+    }
+
+    @ManagedAttribute("The max number of open sessions")
+    public long getSessionsMax()
+    {
+        return sessions.getMax();
+    }
+
+    @ManagedAttribute("The total number of sessions opened")
+    public long getSessionsTotal()
+    {
+        return sessions.getTotal();
+    }
+
+    @ManagedAttribute("The total number of streams opened")
+    public long getStreamsOpened()
+    {
+        return streamsOpened.get();
+    }
+
+    @ManagedAttribute("The total number of streams reset, either by sending or by receiving a RST_STREAM frame")
+    public long getStreamsReset()
+    {
+        return getFramesReceived(FrameType.RST_STREAM) + getFramesSent(FrameType.RST_STREAM);
+    }
+
+    @ManagedAttribute("The total number of remote streams refused because the max concurrent streams was exceeded")
+    public long getStreamsRefused()
+    {
+        return streamsRefused.get();
+    }
+
+    @ManagedAttribute("The total time, in milliseconds, that the session flow control has stalled")
+    public long getSessionStallTime()
+    {
+        return sessionStallTime.get();
+    }
+
+    @ManagedAttribute("The total time, in milliseconds, that the streams flow control has stalled")
+    public long getStreamsStallTime()
+    {
+        return streamsStallTime.get();
+    }
+
+    @ManagedAttribute("The mean time, in milliseconds, that the flow control of a stream has stalled")
+    public double getStreamStallTimeMean()
+    {
+        long streams = getStreamsOpened();
+        return streams == 0 ? 0 : (double)getStreamsStallTime() / streams;
+    }
+
+    @ManagedAttribute("The ratio of header fields encoded as a reference to an HPACK table entry")
+    public double getHpackEncoderHitRatio()
+    {
+        return ratio(hpackEncodedIndexedFields.get(), hpackEncodedFields.get());
+    }
+
+    @ManagedAttribute("The ratio of header fields decoded from a reference to an HPACK table entry")
+    public double getHpackDecoderHitRatio()
+    {
+        return ratio(hpackDecodedIndexedFields.get(), hpackDecodedFields.get());
+    }
+
+    private static double ratio(long hits, long total)
+    {
+        return total == 0 ? 0 : (double)hits / total;
+    }
+
+    @ManagedAttribute("The total number of events rejected by the rate control")
+    public long getRateControlRejections()
+    {
+        return rateControlRejections.get();
+    }
+
+    /**
+     * @param frameType the frame type
+     * @return the total number of frames of the given type received
+     */
+    public long getFramesReceived(FrameType frameType)
+    {
+        Metric metric = framesReceived.get(frameType);
+        return metric == null ? 0 : metric.get();
+    }
+
+    @ManagedOperation(value = "The total number of frames of the given type received", impact = "INFO")
+    public long getFramesReceived(@Name(value = "frameType", description = "The frame type, for example HEADERS") String frameType)
+    {
+        return getFramesReceived(FrameType.valueOf(frameType.toUpperCase(Locale.ENGLISH)));
+    }
+
+    /**
+     * @param frameType the frame type
+     * @return the total number of frames of the given type sent
+     */
+    public long getFramesSent(FrameType frameType)
+    {
+        Metric metric = framesSent.get(frameType);
+        return metric == null ? 0 : metric.get();
+    }
+
+    @ManagedOperation(value = "The total number of frames of the given type sent", impact = "INFO")
+    public long getFramesSent(@Name(value = "frameType", description = "The frame type, for example HEADERS") String frameType)
+    {
+        return getFramesSent(FrameType.valueOf(frameType.toUpperCase(Locale.ENGLISH)));
+    }
+
+    @Override
+    public String dump()
+    {
+        return Dumpable.dump(this);
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        Map<FrameType, Long> received = new EnumMap<>(FrameType.class);
+        Map<FrameType, Long> sent = new EnumMap<>(FrameType.class);
+        for (FrameType frameType : FRAME_TYPES)
+        {
+            received.put(frameType, getFramesReceived(frameType));
+            sent.put(frameType, getFramesSent(frameType));
+        }
+        Dumpable.dumpObjects(out, indent, this,
+            String.format("streams opened/reset/refused=%d/%d/%d", getStreamsOpened(), getStreamsReset(), getStreamsRefused()),
+            String.format("stall time session/streams=%d/%d ms", getSessionStallTime(), getStreamsStallTime()),
+            String.format("hpack hit ratio encoder/decoder=%.2f/%.2f", getHpackEncoderHitRatio(), getHpackDecoderHitRatio()),
+            String.format("rate control rejections=%d", getRateControlRejections()),
+            new DumpableCollection("frames received", received.entrySet()),
+            new DumpableCollection("frames sent", sent.entrySet()));
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[sessions=%d,streams=%d]", getClass().getSimpleName(), hashCode(), getSessions(), getStreamsOpened());
+    }
+
+    /**
+     * <p>A counter whose value is the sum of the values of the
+     * closed connections and of the currently open connections.</p>
+     */
+    private class Metric
+    {
+        private final LongAdder closed = new LongAdder();
+        private final ToLongFunction<HTTP2Connection> value;
+
+        private Metric(ToLongFunction<HTTP2Connection> value)
+        {
+            this.value = value;
+        }
+
+        private long get()
+        {
+            long result = closed.sum();
+            for (HTTP2Connection connection : connections)
+            {
+                result += value.applyAsLong(connection);
+            }
+            return result;
+        }
+
+        private void onClosed(HTTP2Connection connection)
+        {
+            closed.add(value.applyAsLong(connection));
+        }
+
+        private void reset()
+        {
+            closed.reset();
+        }
+    }
+}
@@ -32,6 +32,7 @@ public class Generator
     private final HpackEncoder hpackEncoder;
     private final FrameGenerator[] generators;
     private final DataGenerator dataGenerator;
+    private final long[] framesSent;
 
     public Generator(ByteBufferPool byteBufferPool)
     {
@@ -45,6 +46,7 @@ public class Generator
         headerGenerator = new HeaderGenerator();
         hpackEncoder = new HpackEncoder(maxDynamicTableSize);
 
+        this.framesSent = new long[FrameType.values().length];
         this.generators = new FrameGenerator[FrameType.values().length];
         this.generators[FrameType.HEADERS.getType()] = new HeadersGenerator(headerGenerator, hpackEncoder, maxHeaderBlockFragment);
         this.generators[FrameType.PRIORITY.getType()] = new PriorityGenerator(headerGenerator);
@@ -66,6 +68,20 @@ public class Generator
         return byteBufferPool;
     }
 
+    public HpackEncoder getHpackEncoder()
+    {
+        return hpackEncoder;
+    }
+
+    /**
+     * @param frameType the frame type
+     * @return the number of frames of the given type that have been generated
+     */
+    public long getFramesSent(FrameType frameType)
+    {
+        return framesSent[frameType.getType()];
+    }
+
     public void setValidateHpackEncoding(boolean validateEncoding)
     {
         hpackEncoder.setValidateEncoding(validateEncoding);
@@ -83,12 +99,17 @@ public class Generator
 
     public int control(ByteBufferPool.Lease lease, Frame frame) throws HpackException
     {
-        return generators[frame.getType().getType()].generate(lease, frame);
+        int type = frame.getType().getType();
+        int length = generators[type].generate(lease, frame);
+        ++framesSent[type];
+        return length;
     }
 
     public int data(ByteBufferPool.Lease lease, DataFrame frame, int maxLength)
     {
-        return dataGenerator.generate(lease, frame, maxLength);
+        int length = dataGenerator.generate(lease, frame, maxLength);
+        ++framesSent[FrameType.DATA.getType()];
+        return length;
     }
 
     public void setMaxHeaderListSize(int value)
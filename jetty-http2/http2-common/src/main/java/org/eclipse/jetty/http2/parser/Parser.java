@@ -53,6 +53,8 @@ public class Parser
     private final HeaderParser headerParser;
     private final HpackDecoder hpackDecoder;
     private final BodyParser[] bodyParsers;
+    private final long[] framesReceived;
+    private long rateControlRejections;
     private UnknownBodyParser unknownBodyParser;
     private int maxFrameLength = Frame.DEFAULT_MAX_LENGTH;
     private int maxSettingsKeys = SettingsFrame.DEFAULT_MAX_KEYS;
@@ -68,9 +70,21 @@ public class Parser
     {
         this.byteBufferPool = byteBufferPool;
         this.listener = listener;
-        this.headerParser = new HeaderParser(rateControl == null ? RateControl.NO_RATE_CONTROL : rateControl);
+        this.headerParser = new HeaderParser(rateControl == null ? RateControl.NO_RATE_CONTROL : countRejections(rateControl));
         this.hpackDecoder = new HpackDecoder(maxDynamicTableSize, maxHeaderSize);
         this.bodyParsers = new BodyParser[FrameType.values().length];
+        this.framesReceived = new long[FrameType.values().length];
+    }
+
+    private RateControl countRejections(RateControl rateControl)
+    {
+        return event ->
+        {
+            if (rateControl.onEvent(event))
+                return true;
+            ++rateControlRejections;
+            return false;
+        };
     }
 
     public void init(UnaryOperator<Listener> wrapper)
@@ -198,6 +212,7 @@ public class Parser
             if (!bodyParser.parse(buffer))
                 return false;
         }
+        ++framesReceived[type];
         if (LOG.isDebugEnabled())
             LOG.debug("Parsed {} frame body from {}", FrameType.from(type), buffer);
         reset();
@@ -219,6 +234,29 @@ public class Parser
         return headerParser.hasFlag(bit);
     }
 
+    public HpackDecoder getHpackDecoder()
+    {
+        return hpackDecoder;
+    }
+
+    /**
+     * @param frameType the frame type
+     * @return the number of frames of the given type that have been parsed
+     */
+    public long getFramesReceived(FrameType frameType)
+    {
+        int type = frameType.getType();
+        return type < framesReceived.length ? framesReceived[type] : 0;
+    }
+
+    /**
+     * @return the number of events rejected by the {@link RateControl}
+     */
+    public long getRateControlRejections()
+    {
+        return rateControlRejections;
+    }
+
     public int getMaxFrameLength()
     {
         return maxFrameLength;
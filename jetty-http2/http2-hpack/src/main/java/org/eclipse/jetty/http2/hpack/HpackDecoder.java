@@ -42,6 +42,8 @@ public class HpackDecoder
     private final HpackContext _context;
     private final MetaDataBuilder _builder;
     private int _localMaxDynamicTableSize;
+    private long _decodedFields;
+    private long _indexedFields;
 
     /**
      * @param localMaxDynamicTableSize The maximum allowed size of the local dynamic header field table.
@@ -64,6 +66,22 @@ public class HpackDecoder
         _localMaxDynamicTableSize = localMaxdynamciTableSize;
     }
 
+    /**
+     * @return the number of header fields decoded
+     */
+    public long getDecodedFields()
+    {
+        return _decodedFields;
+    }
+
+    /**
+     * @return the number of header fields decoded as a reference to a static or dynamic table entry
+     */
+    public long getIndexedFields()
+    {
+        return _indexedFields;
+    }
+
     public MetaData decode(ByteBuffer buffer) throws HpackException.SessionException, HpackException.StreamException
     {
         if (LOG.isDebugEnabled())
@@ -94,6 +112,9 @@ public class HpackDecoder
                 if (entry == null)
                     throw new HpackException.SessionException("Unknown index %d", index);
 
+                ++_decodedFields;
+                ++_indexedFields;
+
                 if (entry.isStatic())
                 {
                     if (LOG.isDebugEnabled())
@@ -265,6 +286,7 @@ public class HpackDecoder
                 }
 
                 // emit the field
+                ++_decodedFields;
                 emitted = true;
                 _builder.emit(field);
 
@@ -102,6 +102,8 @@ public class HpackEncoder
     private int _maxHeaderListSize;
     private int _headerListSize;
     private boolean _validateEncoding = true;
+    private long _encodedFields;
+    private long _indexedFields;
 
     public HpackEncoder()
     {
@@ -162,6 +164,22 @@ public class HpackEncoder
         _validateEncoding = validateEncoding;
     }
 
+    /**
+     * @return the number of header fields encoded
+     */
+    public long getEncodedFields()
+    {
+        return _encodedFields;
+    }
+
+    /**
+     * @return the number of header fields encoded as a reference to a static or dynamic table entry
+     */
+    public long getIndexedFields()
+    {
+        return _indexedFields;
+    }
+
     public void encode(ByteBuffer buffer, MetaData metadata) throws HpackException
     {
         try
@@ -289,8 +307,10 @@ public class HpackEncoder
 
         // Is there an entry for the field?
         Entry entry = _context.get(field);
+        ++_encodedFields;
         if (entry != null)
         {
+            ++_indexedFields;
             // Known field entry, so encode it as indexed
             if (entry.isStatic())
             {
@@ -27,6 +27,7 @@ import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.jetty.client.ConnectionPool;
 import org.eclipse.jetty.client.HttpChannel;
 import org.eclipse.jetty.client.HttpConnection;
 import org.eclipse.jetty.client.HttpDestination;
@@ -35,6 +36,7 @@ import org.eclipse.jetty.client.HttpRequest;
 import org.eclipse.jetty.client.SendFailure;
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.http2.ErrorCode;
+import org.eclipse.jetty.http2.HTTP2Session;
 import org.eclipse.jetty.http2.IStream;
 import org.eclipse.jetty.http2.api.Session;
 import org.eclipse.jetty.util.Callback;
@@ -42,7 +44,7 @@ import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.thread.Sweeper;
 
-public class HttpConnectionOverHTTP2 extends HttpConnection implements Sweeper.Sweepable
+public class HttpConnectionOverHTTP2 extends HttpConnection implements Sweeper.Sweepable, ConnectionPool.FlowControlled
 {
     private static final Logger LOG = Log.getLogger(HttpConnection.class);
 
@@ -74,6 +76,14 @@ public class HttpConnectionOverHTTP2 extends HttpConnection implements Sweeper.S
         this.recycleHttpChannels = recycleHttpChannels;
     }
 
+    @Override
+    public long getSendBacklog()
+    {
+        if (session instanceof HTTP2Session)
+            return ((HTTP2Session)session).getDataBytesPending();
+        return 0;
+    }
+
     @Override
     protected SendFailure send(HttpExchange exchange)
     {
@@ -37,6 +37,7 @@ import org.eclipse.jetty.client.AbstractConnectionPool;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.HttpDestination;
 import org.eclipse.jetty.client.HttpResponseException;
+import org.eclipse.jetty.client.LeastLoadedConnectionPool;
 import org.eclipse.jetty.client.api.ContentResponse;
 import org.eclipse.jetty.client.api.Response;
 import org.eclipse.jetty.client.api.Result;
@@ -401,6 +402,49 @@ public class MaxConcurrentStreamsTest extends AbstractTest
         assertTrue(latch.await(2 * timeout, TimeUnit.MILLISECONDS));
     }
 
+    @Test
+    public void testLeastLoadedConnectionPoolOpensConnectionInAdvance() throws Exception
+    {
+        int maxStreams = 2;
+        long sleep = 1000;
+        startServer(maxStreams, new EmptyServerHandler()
+        {
+            @Override
+            protected void service(String target, Request jettyRequest, HttpServletRequest request, HttpServletResponse response)
+            {
+                if (!target.endsWith("/prime"))
+                    sleep(sleep);
+            }
+        });
+        prepareClient();
+        client.getTransport().setConnectionPoolFactory(destination ->
+            new LeastLoadedConnectionPool(destination, client.getMaxConnectionsPerDestination(), destination, client.getMaxRequestsQueuedPerDestination()));
+        client.start();
+
+        primeConnection();
+
+        // The second request reaches the open ratio and opens a new connection in advance,
+        // so that the third request does not wait for the first two to complete.
+        int requests = 3;
+        CountDownLatch latch = new CountDownLatch(requests);
+        for (int i = 0; i < requests; ++i)
+        {
+            client.newRequest("localhost", connector.getLocalPort())
+                .path("/" + i)
+                .send(result ->
+                {
+                    if (result.isSucceeded() && result.getResponse().getStatus() == HttpStatus.OK_200)
+                        latch.countDown();
+                });
+            sleep(100);
+        }
+
+        assertTrue(latch.await(3 * sleep / 2, TimeUnit.MILLISECONDS));
+        HttpDestination destination = (HttpDestination)client.getDestination("http", "localhost", connector.getLocalPort());
+        AbstractConnectionPool connectionPool = (AbstractConnectionPool)destination.getConnectionPool();
+        assertEquals(2, connectionPool.getConnectionCount());
+    }
+
     private void primeConnection() throws Exception
     {
         // Prime the connection so that the maxConcurrentStream setting arrives to the client.
@@ -0,0 +1,507 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http2.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpURI;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.pathmap.MappedResource;
+import org.eclipse.jetty.http.pathmap.PathMappings;
+import org.eclipse.jetty.http2.HTTP2Session;
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.PushBuilder;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>An HTTP/2 push engine that learns the dependencies between resources.</p>
+ * <p>Like {@code PushCacheFilter}, this engine associates secondary resources
+ * to primary resources using the {@code Referer} header of the requests that
+ * arrive shortly after the request for the primary resource.
+ * Differently from {@code PushCacheFilter}, each association has a score that
+ * decays over time with a configurable {@link #getHalfLife() half-life},
+ * and only the associations requested often enough with their primary resource
+ * (see {@link #getMinConfidence()}) are pushed, most likely first.
+ * The dependency graph is bounded both in the number of primary resources and
+ * in the number of associations per primary resource, and primary resources
+ * matching a {@link #addPathSpec(String) path spec} share the same associations.</p>
+ * <p>Each connection remembers the resources already pushed in a small bloom filter,
+ * so that resources the client likely has already received are not pushed again.
+ * Resources are not pushed when the request is conditional, or when the session
+ * has DATA stalled by flow control, to avoid competing for bandwidth with the
+ * responses that the client has explicitly requested.</p>
+ * <p>This engine must be added as a bean to the connector, where it is notified
+ * of requests as a {@link HttpChannel.Listener} and of connection closes as a
+ * {@link Connection.Listener}.</p>
+ */
+@ManagedObject("Push engine based on learned resource dependencies")
+public class PushEngine implements HttpChannel.Listener, Connection.Listener
+{
+    private static final Logger LOG = Log.getLogger(PushEngine.class);
+
+    private final ConcurrentMap<String, PrimaryResource> resources = new ConcurrentHashMap<>();
+    private final ConcurrentMap<EndPoint, PushedFilter> pushed = new ConcurrentHashMap<>();
+    private final PathMappings<String> pathSpecs = new PathMappings<>();
+    private long associatePeriod = 4000L;
+    private long halfLife = TimeUnit.MINUTES.toMillis(10);
+    private int maxPrimaryResources = 1024;
+    private int maxAssociations = 16;
+    private int maxPushes = 16;
+    private double minConfidence = 0.5D;
+    private int pushedFilterBits = 4096;
+
+    /**
+     * <p>Adds a path spec whose matching primary resources share the same associations.</p>
+     *
+     * @param pathSpec the path spec, for example {@code /product/*}
+     */
+    public void addPathSpec(String pathSpec)
+    {
+        pathSpecs.put(pathSpec, pathSpec);
+    }
+
+    @ManagedAttribute("The period in ms within which secondary resources are associated to primary resources")
+    public long getAssociatePeriod()
+    {
+        return associatePeriod;
+    }
+
+    public void setAssociatePeriod(long associatePeriod)
+    {
+        this.associatePeriod = associatePeriod;
+    }
+
+    @ManagedAttribute("The half-life in ms of the association scores")
+    public long getHalfLife()
+    {
+        return halfLife;
+    }
+
+    public void setHalfLife(long halfLife)
+    {
+        if (halfLife <= 0)
+            throw new IllegalArgumentException("Invalid half-life " + halfLife);
+        this.halfLife = halfLife;
+    }
+
+    @ManagedAttribute("The max number of primary resources")
+    public int getMaxPrimaryResources()
+    {
+        return maxPrimaryResources;
+    }
+
+    public void setMaxPrimaryResources(int maxPrimaryResources)
+    {
+        this.maxPrimaryResources = maxPrimaryResources;
+    }
+
+    @ManagedAttribute("The max number of associations per primary resource")
+    public int getMaxAssociations()
+    {
+        return maxAssociations;
+    }
+
+    public void setMaxAssociations(int maxAssociations)
+    {
+        this.maxAssociations = maxAssociations;
+    }
+
+    @ManagedAttribute("The max number of resources pushed per request")
+    public int getMaxPushes()
+    {
+        return maxPushes;
+    }
+
+    public void setMaxPushes(int maxPushes)
+    {
+        this.maxPushes = maxPushes;
+    }
+
+    @ManagedAttribute("The min ratio of association score to primary resource score for a resource to be pushed")
+    public double getMinConfidence()
+    {
+        return minConfidence;
+    }
+
+    public void setMinConfidence(double minConfidence)
+    {
+        this.minConfidence = minConfidence;
+    }
+
+    @ManagedAttribute("The size in bits of the per-connection filter of pushed resources")
+    public int getPushedFilterBits()
+    {
+        return pushedFilterBits;
+    }
+
+    public void setPushedFilterBits(int pushedFilterBits)
+    {
+        if (pushedFilterBits <= 0)
+            throw new IllegalArgumentException("Invalid pushed filter bits " + pushedFilterBits);
+        this.pushedFilterBits = pushedFilterBits;
+    }
+
+    @ManagedAttribute("The number of primary resources")
+    public int getPrimaryResourceCount()
+    {
+        return resources.size();
+    }
+
+    @ManagedAttribute("The push dependency graph contents")
+    public Map<String, String> getDependencies()
+    {
+        long now = System.nanoTime();
+        Map<String, String> result = new TreeMap<>();
+        for (Map.Entry<String, PrimaryResource> entry : resources.entrySet())
+        {
+            result.put(entry.getKey(), entry.getValue().toString(now));
+        }
+        return result;
+    }
+
+    @ManagedOperation(value = "Clears the push dependency graph", impact = "ACTION")
+    public void clear()
+    {
+        resources.clear();
+    }
+
+    @Override
+    public void onBeforeDispatch(Request request)
+    {
+        if (HttpVersion.fromString(request.getProtocol()).getVersion() < 20 ||
+            !HttpMethod.GET.is(request.getMethod()) ||
+            !request.isPushSupported() ||
+            request.getAttribute("org.eclipse.jetty.pushed") != null)
+            return;
+
+        HttpFields fields = request.getHttpFields();
+        boolean conditional = false;
+        String referrer = null;
+        for (int i = 0; i < fields.size(); i++)
+        {
+            HttpField field = fields.getField(i);
+            HttpHeader header = field.getHeader();
+            if (header == null)
+                continue;
+            switch (header)
+            {
+                case IF_MATCH:
+                case IF_MODIFIED_SINCE:
+                case IF_NONE_MATCH:
+                case IF_UNMODIFIED_SINCE:
+                    conditional = true;
+                    break;
+                case REFERER:
+                    referrer = field.getValue();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        long now = System.nanoTime();
+        String path = request.getRequestURI();
+
+        if (referrer != null)
+        {
+            HttpURI referrerURI = new HttpURI(referrer);
+            String referrerPath = referrerURI.getPath();
+            int port = referrerURI.getPort();
+            if (port <= 0)
+                port = request.getServerPort();
+            if (referrerPath != null &&
+                request.getServerName().equalsIgnoreCase(referrerURI.getHost()) &&
+                port == request.getServerPort())
+                associate(referrerPath, path, now);
+        }
+
+        List<String> paths = onPrimaryResource(path, now);
+        if (conditional || paths.isEmpty() || isCongested(request))
+            return;
+
+        PushedFilter filter = pushed.computeIfAbsent(request.getHttpChannel().getEndPoint(), endPoint -> new PushedFilter(getPushedFilterBits()));
+        PushBuilder pushBuilder = request.getPushBuilder();
+        for (String resource : paths)
+        {
+            if (!filter.add(resource))
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Not pushing {} for {}, likely already pushed", resource, path);
+                continue;
+            }
+            if (LOG.isDebugEnabled())
+                LOG.debug("Pushing {} for {}", resource, path);
+            pushBuilder.path(resource).push();
+        }
+    }
+
+    private boolean isCongested(Request request)
+    {
+        HttpChannel channel = request.getHttpChannel();
+        if (channel instanceof HttpChannelOverHTTP2)
+        {
+            Session session = ((HttpChannelOverHTTP2)channel).getStream().getSession();
+            if (session instanceof HTTP2Session)
+                return ((HTTP2Session)session).getDataBytesPending() > 0;
+        }
+        return false;
+    }
+
+    @Override
+    public void onOpened(Connection connection)
+    {
+    }
+
+    @Override
+    public void onClosed(Connection connection)
+    {
+        pushed.remove(connection.getEndPoint());
+    }
+
+    private String keyOf(String path)
+    {
+        MappedResource<String> mapped = pathSpecs.getMatch(path);
+        return mapped == null ? path : mapped.getResource();
+    }
+
+    /**
+     * <p>Records a request for a secondary resource that refers to a primary resource.</p>
+     *
+     * @param primaryPath the path of the primary resource
+     * @param secondaryPath the path of the secondary resource
+     * @param nanoTime the time of the request, in nanoseconds
+     */
+    protected void associate(String primaryPath, String secondaryPath, long nanoTime)
+    {
+        if (primaryPath.equals(secondaryPath))
+            return;
+        PrimaryResource primary = resources.get(keyOf(primaryPath));
+        if (primary == null)
+            return;
+        long elapsed = nanoTime - primary.requested.get();
+        if (elapsed > TimeUnit.MILLISECONDS.toNanos(getAssociatePeriod()))
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Not associated {} to {}, outside associate period of {}ms", secondaryPath, primaryPath, getAssociatePeriod());
+            return;
+        }
+        primary.associate(secondaryPath, nanoTime);
+        if (LOG.isDebugEnabled())
+            LOG.debug("Associated {} to {}", secondaryPath, primaryPath);
+    }
+
+    /**
+     * <p>Records a request for a primary resource.</p>
+     *
+     * @param path the path of the primary resource
+     * @param nanoTime the time of the request, in nanoseconds
+     * @return the paths of the secondary resources to push, most likely first
+     */
+    protected List<String> onPrimaryResource(String path, long nanoTime)
+    {
+        String key = keyOf(path);
+        PrimaryResource primary = resources.get(key);
+        if (primary == null)
+        {
+            if (resources.size() >= getMaxPrimaryResources())
+                evict();
+            primary = resources.computeIfAbsent(key, k -> new PrimaryResource());
+        }
+        return primary.request(path, nanoTime);
+    }
+
+    private void evict()
+    {
+        // Evict the least recently requested primary resource.
+        String eldest = null;
+        long eldestAge = -1;
+        long now = System.nanoTime();
+        for (Map.Entry<String, PrimaryResource> entry : resources.entrySet())
+        {
+            long age = now - entry.getValue().requested.get();
+            if (age > eldestAge)
+            {
+                eldest = entry.getKey();
+                eldestAge = age;
+            }
+        }
+        if (eldest != null)
+        {
+            resources.remove(eldest);
+            if (LOG.isDebugEnabled())
+                LOG.debug("Evicted primary resource {}", eldest);
+        }
+    }
+
+    private double decay(double score, long elapsedNanos)
+    {
+        if (elapsedNanos <= 0)
+            return score;
+        return score * Math.pow(0.5D, (double)elapsedNanos / TimeUnit.MILLISECONDS.toNanos(getHalfLife()));
+    }
+
+    private class PrimaryResource
+    {
+        private final AtomicLong requested = new AtomicLong(System.nanoTime());
+        private final Map<String, Score> associations = new HashMap<>();
+        private final Score score = new Score();
+
+        private synchronized List<String> request(String path, long nanoTime)
+        {
+            requested.set(nanoTime);
+            // The confidence is computed on the requests seen so far.
+            double threshold = score.decayed(nanoTime) * getMinConfidence();
+            score.increment(nanoTime);
+            if (associations.isEmpty())
+                return new ArrayList<>();
+
+            List<Map.Entry<String, Score>> candidates = new ArrayList<>();
+            for (Map.Entry<String, Score> entry : associations.entrySet())
+            {
+                if (entry.getKey().equals(path))
+                    continue;
+                if (entry.getValue().decayed(nanoTime) >= threshold)
+                    candidates.add(entry);
+            }
+            candidates.sort((e1, e2) -> Double.compare(e2.getValue().value, e1.getValue().value));
+
+            int max = Math.min(candidates.size(), getMaxPushes());
+            List<String> result = new ArrayList<>(max);
+            for (int i = 0; i < max; ++i)
+            {
+                result.add(candidates.get(i).getKey());
+            }
+            return result;
+        }
+
+        private synchronized void associate(String path, long nanoTime)
+        {
+            Score association = associations.get(path);
+            if (association == null)
+            {
+                if (associations.size() >= getMaxAssociations())
+                {
+                    // Replace the weakest association.
+                    Iterator<Map.Entry<String, Score>> iterator = associations.entrySet().iterator();
+                    Map.Entry<String, Score> weakest = null;
+                    while (iterator.hasNext())
+                    {
+                        Map.Entry<String, Score> entry = iterator.next();
+                        if (weakest == null || entry.getValue().decayed(nanoTime) < weakest.getValue().value)
+                            weakest = entry;
+                    }
+                    if (weakest != null)
+                        associations.remove(weakest.getKey());
+                }
+                association = new Score();
+                associations.put(path, association);
+            }
+            association.increment(nanoTime);
+        }
+
+        private synchronized String toString(long nanoTime)
+        {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format("score=%.2f:", score.decayed(nanoTime)));
+            for (Map.Entry<String, Score> entry : new TreeMap<>(associations).entrySet())
+            {
+                builder.append(String.format(" %s=%.2f", entry.getKey(), entry.getValue().decayed(nanoTime)));
+            }
+            return builder.toString();
+        }
+    }
+
+    private class Score
+    {
+        private double value;
+        private long updated = Long.MIN_VALUE;
+
+        private double decayed(long nanoTime)
+        {
+            if (updated != Long.MIN_VALUE)
+                value = decay(value, nanoTime - updated);
+            updated = nanoTime;
+            return value;
+        }
+
+        private void increment(long nanoTime)
+        {
+            value = decayed(nanoTime) + 1;
+        }
+    }
+
+    /**
+     * <p>A bloom filter of the resource paths pushed on a connection.</p>
+     */
+    private static class PushedFilter
+    {
+        private final long[] bits;
+        private final int size;
+
+        private PushedFilter(int size)
+        {
+            this.bits = new long[(size + 63) / 64];
+            this.size = bits.length * 64;
+        }
+
+        /**
+         * @param path the pushed path
+         * @return true if the path was not already in the filter
+         */
+        private synchronized boolean add(String path)
+        {
+            int hash1 = path.hashCode();
+            int hash2 = hash1 * 0x9E3779B9;
+            hash2 ^= hash2 >>> 15;
+            boolean added = false;
+            for (int i = 0; i < 3; ++i)
+            {
+                int bit = Math.floorMod(hash1 + i * hash2, size);
+                long mask = 1L << (bit & 63);
+                if ((bits[bit >>> 6] & mask) == 0)
+                {
+                    bits[bit >>> 6] |= mask;
+                    added = true;
+                }
+            }
+            return added;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.http2.server;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class PushEngineTest
+{
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testAssociationsPushedMostLikelyFirst()
+    {
+        PushEngine engine = new PushEngine();
+        long now = 0;
+        for (int i = 0; i < 10; ++i)
+        {
+            now += SECOND;
+            engine.onPrimaryResource("/index.html", now);
+            engine.associate("/index.html", "/main.css", now);
+            if (i < 7)
+                engine.associate("/index.html", "/main.js", now);
+            if (i == 0)
+                engine.associate("/index.html", "/rare.png", now);
+        }
+
+        List<String> paths = engine.onPrimaryResource("/index.html", now + SECOND);
+        assertThat(paths, contains("/main.css", "/main.js"));
+    }
+
+    @Test
+    public void testAssociationOutsidePeriodIgnored()
+    {
+        PushEngine engine = new PushEngine();
+        engine.setAssociatePeriod(1000);
+        engine.onPrimaryResource("/index.html", 0);
+        engine.associate("/index.html", "/late.css", 2 * SECOND);
+        assertThat(engine.onPrimaryResource("/index.html", 3 * SECOND), empty());
+    }
+
+    @Test
+    public void testAssociationsDecay()
+    {
+        PushEngine engine = new PushEngine();
+        engine.setHalfLife(1000);
+        engine.onPrimaryResource("/index.html", 0);
+        engine.associate("/index.html", "/old.css", 0);
+        assertThat(engine.onPrimaryResource("/index.html", SECOND / 2), contains("/old.css"));
+
+        // The page keeps being requested, but the old resource is not anymore.
+        long now = SECOND / 2;
+        for (int i = 0; i < 10; ++i)
+        {
+            now += SECOND / 2;
+            engine.onPrimaryResource("/index.html", now);
+        }
+        assertThat(engine.onPrimaryResource("/index.html", now), empty());
+    }
+
+    @Test
+    public void testPathSpecSharesAssociations()
+    {
+        PushEngine engine = new PushEngine();
+        engine.addPathSpec("/product/*");
+        engine.onPrimaryResource("/product/1", 0);
+        engine.associate("/product/1", "/product.css", 0);
+        assertThat(engine.onPrimaryResource("/product/2", SECOND), contains("/product.css"));
+    }
+
+    @Test
+    public void testBounded()
+    {
+        PushEngine engine = new PushEngine();
+        engine.setMaxPrimaryResources(2);
+        engine.setMaxAssociations(2);
+        engine.onPrimaryResource("/a", 0);
+        engine.associate("/a", "/1", 0);
+        engine.associate("/a", "/1", 0);
+        engine.associate("/a", "/2", 0);
+        engine.associate("/a", "/3", 0);
+        assertThat(engine.onPrimaryResource("/a", 0), contains("/1", "/3"));
+
+        engine.onPrimaryResource("/b", 0);
+        engine.onPrimaryResource("/c", 0);
+        assertThat(engine.getPrimaryResourceCount(), is(2));
+    }
+}
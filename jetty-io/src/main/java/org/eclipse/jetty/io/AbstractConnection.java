@@ -41,8 +41,8 @@ public abstract class AbstractConnection implements Connection
     private static final Logger LOG = Log.getLogger(AbstractConnection.class);
 
     private final List<Listener> _listeners = new CopyOnWriteArrayList<>();
-    private final long _created = System.currentTimeMillis();
-    private final EndPoint _endPoint;
+    private long _created = System.currentTimeMillis();
+    private EndPoint _endPoint;
     private final Executor _executor;
     private final Callback _readCallback;
     private int _inputBufferSize = 2048;
@@ -248,6 +248,24 @@ public abstract class AbstractConnection implements Connection
         return _endPoint;
     }
 
+    /**
+     * <p>Binds this connection to a new {@link EndPoint}, so that a connection
+     * whose previous endpoint has been closed can be reused.</p>
+     * <p>The listeners and the creation timestamp are reset; subclasses must
+     * reset their own per-connection state.</p>
+     *
+     * @param endPoint the new endpoint
+     * @throws IllegalStateException if the current endpoint is still open
+     */
+    protected void setEndPoint(EndPoint endPoint)
+    {
+        if (_endPoint != null && _endPoint.isOpen())
+            throw new IllegalStateException("Open " + _endPoint);
+        _endPoint = endPoint;
+        _created = System.currentTimeMillis();
+        _listeners.clear();
+    }
+
     @Override
     public void close()
     {
@@ -649,11 +649,18 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
     class Acceptor implements SelectorUpdate, Selectable, Closeable
     {
         private final SelectableChannel _channel;
+        private final boolean _owner;
         private SelectionKey _key;
 
         public Acceptor(SelectableChannel channel)
+        {
+            this(channel, false);
+        }
+
+        Acceptor(SelectableChannel channel, boolean owner)
         {
             this._channel = channel;
+            this._owner = owner;
         }
 
         @Override
@@ -688,7 +695,10 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                     channel = _selectorManager.doAccept(server);
                     if (channel == null)
                         break;
-                    _selectorManager.accepted(channel);
+                    if (_owner)
+                        _selectorManager.accepted(channel, _id);
+                    else
+                        _selectorManager.accepted(channel);
                 }
             }
             catch (Throwable x)
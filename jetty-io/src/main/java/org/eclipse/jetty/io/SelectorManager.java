@@ -235,6 +235,57 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
         return acceptor;
     }
 
+    /**
+     * <p>Registers a server channel for accept operations with the selector at the given index.
+     * Unlike {@link #acceptor(SelectableChannel)}, the channels accepted from the given
+     * server channel are not distributed among the selectors: the {@link #accepted(SelectableChannel, int)}
+     * method is called, which by default delegates to {@link #accepted(SelectableChannel)}.</p>
+     * <p>This allows each selector to own a listening socket (for example bound with
+     * {@code SO_REUSEPORT}) and the connections accepted from it.</p>
+     *
+     * @param server the server channel to register
+     * @param selector the index of the selector, from {@code 0} to {@link #getSelectorCount()} excluded
+     * @return A Closable that allows the acceptor to be cancelled
+     */
+    public Closeable acceptor(SelectableChannel server, int selector)
+    {
+        ManagedSelector managedSelector = _selectors[selector];
+        ManagedSelector.Acceptor acceptor = managedSelector.new Acceptor(server, true);
+        managedSelector.submit(acceptor);
+        return acceptor;
+    }
+
+    /**
+     * <p>Registers a channel to perform non-blocking read/write operations
+     * with the selector at the given index.</p>
+     *
+     * @param channel the channel to register
+     * @param attachment the attachment object
+     * @param selector the index of the selector, from {@code 0} to {@link #getSelectorCount()} excluded
+     * @see #accept(SelectableChannel, Object)
+     */
+    public void accept(SelectableChannel channel, Object attachment, int selector)
+    {
+        ManagedSelector managedSelector = _selectors[selector];
+        managedSelector.submit(managedSelector.new Accept(channel, attachment));
+    }
+
+    /**
+     * Callback method when a channel is accepted from a server channel passed to
+     * {@link #acceptor(SelectableChannel, int)}.
+     * The default impl delegates to {@link #accepted(SelectableChannel)}, so the
+     * channel is distributed among the selectors.
+     *
+     * @param channel the accepted channel
+     * @param selector the index of the selector that accepted the channel
+     * @throws IOException if unable to accept channel
+     * @see #accept(SelectableChannel, Object, int)
+     */
+    protected void accepted(SelectableChannel channel, int selector) throws IOException
+    {
+        accepted(channel);
+    }
+
     /**
      * Callback method when a channel is accepted from the {@link ServerSocketChannel}
      * passed to {@link #acceptor(SelectableChannel)}.
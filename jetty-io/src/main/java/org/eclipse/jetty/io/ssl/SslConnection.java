@@ -24,6 +24,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.ToIntFunction;
 import javax.net.ssl.SSLEngine;
@@ -94,14 +95,16 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
     {
         IDLE, // Not Filling any data
         INTERESTED, // We have a pending read interest
-        WAIT_FOR_FLUSH // Waiting for a flush to happen
+        WAIT_FOR_FLUSH, // Waiting for a flush to happen
+        WAIT_FOR_TASK // Waiting for a delegated task to complete
     }
 
     private enum FlushState
     {
         IDLE, // Not flushing any data
         WRITING, // We have a pending write of encrypted data
-        WAIT_FOR_FILL // Waiting for a fill to happen
+        WAIT_FOR_FILL, // Waiting for a fill to happen
+        WAIT_FOR_TASK // Waiting for a delegated task to complete
     }
 
     private final List<SslHandshakeListener> handshakeListeners = new ArrayList<>();
@@ -121,6 +124,9 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
     private FillState _fillState = FillState.IDLE;
     private AtomicReference<HandshakeState> _handshake = new AtomicReference<>(HandshakeState.INITIAL);
     private boolean _underflown;
+    private long _handshakeStarted;
+    private Executor _delegatedTaskExecutor;
+    private boolean _delegatedTaskPending;
 
     private abstract class RunnableTask implements Runnable, Invocable
     {
@@ -252,6 +258,29 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
         _renegotiationLimit = renegotiationLimit;
     }
 
+    /**
+     * @return the executor of {@link SSLEngine#getDelegatedTask() SSLEngine delegated tasks},
+     * or null if delegated tasks are run by the thread performing the fill or flush
+     */
+    public Executor getDelegatedTaskExecutor()
+    {
+        return _delegatedTaskExecutor;
+    }
+
+    /**
+     * <p>Sets the executor of {@link SSLEngine#getDelegatedTask() SSLEngine delegated tasks}.</p>
+     * <p>Delegated tasks perform the expensive cryptographic operations of the TLS handshake.
+     * By default they are run by the thread performing the fill or flush, typically an I/O
+     * thread; when an executor is set, they are submitted to it and fills and flushes resume
+     * when the task completes.</p>
+     *
+     * @param executor the executor of delegated tasks, or null to run delegated tasks inline
+     */
+    public void setDelegatedTaskExecutor(Executor executor)
+    {
+        _delegatedTaskExecutor = executor;
+    }
+
     /**
      * @return whether is not required that peers send the TLS {@code close_notify} message
      * @deprecated use inverted {@link #isRequireCloseMessage()} instead
@@ -333,8 +362,19 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
 
     private void acquireEncryptedInput()
     {
+        int packetBufferSize = getPacketBufferSize();
         if (_encryptedInput == null)
-            _encryptedInput = _bufferPool.acquire(getPacketBufferSize(), _encryptedDirectBuffers);
+        {
+            _encryptedInput = _bufferPool.acquire(packetBufferSize, _encryptedDirectBuffers);
+        }
+        else if (_encryptedInput.capacity() < packetBufferSize)
+        {
+            // The partial record was compacted into a small buffer, see releaseEncryptedInputBuffer().
+            ByteBuffer partial = _encryptedInput;
+            _encryptedInput = _bufferPool.acquire(packetBufferSize, _encryptedDirectBuffers);
+            BufferUtil.append(_encryptedInput, partial);
+            _bufferPool.release(partial);
+        }
     }
 
     private void acquireEncryptedOutput()
@@ -365,6 +405,20 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
     {
         _decryptedEndPoint.getConnection().onClose();
         super.onClose();
+        synchronized (_decryptedEndPoint)
+        {
+            // Input that will never be unwrapped, e.g. a partial TLS record.
+            if (_encryptedInput != null)
+            {
+                _bufferPool.release(_encryptedInput);
+                _encryptedInput = null;
+            }
+            if (_decryptedInput != null)
+            {
+                _bufferPool.release(_decryptedInput);
+                _decryptedInput = null;
+            }
+        }
     }
 
     @Override
@@ -440,11 +494,25 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
 
     private void releaseEncryptedInputBuffer()
     {
-        if (_encryptedInput != null && !_encryptedInput.hasRemaining())
+        if (_encryptedInput == null)
+            return;
+        int remaining = _encryptedInput.remaining();
+        if (remaining == 0)
         {
             _bufferPool.release(_encryptedInput);
             _encryptedInput = null;
         }
+        else if (_underflown && remaining <= _encryptedInput.capacity() / 8)
+        {
+            // Only a fragment of a TLS record is available, and the rest
+            // may arrive much later (or never, for idle or slow clients),
+            // so keep the fragment in a small buffer rather than retaining
+            // a whole packet buffer for the connection.
+            ByteBuffer partial = _bufferPool.acquire(remaining, _encryptedDirectBuffers);
+            BufferUtil.append(partial, _encryptedInput);
+            _bufferPool.release(_encryptedInput);
+            _encryptedInput = partial;
+        }
     }
 
     protected void releaseDecryptedInputBuffer()
@@ -639,8 +707,10 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                                     break;
 
                                 case NEED_TASK:
-                                    _sslEngine.getDelegatedTask().run();
-                                    continue;
+                                    if (runDelegatedTask())
+                                        continue;
+                                    _fillState = FillState.WAIT_FOR_TASK;
+                                    return filled = 0;
 
                                 case NEED_WRAP:
                                     if (_flushState == FlushState.IDLE && flush(BufferUtil.EMPTY_BUFFER))
@@ -691,6 +761,7 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
 
                             if (_handshake.compareAndSet(HandshakeState.INITIAL, HandshakeState.HANDSHAKE))
                             {
+                                _handshakeStarted = System.currentTimeMillis();
                                 if (LOG.isDebugEnabled())
                                     LOG.debug("fill starting handshake {}", SslConnection.this);
                             }
@@ -931,6 +1002,90 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
             return failure;
         }
 
+        /**
+         * <p>Runs the pending {@link SSLEngine#getDelegatedTask() delegated task},
+         * either inline or, if configured, in the delegated task executor.</p>
+         * <p>Must be called while holding the lock.</p>
+         *
+         * @return true if the delegated task has completed and the caller can proceed,
+         * false if the delegated task is running in the delegated task executor
+         */
+        private boolean runDelegatedTask()
+        {
+            if (_delegatedTaskPending)
+                return false;
+
+            Runnable task = _sslEngine.getDelegatedTask();
+            if (task == null)
+                return true;
+
+            Executor executor = _delegatedTaskExecutor;
+            if (executor == null)
+            {
+                task.run();
+                return true;
+            }
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("Delegating {} to {} for {}", task, executor, SslConnection.this);
+            _delegatedTaskPending = true;
+            try
+            {
+                executor.execute(() -> runDelegatedTask(task));
+            }
+            catch (RejectedExecutionException x)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Delegated task rejected, running it inline", x);
+                _delegatedTaskPending = false;
+                task.run();
+            }
+            // The executor may have run the task in this thread.
+            return !_delegatedTaskPending;
+        }
+
+        private void runDelegatedTask(Runnable task)
+        {
+            try
+            {
+                task.run();
+            }
+            catch (Throwable x)
+            {
+                // Failures are reported by the SSLEngine on the next wrap or unwrap.
+                LOG.ignore(x);
+            }
+            finally
+            {
+                onDelegatedTaskCompleted();
+            }
+        }
+
+        private void onDelegatedTaskCompleted()
+        {
+            boolean fillable;
+            boolean flushable;
+            synchronized (_decryptedEndPoint)
+            {
+                _delegatedTaskPending = false;
+                fillable = _fillState == FillState.WAIT_FOR_TASK;
+                if (fillable)
+                    _fillState = FillState.IDLE;
+                flushable = _flushState == FlushState.WAIT_FOR_TASK;
+                if (flushable)
+                    _flushState = FlushState.IDLE;
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Delegated task completed fillable={} flushable={} {}", fillable, flushable, SslConnection.this);
+            }
+
+            // Resume the fill and flush in the connection executor,
+            // so that delegated task threads never run application code.
+            if (flushable)
+                getExecutor().execute(() -> getWriteFlusher().completeWrite());
+            if (fillable)
+                getExecutor().execute(_runFillable);
+        }
+
         private void terminateInput()
         {
             try
@@ -1007,8 +1162,10 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
                                     break;
 
                                 case NEED_TASK:
-                                    _sslEngine.getDelegatedTask().run();
-                                    continue;
+                                    if (runDelegatedTask())
+                                        continue;
+                                    _flushState = FlushState.WAIT_FOR_TASK;
+                                    return result = false;
 
                                 case NEED_UNWRAP:
                                     // Workaround for Java 11 behavior.
@@ -1033,6 +1190,7 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
 
                             if (_handshake.compareAndSet(HandshakeState.INITIAL, HandshakeState.HANDSHAKE))
                             {
+                                _handshakeStarted = System.currentTimeMillis();
                                 if (LOG.isDebugEnabled())
                                     LOG.debug("flush starting handshake {}", SslConnection.this);
                             }
@@ -1376,7 +1534,7 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
             for (SslHandshakeListener listener : handshakeListeners)
             {
                 if (event == null)
-                    event = new SslHandshakeListener.Event(sslEngine);
+                    event = new SslHandshakeListener.Event(sslEngine, isSessionResumed(sslEngine));
                 try
                 {
                     listener.handshakeSucceeded(event);
@@ -1392,6 +1550,13 @@ public class SslConnection extends AbstractConnection implements Connection.Upgr
             }
         }
 
+        private boolean isSessionResumed(SSLEngine sslEngine)
+        {
+            // A resumed session was created by a previous handshake,
+            // while a full handshake creates a new session.
+            return sslEngine.getSession().getCreationTime() < _handshakeStarted;
+        }
+
         private void notifyHandshakeFailed(SSLEngine sslEngine, Throwable failure)
         {
             SslHandshakeListener.Event event = null;
@@ -0,0 +1,260 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io.ssl;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.component.Dumpable;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.statistic.CounterStatistic;
+import org.eclipse.jetty.util.statistic.SampleStatistic;
+
+/**
+ * <p>A bounded {@link Executor} for {@link javax.net.ssl.SSLEngine#getDelegatedTask() SSLEngine delegated tasks}.</p>
+ * <p>Delegated tasks perform the expensive cryptographic operations of TLS handshakes.
+ * This executor runs at most {@code maxThreads} delegated tasks concurrently in the
+ * given executor, and queues at most {@code maxQueued} delegated tasks.
+ * When the queue is full, {@link #execute(Runnable)} throws
+ * {@link RejectedExecutionException} and {@link SslConnection} runs the
+ * delegated task inline, as if no delegated task executor was configured.</p>
+ * <p>Typical usage is to share an instance between all the SSL connections
+ * of a connector, for example via {@code SslConnectionFactory.setDelegatedTaskExecutor(Executor)},
+ * so that handshake storms do not occupy the threads that read other connections.</p>
+ */
+@ManagedObject("A bounded executor for SSLEngine delegated tasks")
+public class SslDelegatedTaskExecutor implements Executor, Dumpable
+{
+    private static final Logger LOG = Log.getLogger(SslDelegatedTaskExecutor.class);
+
+    private final Deque<Task> _queue = new ArrayDeque<>();
+    private final CounterStatistic _queued = new CounterStatistic();
+    private final SampleStatistic _queueLatency = new SampleStatistic();
+    private final SampleStatistic _taskLatency = new SampleStatistic();
+    private final LongAdder _rejected = new LongAdder();
+    private final Executor _executor;
+    private final int _maxThreads;
+    private final int _maxQueued;
+    private int _active;
+
+    /**
+     * @param executor the executor that provides the threads to run delegated tasks
+     * @param maxThreads the max number of delegated tasks run concurrently
+     * @param maxQueued the max number of delegated tasks waiting to be run
+     */
+    public SslDelegatedTaskExecutor(@Name("executor") Executor executor, @Name("maxThreads") int maxThreads, @Name("maxQueued") int maxQueued)
+    {
+        if (maxThreads <= 0)
+            throw new IllegalArgumentException("Invalid maxThreads " + maxThreads);
+        if (maxQueued < 0)
+            throw new IllegalArgumentException("Invalid maxQueued " + maxQueued);
+        _executor = executor;
+        _maxThreads = maxThreads;
+        _maxQueued = maxQueued;
+    }
+
+    @ManagedAttribute(value = "The max number of delegated tasks run concurrently", readonly = true)
+    public int getMaxThreads()
+    {
+        return _maxThreads;
+    }
+
+    @ManagedAttribute(value = "The max number of delegated tasks waiting to be run", readonly = true)
+    public int getMaxQueued()
+    {
+        return _maxQueued;
+    }
+
+    @Override
+    public void execute(Runnable task)
+    {
+        Task queued = new Task(task);
+        boolean dispatch;
+        synchronized (this)
+        {
+            dispatch = _active < _maxThreads;
+            if (dispatch)
+            {
+                ++_active;
+            }
+            else if (_queue.size() < _maxQueued)
+            {
+                _queue.offer(queued);
+            }
+            else
+            {
+                _rejected.increment();
+                throw new RejectedExecutionException("Delegated task queue full");
+            }
+            _queued.increment();
+        }
+
+        if (dispatch)
+        {
+            try
+            {
+                _executor.execute(() -> run(queued));
+            }
+            catch (RejectedExecutionException x)
+            {
+                synchronized (this)
+                {
+                    --_active;
+                    _queued.decrement();
+                }
+                _rejected.increment();
+                throw x;
+            }
+        }
+    }
+
+    private void run(Task task)
+    {
+        while (task != null)
+        {
+            _queued.decrement();
+            long start = System.nanoTime();
+            _queueLatency.record(TimeUnit.NANOSECONDS.toMicros(start - task._created));
+            try
+            {
+                task._task.run();
+            }
+            catch (Throwable x)
+            {
+                LOG.warn(x);
+            }
+            finally
+            {
+                _taskLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+            }
+
+            synchronized (this)
+            {
+                task = _queue.poll();
+                if (task == null)
+                    --_active;
+            }
+        }
+    }
+
+    @ManagedAttribute("The number of delegated tasks waiting to be run")
+    public long getQueueSize()
+    {
+        return _queued.getCurrent();
+    }
+
+    @ManagedAttribute("The max number of delegated tasks waiting to be run")
+    public long getQueueSizeMax()
+    {
+        return _queued.getMax();
+    }
+
+    @ManagedAttribute("The total number of delegated tasks submitted")
+    public long getTasks()
+    {
+        return _queued.getTotal();
+    }
+
+    @ManagedAttribute("The number of delegated tasks rejected because the queue was full")
+    public long getRejectedTasks()
+    {
+        return _rejected.sum();
+    }
+
+    @ManagedAttribute("The number of delegated tasks running")
+    public synchronized int getActiveTasks()
+    {
+        return _active;
+    }
+
+    @ManagedAttribute("The mean time, in microseconds, that delegated tasks wait in the queue")
+    public double getQueueLatencyMean()
+    {
+        return _queueLatency.getMean();
+    }
+
+    @ManagedAttribute("The max time, in microseconds, that delegated tasks wait in the queue")
+    public long getQueueLatencyMax()
+    {
+        return _queueLatency.getMax();
+    }
+
+    @ManagedAttribute("The mean time, in microseconds, to run a delegated task")
+    public double getTaskLatencyMean()
+    {
+        return _taskLatency.getMean();
+    }
+
+    @ManagedAttribute("The max time, in microseconds, to run a delegated task")
+    public long getTaskLatencyMax()
+    {
+        return _taskLatency.getMax();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void reset()
+    {
+        _queued.reset(getQueueSize());
+        _queueLatency.reset();
+        _taskLatency.reset();
+        _rejected.reset();
+    }
+
+    @Override
+    public String dump()
+    {
+        return Dumpable.dump(this);
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        Dumpable.dumpObjects(out, indent, this, _executor);
+    }
+
+    @Override
+    public String toString()
+    {
+        synchronized (this)
+        {
+            return String.format("%s@%x[active=%d/%d,queued=%d/%d]", getClass().getSimpleName(), hashCode(), _active, _maxThreads, _queue.size(), _maxQueued);
+        }
+    }
+
+    private static class Task
+    {
+        private final long _created = System.nanoTime();
+        private final Runnable _task;
+
+        private Task(Runnable task)
+        {
+            _task = task;
+        }
+    }
+}
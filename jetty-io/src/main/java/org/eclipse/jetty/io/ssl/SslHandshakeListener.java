@@ -56,9 +56,17 @@ public interface SslHandshakeListener extends EventListener
      */
     class Event extends EventObject
     {
+        private final boolean resumed;
+
         public Event(Object source)
+        {
+            this(source, false);
+        }
+
+        public Event(Object source, boolean resumed)
         {
             super(source);
+            this.resumed = resumed;
         }
 
         /**
@@ -68,5 +76,14 @@ public interface SslHandshakeListener extends EventListener
         {
             return (SSLEngine)getSource();
         }
+
+        /**
+         * @return whether the TLS handshake resumed a previous TLS session,
+         * either from the session cache or from a session ticket
+         */
+        public boolean isResumed()
+        {
+            return resumed;
+        }
     }
 }
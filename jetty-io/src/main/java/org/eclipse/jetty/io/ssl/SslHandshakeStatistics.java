@@ -0,0 +1,99 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.io.ssl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+/**
+ * <p>A {@link SslHandshakeListener} that tracks TLS handshake statistics,
+ * in particular how many handshakes resumed a previous TLS session and
+ * therefore avoided the cost of a full handshake.</p>
+ * <p>Adding an instance of this class as a bean to a server connector
+ * (or to HttpClient) will track the TLS handshakes of all its connections.</p>
+ */
+@ManagedObject("Tracks statistics on TLS handshakes")
+public class SslHandshakeStatistics implements SslHandshakeListener
+{
+    private final LongAdder _handshakes = new LongAdder();
+    private final LongAdder _resumed = new LongAdder();
+    private final LongAdder _failed = new LongAdder();
+
+    @Override
+    public void handshakeSucceeded(Event event)
+    {
+        _handshakes.increment();
+        if (event.isResumed())
+            _resumed.increment();
+    }
+
+    @Override
+    public void handshakeFailed(Event event, Throwable failure)
+    {
+        _failed.increment();
+    }
+
+    @ManagedAttribute("The number of successful TLS handshakes")
+    public long getHandshakes()
+    {
+        return _handshakes.sum();
+    }
+
+    @ManagedAttribute("The number of successful TLS handshakes that performed a full handshake")
+    public long getFullHandshakes()
+    {
+        return getHandshakes() - getResumedHandshakes();
+    }
+
+    @ManagedAttribute("The number of successful TLS handshakes that resumed a previous session")
+    public long getResumedHandshakes()
+    {
+        return _resumed.sum();
+    }
+
+    @ManagedAttribute("The number of failed TLS handshakes")
+    public long getFailedHandshakes()
+    {
+        return _failed.sum();
+    }
+
+    @ManagedAttribute("The ratio of successful TLS handshakes that resumed a previous session")
+    public double getResumptionRatio()
+    {
+        long handshakes = getHandshakes();
+        return handshakes == 0 ? 0 : (double)getResumedHandshakes() / handshakes;
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void reset()
+    {
+        _handshakes.reset();
+        _resumed.reset();
+        _failed.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[handshakes=%d,resumed=%d,failed=%d]", getClass().getSimpleName(), hashCode(), getHandshakes(), getResumedHandshakes(), getFailedHandshakes());
+    }
+}
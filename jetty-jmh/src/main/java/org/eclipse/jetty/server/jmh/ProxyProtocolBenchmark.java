@@ -0,0 +1,141 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.jmh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.ProxyConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.TypeUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures a request preceded by a PROXY protocol header, in the V1 text
+ * format and in the V2 binary format with TLVs, through a LocalConnector.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+@Warmup(iterations = 4, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 4, time = 1, timeUnit = TimeUnit.SECONDS)
+public class ProxyProtocolBenchmark
+{
+    private static final String REQUEST = "GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+
+    private static final String V1 = "PROXY TCP4 192.168.0.1 127.0.0.1 12345 8080\r\n";
+
+    private static final String V2 =
+        "0D0A0D0A000D0A515549540A" + "21" + "11" + "005B" +
+            "C0A80001" + "7f000001" + "3039" + "1F90" +
+            "20002D" + "07" + "00000000" +
+            "210007" + "544C5376312E32" +
+            "23001B" + "45434448452D5253412D4145533132382D47434D2D534841323536" +
+            "02000F" + "7777772E6578616D706C652E636F6D" +
+            "050004" + "DEADBEEF" +
+            "E00003ABCDEF";
+
+    private Server server;
+    private LocalConnector connector;
+    private ByteBuffer v1Request;
+    private ByteBuffer v2Request;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws Exception
+    {
+        server = new Server();
+        connector = new LocalConnector(server, null, null, null, -1, new ProxyConnectionFactory(), new HttpConnectionFactory());
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                EndPoint endPoint = baseRequest.getHttpChannel().getEndPoint();
+                if (endPoint instanceof ProxyConnectionFactory.ProxyEndPoint)
+                    response.setHeader("X-TLS-Version", (String)((ProxyConnectionFactory.ProxyEndPoint)endPoint).getAttribute(ProxyConnectionFactory.TLS_VERSION));
+            }
+        });
+        server.start();
+
+        v1Request = BufferUtil.toBuffer(V1 + REQUEST, StandardCharsets.US_ASCII);
+        byte[] header = TypeUtil.fromHexString(V2);
+        byte[] request = REQUEST.getBytes(StandardCharsets.US_ASCII);
+        byte[] bytes = new byte[header.length + request.length];
+        System.arraycopy(header, 0, bytes, 0, header.length);
+        System.arraycopy(request, 0, bytes, header.length, request.length);
+        v2Request = ByteBuffer.wrap(bytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardownTrial() throws Exception
+    {
+        server.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public ByteBuffer testProxyV1() throws Exception
+    {
+        return connector.getResponse(v1Request.slice());
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public ByteBuffer testProxyV2() throws Exception
+    {
+        return connector.getResponse(v2Request.slice());
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(ProxyProtocolBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
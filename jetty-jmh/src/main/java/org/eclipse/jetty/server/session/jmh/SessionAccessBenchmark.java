@@ -0,0 +1,119 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session.jmh;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.server.session.DefaultSessionCache;
+import org.eclipse.jetty.server.session.Session;
+import org.eclipse.jetty.server.session.SessionData;
+import org.eclipse.jetty.server.session.SessionHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the throughput of concurrent requests reading the attributes of the same
+ * session, as AJAX requests do, with the session locked for each read or read mostly.
+ */
+@State(Scope.Benchmark)
+@Threads(8)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+public class SessionAccessBenchmark
+{
+    @Param({"false", "true"})
+    boolean readMostly;
+
+    private Session session;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws Exception
+    {
+        SessionHandler handler = new SessionHandler();
+        DefaultSessionCache cache = new DefaultSessionCache(handler);
+        cache.setReadMostly(readMostly);
+        handler.setSessionCache(cache);
+
+        long now = System.currentTimeMillis();
+        session = new Session(handler, new SessionData("node0abcdefghijklmnopqrstu1", "/app", "0.0.0.0", now, now, now, TimeUnit.MINUTES.toMillis(30)));
+        session.setResident(true);
+        for (int i = 0; i < 10; i++)
+        {
+            session.setAttribute("attribute" + i, "value" + i);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object testGetAttribute()
+    {
+        return session.getAttribute("attribute" + ThreadLocalRandom.current().nextInt(10));
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int testGetAttributeNames()
+    {
+        return Collections.list(session.getAttributeNames()).size();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object testMostlyGetAttribute()
+    {
+        //one change for every hundred reads
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String name = "attribute" + random.nextInt(10);
+        if (random.nextInt(100) == 0)
+        {
+            session.setAttribute(name, "value" + random.nextInt());
+            return null;
+        }
+        return session.getAttribute(name);
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(SessionAccessBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,137 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.server.session.CompactSessionDataSerializer;
+import org.eclipse.jetty.server.session.JavaSessionDataSerializer;
+import org.eclipse.jetty.server.session.SessionData;
+import org.eclipse.jetty.server.session.SessionDataSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the time to serialize and deserialize the attributes of a realistic session.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+public class SessionDataSerializerBenchmark
+{
+    @Param({"JAVA", "COMPACT"})
+    String serializerType;
+
+    @Param({"SIMPLE", "MIXED"})
+    String sessionType;
+
+    private SessionDataSerializer serializer;
+    private SessionData data;
+    private byte[] serialized;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws Exception
+    {
+        serializer = "JAVA".equals(serializerType) ? new JavaSessionDataSerializer() : new CompactSessionDataSerializer();
+
+        long now = System.currentTimeMillis();
+        data = new SessionData("node0abcdefghijklmnopqrstu1", "/app", "0.0.0.0", now, now, now, TimeUnit.MINUTES.toMillis(30));
+        data.setAttribute("userId", 1234567L);
+        data.setAttribute("userName", "jane.doe@example.com");
+        data.setAttribute("locale", "en_GB");
+        data.setAttribute("authenticated", Boolean.TRUE);
+        data.setAttribute("loginTime", now);
+        data.setAttribute("visits", 42);
+        data.setAttribute("csrfToken", "3f2a9c0e7b1d4e6f8a5c2b9d0e1f3a4b");
+        byte[] nonce = new byte[32];
+        ThreadLocalRandom.current().nextBytes(nonce);
+        data.setAttribute("nonce", nonce);
+        Map<String, Object> cart = new HashMap<>();
+        cart.put("sku-1001", 2);
+        cart.put("sku-2002", 1);
+        cart.put("currency", "EUR");
+        cart.put("total", 59.90D);
+        data.setAttribute("cart", cart);
+        if ("MIXED".equals(sessionType))
+        {
+            // Values that fall back to java serialization.
+            data.setAttribute("roles", Arrays.asList("user", "admin"));
+            data.setAttribute("lastLogin", new Date(now));
+        }
+
+        serialized = serialize();
+    }
+
+    private byte[] serialize() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        serializer.serializeAttributes(data, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime})
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] testSerialize() throws Exception
+    {
+        return serialize();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime})
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public SessionData testDeserialize() throws Exception
+    {
+        SessionData copy = new SessionData(data.getId(), data.getContextPath(), data.getVhost(), data.getCreated(), data.getAccessed(), data.getLastAccessed(), data.getMaxInactiveMs());
+        serializer.deserializeAttributes(copy, new ByteArrayInputStream(serialized));
+        return copy;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(SessionDataSerializerBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,157 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.unixsocket.jmh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpClientTransport;
+import org.eclipse.jetty.client.api.ContentResponse;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.NetworkConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.unixsocket.JdkUnixSocketProvider;
+import org.eclipse.jetty.unixsocket.JnrUnixSocketProvider;
+import org.eclipse.jetty.unixsocket.UnixSocketConnector;
+import org.eclipse.jetty.unixsocket.UnixSocketProvider;
+import org.eclipse.jetty.unixsocket.client.HttpClientTransportOverUnixSockets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the loopback throughput of HTTP requests over TCP on localhost
+ * and over UNIX sockets, with both the JDK and the jnr-unixsocket providers.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+@Warmup(iterations = 4, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 4, time = 1, timeUnit = TimeUnit.SECONDS)
+public class UnixSocketBenchmark
+{
+    @Param({"TCP", "JDK", "JNR"})
+    String transport;
+
+    @Param({"1024", "65536"})
+    int size;
+
+    private Path sockFile;
+    private Server server;
+    private HttpClient client;
+    private String uri;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws Exception
+    {
+        byte[] content = new byte[size];
+        server = new Server();
+        server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                response.setContentLength(content.length);
+                response.getOutputStream().write(content);
+            }
+        });
+
+        HttpClientTransport clientTransport;
+        if ("TCP".equals(transport))
+        {
+            ServerConnector connector = new ServerConnector(server);
+            connector.setHost("localhost");
+            server.addConnector(connector);
+            clientTransport = new HttpClientTransportOverHTTP();
+        }
+        else
+        {
+            UnixSocketProvider provider = "JDK".equals(transport) ? new JdkUnixSocketProvider() : new JnrUnixSocketProvider();
+            sockFile = Files.createTempFile("jmh", ".sock");
+            Files.delete(sockFile);
+            UnixSocketConnector connector = new UnixSocketConnector(server);
+            connector.setUnixSocket(sockFile.toString());
+            connector.setProvider(provider);
+            server.addConnector(connector);
+            clientTransport = new HttpClientTransportOverUnixSockets(sockFile.toString(), provider);
+        }
+        server.start();
+
+        int port = 80;
+        for (Connector connector : server.getConnectors())
+        {
+            if (connector instanceof NetworkConnector)
+                port = ((NetworkConnector)connector).getLocalPort();
+        }
+        uri = "http://localhost:" + port + "/";
+
+        client = new HttpClient(clientTransport, null);
+        client.setMaxConnectionsPerDestination(16);
+        client.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardownTrial() throws Exception
+    {
+        client.stop();
+        server.stop();
+        if (sockFile != null)
+            Files.deleteIfExists(sockFile);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public int testRequest() throws Exception
+    {
+        ContentResponse response = client.GET(uri);
+        return response.getContent().length;
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(UnixSocketBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,121 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.jmh;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.ConcurrentIntHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares stream lookups by id, as performed by HTTP2Session for every frame,
+ * using a ConcurrentHashMap with boxed keys and a ConcurrentIntHashMap.
+ */
+@State(Scope.Benchmark)
+@Threads(4)
+@Warmup(iterations = 4, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 4, time = 1, timeUnit = TimeUnit.SECONDS)
+public class ConcurrentIntHashMapBenchmark
+{
+    @Param({"100", "1000", "10000"})
+    int streams;
+
+    ConcurrentHashMap<Integer, Object> boxed;
+    ConcurrentIntHashMap<Object> primitive;
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        boxed = new ConcurrentHashMap<>();
+        primitive = new ConcurrentIntHashMap<>();
+        for (int i = 0; i < streams; ++i)
+        {
+            // Client initiated stream ids are odd.
+            int streamId = 2 * i + 1;
+            Object stream = new Object();
+            boxed.put(streamId, stream);
+            primitive.put(streamId, stream);
+        }
+    }
+
+    private int nextStreamId()
+    {
+        return 2 * ThreadLocalRandom.current().nextInt(streams) + 1;
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public Object testConcurrentHashMapGet()
+    {
+        return boxed.get(nextStreamId());
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public Object testConcurrentIntHashMapGet()
+    {
+        return primitive.get(nextStreamId());
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public Object testConcurrentHashMapPutRemove()
+    {
+        int streamId = nextStreamId() + streams * 2;
+        boxed.put(streamId, this);
+        return boxed.remove(streamId);
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.Throughput})
+    public Object testConcurrentIntHashMapPutRemove()
+    {
+        int streamId = nextStreamId() + streams * 2;
+        primitive.put(streamId, this);
+        return primitive.remove(streamId);
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(ConcurrentIntHashMapBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}
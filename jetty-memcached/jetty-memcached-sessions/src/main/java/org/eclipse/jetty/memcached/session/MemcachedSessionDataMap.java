@@ -21,6 +21,7 @@ package org.eclipse.jetty.memcached.session;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import net.rubyeye.xmemcached.MemcachedClient;
@@ -44,6 +45,15 @@ public class MemcachedSessionDataMap extends AbstractLifeCycle implements Sessio
 {
     public static final String DEFAULT_HOST = "localhost";
     public static final String DEFAULT_PORT = "11211";
+    /**
+     * Marks the version appended to the serialized session data
+     */
+    private static final int VERSION_MAGIC = 0x4A564552;
+    private static final int VERSION_TRAILER_LENGTH = 12;
+    /**
+     * Suffix of the key of the small value holding the version of a session
+     */
+    private static final String VERSION_KEY_SUFFIX = ".version";
     protected MemcachedClient _client;
     protected int _expirySec = 0;
     protected boolean _heartbeats = true;
@@ -54,9 +64,25 @@ public class MemcachedSessionDataMap extends AbstractLifeCycle implements Sessio
      *
      * We override memcached deserialization to use our classloader-aware
      * ObjectInputStream.
+     *
+     * The serialized SessionData does not include its lastSaved time, so it
+     * is appended to the same value as the version of the session data. Nodes
+     * that do not know about the version ignore it.
      */
     public static class SessionDataTranscoder extends SerializingTranscoder
     {
+        @Override
+        protected byte[] serialize(Object o)
+        {
+            byte[] bytes = super.serialize(o);
+            if (!(o instanceof SessionData) || bytes == null)
+                return bytes;
+            ByteBuffer buffer = ByteBuffer.allocate(bytes.length + VERSION_TRAILER_LENGTH);
+            buffer.put(bytes);
+            buffer.putInt(VERSION_MAGIC);
+            buffer.putLong(((SessionData)o).getLastSaved());
+            return buffer.array();
+        }
 
         @Override
         protected Object deserialize(byte[] in)
@@ -65,10 +91,24 @@ public class MemcachedSessionDataMap extends AbstractLifeCycle implements Sessio
 
             if (in != null)
             {
-                try (ByteArrayInputStream bis = new ByteArrayInputStream(in);
+                long version = -1;
+                int length = in.length;
+                if (length >= VERSION_TRAILER_LENGTH)
+                {
+                    ByteBuffer trailer = ByteBuffer.wrap(in, length - VERSION_TRAILER_LENGTH, VERSION_TRAILER_LENGTH);
+                    if (trailer.getInt() == VERSION_MAGIC)
+                    {
+                        version = trailer.getLong();
+                        length -= VERSION_TRAILER_LENGTH;
+                    }
+                }
+
+                try (ByteArrayInputStream bis = new ByteArrayInputStream(in, 0, length);
                      ClassLoadingObjectInputStream is = new ClassLoadingObjectInputStream(bis))
                 {
                     rv = is.readObject();
+                    if (version >= 0 && rv instanceof SessionData)
+                        ((SessionData)rv).setLastSaved(version);
                 }
                 catch (IOException e)
                 {
@@ -167,16 +207,47 @@ public class MemcachedSessionDataMap extends AbstractLifeCycle implements Sessio
     @Override
     public void store(String id, SessionData data) throws Exception
     {
+        //the version is also stored in the same value as the data, see SessionDataTranscoder.
+        //Remove the version key first, so that it never matches the version of older data.
+        _client.delete(getVersionKey(id));
         _client.set(id, _expirySec, data);
+        _client.set(getVersionKey(id), _expirySec, data.getLastSaved());
     }
 
     @Override
     public boolean delete(String id) throws Exception
     {
+        _client.delete(getVersionKey(id));
         _client.delete(id);
         return true; //delete returns false if the value didn't exist
     }
 
+    @Override
+    public boolean isVersioned()
+    {
+        return true;
+    }
+
+    /**
+     * The version is read from a small value stored next to the session data,
+     * so that the session data itself is not read. If that value is missing,
+     * for example because it was evicted or is being written, -1 is returned
+     * so that the session data is loaded again.
+     *
+     * @see org.eclipse.jetty.server.session.SessionDataMap#getVersion(java.lang.String)
+     */
+    @Override
+    public long getVersion(String id) throws Exception
+    {
+        Long version = _client.get(getVersionKey(id));
+        return (version == null ? -1 : version);
+    }
+
+    private static String getVersionKey(String id)
+    {
+        return id + VERSION_KEY_SUFFIX;
+    }
+
     @Override
     protected void doStop() throws Exception
     {
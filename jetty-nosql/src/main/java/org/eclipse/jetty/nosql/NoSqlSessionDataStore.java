@@ -33,7 +33,6 @@ public abstract class NoSqlSessionDataStore extends AbstractSessionDataStore
     public class NoSqlSessionData extends SessionData
     {
         private Object _version;
-        private Set<String> _dirtyAttributes = new HashSet<>();
 
         public NoSqlSessionData(String id, String cpath, String vhost, long created, long accessed, long lastAccessed, long maxInactiveMs)
         {
@@ -51,20 +50,6 @@ public abstract class NoSqlSessionDataStore extends AbstractSessionDataStore
             return _version;
         }
 
-        @Override
-        public void setDirty(String name)
-        {
-            super.setDirty(name);
-            _dirtyAttributes.add(name);
-        }
-
-        public Set<String> takeDirtyAttributes()
-        {
-            Set<String> copy = new HashSet<>(_dirtyAttributes);
-            _dirtyAttributes.clear();
-            return copy;
-        }
-
         public Set<String> getAllAttributeNames()
         {
             return new HashSet<String>(_attributes.keySet());
@@ -20,7 +20,6 @@ package org.eclipse.jetty.nosql.mongodb;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.ObjectOutputStream;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -39,7 +38,6 @@ import org.eclipse.jetty.nosql.NoSqlSessionDataStore;
 import org.eclipse.jetty.server.session.SessionContext;
 import org.eclipse.jetty.server.session.SessionData;
 import org.eclipse.jetty.server.session.UnreadableSessionDataException;
-import org.eclipse.jetty.util.ClassLoadingObjectInputStream;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
@@ -244,10 +242,9 @@ public class MongoSessionDataStore extends NoSqlSessionDataStore
                 else
                 {
                     //attributes have special serialized format
-                    try (ByteArrayInputStream bais = new ByteArrayInputStream(attributes);
-                         ClassLoadingObjectInputStream ois = new ClassLoadingObjectInputStream(bais))
+                    try (ByteArrayInputStream bais = new ByteArrayInputStream(attributes))
                     {
-                        SessionData.deserializeAttributes(data, ois);
+                        _serializer.deserializeAttributes(data, bais);
                     }
                 }
             }
@@ -501,10 +498,9 @@ public class MongoSessionDataStore extends NoSqlSessionDataStore
         sets.put(ACCESSED, data.getAccessed());
         sets.put(LAST_ACCESSED, data.getLastAccessed());
 
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             ObjectOutputStream oos = new ObjectOutputStream(baos))
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream())
         {
-            SessionData.serializeAttributes(data, oos);
+            _serializer.serializeAttributes(data, baos);
             sets.put(getContextSubfield(ATTRIBUTES), baos.toByteArray());
         }
 
@@ -23,3 +23,7 @@ etc/sessions/session-cache-hash.xml
 #jetty.session.saveOnCreate=false
 #jetty.session.removeUnloadableSessions=false
 #jetty.session.flushOnResponseCommit=false
+#jetty.session.readMostly=false
+#jetty.session.maxSessions=-1
+#jetty.session.maxMemory=-1
+#jetty.session.evictionOrder=LRU
@@ -19,3 +19,4 @@ etc/sessions/session-cache-null.xml
 #jetty.session.saveOnCreate=false
 #jetty.session.removeUnloadableSessions=false
 #jetty.session.flushOnResponseCommit=false
+#jetty.session.readMostly=false
@@ -30,6 +30,7 @@ import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpScheme;
 import org.eclipse.jetty.http.QuotedCSVParser;
+import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.server.HttpConfiguration.Customizer;
 import org.eclipse.jetty.util.ArrayTrie;
 import org.eclipse.jetty.util.HostPort;
@@ -390,12 +391,20 @@ public class ForwardedRequestCustomizer implements Customizer
             throw new RuntimeException(e);
         }
 
+        ProxyConnectionFactory.ProxyEndPoint proxy = getProxyEndPoint(request);
+
         if (forwarded._proto != null)
         {
             request.setScheme(forwarded._proto);
             if (forwarded._proto.equalsIgnoreCase(config.getSecureScheme()))
                 request.setSecure(true);
         }
+        else if (proxy != null && proxy.getAttribute(ProxyConnectionFactory.TLS_VERSION) != null)
+        {
+            // The PROXY protocol reports that the client connected to the proxy with TLS.
+            request.setScheme(config.getSecureScheme());
+            request.setSecure(true);
+        }
 
         if (forwarded._host != null)
         {
@@ -410,6 +419,13 @@ public class ForwardedRequestCustomizer implements Customizer
         }
     }
 
+    private static ProxyConnectionFactory.ProxyEndPoint getProxyEndPoint(Request request)
+    {
+        HttpChannel channel = request.getHttpChannel();
+        EndPoint endPoint = channel == null ? null : channel.getEndPoint();
+        return endPoint instanceof ProxyConnectionFactory.ProxyEndPoint ? (ProxyConnectionFactory.ProxyEndPoint)endPoint : null;
+    }
+
     protected String getLeftMost(String headerValue)
     {
         if (headerValue == null)
@@ -57,6 +57,7 @@ import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.SharedBlockingCallback.Blocker;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.Prioritized;
 import org.eclipse.jetty.util.thread.Scheduler;
 
 /**
@@ -68,7 +69,7 @@ import org.eclipse.jetty.util.thread.Scheduler;
  * HttpParser.RequestHandler callbacks.   The completion of the active phase is signalled by a call to
  * HttpTransport.completed().
  */
-public class HttpChannel implements Runnable, HttpOutput.Interceptor
+public class HttpChannel implements Runnable, Prioritized, HttpOutput.Interceptor
 {
     public static Listener NOOP_LISTENER = new Listener(){};
     private static final Logger LOG = Log.getLogger(HttpChannel.class);
@@ -77,7 +78,7 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
     private final Connector _connector;
     private final Executor _executor;
     private final HttpConfiguration _configuration;
-    private final EndPoint _endPoint;
+    private EndPoint _endPoint;
     private final HttpTransport _transport;
     private final HttpChannelState _state;
     private final Request _request;
@@ -90,6 +91,7 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
     private MetaData.Response _committedMetaData;
     private RequestLog _requestLog;
     private long _oldIdleTimeout;
+    private int _priority = -1;
 
     /**
      * Bytes written after interception (eg after compression)
@@ -182,6 +184,16 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
         return _requests.get();
     }
 
+    /**
+     * @return the priority level assigned to the current request by the
+     * {@link HttpConfiguration#getPriorityClassifier() classifier}, or -1 if unclassified
+     */
+    @Override
+    public int getPriority()
+    {
+        return _priority;
+    }
+
     public Connector getConnector()
     {
         return _connector;
@@ -314,9 +326,21 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
         _written = 0;
         _trailers = null;
         _oldIdleTimeout = 0;
+        _priority = -1;
         _transientListeners.clear();
     }
 
+    /**
+     * <p>Binds this channel to the new endpoint of its reused connection.</p>
+     *
+     * @param endPoint the new endpoint
+     */
+    void setEndPoint(EndPoint endPoint)
+    {
+        _endPoint = endPoint;
+        _requests.set(0);
+    }
+
     public void onAsyncWaitForContent()
     {
     }
@@ -691,6 +715,10 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
 
         _request.setSecure(HttpScheme.HTTPS.is(request.getURI().getScheme()));
 
+        HttpConfiguration.PriorityClassifier classifier = _configuration.getPriorityClassifier();
+        if (classifier != null)
+            _priority = classifier.classify(_connector, _request);
+
         _combinedListener.onRequestBegin(_request);
 
         if (LOG.isDebugEnabled())
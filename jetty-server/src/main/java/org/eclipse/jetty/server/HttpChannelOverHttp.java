@@ -89,6 +89,23 @@ public class HttpChannelOverHttp extends HttpChannel implements HttpParser.Reque
         _trailers = null;
     }
 
+    @Override
+    public boolean handle()
+    {
+        // Hold a reference so that a recyclable connection
+        // is not reused while an async dispatch is running.
+        boolean acquired = _httpConnection.acquire();
+        try
+        {
+            return super.handle();
+        }
+        finally
+        {
+            if (acquired)
+                _httpConnection.release();
+        }
+    }
+
     @Override
     public boolean isExpecting100Continue()
     {
@@ -76,6 +76,7 @@ public class HttpConfiguration implements Dumpable
     private CookieCompliance _responseCookieCompliance = CookieCompliance.RFC6265;
     private MultiPartFormDataCompliance _multiPartCompliance = MultiPartFormDataCompliance.LEGACY; // TODO change default in jetty-10
     private boolean _notifyRemoteAsyncErrors = true;
+    private PriorityClassifier _priorityClassifier;
 
     /**
      * <p>An interface that allows a request object to be customized
@@ -98,6 +99,29 @@ public class HttpConfiguration implements Dumpable
         void customize(Connector connector, HttpConfiguration channelConfig, Request request);
     }
 
+    /**
+     * <p>An interface that assigns a priority level to a request, before the request
+     * is submitted for processing.</p>
+     * <p>The level is used when the request is dispatched to an executor whose queue
+     * is a {@link org.eclipse.jetty.util.thread.PrioritizedQueue}, so that urgent
+     * requests (eg health checks or administrative requests) are not queued behind
+     * bulk requests.</p>
+     * <p>Classified HTTP/1.1 requests are dispatched to the executor rather than
+     * handled by the thread that parsed them, so that they are queued at their level;
+     * unclassified HTTP/1.1 requests are still handled inline.</p>
+     *
+     * @see RequestPriorityClassifier
+     */
+    public interface PriorityClassifier
+    {
+        /**
+         * @param connector the connector the request was received on
+         * @param request the request, with its metadata already set
+         * @return the priority level of the request, {@code 0} being the most urgent, or a negative value if unclassified
+         */
+        int classify(Connector connector, Request request);
+    }
+
     public interface ConnectionFactory
     {
         HttpConfiguration getHttpConfiguration();
@@ -142,6 +166,7 @@ public class HttpConfiguration implements Dumpable
         _responseCookieCompliance = config._responseCookieCompliance;
         _multiPartCompliance = config._multiPartCompliance;
         _notifyRemoteAsyncErrors = config._notifyRemoteAsyncErrors;
+        _priorityClassifier = config._priorityClassifier;
     }
 
     /**
@@ -642,6 +667,22 @@ public class HttpConfiguration implements Dumpable
         return _notifyRemoteAsyncErrors;
     }
 
+    /**
+     * @return the classifier that assigns a priority level to requests, or null
+     */
+    public PriorityClassifier getPriorityClassifier()
+    {
+        return _priorityClassifier;
+    }
+
+    /**
+     * @param priorityClassifier the classifier that assigns a priority level to requests, or null
+     */
+    public void setPriorityClassifier(PriorityClassifier priorityClassifier)
+    {
+        _priorityClassifier = priorityClassifier;
+    }
+
     @Override
     public String dump()
     {
@@ -673,7 +714,8 @@ public class HttpConfiguration implements Dumpable
             "minResponseDataRate=" + _minResponseDataRate,
             "cookieCompliance=" + _requestCookieCompliance,
             "setRequestCookieCompliance=" + _responseCookieCompliance,
-            "notifyRemoteAsyncErrors=" + _notifyRemoteAsyncErrors
+            "notifyRemoteAsyncErrors=" + _notifyRemoteAsyncErrors,
+            "priorityClassifier=" + _priorityClassifier
         );
     }
 
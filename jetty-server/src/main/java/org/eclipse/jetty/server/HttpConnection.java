@@ -22,8 +22,10 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritePendingException;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 import org.eclipse.jetty.http.HttpCompliance;
 import org.eclipse.jetty.http.HttpField;
@@ -72,10 +74,13 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     private volatile ByteBuffer _chunk = null;
     private final BlockingReadCallback _blockingReadCallback = new BlockingReadCallback();
     private final AsyncReadCallback _asyncReadCallback = new AsyncReadCallback();
-    private final SendCallback _sendCallback = new SendCallback();
+    private SendCallback _sendCallback = new SendCallback();
     private final boolean _recordHttpComplianceViolations;
     private final LongAdder bytesIn = new LongAdder();
     private final LongAdder bytesOut = new LongAdder();
+    private final AtomicInteger _references = new AtomicInteger(1);
+    private final AtomicBoolean _closed = new AtomicBoolean();
+    private Consumer<HttpConnection> _recycler;
 
     /**
      * Get the current connection that this thread is dispatched to.
@@ -242,6 +247,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         if (LOG.isDebugEnabled())
             LOG.debug("{} onFillable enter {} {}", this, _channel.getState(), BufferUtil.toDetailString(_requestBuffer));
 
+        boolean acquired = acquire();
         HttpConnection last = setCurrentConnection(this);
         try
         {
@@ -267,6 +273,11 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
                 // Handle channel event
                 if (handle)
                 {
+                    // A classified request is queued at its priority level rather than handled
+                    // inline; its completion then looks for the next request, as for async requests.
+                    if (_channel.getPriority() >= 0 && dispatchChannel())
+                        break;
+
                     boolean suspended = !_channel.handle();
 
                     // We should break iteration if we have suspended or upgraded the connection.
@@ -291,6 +302,23 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
             setCurrentConnection(last);
             if (LOG.isDebugEnabled())
                 LOG.debug("{} onFillable exit {} {}", this, _channel.getState(), BufferUtil.toDetailString(_requestBuffer));
+            if (acquired)
+                release();
+        }
+    }
+
+    private boolean dispatchChannel()
+    {
+        try
+        {
+            getExecutor().execute(_channel);
+            return true;
+        }
+        catch (RejectedExecutionException x)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Could not dispatch {}, handling inline", _channel, x);
+            return false;
         }
     }
 
@@ -509,6 +537,109 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     {
         _sendCallback.close();
         super.onClose();
+        if (_recycler != null && _closed.compareAndSet(false, true))
+            release();
+    }
+
+    /**
+     * @param recycler the function that takes this connection back once it is
+     * closed and no longer in use, or null if this connection is not recycled
+     */
+    void setRecycler(Consumer<HttpConnection> recycler)
+    {
+        _recycler = recycler;
+    }
+
+    /**
+     * <p>Takes a reference to this connection, so that it is not recycled
+     * while it is being used by the calling thread.</p>
+     *
+     * @return whether a reference was taken and must be {@link #release() released}
+     */
+    boolean acquire()
+    {
+        if (_recycler == null)
+            return false;
+        while (true)
+        {
+            int references = _references.get();
+            if (references == 0)
+                return false;
+            if (_references.compareAndSet(references, references + 1))
+                return true;
+        }
+    }
+
+    /**
+     * <p>Releases a reference taken by {@link #acquire()} or the reference held
+     * while the connection is open; when the last reference is released, the
+     * connection is passed to the recycler if it can safely be reused.</p>
+     */
+    void release()
+    {
+        int references = _references.decrementAndGet();
+        if (references > 0)
+            return;
+        if (references < 0)
+        {
+            LOG.warn("{} released too many times", this);
+            return;
+        }
+
+        String reason = null;
+        if (getEndPoint().getConnection() != this)
+            reason = "upgraded";
+        else if (getEndPoint().isOpen())
+            reason = "open";
+        else if (!_channel.getState().isIdle())
+            reason = "not idle";
+        else if (_contentBufferReferences.get() != 0)
+            reason = "content references";
+        else if (BufferUtil.hasContent(_requestBuffer))
+            reason = "unconsumed input";
+
+        if (reason != null)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("{} not recyclable: {}", this, reason);
+            return;
+        }
+
+        if (_requestBuffer != null)
+        {
+            _bufferPool.release(_requestBuffer);
+            _requestBuffer = null;
+        }
+        if (_chunk != null)
+        {
+            _bufferPool.release(_chunk);
+            _chunk = null;
+        }
+        _recycler.accept(this);
+    }
+
+    /**
+     * <p>Binds a connection taken back by the recycler to a new endpoint,
+     * resetting the parser, the generator and the channel.</p>
+     *
+     * @param endPoint the new endpoint
+     */
+    void reuse(EndPoint endPoint)
+    {
+        if (_references.get() != 0 || !_closed.get())
+            throw new IllegalStateException("Not recycled " + this);
+        setEndPoint(endPoint);
+        _channel.setEndPoint(endPoint);
+        _channel.recycle();
+        _parser.recycle();
+        _generator.reset();
+        _sendCallback = new SendCallback();
+        bytesIn.reset();
+        bytesOut.reset();
+        _closed.set(false);
+        _references.set(1);
+        if (LOG.isDebugEnabled())
+            LOG.debug("Reused HTTP Connection {}", this);
     }
 
     @Override
@@ -18,23 +18,41 @@
 
 package org.eclipse.jetty.server;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
 import org.eclipse.jetty.http.HttpCompliance;
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
 
 /**
  * A Connection Factory for HTTP Connections.
  * <p>Accepts connections either directly or via SSL and/or ALPN chained connection factories.  The accepted
  * {@link HttpConnection}s are configured by a {@link HttpConfiguration} instance that is either created by
  * default or passed in to the constructor.
+ * <p>Optionally, closed connections can be recycled, see {@link #setMaxRecycledConnections(int)}:
+ * up to that many closed {@link HttpConnection}s, together with their parser, generator,
+ * channel, request and response, are kept in a bounded pool and rebound to new endpoints,
+ * so that short-lived connections do not allocate a new object graph each time.
+ * A connection is only recycled when no thread is using it, its channel is idle,
+ * it was not upgraded and it holds no unconsumed input.</p>
  */
 public class HttpConnectionFactory extends AbstractConnectionFactory implements HttpConfiguration.ConnectionFactory
 {
+    private static final Logger LOG = Log.getLogger(HttpConnectionFactory.class);
+
     private final HttpConfiguration _config;
     private HttpCompliance _httpCompliance;
     private boolean _recordHttpComplianceViolations = false;
+    private final LongAdder _reusedConnections = new LongAdder();
+    private volatile BlockingQueue<HttpConnection> _recycledConnections;
 
     public HttpConnectionFactory()
     {
@@ -78,17 +96,106 @@ public class HttpConnectionFactory extends AbstractConnectionFactory implements
     public void setHttpCompliance(HttpCompliance httpCompliance)
     {
         _httpCompliance = httpCompliance;
+        clearRecycledConnections();
     }
 
     @Override
     public Connection newConnection(Connector connector, EndPoint endPoint)
     {
-        HttpConnection conn = new HttpConnection(_config, connector, endPoint, _httpCompliance, isRecordHttpComplianceViolations());
+        HttpConnection conn = null;
+        BlockingQueue<HttpConnection> recycled = _recycledConnections;
+        if (recycled != null)
+        {
+            // Only reuse connections created for the same connector.
+            conn = recycled.poll();
+            if (conn != null && conn.getConnector() == connector)
+            {
+                conn.reuse(endPoint);
+                _reusedConnections.increment();
+            }
+            else
+            {
+                conn = new HttpConnection(_config, connector, endPoint, _httpCompliance, isRecordHttpComplianceViolations());
+                conn.setRecycler(this::recycle);
+            }
+        }
+        else
+        {
+            conn = new HttpConnection(_config, connector, endPoint, _httpCompliance, isRecordHttpComplianceViolations());
+        }
         return configure(conn, connector, endPoint);
     }
 
+    private void recycle(HttpConnection connection)
+    {
+        BlockingQueue<HttpConnection> recycled = _recycledConnections;
+        boolean pooled = recycled != null && isRunning() && recycled.offer(connection);
+        if (LOG.isDebugEnabled())
+            LOG.debug("{} {}", pooled ? "Recycled" : "Discarded", connection);
+    }
+
     public void setRecordHttpComplianceViolations(boolean recordHttpComplianceViolations)
     {
         this._recordHttpComplianceViolations = recordHttpComplianceViolations;
+        clearRecycledConnections();
+    }
+
+    /**
+     * @return the max number of closed connections kept for reuse, or 0 if connections are not recycled
+     */
+    @ManagedAttribute("The max number of closed connections kept for reuse")
+    public int getMaxRecycledConnections()
+    {
+        BlockingQueue<HttpConnection> recycled = _recycledConnections;
+        return recycled == null ? 0 : recycled.size() + recycled.remainingCapacity();
+    }
+
+    /**
+     * <p>Sets the max number of closed connections kept for reuse.</p>
+     * <p>Recycling trades a bounded amount of retained memory for fewer allocations
+     * when clients open many short-lived connections; it is disabled (0) by default.</p>
+     *
+     * @param maxRecycledConnections the max number of closed connections kept for reuse, or 0 to disable recycling
+     */
+    public void setMaxRecycledConnections(int maxRecycledConnections)
+    {
+        _recycledConnections = maxRecycledConnections > 0 ? new ArrayBlockingQueue<>(maxRecycledConnections) : null;
+    }
+
+    /**
+     * @return the number of closed connections currently kept for reuse
+     */
+    @ManagedAttribute("The number of closed connections currently kept for reuse")
+    public int getRecycledConnections()
+    {
+        BlockingQueue<HttpConnection> recycled = _recycledConnections;
+        return recycled == null ? 0 : recycled.size();
+    }
+
+    /**
+     * @return the number of connections that reused a recycled connection
+     */
+    @ManagedAttribute("The number of connections that reused a recycled connection")
+    public long getReusedConnections()
+    {
+        return _reusedConnections.sum();
+    }
+
+    /**
+     * <p>Discards the closed connections kept for reuse.</p>
+     */
+    @ManagedOperation(value = "Discards the closed connections kept for reuse", impact = "ACTION")
+    public void clearRecycledConnections()
+    {
+        BlockingQueue<HttpConnection> recycled = _recycledConnections;
+        if (recycled != null)
+            recycled.clear();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        clearRecycledConnections();
+        super.doStop();
     }
 }
@@ -19,17 +19,19 @@
 package org.eclipse.jetty.server;
 
 import java.io.IOException;
-import java.net.Inet4Address;
-import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadPendingException;
 import java.nio.channels.WritePendingException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.jetty.io.AbstractConnection;
+import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.util.AttributesMap;
@@ -49,7 +51,31 @@ import org.eclipse.jetty.util.log.Logger;
 public class ProxyConnectionFactory extends AbstractConnectionFactory
 {
     private static final Logger LOG = Log.getLogger(ProxyConnectionFactory.class);
+    /**
+     * The {@link ProxyEndPoint} attribute with the TLS version used by the client to connect to the proxy.
+     */
     public static final String TLS_VERSION = "TLS_VERSION";
+    /**
+     * The {@link ProxyEndPoint} attribute with the TLS cipher used by the client to connect to the proxy.
+     */
+    public static final String TLS_CIPHER = "TLS_CIPHER";
+    /**
+     * The {@link ProxyEndPoint} attribute with the common name of the client certificate.
+     */
+    public static final String TLS_CLIENT_CN = "TLS_CLIENT_CN";
+    /**
+     * The {@link ProxyEndPoint} attribute with the ALPN protocol negotiated by the client with the proxy.
+     */
+    public static final String ALPN = "ALPN";
+    /**
+     * The {@link ProxyEndPoint} attribute with the host name sent by the client to the proxy, typically via SNI.
+     */
+    public static final String AUTHORITY = "AUTHORITY";
+    /**
+     * The {@link ProxyEndPoint} attribute with the unique connection id assigned by the proxy, as a {@code byte[]}.
+     */
+    public static final String UNIQUE_ID = "UNIQUE_ID";
+    private static final int V2_HEADER_LENGTH = 16;
 
     private final String _next;
     private int _maxProxyHeader = 1024;
@@ -100,17 +126,30 @@ public class ProxyConnectionFactory extends AbstractConnectionFactory
         return new ProxyProtocolV1orV2Connection(endp, connector, next);
     }
 
+    /**
+     * <p>The connection that detects the PROXY protocol version and, for the
+     * version 2 binary header, parses it in place without upgrading to a
+     * second connection.</p>
+     * <p>Only the exact length of the header is read, so that the bytes
+     * following it are left to be read by the next protocol, whatever its
+     * connection. The header is read into a buffer taken from the connector's
+     * {@link ByteBufferPool}, which is released once the header is parsed.</p>
+     */
     public class ProxyProtocolV1orV2Connection extends AbstractConnection
     {
         private final Connector _connector;
         private final String _next;
-        private ByteBuffer _buffer = BufferUtil.allocate(16);
+        private ByteBuffer _pooled;
+        private ByteBuffer _buffer;
+        private int _length = -1;
 
         protected ProxyProtocolV1orV2Connection(EndPoint endp, Connector connector, String next)
         {
             super(endp, connector.getExecutor());
             _connector = connector;
             _next = next;
+            _pooled = connector.getByteBufferPool().acquire(V2_HEADER_LENGTH, false);
+            _buffer = window(_pooled, V2_HEADER_LENGTH);
         }
 
         @Override
@@ -120,45 +159,88 @@ public class ProxyConnectionFactory extends AbstractConnectionFactory
             fillInterested();
         }
 
+        @Override
+        public void onClose()
+        {
+            releaseBuffer();
+            super.onClose();
+        }
+
+        private void releaseBuffer()
+        {
+            ByteBuffer pooled = _pooled;
+            _pooled = null;
+            _buffer = null;
+            if (pooled != null)
+                _connector.getByteBufferPool().release(pooled);
+        }
+
         @Override
         public void onFillable()
         {
             try
             {
-                while (BufferUtil.space(_buffer) > 0)
+                while (true)
                 {
-                    // Read data
-                    int fill = getEndPoint().fill(_buffer);
-                    if (fill < 0)
+                    while (BufferUtil.space(_buffer) > 0)
                     {
-                        getEndPoint().shutdownOutput();
-                        return;
-                    }
-                    if (fill == 0)
-                    {
-                        fillInterested();
-                        return;
+                        // Read data
+                        int fill = getEndPoint().fill(_buffer);
+                        if (fill < 0)
+                        {
+                            getEndPoint().shutdownOutput();
+                            return;
+                        }
+                        if (fill == 0)
+                        {
+                            fillInterested();
+                            return;
+                        }
                     }
-                }
 
-                // Is it a V1?
-                switch (_buffer.get(0))
-                {
-                    case 'P':
+                    if (_length >= 0)
                     {
-                        ProxyProtocolV1Connection v1 = new ProxyProtocolV1Connection(getEndPoint(), _connector, _next, _buffer);
-                        getEndPoint().upgrade(v1);
+                        try
+                        {
+                            nextV2();
+                        }
+                        finally
+                        {
+                            releaseBuffer();
+                        }
                         return;
                     }
-                    case 0x0D:
+
+                    // Is it a V1?
+                    switch (_buffer.get(0))
                     {
-                        ProxyProtocolV2Connection v2 = new ProxyProtocolV2Connection(getEndPoint(), _connector, _next, _buffer);
-                        getEndPoint().upgrade(v2);
-                        return;
+                        case 'P':
+                        {
+                            ProxyProtocolV1Connection v1 = new ProxyProtocolV1Connection(getEndPoint(), _connector, _next, _buffer);
+                            releaseBuffer();
+                            getEndPoint().upgrade(v1);
+                            return;
+                        }
+                        case 0x0D:
+                        {
+                            _length = parseV2Length(_buffer, 0);
+                            if (_length > 0)
+                            {
+                                // Grow the buffer to exactly the whole header.
+                                ByteBuffer pooled = _connector.getByteBufferPool().acquire(V2_HEADER_LENGTH + _length, false);
+                                ByteBuffer buffer = window(pooled, V2_HEADER_LENGTH + _length);
+                                BufferUtil.append(buffer, _buffer);
+                                releaseBuffer();
+                                _pooled = pooled;
+                                _buffer = buffer;
+                            }
+                            break;
+                        }
+                        default:
+                            LOG.warn("Not PROXY protocol for {}", getEndPoint());
+                            close();
+                            return;
                     }
-                    default:
-                        LOG.warn("Not PROXY protocol for {}", getEndPoint());
-                        close();
                 }
             }
             catch (Throwable x)
@@ -167,6 +249,27 @@ public class ProxyConnectionFactory extends AbstractConnectionFactory
                 close();
             }
         }
+
+        private void nextV2() throws IOException
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("PROXYv2 header {} for {}", BufferUtil.toHexSummary(_buffer), this);
+
+            ConnectionFactory connectionFactory = _connector.getConnectionFactory(_next);
+            if (connectionFactory == null)
+            {
+                LOG.info("Next protocol '{}' for {}", _next, getEndPoint());
+                close();
+                return;
+            }
+
+            EndPoint endPoint = newProxyEndPointV2(getEndPoint(), _buffer, 0, _length);
+            if (LOG.isDebugEnabled())
+                LOG.debug("PROXYv2 next {} with {} for {}", _next, endPoint, this);
+
+            Connection newConnection = connectionFactory.newConnection(_connector, endPoint);
+            endPoint.upgrade(newConnection);
+        }
     }
 
     public static class ProxyProtocolV1Connection extends AbstractConnection
@@ -242,19 +345,17 @@ public class ProxyConnectionFactory extends AbstractConnectionFactory
         @Override
         public void onFillable()
         {
+            ByteBufferPool pool = _connector.getByteBufferPool();
+            ByteBuffer pooled = pool.acquire(SIZE[0], false);
             try
             {
-                ByteBuffer buffer = null;
                 while (_fields < 7)
                 {
-                    // Create a buffer that will not read too much data
+                    // Use a buffer that will not read too much data
                     // since once read it is impossible to push back for the 
                     // real connection to read it.
                     int size = Math.max(1, SIZE[_fields] - _builder.length());
-                    if (buffer == null || buffer.capacity() != size)
-                        buffer = BufferUtil.allocate(size);
-                    else
-                        BufferUtil.clear(buffer);
+                    ByteBuffer buffer = window(pooled, size);
 
                     // Read data
                     int fill = getEndPoint().fill(buffer);
@@ -314,9 +415,29 @@ public class ProxyConnectionFactory extends AbstractConnectionFactory
                 LOG.warn("PROXY error for " + getEndPoint(), x);
                 close();
             }
+            finally
+            {
+                pool.release(pooled);
+            }
         }
     }
 
+    /**
+     * @param pooled a buffer taken from a {@link ByteBufferPool}
+     * @param capacity the number of bytes that may be read into the window
+     * @return an empty buffer sharing the first bytes of the pooled buffer, so that
+     * a fill reads no more than the given capacity
+     */
+    private static ByteBuffer window(ByteBuffer pooled, int capacity)
+    {
+        ByteBuffer window = pooled.duplicate();
+        window.limit(capacity);
+        window.position(0);
+        window = window.slice();
+        window.limit(0);
+        return window;
+    }
+
     private enum Family
     {
         UNSPEC, INET, INET6, UNIX
@@ -329,276 +450,343 @@ public class ProxyConnectionFactory extends AbstractConnectionFactory
 
     private static final byte[] MAGIC = new byte[]{0x0D, 0x0A, 0x0D, 0x0A, 0x00, 0x0D, 0x0A, 0x51, 0x55, 0x49, 0x54, 0x0A};
 
-    public class ProxyProtocolV2Connection extends AbstractConnection
+    /**
+     * <p>Validates the fixed part of a PROXY v2 header, without changing the buffer position.</p>
+     *
+     * @param buffer the buffer containing at least the fixed part of the header
+     * @param position the position of the header in the buffer
+     * @return the length of the variable part of the header
+     * @throws IOException if the header is invalid or not supported
+     */
+    private int parseV2Length(ByteBuffer buffer, int position) throws IOException
     {
-        private final Connector _connector;
-        private final String _next;
-        private final boolean _local;
-        private final Family _family;
-        private final Transport _transport;
-        private final int _length;
-        private final ByteBuffer _buffer;
-
-        protected ProxyProtocolV2Connection(EndPoint endp, Connector connector, String next, ByteBuffer buffer) throws IOException
+        // struct proxy_hdr_v2 {
+        //     uint8_t sig[12];  /* hex 0D 0A 0D 0A 00 0D 0A 51 55 49 54 0A */
+        //     uint8_t ver_cmd;  /* protocol version and command */
+        //     uint8_t fam;      /* protocol family and address */
+        //     uint16_t len;     /* number of following bytes part of the header */
+        // };
+        for (int i = 0; i < MAGIC.length; ++i)
         {
-            super(endp, connector.getExecutor());
-            _connector = connector;
-            _next = next;
+            if (buffer.get(position + i) != MAGIC[i])
+                throw new IOException("Bad PROXY protocol v2 signature");
+        }
 
-            if (buffer.remaining() != 16)
-                throw new IllegalStateException();
+        int versionAndCommand = 0xff & buffer.get(position + 12);
+        if ((versionAndCommand & 0xf0) != 0x20)
+            throw new IOException("Bad PROXY protocol v2 version");
+        boolean local = (versionAndCommand & 0xf) == 0x00;
 
-            if (LOG.isDebugEnabled())
-                LOG.debug("PROXYv2 header {} for {}", BufferUtil.toHexSummary(buffer), this);
+        int transportAndFamily = 0xff & buffer.get(position + 13);
+        Family family = toFamily(transportAndFamily);
+        Transport transport = toTransport(transportAndFamily);
 
-            // struct proxy_hdr_v2 {
-            //     uint8_t sig[12];  /* hex 0D 0A 0D 0A 00 0D 0A 51 55 49 54 0A */
-            //     uint8_t ver_cmd;  /* protocol version and command */
-            //     uint8_t fam;      /* protocol family and address */
-            //     uint16_t len;     /* number of following bytes part of the header */
-            // };
-            for (byte magic : MAGIC)
-            {
-                if (buffer.get() != magic)
-                    throw new IOException("Bad PROXY protocol v2 signature");
-            }
+        int length = buffer.getChar(position + 14);
 
-            int versionAndCommand = 0xff & buffer.get();
-            if ((versionAndCommand & 0xf0) != 0x20)
-                throw new IOException("Bad PROXY protocol v2 version");
-            _local = (versionAndCommand & 0xf) == 0x00;
+        if (!local && (family == Family.UNSPEC || family == Family.UNIX || transport != Transport.STREAM))
+            throw new IOException(String.format("Unsupported PROXY protocol v2 mode 0x%x,0x%x", versionAndCommand, transportAndFamily));
 
-            int transportAndFamily = 0xff & buffer.get();
-            switch (transportAndFamily >> 4)
-            {
-                case 0:
-                    _family = Family.UNSPEC;
-                    break;
-                case 1:
-                    _family = Family.INET;
-                    break;
-                case 2:
-                    _family = Family.INET6;
-                    break;
-                case 3:
-                    _family = Family.UNIX;
-                    break;
-                default:
-                    throw new IOException("Bad PROXY protocol v2 family");
-            }
+        if (length > getMaxProxyHeader())
+            throw new IOException(String.format("Unsupported PROXY protocol v2 mode 0x%x,0x%x,0x%x", versionAndCommand, transportAndFamily, length));
 
-            switch (0xf & transportAndFamily)
-            {
-                case 0:
-                    _transport = Transport.UNSPEC;
-                    break;
-                case 1:
-                    _transport = Transport.STREAM;
-                    break;
-                case 2:
-                    _transport = Transport.DGRAM;
-                    break;
-                default:
-                    throw new IOException("Bad PROXY protocol v2 family");
-            }
+        return length;
+    }
 
-            _length = buffer.getChar();
+    private static Family toFamily(int transportAndFamily) throws IOException
+    {
+        switch (transportAndFamily >> 4)
+        {
+            case 0:
+                return Family.UNSPEC;
+            case 1:
+                return Family.INET;
+            case 2:
+                return Family.INET6;
+            case 3:
+                return Family.UNIX;
+            default:
+                throw new IOException("Bad PROXY protocol v2 family");
+        }
+    }
 
-            if (!_local && (_family == Family.UNSPEC || _family == Family.UNIX || _transport != Transport.STREAM))
-                throw new IOException(String.format("Unsupported PROXY protocol v2 mode 0x%x,0x%x", versionAndCommand, transportAndFamily));
+    private static Transport toTransport(int transportAndFamily) throws IOException
+    {
+        switch (0xf & transportAndFamily)
+        {
+            case 0:
+                return Transport.UNSPEC;
+            case 1:
+                return Transport.STREAM;
+            case 2:
+                return Transport.DGRAM;
+            default:
+                throw new IOException("Bad PROXY protocol v2 family");
+        }
+    }
 
-            if (_length > getMaxProxyHeader())
-                throw new IOException(String.format("Unsupported PROXY protocol v2 mode 0x%x,0x%x,0x%x", versionAndCommand, transportAndFamily, _length));
+    /**
+     * @param endPoint the endPoint to wrap
+     * @param buffer the buffer containing a whole, validated, PROXY v2 header
+     * @param position the position of the header in the buffer
+     * @param length the length of the variable part of the header
+     * @return the endPoint itself for the LOCAL command, otherwise a {@link ProxyEndPoint}
+     * @throws IOException if the variable part of the header is invalid
+     */
+    private static EndPoint newProxyEndPointV2(EndPoint endPoint, ByteBuffer buffer, int position, int length) throws IOException
+    {
+        boolean local = (buffer.get(position + 12) & 0xf) == 0x00;
+        if (local)
+            return endPoint;
+        Family family = toFamily(0xff & buffer.get(position + 13));
+        return newProxyEndPoint(endPoint, family, buffer, position + V2_HEADER_LENGTH, length);
+    }
 
-            _buffer = _length > 0 ? BufferUtil.allocate(_length) : BufferUtil.EMPTY_BUFFER;
+    private static ProxyEndPoint newProxyEndPoint(EndPoint endPoint, Family family, ByteBuffer buffer, int position, int length) throws IOException
+    {
+        int addressLength;
+        switch (family)
+        {
+            case INET:
+                addressLength = 4;
+                break;
+            case INET6:
+                addressLength = 16;
+                break;
+            default:
+                throw new IllegalStateException();
         }
+        int addressesLength = 2 * addressLength + 4;
+        if (length < addressesLength)
+            throw new IOException("Bad PROXY protocol v2 addresses length " + length);
 
-        @Override
-        public void onOpen()
+        // InetAddress copies the bytes, so the array can be reused.
+        byte[] address = new byte[addressLength];
+        for (int i = 0; i < addressLength; ++i)
         {
-            super.onOpen();
-            if (_buffer.remaining() == _length)
-                next();
-            else
-                fillInterested();
+            address[i] = buffer.get(position + i);
+        }
+        InetAddress src = InetAddress.getByAddress(address);
+        for (int i = 0; i < addressLength; ++i)
+        {
+            address[i] = buffer.get(position + addressLength + i);
         }
+        InetAddress dst = InetAddress.getByAddress(address);
+        int sp = buffer.getChar(position + 2 * addressLength);
+        int dp = buffer.getChar(position + 2 * addressLength + 2);
 
-        @Override
-        public void onFillable()
+        // Only validate the TLVs here, they are decoded lazily by the ProxyEndPoint.
+        byte[] tlvs = null;
+        int tlvsPosition = position + addressesLength;
+        int tlvsLength = length - addressesLength;
+        if (tlvsLength > 0)
         {
-            try
+            int end = tlvsPosition + tlvsLength;
+            for (int i = tlvsPosition; i < end; )
             {
-                while (_buffer.remaining() < _length)
-                {
-                    // Read data
-                    int fill = getEndPoint().fill(_buffer);
-                    if (fill < 0)
-                    {
-                        getEndPoint().shutdownOutput();
-                        return;
-                    }
-                    if (fill == 0)
-                    {
-                        fillInterested();
-                        return;
-                    }
-                }
-                next();
+                if (end - i < 3)
+                    throw new IOException("Bad PROXY protocol v2 TLV");
+                i += 3 + buffer.getChar(i + 1);
+                if (i > end)
+                    throw new IOException("Bad PROXY protocol v2 TLV length");
             }
-            catch (Throwable x)
+            tlvs = new byte[tlvsLength];
+            for (int i = 0; i < tlvsLength; ++i)
             {
-                LOG.warn("PROXY error for " + getEndPoint(), x);
-                close();
+                tlvs[i] = buffer.get(tlvsPosition + i);
             }
         }
 
-        private void next()
+        return new ProxyEndPoint(endPoint, new InetSocketAddress(src, sp), new InetSocketAddress(dst, dp), tlvs);
+    }
+
+    /**
+     * <p>An EndPoint that reports the addresses carried by the PROXY protocol.</p>
+     * <p>The TLVs of the PROXY v2 header are decoded lazily, the first time
+     * the attributes are accessed, into the {@link #TLS_VERSION}, {@link #TLS_CIPHER},
+     * {@link #TLS_CLIENT_CN}, {@link #ALPN}, {@link #AUTHORITY} and {@link #UNIQUE_ID}
+     * attributes; other TLVs are available via {@link #getTLV(int)}.</p>
+     */
+    public static class ProxyEndPoint extends AttributesMap implements EndPoint
+    {
+        private final EndPoint _endp;
+        private final InetSocketAddress _remote;
+        private final InetSocketAddress _local;
+        private final byte[] _tlvs;
+        private volatile boolean _tlvsDecoded;
+
+        public ProxyEndPoint(EndPoint endp, InetSocketAddress remote, InetSocketAddress local)
         {
-            if (LOG.isDebugEnabled())
-                LOG.debug("PROXYv2 next {} from {} for {}", _next, BufferUtil.toHexSummary(_buffer), this);
+            this(endp, remote, local, null);
+        }
 
-            // Create the next protocol
-            ConnectionFactory connectionFactory = _connector.getConnectionFactory(_next);
-            if (connectionFactory == null)
+        /**
+         * @param endp the EndPoint to wrap
+         * @param remote the remote address carried by the PROXY protocol
+         * @param local the local address carried by the PROXY protocol
+         * @param tlvs the TLVs of the PROXY v2 header, or null
+         */
+        public ProxyEndPoint(EndPoint endp, InetSocketAddress remote, InetSocketAddress local, byte[] tlvs)
+        {
+            _endp = endp;
+            _remote = remote;
+            _local = local;
+            _tlvs = tlvs;
+            _tlvsDecoded = tlvs == null;
+        }
+
+        /**
+         * @param type the PROXY v2 TLV type
+         * @return the value of the first TLV of the given type, or null if there is no such TLV
+         */
+        public byte[] getTLV(int type)
+        {
+            byte[] tlvs = _tlvs;
+            if (tlvs == null)
+                return null;
+            int i = 0;
+            while (i + 3 <= tlvs.length)
             {
-                LOG.info("Next protocol '{}' for {}", _next, getEndPoint());
-                close();
-                return;
+                int length = (tlvs[i + 1] & 0xFF) << 8 | (tlvs[i + 2] & 0xFF);
+                if ((tlvs[i] & 0xFF) == type)
+                    return Arrays.copyOfRange(tlvs, i + 3, i + 3 + length);
+                i += 3 + length;
             }
+            return null;
+        }
 
-            // Do we need to wrap the endpoint?
-            EndPoint endPoint = getEndPoint();
-            if (!_local)
+        private void decodeTLVs()
+        {
+            if (_tlvsDecoded)
+                return;
+            synchronized (this)
             {
-                try
+                if (_tlvsDecoded)
+                    return;
+                byte[] tlvs = _tlvs;
+                int i = 0;
+                while (i + 3 <= tlvs.length)
                 {
-                    InetAddress src;
-                    InetAddress dst;
-                    int sp;
-                    int dp;
+                    int type = tlvs[i] & 0xFF;
+                    int length = (tlvs[i + 1] & 0xFF) << 8 | (tlvs[i + 2] & 0xFF);
+                    int offset = i + 3;
+                    i = offset + length;
 
-                    switch (_family)
+                    if (LOG.isDebugEnabled())
+                        LOG.debug(String.format("T=%x L=%d V=%s for %s", type, length, TypeUtil.toHexString(tlvs, offset, length), this));
+
+                    switch (type)
                     {
-                        case INET:
-                        {
-                            byte[] addr = new byte[4];
-                            _buffer.get(addr);
-                            src = Inet4Address.getByAddress(addr);
-                            _buffer.get(addr);
-                            dst = Inet4Address.getByAddress(addr);
-                            sp = _buffer.getChar();
-                            dp = _buffer.getChar();
+                        case 0x01: // PP2_TYPE_ALPN
+                            super.setAttribute(ALPN, new String(tlvs, offset, length, StandardCharsets.US_ASCII));
                             break;
-                        }
-
-                        case INET6:
-                        {
-                            byte[] addr = new byte[16];
-                            _buffer.get(addr);
-                            src = Inet6Address.getByAddress(addr);
-                            _buffer.get(addr);
-                            dst = Inet6Address.getByAddress(addr);
-                            sp = _buffer.getChar();
-                            dp = _buffer.getChar();
+                        case 0x02: // PP2_TYPE_AUTHORITY
+                            super.setAttribute(AUTHORITY, new String(tlvs, offset, length, StandardCharsets.UTF_8));
                             break;
-                        }
-
+                        case 0x05: // PP2_TYPE_UNIQUE_ID
+                            super.setAttribute(UNIQUE_ID, Arrays.copyOfRange(tlvs, offset, offset + length));
+                            break;
+                        case 0x20: // PP2_TYPE_SSL
+                            decodeSSL(tlvs, offset, length);
+                            break;
+                        case 0x03: // PP2_TYPE_CRC32C
+                        case 0x04: // PP2_TYPE_NOOP
+                        case 0x30: // PP2_TYPE_NETNS
                         default:
-                            throw new IllegalStateException();
+                            break;
                     }
+                }
+                _tlvsDecoded = true;
+            }
+        }
 
-                    // Extract Addresses
-                    InetSocketAddress remote = new InetSocketAddress(src, sp);
-                    InetSocketAddress local = new InetSocketAddress(dst, dp);
-                    ProxyEndPoint proxyEndPoint = new ProxyEndPoint(endPoint, remote, local);
-                    endPoint = proxyEndPoint;
+        private void decodeSSL(byte[] tlvs, int offset, int length)
+        {
+            // struct pp2_tlv_ssl {
+            //     uint8_t  client;
+            //     uint32_t verify;
+            //     struct pp2_tlv sub_tlv[0];
+            // };
+            if (length < 5)
+                return;
+            int client = tlvs[offset] & 0xFF;
+            if ((client & 0x01) == 0) // PP2_CLIENT_SSL
+                return;
+            int end = offset + length;
+            int i = offset + 5; // Index of the first sub_tlv, after verify.
+            while (i + 3 <= end)
+            {
+                int subType = tlvs[i] & 0xFF;
+                int subLength = (tlvs[i + 1] & 0xFF) << 8 | (tlvs[i + 2] & 0xFF);
+                int subOffset = i + 3;
+                i = subOffset + subLength;
+                if (i > end)
+                    break;
+                switch (subType)
+                {
+                    case 0x21: // PP2_SUBTYPE_SSL_VERSION
+                        super.setAttribute(TLS_VERSION, new String(tlvs, subOffset, subLength, StandardCharsets.US_ASCII));
+                        break;
+                    case 0x22: // PP2_SUBTYPE_SSL_CN
+                        super.setAttribute(TLS_CLIENT_CN, new String(tlvs, subOffset, subLength, StandardCharsets.UTF_8));
+                        break;
+                    case 0x23: // PP2_SUBTYPE_SSL_CIPHER
+                        super.setAttribute(TLS_CIPHER, new String(tlvs, subOffset, subLength, StandardCharsets.US_ASCII));
+                        break;
+                    case 0x24: // PP2_SUBTYPE_SSL_SIG_ALG
+                    case 0x25: // PP2_SUBTYPE_SSL_KEY_ALG
+                    default:
+                        break;
+                }
+            }
+        }
 
-                    // Any additional info?
-                    while (_buffer.hasRemaining())
-                    {
-                        int type = 0xff & _buffer.get();
-                        int length = _buffer.getShort();
-                        byte[] value = new byte[length];
-                        _buffer.get(value);
+        @Override
+        public Object getAttribute(String name)
+        {
+            decodeTLVs();
+            return super.getAttribute(name);
+        }
 
-                        if (LOG.isDebugEnabled())
-                            LOG.debug(String.format("T=%x L=%d V=%s for %s", type, length, TypeUtil.toHexString(value), this));
+        @Override
+        public Set<String> getAttributeNameSet()
+        {
+            decodeTLVs();
+            return super.getAttributeNameSet();
+        }
 
-                        switch (type)
-                        {
-                            case 0x20: // PP2_TYPE_SSL
-                            {
-                                int client = value[0] & 0xFF;
-                                switch (client)
-                                {
-                                    case 0x01: // PP2_CLIENT_SSL
-                                    {
-                                        int i = 5; // Index of the first sub_tlv, after verify.
-                                        while (i < length)
-                                        {
-                                            int subType = value[i++] & 0xFF;
-                                            int subLength = (value[i++] & 0xFF) * 256 + (value[i++] & 0xFF);
-                                            byte[] subValue = new byte[subLength];
-                                            System.arraycopy(value, i, subValue, 0, subLength);
-                                            i += subLength;
-                                            switch (subType)
-                                            {
-                                                case 0x21: // PP2_SUBTYPE_SSL_VERSION
-                                                    String tlsVersion = new String(subValue, StandardCharsets.US_ASCII);
-                                                    proxyEndPoint.setAttribute(TLS_VERSION, tlsVersion);
-                                                    break;
-                                                case 0x22: // PP2_SUBTYPE_SSL_CN
-                                                case 0x23: // PP2_SUBTYPE_SSL_CIPHER
-                                                case 0x24: // PP2_SUBTYPE_SSL_SIG_ALG
-                                                case 0x25: // PP2_SUBTYPE_SSL_KEY_ALG
-                                                default:
-                                                    break;
-                                            }
-                                        }
-                                        break;
-                                    }
-                                    case 0x02: // PP2_CLIENT_CERT_CONN
-                                    case 0x04: // PP2_CLIENT_CERT_SESS
-                                    default:
-                                        break;
-                                }
-                                break;
-                            }
-                            case 0x01: // PP2_TYPE_ALPN
-                            case 0x02: // PP2_TYPE_AUTHORITY
-                            case 0x03: // PP2_TYPE_CRC32C
-                            case 0x04: // PP2_TYPE_NOOP
-                            case 0x30: // PP2_TYPE_NETNS
-                            default:
-                                break;
-                        }
-                    }
+        @Override
+        public Set<Map.Entry<String, Object>> getAttributeEntrySet()
+        {
+            decodeTLVs();
+            return super.getAttributeEntrySet();
+        }
 
-                    if (LOG.isDebugEnabled())
-                        LOG.debug("{} {}", getEndPoint(), proxyEndPoint.toString());
-                }
-                catch (Exception e)
-                {
-                    LOG.warn(e);
-                }
-            }
+        @Override
+        public void setAttribute(String name, Object attribute)
+        {
+            decodeTLVs();
+            super.setAttribute(name, attribute);
+        }
 
-            Connection newConnection = connectionFactory.newConnection(_connector, endPoint);
-            endPoint.upgrade(newConnection);
+        @Override
+        public void removeAttribute(String name)
+        {
+            decodeTLVs();
+            super.removeAttribute(name);
         }
-    }
 
-    public static class ProxyEndPoint extends AttributesMap implements EndPoint
-    {
-        private final EndPoint _endp;
-        private final InetSocketAddress _remote;
-        private final InetSocketAddress _local;
+        @Override
+        public void clearAttributes()
+        {
+            decodeTLVs();
+            super.clearAttributes();
+        }
 
-        public ProxyEndPoint(EndPoint endp, InetSocketAddress remote, InetSocketAddress local)
+        @Override
+        public int size()
         {
-            _endp = endp;
-            _remote = remote;
-            _local = local;
+            decodeTLVs();
+            return super.size();
         }
 
         @Override
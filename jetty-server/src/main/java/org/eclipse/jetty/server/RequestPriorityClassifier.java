@@ -0,0 +1,171 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.jetty.http.pathmap.MappedResource;
+import org.eclipse.jetty.http.pathmap.PathMappings;
+
+/**
+ * <p>A {@link HttpConfiguration.PriorityClassifier} that assigns priority levels
+ * to requests according to the connector they are received on, their path
+ * and their headers.</p>
+ * <p>When several rules match a request, the most urgent level (the lowest)
+ * is assigned; when no rule matches, the {@link #getDefaultPriority() default level}
+ * is assigned.</p>
+ * <p>For example, to serve health checks and requests from an admin connector
+ * before other requests:</p>
+ * <pre>
+ * QueuedThreadPool threadPool = new QueuedThreadPool(200, 8, 60000, new PrioritizedQueue&lt;&gt;(1, 1024, 8192));
+ * RequestPriorityClassifier classifier = new RequestPriorityClassifier();
+ * classifier.addPath("/health", 0);
+ * classifier.addConnector("admin", 0);
+ * httpConfiguration.setPriorityClassifier(classifier);
+ * </pre>
+ */
+public class RequestPriorityClassifier implements HttpConfiguration.PriorityClassifier
+{
+    private final Map<String, Integer> _connectors = new ConcurrentHashMap<>();
+    private final PathMappings<Integer> _paths = new PathMappings<>();
+    private final List<HeaderRule> _headers = new CopyOnWriteArrayList<>();
+    private int _defaultPriority = -1;
+
+    /**
+     * @return the priority level of requests that match no rule, or -1 to leave them unclassified
+     */
+    public int getDefaultPriority()
+    {
+        return _defaultPriority;
+    }
+
+    /**
+     * @param defaultPriority the priority level of requests that match no rule, or -1 to leave them unclassified
+     */
+    public void setDefaultPriority(int defaultPriority)
+    {
+        _defaultPriority = defaultPriority;
+    }
+
+    /**
+     * @param connectorName the {@link Connector#getName() name} of a connector
+     * @param priority the priority level of the requests received on the connector
+     */
+    public void addConnector(String connectorName, int priority)
+    {
+        _connectors.put(connectorName, checkPriority(priority));
+    }
+
+    /**
+     * @param pathSpec the path spec matched against the request path
+     * @param priority the priority level of the requests that match the path spec
+     * @see PathMappings#asPathSpec(String)
+     */
+    public void addPath(String pathSpec, int priority)
+    {
+        _paths.put(pathSpec, checkPriority(priority));
+    }
+
+    /**
+     * @param name the name of a request header
+     * @param value the value the header must have, or null if the presence of the header is enough
+     * @param priority the priority level of the requests that match the header
+     */
+    public void addHeader(String name, String value, int priority)
+    {
+        _headers.add(new HeaderRule(name, value, checkPriority(priority)));
+    }
+
+    private static int checkPriority(int priority)
+    {
+        if (priority < 0)
+            throw new IllegalArgumentException("Invalid priority " + priority);
+        return priority;
+    }
+
+    @Override
+    public int classify(Connector connector, Request request)
+    {
+        int priority = Integer.MAX_VALUE;
+
+        if (!_connectors.isEmpty() && connector != null && connector.getName() != null)
+        {
+            Integer level = _connectors.get(connector.getName());
+            if (level != null)
+                priority = level;
+        }
+
+        if (_paths.size() > 0)
+        {
+            String path = request.getPathInfo();
+            if (path != null)
+            {
+                MappedResource<Integer> mapping = _paths.getMatch(path);
+                if (mapping != null)
+                    priority = Math.min(priority, mapping.getResource());
+            }
+        }
+
+        for (HeaderRule rule : _headers)
+        {
+            if (rule._priority < priority && rule.matches(request))
+                priority = rule._priority;
+        }
+
+        return priority == Integer.MAX_VALUE ? _defaultPriority : priority;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{connectors=%s,paths=%s,headers=%s,default=%d}",
+            getClass().getSimpleName(), hashCode(), _connectors, _paths, _headers, _defaultPriority);
+    }
+
+    private static class HeaderRule
+    {
+        private final String _name;
+        private final String _value;
+        private final int _priority;
+
+        private HeaderRule(String name, String value, int priority)
+        {
+            _name = name;
+            _value = value;
+            _priority = priority;
+        }
+
+        private boolean matches(Request request)
+        {
+            String value = request.getHeader(_name);
+            if (value == null)
+                return false;
+            return _value == null || _value.equalsIgnoreCase(value);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s%s=%d", _name, _value == null ? "" : ":" + _value, _priority);
+        }
+    }
+}
@@ -177,8 +177,14 @@ public class SecureRequestCustomizer implements HttpConfiguration.Customizer
         else if (endp instanceof ProxyConnectionFactory.ProxyEndPoint)
         {
             ProxyConnectionFactory.ProxyEndPoint proxy = (ProxyConnectionFactory.ProxyEndPoint)endp;
-            if (request.getHttpURI().getScheme() == null && proxy.getAttribute(ProxyConnectionFactory.TLS_VERSION) != null)
-                request.setScheme(HttpScheme.HTTPS.asString());
+            if (proxy.getAttribute(ProxyConnectionFactory.TLS_VERSION) != null)
+            {
+                if (request.getHttpURI().getScheme() == null)
+                    request.setScheme(HttpScheme.HTTPS.asString());
+                Object cipherSuite = proxy.getAttribute(ProxyConnectionFactory.TLS_CIPHER);
+                if (cipherSuite != null)
+                    request.setAttribute("javax.servlet.request.cipher_suite", cipherSuite);
+            }
         }
 
         if (HttpScheme.HTTPS.is(request.getScheme()))
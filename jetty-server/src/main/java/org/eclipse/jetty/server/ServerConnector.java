@@ -25,12 +25,17 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
 import java.nio.channels.Channel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.EventListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -72,10 +77,34 @@ import org.eclipse.jetty.util.thread.Scheduler;
  * which should allow optimal performance even if all the connections used are performing
  * significant non-blocking work in the callback tasks.
  * </p>
+ * <h2>Reuse Port</h2>
+ * <p>
+ * If {@link #setReusePort(boolean) reuse port} is enabled and there are no acceptor threads,
+ * one listening socket per selector is bound to the same address with {@code SO_REUSEPORT}.
+ * Each selector accepts from its own listening socket and keeps the connections it accepts,
+ * so that the kernel balances new connections among the selectors without a shared accept lock.
+ * </p>
  */
 @ManagedObject("HTTP connector using NIO ByteChannels and Selectors")
 public class ServerConnector extends AbstractNetworkConnector
 {
+    private static final SocketOption<Boolean> SO_REUSEPORT = getReusePortOption();
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> getReusePortOption()
+    {
+        try
+        {
+            // StandardSocketOptions.SO_REUSEPORT is only available from Java 9.
+            return (SocketOption<Boolean>)StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        }
+        catch (Throwable x)
+        {
+            LOG.ignore(x);
+            return null;
+        }
+    }
+
     private final SelectorManager _manager;
     private final AtomicReference<Closeable> _acceptor = new AtomicReference<>();
     private volatile ServerSocketChannel _acceptChannel;
@@ -83,6 +112,8 @@ public class ServerConnector extends AbstractNetworkConnector
     private volatile int _localPort = -1;
     private volatile int _acceptQueueSize = 0;
     private volatile boolean _reuseAddress = true;
+    private volatile boolean _reusePort;
+    private final List<ServerSocketChannel> _reusePortChannels = new CopyOnWriteArrayList<>();
 
     /**
      * <p>Construct a ServerConnector with a private instance of {@link HttpConnectionFactory} as the only factory.</p>
@@ -233,10 +264,35 @@ public class ServerConnector extends AbstractNetworkConnector
         if (getAcceptors() == 0)
         {
             _acceptChannel.configureBlocking(false);
-            _acceptor.set(_manager.acceptor(_acceptChannel));
+            for (ServerSocketChannel channel : _reusePortChannels)
+            {
+                channel.configureBlocking(false);
+            }
+            _acceptor.set(newAcceptor());
         }
     }
 
+    private Closeable newAcceptor()
+    {
+        if (_reusePortChannels.isEmpty())
+            return _manager.acceptor(_acceptChannel);
+
+        // Each selector accepts from its own listening socket.
+        List<Closeable> acceptors = new ArrayList<>();
+        acceptors.add(_manager.acceptor(_acceptChannel, 0));
+        for (int i = 0; i < _reusePortChannels.size(); ++i)
+        {
+            acceptors.add(_manager.acceptor(_reusePortChannels.get(i), i + 1));
+        }
+        return () ->
+        {
+            for (Closeable acceptor : acceptors)
+            {
+                acceptor.close();
+            }
+        };
+    }
+
     @Override
     protected void doStop() throws Exception
     {
@@ -310,6 +366,39 @@ public class ServerConnector extends AbstractNetworkConnector
             if (_localPort <= 0)
                 throw new IOException("Server channel not bound");
             addBean(_acceptChannel);
+
+            if (isReusePort() && getAcceptors() == 0 && isReusePortEnabled(_acceptChannel))
+            {
+                for (int i = 1; i < _manager.getSelectorCount(); ++i)
+                {
+                    ServerSocketChannel channel = openReusePortChannel(_localPort);
+                    _reusePortChannels.add(channel);
+                    addBean(channel);
+                }
+            }
+        }
+    }
+
+    private static boolean isReusePortEnabled(ServerSocketChannel channel) throws IOException
+    {
+        return SO_REUSEPORT != null && channel.supportedOptions().contains(SO_REUSEPORT) && channel.getOption(SO_REUSEPORT);
+    }
+
+    private ServerSocketChannel openReusePortChannel(int port) throws IOException
+    {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        try
+        {
+            InetSocketAddress bindAddress = getHost() == null ? new InetSocketAddress(port) : new InetSocketAddress(getHost(), port);
+            serverChannel.socket().setReuseAddress(getReuseAddress());
+            serverChannel.setOption(SO_REUSEPORT, true);
+            serverChannel.socket().bind(bindAddress, getAcceptQueueSize());
+            return serverChannel;
+        }
+        catch (IOException x)
+        {
+            serverChannel.close();
+            throw new IOException("Failed to bind to " + getHost() + ":" + port + " with SO_REUSEPORT", x);
         }
     }
 
@@ -337,6 +426,13 @@ public class ServerConnector extends AbstractNetworkConnector
 
             InetSocketAddress bindAddress = getHost() == null ? new InetSocketAddress(getPort()) : new InetSocketAddress(getHost(), getPort());
             serverChannel.socket().setReuseAddress(getReuseAddress());
+            if (isReusePort())
+            {
+                if (SO_REUSEPORT != null && serverChannel.supportedOptions().contains(SO_REUSEPORT))
+                    serverChannel.setOption(SO_REUSEPORT, true);
+                else
+                    LOG.warn("SO_REUSEPORT not supported, using a single listening socket for {}", this);
+            }
             try
             {
                 serverChannel.socket().bind(bindAddress, getAcceptQueueSize());
@@ -355,6 +451,20 @@ public class ServerConnector extends AbstractNetworkConnector
     {
         super.close();
 
+        for (ServerSocketChannel channel : _reusePortChannels)
+        {
+            removeBean(channel);
+            try
+            {
+                channel.close();
+            }
+            catch (IOException e)
+            {
+                LOG.warn(e);
+            }
+        }
+        _reusePortChannels.clear();
+
         ServerSocketChannel serverChannel = _acceptChannel;
         _acceptChannel = null;
         if (serverChannel != null)
@@ -395,6 +505,14 @@ public class ServerConnector extends AbstractNetworkConnector
         _manager.accept(channel);
     }
 
+    private void accepted(SocketChannel channel, int selector) throws IOException
+    {
+        channel.configureBlocking(false);
+        Socket socket = channel.socket();
+        configure(socket);
+        _manager.accept(channel, null, selector);
+    }
+
     protected void configure(Socket socket)
     {
         try
@@ -493,6 +611,28 @@ public class ServerConnector extends AbstractNetworkConnector
         _reuseAddress = reuseAddress;
     }
 
+    /**
+     * @return whether the server sockets are bound with {@code SO_REUSEPORT}
+     */
+    @ManagedAttribute("Whether the server sockets are bound with SO_REUSEPORT, one per selector")
+    public boolean isReusePort()
+    {
+        return _reusePort;
+    }
+
+    /**
+     * <p>Sets whether the server sockets are bound with {@code SO_REUSEPORT}, which requires
+     * Java 9 and an operating system that supports it.</p>
+     * <p>If there are no acceptor threads, one listening socket is bound per selector and
+     * each selector accepts and keeps the connections from its own listening socket.</p>
+     *
+     * @param reusePort whether the server sockets are bound with {@code SO_REUSEPORT}
+     */
+    public void setReusePort(boolean reusePort)
+    {
+        _reusePort = reusePort;
+    }
+
     @Override
     public void setAccepting(boolean accepting)
     {
@@ -506,7 +646,7 @@ public class ServerConnector extends AbstractNetworkConnector
             {
                 if (_acceptor.get() == null)
                 {
-                    Closeable acceptor = _manager.acceptor(_acceptChannel);
+                    Closeable acceptor = newAcceptor();
                     if (!_acceptor.compareAndSet(null, acceptor))
                         acceptor.close();
                 }
@@ -537,6 +677,12 @@ public class ServerConnector extends AbstractNetworkConnector
             ServerConnector.this.accepted((SocketChannel)channel);
         }
 
+        @Override
+        protected void accepted(SelectableChannel channel, int selector) throws IOException
+        {
+            ServerConnector.this.accepted((SocketChannel)channel, selector);
+        }
+
         @Override
         protected ChannelEndPoint newEndPoint(SelectableChannel channel, ManagedSelector selectSet, SelectionKey selectionKey) throws IOException
         {
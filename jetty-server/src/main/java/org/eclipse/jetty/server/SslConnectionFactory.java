@@ -18,6 +18,7 @@
 
 package org.eclipse.jetty.server;
 
+import java.util.concurrent.Executor;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLSession;
 
@@ -37,6 +38,7 @@ public class SslConnectionFactory extends AbstractConnectionFactory
     private final String _nextProtocol;
     private boolean _directBuffersForEncryption = false;
     private boolean _directBuffersForDecryption = false;
+    private Executor _delegatedTaskExecutor;
 
     public SslConnectionFactory()
     {
@@ -81,6 +83,22 @@ public class SslConnectionFactory extends AbstractConnectionFactory
         return _directBuffersForEncryption;
     }
 
+    public Executor getDelegatedTaskExecutor()
+    {
+        return _delegatedTaskExecutor;
+    }
+
+    /**
+     * @param executor the executor of SSLEngine delegated tasks, or null to run them inline
+     * @see SslConnection#setDelegatedTaskExecutor(Executor)
+     * @see org.eclipse.jetty.io.ssl.SslDelegatedTaskExecutor
+     */
+    public void setDelegatedTaskExecutor(Executor executor)
+    {
+        updateBean(_delegatedTaskExecutor, executor, false);
+        _delegatedTaskExecutor = executor;
+    }
+
     public String getNextProtocol()
     {
         return _nextProtocol;
@@ -108,6 +126,7 @@ public class SslConnectionFactory extends AbstractConnectionFactory
         SslConnection sslConnection = newSslConnection(connector, endPoint, engine);
         sslConnection.setRenegotiationAllowed(_sslContextFactory.isRenegotiationAllowed());
         sslConnection.setRenegotiationLimit(_sslContextFactory.getRenegotiationLimit());
+        sslConnection.setDelegatedTaskExecutor(getDelegatedTaskExecutor());
         configure(sslConnection, connector, endPoint);
 
         ConnectionFactory next = connector.getConnectionFactory(_nextProtocol);
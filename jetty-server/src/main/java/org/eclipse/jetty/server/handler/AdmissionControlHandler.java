@@ -0,0 +1,368 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.handler;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpHeaderValue;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+/**
+ * <p>Handler that sheds load when requests queue for too long, using the
+ * controlled delay (CoDel) approach rather than static thresholds.</p>
+ * <p>Queueing delay is sampled from two sources:</p>
+ * <ul>
+ * <li>a probe job periodically submitted to the server {@link Executor},
+ * whose time spent waiting in the thread pool queue is measured;</li>
+ * <li>the time each request waited between being parsed and being
+ * dispatched to this handler.</li>
+ * </ul>
+ * <p>The minimum delay observed for each source over an {@link #getInterval() interval}
+ * is its standing delay: if even the best sample of an interval is above the
+ * {@link #getTarget() target}, a queue has formed that is not draining and the
+ * handler enters the overloaded state until an interval ends with the standing
+ * delays of both sources below the target.</p>
+ * <p>While overloaded, requests that waited longer than the target are rejected
+ * progressively, following the CoDel control law: the first is rejected when the
+ * handler becomes overloaded, and after the n-th rejection the next request over
+ * the target is rejected only once {@code interval / sqrt(n)} has elapsed, so that
+ * the rejection rate increases until the queue drains. Requests that waited less
+ * than the target are always admitted. Whether overloaded or not, requests that
+ * waited longer than the interval are rejected, while short bursts are absorbed
+ * by the queue.</p>
+ * <p>Rejected requests are answered with a 503 status without generating an
+ * error page and, if {@link #isCloseConnection()} is true, the connection is
+ * closed.</p>
+ */
+@ManagedObject("Admission control based on queueing delay")
+public class AdmissionControlHandler extends HandlerWrapper
+{
+    private static final Logger LOG = Log.getLogger(AdmissionControlHandler.class);
+
+    private final AtomicLong _minProbeDelay = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong _minRequestDelay = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong _intervalStart = new AtomicLong();
+    private final AtomicLong _dropNext = new AtomicLong();
+    private final AtomicLong _dropCount = new AtomicLong();
+    private final LongAdder _rejected = new LongAdder();
+    private final Runnable _tick = this::tick;
+    private final Runnable _probe = this::probed;
+    private volatile boolean _enabled = true;
+    private volatile boolean _overloaded;
+    private volatile long _standingDelay;
+    private volatile long _probeQueued;
+    private long _target = TimeUnit.MILLISECONDS.toNanos(5);
+    private long _interval = TimeUnit.MILLISECONDS.toNanos(100);
+    private long _probePeriod = TimeUnit.MILLISECONDS.toNanos(10);
+    private boolean _closeConnection;
+    private Scheduler _scheduler;
+    private Executor _executor;
+
+    @ManagedAttribute("true if this handler is enabled")
+    public boolean isEnabled()
+    {
+        return _enabled;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        _enabled = enabled;
+    }
+
+    /**
+     * @return the acceptable standing queueing delay in milliseconds
+     */
+    @ManagedAttribute("The acceptable standing queueing delay in ms")
+    public long getTarget()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(_target);
+    }
+
+    /**
+     * @param target the acceptable standing queueing delay in milliseconds
+     */
+    public void setTarget(long target)
+    {
+        if (target <= 0)
+            throw new IllegalArgumentException("target must be >0");
+        _target = TimeUnit.MILLISECONDS.toNanos(target);
+    }
+
+    /**
+     * @return the interval in milliseconds over which the minimum queueing delay is measured
+     */
+    @ManagedAttribute("The interval in ms over which the minimum queueing delay is measured")
+    public long getInterval()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(_interval);
+    }
+
+    /**
+     * @param interval the interval in milliseconds over which the minimum queueing delay is measured
+     */
+    public void setInterval(long interval)
+    {
+        if (interval <= 0)
+            throw new IllegalArgumentException("interval must be >0");
+        _interval = TimeUnit.MILLISECONDS.toNanos(interval);
+    }
+
+    /**
+     * @return the period in milliseconds between probes of the thread pool queue
+     */
+    @ManagedAttribute("The period in ms between probes of the thread pool queue")
+    public long getProbePeriod()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(_probePeriod);
+    }
+
+    /**
+     * @param probePeriod the period in milliseconds between probes of the thread pool queue
+     */
+    public void setProbePeriod(long probePeriod)
+    {
+        if (probePeriod <= 0)
+            throw new IllegalArgumentException("probe period must be >0");
+        _probePeriod = TimeUnit.MILLISECONDS.toNanos(probePeriod);
+    }
+
+    @ManagedAttribute("true if the connection of rejected requests is closed")
+    public boolean isCloseConnection()
+    {
+        return _closeConnection;
+    }
+
+    public void setCloseConnection(boolean closeConnection)
+    {
+        _closeConnection = closeConnection;
+    }
+
+    @ManagedAttribute(value = "true if the standing queueing delay is above the target", readonly = true)
+    public boolean isOverloaded()
+    {
+        return _overloaded;
+    }
+
+    /**
+     * @return the minimum queueing delay in milliseconds measured over the last complete interval
+     */
+    @ManagedAttribute(value = "The minimum queueing delay in ms measured over the last interval", readonly = true)
+    public long getStandingDelay()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(_standingDelay);
+    }
+
+    @ManagedAttribute(value = "The number of rejected requests", readonly = true)
+    public long getRejected()
+    {
+        return _rejected.sum();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void reset()
+    {
+        _rejected.reset();
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        _executor = getServer().getThreadPool();
+        _scheduler = getServer().getBean(Scheduler.class);
+        if (_scheduler == null)
+        {
+            _scheduler = new ScheduledExecutorScheduler(String.format("AdmissionControl@%x", hashCode()), true);
+            addBean(_scheduler, true);
+        }
+        _overloaded = false;
+        _standingDelay = 0;
+        _probeQueued = 0;
+        _minProbeDelay.set(Long.MAX_VALUE);
+        _minRequestDelay.set(Long.MAX_VALUE);
+        _intervalStart.set(System.nanoTime());
+        _dropCount.set(0);
+        super.doStart();
+        _scheduler.schedule(_tick, _probePeriod, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        if (_scheduler instanceof ScheduledExecutorScheduler && isManaged(_scheduler))
+            removeBean(_scheduler);
+        _scheduler = null;
+        _executor = null;
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+    {
+        if (_enabled && baseRequest.getDispatcherType() == DispatcherType.REQUEST)
+        {
+            long now = System.nanoTime();
+            long delay = TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - baseRequest.getTimeStamp()));
+            sample(_minRequestDelay, delay, now);
+            if (!admit(delay))
+            {
+                reject(baseRequest, response);
+                return;
+            }
+        }
+        super.handle(target, baseRequest, request, response);
+    }
+
+    /**
+     * @param delay the queueing delay in nanoseconds of the request
+     * @return whether the request should be handled
+     */
+    protected boolean admit(long delay)
+    {
+        if (delay > _interval)
+            return false;
+        if (!_overloaded || delay <= _target)
+            return true;
+
+        // Only one request is rejected each time the next drop time is reached.
+        long now = System.nanoTime();
+        long next = _dropNext.get();
+        if (now - next < 0)
+            return true;
+        long count = _dropCount.get() + 1;
+        if (!_dropNext.compareAndSet(next, now + (long)(_interval / Math.sqrt(count))))
+            return true;
+        _dropCount.set(count);
+        return false;
+    }
+
+    /**
+     * <p>Completes a request that was not admitted.</p>
+     *
+     * @param baseRequest the request
+     * @param response the response
+     */
+    protected void reject(Request baseRequest, HttpServletResponse response)
+    {
+        _rejected.increment();
+        if (LOG.isDebugEnabled())
+            LOG.debug("Rejected {} standing={}ms", baseRequest, getStandingDelay());
+        baseRequest.setHandled(true);
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE_503);
+        if (_closeConnection)
+            response.setHeader(HttpHeader.CONNECTION.asString(), HttpHeaderValue.CLOSE.asString());
+    }
+
+    private void sample(AtomicLong minDelay, long delay, long now)
+    {
+        while (true)
+        {
+            long min = minDelay.get();
+            if (delay >= min || minDelay.compareAndSet(min, delay))
+                break;
+        }
+
+        long start = _intervalStart.get();
+        if (now - start >= _interval && _intervalStart.compareAndSet(start, now))
+        {
+            long probe = _minProbeDelay.getAndSet(Long.MAX_VALUE);
+            long request = _minRequestDelay.getAndSet(Long.MAX_VALUE);
+            // A source without samples in the interval does not contribute.
+            long standing = Math.max(probe == Long.MAX_VALUE ? -1 : probe, request == Long.MAX_VALUE ? -1 : request);
+            if (standing < 0)
+                return;
+            _standingDelay = standing;
+            boolean overloaded = standing > _target;
+            if (overloaded != _overloaded)
+            {
+                if (overloaded)
+                {
+                    _dropCount.set(0);
+                    _dropNext.set(now);
+                }
+                _overloaded = overloaded;
+                if (LOG.isDebugEnabled())
+                    LOG.debug("{} overloaded={} standing={}ms", this, overloaded, TimeUnit.NANOSECONDS.toMillis(standing));
+            }
+        }
+    }
+
+    private void tick()
+    {
+        Scheduler scheduler = _scheduler;
+        Executor executor = _executor;
+        if (!isRunning() || scheduler == null)
+            return;
+
+        long now = System.nanoTime();
+        long queued = _probeQueued;
+        if (queued != 0)
+        {
+            // The probe is still queued, so it has waited at least this long.
+            sample(_minProbeDelay, now - queued, now);
+        }
+        else
+        {
+            _probeQueued = now;
+            try
+            {
+                executor.execute(_probe);
+            }
+            catch (RejectedExecutionException x)
+            {
+                LOG.ignore(x);
+                _probeQueued = 0;
+                sample(_minProbeDelay, _interval, now);
+            }
+        }
+        scheduler.schedule(_tick, _probePeriod, TimeUnit.NANOSECONDS);
+    }
+
+    private void probed()
+    {
+        long now = System.nanoTime();
+        long delay = now - _probeQueued;
+        _probeQueued = 0;
+        sample(_minProbeDelay, delay, now);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{overloaded=%b,standing=%dms,target=%dms,interval=%dms}",
+            getClass().getSimpleName(), hashCode(), _overloaded, getStandingDelay(), getTarget(), getInterval());
+    }
+}
@@ -18,8 +18,10 @@
 
 package org.eclipse.jetty.server.session;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 
@@ -98,6 +100,11 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
      */
     protected boolean _flushOnResponseCommit;
 
+    /**
+     * If true, session attributes are read without locking the session
+     */
+    protected boolean _readMostly;
+
     /**
      * Create a new Session object from pre-existing session data
      *
@@ -314,6 +321,24 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
         return _flushOnResponseCommit;
     }
 
+    /**
+     * Sessions created or loaded after this is set are affected.
+     *
+     * @see org.eclipse.jetty.server.session.SessionCache#setReadMostly(boolean)
+     */
+    @Override
+    public void setReadMostly(boolean readMostly)
+    {
+        _readMostly = readMostly;
+    }
+
+    @ManagedAttribute(value = "sessions read without locking", readonly = true)
+    @Override
+    public boolean isReadMostly()
+    {
+        return _readMostly;
+    }
+
     /**
      * Get a session object.
      *
@@ -488,6 +513,73 @@ public abstract class AbstractSessionCache extends ContainerLifeCycle implements
         }
     }
 
+    /**
+     * @see org.eclipse.jetty.server.session.SessionCache#warmup(java.util.Collection)
+     */
+    @Override
+    public int warmup(Collection<String> ids) throws Exception
+    {
+        if (_sessionDataStore == null || ids.isEmpty() || isFull())
+            return 0;
+
+        int added = 0;
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, SessionData> entry : _sessionDataStore.loadAll(ids).entrySet())
+        {
+            SessionData data = entry.getValue();
+            if (data == null)
+            {
+                //can't load the session, delete it
+                if (isRemoveUnloadableSessions())
+                    _sessionDataStore.delete(entry.getKey());
+                continue;
+            }
+
+            if (data.isExpiredAt(now))
+                continue;
+
+            //the remaining sessions are left in the store, to be loaded by requests
+            if (isFull())
+                break;
+
+            data.setLastNode(_context.getWorkerName());//we are going to manage the node
+            Session session = newSession(data);
+            session.setResident(true);
+            if (doPutIfAbsent(data.getId(), session) != null)
+                continue; //already loaded by a request
+            warmedUp(session);
+
+            //start the timer that would have been started when the last request for the session completed
+            try (Lock lock = session.lock())
+            {
+                session._sessionInactivityTimer.schedule(session.calculateInactivityTimeout(now));
+            }
+            added++;
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Warmed up {} of {} sessions in {}", added, ids.size(), this);
+        return added;
+    }
+
+    /**
+     * @return true if the cache is at its bounds, so that no more sessions are warmed up
+     */
+    protected boolean isFull()
+    {
+        return false;
+    }
+
+    /**
+     * Called after a session is added to the cache by {@link #warmup(Collection)},
+     * so that the cache can account for it in its bounds.
+     *
+     * @param session the session added
+     */
+    protected void warmedUp(Session session)
+    {
+    }
+
     /**
      * Add an entirely new session (created by the application calling Request.getSession(true))
      * to the cache. The usage count of the fresh session is incremented.
@@ -31,6 +31,23 @@ public abstract class AbstractSessionCacheFactory implements SessionCacheFactory
     boolean _saveOnCreate;
     boolean _removeUnloadableSessions;
     boolean _flushOnResponseCommit;
+    boolean _readMostly;
+
+    /**
+     * @return the readMostly
+     */
+    public boolean isReadMostly()
+    {
+        return _readMostly;
+    }
+
+    /**
+     * @param readMostly the readMostly to set
+     */
+    public void setReadMostly(boolean readMostly)
+    {
+        _readMostly = readMostly;
+    }
 
     /**
      * @return the flushOnResponseCommit
@@ -18,10 +18,14 @@
 
 package org.eclipse.jetty.server.session;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.eclipse.jetty.util.MultiException;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
@@ -40,6 +44,7 @@ public abstract class AbstractSessionDataStore extends ContainerLifeCycle implem
     protected int _gracePeriodSec = 60 * 60; //default of 1hr 
     protected long _lastExpiryCheckTime = 0; //last time in ms that getExpired was called
     protected int _savePeriodSec = 0; //time in sec between saves
+    protected SessionDataSerializer _serializer = new JavaSessionDataSerializer(); //serializer of session attributes
 
     /**
      * Store the session data persistently.
@@ -51,6 +56,22 @@ public abstract class AbstractSessionDataStore extends ContainerLifeCycle implem
      */
     public abstract void doStore(String id, SessionData data, long lastSaveTime) throws Exception;
 
+    /**
+     * Store only the metadata and the changed attributes of a session
+     * that has been stored before. Only called if {@link #isDeltaStore()}
+     * is true. By default, stores the whole session.
+     *
+     * @param id identity of session to store
+     * @param data info of the session
+     * @param dirtyAttributes the names of the attributes set or removed since the last save
+     * @param lastSaveTime time of previous save
+     * @throws Exception if unable to store data
+     */
+    public void doStoreDelta(String id, SessionData data, Set<String> dirtyAttributes, long lastSaveTime) throws Exception
+    {
+        doStore(id, data, lastSaveTime);
+    }
+
     /**
      * Load the session from persistent store.
      *
@@ -60,10 +81,43 @@ public abstract class AbstractSessionDataStore extends ContainerLifeCycle implem
      */
     public abstract SessionData doLoad(String id) throws Exception;
 
+    /**
+     * Load many sessions from persistent storage. By default each
+     * session is loaded as if by {@link #doLoad(String)}.
+     *
+     * @param ids the ids of the sessions to load
+     * @return the loaded sessions, omitting those that do not exist and mapping those unreadable to null
+     * @throws Exception if unable to load the sessions
+     */
+    public Map<String, SessionData> doLoadAll(Collection<String> ids) throws Exception
+    {
+        Map<String, SessionData> loaded = new HashMap<>();
+        for (String id : ids)
+        {
+            try
+            {
+                SessionData data = doLoad(id);
+                if (data != null)
+                    loaded.put(id, data);
+            }
+            catch (UnreadableSessionDataException e)
+            {
+                LOG.warn(e);
+                loaded.put(id, null);
+            }
+        }
+        return loaded;
+    }
+
     /**
      * Implemented by subclasses to resolve which sessions this node
      * should attempt to expire.
      *
+     * This is called on every scavenge, so implementations should find
+     * expired sessions through an index ordered by expiry, such as a
+     * {@link SessionExpiryIndex} or a database index on the expiry time,
+     * rather than by examining every stored session.
+     *
      * @param candidates the ids of sessions the SessionDataStore thinks has expired
      * @return the reconciled set of session ids that this node should attempt to expire
      */
@@ -105,6 +159,34 @@ public abstract class AbstractSessionDataStore extends ContainerLifeCycle implem
         return reference.get();
     }
 
+    @Override
+    public Map<String, SessionData> loadAll(Collection<String> ids) throws Exception
+    {
+        if (!isStarted())
+            throw new IllegalStateException("Not started");
+
+        final AtomicReference<Map<String, SessionData>> reference = new AtomicReference<>();
+        final AtomicReference<Exception> exception = new AtomicReference<Exception>();
+
+        Runnable r = () ->
+        {
+            try
+            {
+                reference.set(doLoadAll(ids));
+            }
+            catch (Exception e)
+            {
+                exception.set(e);
+            }
+        };
+
+        _context.run(r);
+        if (exception.get() != null)
+            throw exception.get();
+
+        return reference.get();
+    }
+
     @Override
     public void store(String id, SessionData data) throws Exception
     {
@@ -122,30 +204,27 @@ public abstract class AbstractSessionDataStore extends ContainerLifeCycle implem
             public void run()
             {
                 long lastSave = data.getLastSaved();
-                long savePeriodMs = (_savePeriodSec <= 0 ? 0 : TimeUnit.SECONDS.toMillis(_savePeriodSec));
-
-                if (LOG.isDebugEnabled())
-                {
-                    LOG.debug("Store: id={}, mdirty={}, dirty={}, lsave={}, period={}, elapsed={}", id, data.isMetaDataDirty(),
-                        data.isDirty(), data.getLastSaved(), savePeriodMs, (System.currentTimeMillis() - lastSave));
-                }
 
-                //save session if attribute changed, never been saved or metadata changed (eg expiry time) and save interval exceeded
-                if (data.isDirty() || (lastSave <= 0) ||
-                    (data.isMetaDataDirty() && ((System.currentTimeMillis() - lastSave) >= savePeriodMs)))
+                if (isStoreRequired(id, data))
                 {
                     //set the last saved time to now
                     data.setLastSaved(System.currentTimeMillis());
+                    //attributes changed from now on will be saved next time
+                    Set<String> dirtyAttributes = data.takeDirtyAttributes();
                     try
                     {
                         //call the specific store method, passing in previous save time
-                        doStore(id, data, lastSave);
+                        if (lastSave > 0 && isDeltaStore())
+                            doStoreDelta(id, data, dirtyAttributes, lastSave);
+                        else
+                            doStore(id, data, lastSave);
                         data.clean(); //unset all dirty flags
                     }
                     catch (Exception e)
                     {
-                        //reset last save time if save failed
+                        //reset last save time and changed attributes if save failed
                         data.setLastSaved(lastSave);
+                        data.addDirtyAttributes(dirtyAttributes);
                         exception.set(e);
                     }
                 }
@@ -157,6 +236,52 @@ public abstract class AbstractSessionDataStore extends ContainerLifeCycle implem
             throw exception.get();
     }
 
+    /**
+     * Store a batch of sessions. By default each session is
+     * stored as if by {@link #store(String, SessionData)}; stores
+     * able to write many sessions at once may override.
+     *
+     * @param sessions the sessions to store
+     * @throws Exception if any of the sessions could not be stored
+     */
+    public void storeAll(Collection<SessionData> sessions) throws Exception
+    {
+        MultiException failures = new MultiException();
+        for (SessionData data : sessions)
+        {
+            try
+            {
+                store(data.getId(), data);
+            }
+            catch (Exception e)
+            {
+                failures.add(e);
+            }
+        }
+        failures.ifExceptionThrow();
+    }
+
+    /**
+     * @param id the session id
+     * @param data the session
+     * @return true if an attribute changed, the session has never been saved,
+     * or the metadata (eg expiry time) changed and the save period elapsed
+     */
+    protected boolean isStoreRequired(String id, SessionData data)
+    {
+        long lastSave = data.getLastSaved();
+        long savePeriodMs = (_savePeriodSec <= 0 ? 0 : TimeUnit.SECONDS.toMillis(_savePeriodSec));
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Store: id={}, mdirty={}, dirty={}, lsave={}, period={}, elapsed={}", id, data.isMetaDataDirty(),
+                data.isDirty(), data.getLastSaved(), savePeriodMs, (System.currentTimeMillis() - lastSave));
+        }
+
+        return data.isDirty() || (lastSave <= 0) ||
+            (data.isMetaDataDirty() && ((System.currentTimeMillis() - lastSave) >= savePeriodMs));
+    }
+
     @Override
     public Set<String> getExpired(Set<String> candidates)
     {
@@ -235,6 +360,37 @@ public abstract class AbstractSessionDataStore extends ContainerLifeCycle implem
         _savePeriodSec = savePeriodSec;
     }
 
+    /**
+     * @return true if this store writes only the changed attributes of
+     * sessions that have been stored before
+     * @see #doStoreDelta(String, SessionData, Set, long)
+     */
+    @ManagedAttribute(value = "only changed attributes are stored", readonly = true)
+    public boolean isDeltaStore()
+    {
+        return false;
+    }
+
+    /**
+     * @return the serializer of session attributes
+     */
+    @ManagedAttribute(value = "serializer of session attributes", readonly = true)
+    public SessionDataSerializer getSerializer()
+    {
+        return _serializer;
+    }
+
+    /**
+     * Set the serializer used by stores that persist session
+     * attributes as bytes.
+     *
+     * @param serializer the serializer of session attributes, or null for java serialization
+     */
+    public void setSerializer(SessionDataSerializer serializer)
+    {
+        _serializer = serializer == null ? new JavaSessionDataSerializer() : serializer;
+    }
+
     @Override
     public String toString()
     {
@@ -26,6 +26,7 @@ public abstract class AbstractSessionDataStoreFactory implements SessionDataStor
 
     int _gracePeriodSec;
     int _savePeriodSec;
+    SessionDataSerializer _serializer;
 
     /**
      * @return the gracePeriodSec
@@ -58,4 +59,20 @@ public abstract class AbstractSessionDataStoreFactory implements SessionDataStor
     {
         _savePeriodSec = savePeriodSec;
     }
+
+    /**
+     * @return the serializer of session attributes, or null for java serialization
+     */
+    public SessionDataSerializer getSerializer()
+    {
+        return _serializer;
+    }
+
+    /**
+     * @param serializer the serializer of session attributes, or null for java serialization
+     */
+    public void setSerializer(SessionDataSerializer serializer)
+    {
+        _serializer = serializer;
+    }
 }
@@ -18,6 +18,11 @@
 
 package org.eclipse.jetty.server.session;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
@@ -110,6 +115,38 @@ public class CachingSessionDataStore extends ContainerLifeCycle implements Sessi
         return d;
     }
 
+    /**
+     * @see org.eclipse.jetty.server.session.SessionDataStore#loadAll(java.util.Collection)
+     */
+    @Override
+    public Map<String, SessionData> loadAll(Collection<String> ids) throws Exception
+    {
+        Map<String, SessionData> loaded = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String id : ids)
+        {
+            SessionData d = null;
+            try
+            {
+                d = _cache.load(id);
+            }
+            catch (Exception e)
+            {
+                LOG.warn(e);
+            }
+
+            if (d != null)
+                loaded.put(id, d);
+            else
+                misses.add(id);
+        }
+
+        //load the cache misses from the store together
+        if (!misses.isEmpty())
+            loaded.putAll(_store.loadAll(misses));
+        return loaded;
+    }
+
     /**
      * @see org.eclipse.jetty.server.session.SessionDataStore#delete(java.lang.String)
      */
@@ -134,6 +171,16 @@ public class CachingSessionDataStore extends ContainerLifeCycle implements Sessi
         return _store.getExpired(candidates);
     }
 
+    /**
+     * @see org.eclipse.jetty.server.session.SessionDataStore#getMostRecentlyAccessed(int, java.lang.String)
+     */
+    @Override
+    public List<String> getMostRecentlyAccessed(int max, String lastNode) throws Exception
+    {
+        //pass thru to the delegate store
+        return _store.getMostRecentlyAccessed(max, lastNode);
+    }
+
     /**
      * @see org.eclipse.jetty.server.session.SessionDataStore#store(java.lang.String, org.eclipse.jetty.server.session.SessionData)
      */
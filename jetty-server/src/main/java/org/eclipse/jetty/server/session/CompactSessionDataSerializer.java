@@ -0,0 +1,458 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jetty.util.ByteArrayOutputStream2;
+import org.eclipse.jetty.util.ClassLoadingObjectInputStream;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * CompactSessionDataSerializer
+ *
+ * Serializes the common types of attribute values with a compact binary codec,
+ * falling back to java serialization for all other values.
+ *
+ * The compact codec handles String, Boolean, Byte, Short, Character, Integer, Long,
+ * Float, Double, byte[] and HashMap or LinkedHashMap instances whose keys and values
+ * are, recursively, of those types or null. Strings and byte arrays are length-prefixed,
+ * integral values are written as variable length integers.
+ *
+ * The format is a 2 byte magic number and a version byte, the count of compact
+ * attributes followed by each attribute name and tagged value, then the count of
+ * java serialized attributes followed, if there are any, by a java serialization
+ * stream in the format of {@link SessionData#serializeAttributes(SessionData, ObjectOutputStream)}.
+ *
+ * Attributes written by the {@link JavaSessionDataSerializer} are detected by the absence
+ * of the magic number and are still readable, so that existing sessions survive a switch
+ * to this serializer. The reverse is not true: all nodes sharing a store must be able to
+ * read this format before any of them starts writing it.
+ *
+ * Values written with the compact codec are copied, so object identity shared between
+ * attribute values is only preserved amongst the java serialized values.
+ */
+public class CompactSessionDataSerializer implements SessionDataSerializer
+{
+    private static final Logger LOG = Log.getLogger("org.eclipse.jetty.server.session");
+
+    private static final int MAGIC_0 = 0xC0;
+    private static final int MAGIC_1 = 0xDE;
+    private static final int VERSION = 1;
+    private static final int MAX_DEPTH = 8;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte TRUE = 2;
+    private static final byte FALSE = 3;
+    private static final byte BYTE = 4;
+    private static final byte SHORT = 5;
+    private static final byte CHAR = 6;
+    private static final byte INT = 7;
+    private static final byte LONG = 8;
+    private static final byte FLOAT = 9;
+    private static final byte DOUBLE = 10;
+    private static final byte BYTES = 11;
+    private static final byte HASH_MAP = 12;
+    private static final byte LINKED_HASH_MAP = 13;
+
+    private final JavaSessionDataSerializer _java = new JavaSessionDataSerializer();
+
+    @Override
+    public void serializeAttributes(SessionData data, OutputStream out) throws IOException
+    {
+        List<Entry<String, Object>> compact = new ArrayList<>();
+        List<Entry<String, Object>> java = new ArrayList<>();
+        for (Entry<String, Object> entry : data._attributes.entrySet())
+        {
+            if (isCompact(entry.getValue(), 0))
+                compact.add(entry);
+            else
+                java.add(entry);
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Serialize {} compact={} java={}", data.getId(), compact.size(), java.size());
+
+        ByteArrayOutputStream2 buffer = new ByteArrayOutputStream2(256);
+        DataOutputStream output = new DataOutputStream(buffer);
+        output.writeByte(MAGIC_0);
+        output.writeByte(MAGIC_1);
+        output.writeByte(VERSION);
+        writeVarInt(output, compact.size());
+        for (Entry<String, Object> entry : compact)
+        {
+            writeString(output, entry.getKey());
+            writeValue(output, entry.getValue());
+        }
+
+        writeVarInt(output, java.size());
+        if (!java.isEmpty())
+        {
+            ObjectOutputStream oos = new ObjectOutputStream(output);
+            for (Entry<String, Object> entry : java)
+            {
+                oos.writeUTF(entry.getKey());
+                oos.writeBoolean(SessionData.isServerLoader(entry.getValue().getClass()));
+                oos.writeObject(entry.getValue());
+            }
+            oos.flush();
+        }
+
+        output.flush();
+        out.write(buffer.getBuf(), 0, buffer.getCount());
+        out.flush();
+    }
+
+    @Override
+    public void deserializeAttributes(SessionData data, InputStream in) throws IOException, ClassNotFoundException
+    {
+        InputStream input = in.markSupported() ? in : new BufferedInputStream(in);
+        input.mark(2);
+        if (input.read() != MAGIC_0 || input.read() != MAGIC_1)
+        {
+            input.reset();
+            _java.deserializeAttributes(data, input);
+            return;
+        }
+
+        int version = input.read();
+        if (version != VERSION)
+            throw new IOException("Unsupported session attributes version " + version);
+
+        DataInputStream dataInput = new DataInputStream(input);
+        Map<String, Object> attributes = new ConcurrentHashMap<>();
+        int compact = readVarInt(dataInput);
+        for (int i = 0; i < compact; i++)
+        {
+            String name = readString(dataInput);
+            Object value = readValue(dataInput, 0);
+            if (value == null)
+                throw new IOException("Null value for attribute " + name);
+            attributes.put(name, value);
+        }
+
+        int java = readVarInt(dataInput);
+        if (java > 0)
+        {
+            ClassLoadingObjectInputStream ois = new ClassLoadingObjectInputStream(input);
+            ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+            ClassLoader serverLoader = SessionData.class.getClassLoader();
+            for (int i = 0; i < java; i++)
+            {
+                String name = ois.readUTF();
+                boolean isServerLoader = ois.readBoolean();
+                attributes.put(name, ois.readObject(isServerLoader ? serverLoader : contextLoader));
+            }
+        }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Deserialize {} compact={} java={}", data.getId(), compact, java);
+        data._attributes = attributes;
+    }
+
+    /**
+     * @param value the attribute value
+     * @param depth the nesting depth of the value within maps
+     * @return whether the value can be written with the compact codec
+     */
+    protected boolean isCompact(Object value, int depth)
+    {
+        if (value == null ||
+            value instanceof String ||
+            value instanceof Boolean ||
+            value instanceof Byte ||
+            value instanceof Short ||
+            value instanceof Character ||
+            value instanceof Integer ||
+            value instanceof Long ||
+            value instanceof Float ||
+            value instanceof Double ||
+            value instanceof byte[])
+            return true;
+
+        // Only exact map classes, so that the class is preserved on reading.
+        Class<?> clazz = value.getClass();
+        if ((clazz == HashMap.class || clazz == LinkedHashMap.class) && depth < MAX_DEPTH)
+        {
+            for (Entry<?, ?> entry : ((Map<?, ?>)value).entrySet())
+            {
+                if (!isCompact(entry.getKey(), depth + 1) || !isCompact(entry.getValue(), depth + 1))
+                    return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static void writeValue(DataOutput out, Object value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeByte(NULL);
+        }
+        else if (value instanceof String)
+        {
+            out.writeByte(STRING);
+            writeString(out, (String)value);
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeByte((Boolean)value ? TRUE : FALSE);
+        }
+        else if (value instanceof Byte)
+        {
+            out.writeByte(BYTE);
+            out.writeByte((Byte)value);
+        }
+        else if (value instanceof Short)
+        {
+            out.writeByte(SHORT);
+            writeVarLong(out, zigZag((Short)value));
+        }
+        else if (value instanceof Character)
+        {
+            out.writeByte(CHAR);
+            writeVarInt(out, (Character)value);
+        }
+        else if (value instanceof Integer)
+        {
+            out.writeByte(INT);
+            writeVarLong(out, zigZag((Integer)value));
+        }
+        else if (value instanceof Long)
+        {
+            out.writeByte(LONG);
+            writeVarLong(out, zigZag((Long)value));
+        }
+        else if (value instanceof Float)
+        {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float)value);
+        }
+        else if (value instanceof Double)
+        {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double)value);
+        }
+        else if (value instanceof byte[])
+        {
+            byte[] bytes = (byte[])value;
+            out.writeByte(BYTES);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+        else
+        {
+            Map<?, ?> map = (Map<?, ?>)value;
+            out.writeByte(value.getClass() == LinkedHashMap.class ? LINKED_HASH_MAP : HASH_MAP);
+            writeVarInt(out, map.size());
+            for (Entry<?, ?> entry : map.entrySet())
+            {
+                writeValue(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        }
+    }
+
+    private static Object readValue(DataInput in, int depth) throws IOException
+    {
+        byte tag = in.readByte();
+        switch (tag)
+        {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return (short)unZigZag(readVarLong(in));
+            case CHAR:
+                return (char)readVarInt(in);
+            case INT:
+                return (int)unZigZag(readVarLong(in));
+            case LONG:
+                return unZigZag(readVarLong(in));
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case BYTES:
+            {
+                byte[] bytes = new byte[readVarInt(in)];
+                in.readFully(bytes);
+                return bytes;
+            }
+            case HASH_MAP:
+            case LINKED_HASH_MAP:
+            {
+                if (depth >= MAX_DEPTH)
+                    throw new IOException("Session attribute nested too deeply");
+                int size = readVarInt(in);
+                Map<Object, Object> map = tag == HASH_MAP ? new HashMap<>() : new LinkedHashMap<>();
+                for (int i = 0; i < size; i++)
+                {
+                    Object key = readValue(in, depth + 1);
+                    map.put(key, readValue(in, depth + 1));
+                }
+                return map;
+            }
+            default:
+                throw new IOException("Unknown session attribute tag " + tag);
+        }
+    }
+
+    /**
+     * Write a string as its length in bytes followed by its chars, each encoded
+     * in 1 to 3 bytes as in modified UTF-8, so that any char sequence, including
+     * unpaired surrogates, is preserved.
+     */
+    private static void writeString(DataOutput out, String string) throws IOException
+    {
+        int length = string.length();
+        byte[] bytes = new byte[length * 3];
+        int count = 0;
+        for (int i = 0; i < length; i++)
+        {
+            char c = string.charAt(i);
+            if (c < 0x80)
+            {
+                bytes[count++] = (byte)c;
+            }
+            else if (c < 0x800)
+            {
+                bytes[count++] = (byte)(0xC0 | (c >> 6));
+                bytes[count++] = (byte)(0x80 | (c & 0x3F));
+            }
+            else
+            {
+                bytes[count++] = (byte)(0xE0 | (c >> 12));
+                bytes[count++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+                bytes[count++] = (byte)(0x80 | (c & 0x3F));
+            }
+        }
+        writeVarInt(out, count);
+        out.write(bytes, 0, count);
+    }
+
+    private static String readString(DataInput in) throws IOException
+    {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        char[] chars = new char[bytes.length];
+        int length = 0;
+        int i = 0;
+        while (i < bytes.length)
+        {
+            int b = bytes[i++] & 0xFF;
+            if (b < 0x80)
+            {
+                chars[length++] = (char)b;
+            }
+            else if (b < 0xE0)
+            {
+                if (i >= bytes.length)
+                    throw new IOException("Truncated session attribute string");
+                chars[length++] = (char)(((b & 0x1F) << 6) | (bytes[i++] & 0x3F));
+            }
+            else
+            {
+                if (i + 1 >= bytes.length)
+                    throw new IOException("Truncated session attribute string");
+                chars[length++] = (char)(((b & 0x0F) << 12) | ((bytes[i++] & 0x3F) << 6) | (bytes[i++] & 0x3F));
+            }
+        }
+        return new String(chars, 0, length);
+    }
+
+    private static long zigZag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException
+    {
+        if (value < 0)
+            throw new IllegalArgumentException("Negative length " + value);
+        writeVarLong(out, value);
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out.writeByte((int)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int)value);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException
+    {
+        long value = readVarLong(in);
+        if (value < 0 || value > Integer.MAX_VALUE)
+            throw new IOException("Invalid session attribute length " + value);
+        return (int)value;
+    }
+
+    private static long readVarLong(DataInput in) throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            int b = in.readUnsignedByte();
+            value |= (long)(b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Invalid session attribute varint");
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName();
+    }
+}
@@ -18,7 +18,14 @@
 
 package org.eclipse.jetty.server.session;
 
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import javax.servlet.http.HttpServletRequest;
 
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
@@ -27,11 +34,20 @@ import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.statistic.CounterStatistic;
+import org.eclipse.jetty.util.thread.Locker.Lock;
 
 /**
  * DefaultSessionCache
  *
  * A session store that keeps its sessions in memory in a hashmap
+ *
+ * The cache may be bounded by a number of sessions and by an estimate of the
+ * memory used by the session attributes. When a released session takes the cache
+ * over a bound, sessions that are not in use are written to the SessionDataStore
+ * and evicted, until the cache is below 90% of its bounds. Each session evicted
+ * is the least recently or least frequently used of a small sample of the
+ * sessions. Sessions evicted when the SessionDataStore is a NullSessionDataStore
+ * are lost.
  */
 @ManagedObject
 public class DefaultSessionCache extends AbstractSessionCache
@@ -45,6 +61,32 @@ public class DefaultSessionCache extends AbstractSessionCache
 
     private final CounterStatistic _stats = new CounterStatistic();
 
+    /**
+     * The order in which sessions are evicted when the cache is over its bounds
+     */
+    public enum EvictionOrder
+    {
+        /**
+         * Evict the least recently accessed sessions first
+         */
+        LRU,
+        /**
+         * Evict the least frequently accessed sessions first
+         */
+        LFU
+    }
+
+    private static final int EVICTION_SAMPLE_SIZE = 16;
+    private static final long UNKNOWN_SIZE = 1024;
+
+    private final Map<String, Usage> _usage = new ConcurrentHashMap<>();
+    private final AtomicLong _memory = new AtomicLong();
+    private final AtomicBoolean _evicting = new AtomicBoolean();
+    private final LongAdder _sizeEvictions = new LongAdder();
+    private int _maxSessions = -1;
+    private long _maxMemory = -1;
+    private EvictionOrder _evictionOrder = EvictionOrder.LRU;
+
     /**
      * @param manager The SessionHandler related to this SessionCache
      */
@@ -80,6 +122,75 @@ public class DefaultSessionCache extends AbstractSessionCache
         return _stats.getTotal();
     }
 
+    /**
+     * @return the max number of sessions in the cache before sessions are evicted, or -1 for no limit
+     */
+    @ManagedAttribute(value = "max sessions in cache before eviction, -1 for no limit", readonly = true)
+    public int getMaxSessions()
+    {
+        return _maxSessions;
+    }
+
+    /**
+     * @param maxSessions the max number of sessions in the cache before sessions are evicted, or -1 for no limit
+     */
+    public void setMaxSessions(int maxSessions)
+    {
+        _maxSessions = maxSessions;
+    }
+
+    /**
+     * @return the max estimated bytes of session attributes in the cache before sessions are evicted, or -1 for no limit
+     */
+    @ManagedAttribute(value = "max estimated bytes in cache before eviction, -1 for no limit", readonly = true)
+    public long getMaxMemory()
+    {
+        return _maxMemory;
+    }
+
+    /**
+     * @param maxMemory the max estimated bytes of session attributes in the cache before sessions are evicted, or -1 for no limit
+     */
+    public void setMaxMemory(long maxMemory)
+    {
+        _maxMemory = maxMemory;
+    }
+
+    /**
+     * @return the order in which sessions are evicted when the cache is over its bounds
+     */
+    @ManagedAttribute(value = "order of eviction when over bounds", readonly = true)
+    public EvictionOrder getEvictionOrder()
+    {
+        return _evictionOrder;
+    }
+
+    /**
+     * @param evictionOrder the order in which sessions are evicted when the cache is over its bounds
+     */
+    public void setEvictionOrder(EvictionOrder evictionOrder)
+    {
+        _evictionOrder = evictionOrder == null ? EvictionOrder.LRU : evictionOrder;
+    }
+
+    /**
+     * @return the estimated bytes used by the sessions in the cache
+     */
+    @ManagedAttribute(value = "estimated bytes of sessions in cache", readonly = true)
+    public long getMemoryUsed()
+    {
+        return _memory.get();
+    }
+
+    /**
+     * @return the number of sessions evicted because the cache was over its bounds
+     */
+    @ManagedAttribute(value = "sessions evicted because cache was over bounds", readonly = true)
+    public long getSizeEvictions()
+    {
+        return _sizeEvictions.sum();
+    }
+
     /**
      *
      */
@@ -87,6 +198,7 @@ public class DefaultSessionCache extends AbstractSessionCache
     public void resetStats()
     {
         _stats.reset();
+        _sizeEvictions.reset();
     }
 
     /**
@@ -100,6 +212,13 @@ public class DefaultSessionCache extends AbstractSessionCache
 
         Session session = _sessions.get(id);
 
+        if (session != null && _evictionOrder == EvictionOrder.LFU)
+        {
+            Usage usage = _usage.get(id);
+            if (usage != null)
+                usage._hits.increment();
+        }
+
         return session;
     }
 
@@ -111,7 +230,10 @@ public class DefaultSessionCache extends AbstractSessionCache
     {
         Session s = _sessions.putIfAbsent(id, session);
         if (s == null && !(session instanceof PlaceHolderSession))
+        {
             _stats.increment();
+            _usage.put(id, new Usage());
+        }
         return s;
     }
 
@@ -123,7 +245,12 @@ public class DefaultSessionCache extends AbstractSessionCache
     {
         Session s = _sessions.remove(id);
         if (s != null && !(s instanceof PlaceHolderSession))
+        {
             _stats.decrement();
+            Usage usage = _usage.remove(id);
+            if (usage != null)
+                _memory.addAndGet(-usage._size);
+        }
         return s;
     }
 
@@ -196,7 +323,269 @@ public class DefaultSessionCache extends AbstractSessionCache
     {
         boolean result = _sessions.replace(id, oldValue, newValue);
         if (result && (oldValue instanceof PlaceHolderSession))
+        {
             _stats.increment();
+            _usage.put(id, new Usage());
+        }
         return result;
     }
+
+    @Override
+    public void release(String id, Session session) throws Exception
+    {
+        super.release(id, session);
+        updateSize(id, session);
+        if (isOverBounds(1.0))
+            evictToBounds();
+    }
+
+    @Override
+    protected boolean isFull()
+    {
+        return (_maxSessions > 0 && _stats.getCurrent() >= _maxSessions) ||
+            (_maxMemory > 0 && _memory.get() >= _maxMemory);
+    }
+
+    @Override
+    protected void warmedUp(Session session)
+    {
+        updateSize(session.getId(), session);
+    }
+
+    /**
+     * Update the memory used by the cache with the estimated size of a session.
+     * The size is estimated with the session locked, as the attributes may change
+     * once it is released; if it cannot be estimated a fixed size is used.
+     *
+     * @param id the session id
+     * @param session the session
+     */
+    private void updateSize(String id, Session session)
+    {
+        if (_maxMemory > 0)
+        {
+            long size;
+            try (Lock lock = session.lock())
+            {
+                size = estimateSize(session);
+            }
+            catch (RuntimeException e)
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Unable to estimate size of session {}", id, e);
+                size = UNKNOWN_SIZE;
+            }
+            long estimate = size;
+            _usage.computeIfPresent(id, (k, usage) ->
+            {
+                _memory.addAndGet(estimate - usage._size);
+                usage._size = estimate;
+                return usage;
+            });
+        }
+    }
+
+    private boolean isOverBounds(double ratio)
+    {
+        return (_maxSessions > 0 && _stats.getCurrent() > _maxSessions * ratio) ||
+            (_maxMemory > 0 && _memory.get() > _maxMemory * ratio);
+    }
+
+    /**
+     * Evict unused sessions until the cache is under 90% of its bounds. Rather than
+     * sorting all the sessions, each session evicted is the first in eviction order
+     * of a small sample of the unused sessions, taken in turn from the cache.
+     */
+    private void evictToBounds()
+    {
+        if (!_evicting.compareAndSet(false, true))
+            return;
+
+        try
+        {
+            Iterator<Session> sessions = _sessions.values().iterator();
+            int unused = 0;
+            int failures = 0;
+            while (isOverBounds(0.9))
+            {
+                Candidate victim = null;
+                int sampled = 0;
+                while (sampled < EVICTION_SAMPLE_SIZE && unused <= _sessions.size())
+                {
+                    if (!sessions.hasNext())
+                    {
+                        //end of the cache, start again from the beginning if the sample is empty
+                        if (victim != null)
+                            break;
+                        sessions = _sessions.values().iterator();
+                        if (!sessions.hasNext())
+                            break;
+                    }
+
+                    Session session = sessions.next();
+                    if (session instanceof PlaceHolderSession || session.getRequests() > 0)
+                    {
+                        unused++;
+                        continue;
+                    }
+                    unused = 0;
+                    sampled++;
+                    Candidate candidate = new Candidate(session, _evictionOrder == EvictionOrder.LFU ? getHits(session.getId()) : 0);
+                    if (victim == null || candidate.isBefore(victim))
+                        victim = candidate;
+                }
+
+                if (victim == null)
+                    break;
+                if (evict(victim._session))
+                    _sizeEvictions.increment();
+                else if (++failures > _sessions.size())
+                    break;
+            }
+        }
+        finally
+        {
+            _evicting.set(false);
+        }
+    }
+
+    private long getHits(String id)
+    {
+        Usage usage = _usage.get(id);
+        return usage == null ? 0 : usage._hits.sum();
+    }
+
+    /**
+     * Write an unused session to the SessionDataStore and remove it from the cache.
+     *
+     * @param session the session to evict
+     * @return true if the session was evicted
+     */
+    private boolean evict(Session session)
+    {
+        try (Lock lock = session.lock())
+        {
+            if (!session.isValid() || !session.isResident() || session.getRequests() > 0)
+                return false;
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("Evicting session {} from full cache", session.getId());
+
+            if (_sessionDataStore.isPassivating())
+                session.willPassivate();
+
+            //Fake being dirty to force the write
+            session.getSessionData().setDirty(true);
+            _sessionDataStore.store(session.getId(), session.getSessionData());
+            doDelete(session.getId());
+            session.setResident(false);
+            return true;
+        }
+        catch (Exception e)
+        {
+            LOG.warn("Eviction of session {} failed", session.getId(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Estimate the memory used by a session from the sizes of its attributes.
+     *
+     * @param session the session
+     * @return the estimated size in bytes
+     */
+    protected long estimateSize(Session session)
+    {
+        SessionData data = session.getSessionData();
+        long size = 256 + estimateSize(data.getId(), 0);
+        for (Map.Entry<String, Object> entry : data.getAllAttributes().entrySet())
+        {
+            size += 32 + estimateSize(entry.getKey(), 0) + estimateSize(entry.getValue(), 0);
+        }
+        return size;
+    }
+
+    /**
+     * Estimate the memory used by an attribute value. Strings, arrays, collections
+     * and maps are sized by their contents; other objects are given a fixed size.
+     *
+     * @param value the attribute value
+     * @param depth the nesting depth of the value within collections
+     * @return the estimated size in bytes
+     */
+    protected long estimateSize(Object value, int depth)
+    {
+        if (value == null)
+            return 0;
+        if (value instanceof CharSequence)
+            return 40 + 2L * ((CharSequence)value).length();
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character)
+            return 16;
+        if (value instanceof byte[])
+            return 16 + ((byte[])value).length;
+        if (depth < 4)
+        {
+            if (value instanceof Collection)
+            {
+                long size = 64;
+                for (Object o : (Collection<?>)value)
+                {
+                    size += 16 + estimateSize(o, depth + 1);
+                }
+                return size;
+            }
+            if (value instanceof Map)
+            {
+                long size = 64;
+                for (Map.Entry<?, ?> e : ((Map<?, ?>)value).entrySet())
+                {
+                    size += 32 + estimateSize(e.getKey(), depth + 1) + estimateSize(e.getValue(), depth + 1);
+                }
+                return size;
+            }
+            if (value.getClass().isArray())
+            {
+                int length = Array.getLength(value);
+                if (value.getClass().getComponentType().isPrimitive())
+                    return 16 + 8L * length;
+                long size = 16;
+                for (int i = 0; i < length; i++)
+                {
+                    size += 8 + estimateSize(Array.get(value, i), depth + 1);
+                }
+                return size;
+            }
+        }
+        return 64;
+    }
+
+    private static class Candidate
+    {
+        private final Session _session;
+        private final long _hits;
+        private final long _accessed;
+
+        private Candidate(Session session, long hits)
+        {
+            _session = session;
+            _hits = hits;
+            _accessed = session.getSessionData().getAccessed();
+        }
+
+        private boolean isBefore(Candidate other)
+        {
+            if (_hits != other._hits)
+                return _hits < other._hits;
+            return _accessed < other._accessed;
+        }
+    }
+
+    /**
+     * Usage of a session in the cache
+     */
+    private static class Usage
+    {
+        private final LongAdder _hits = new LongAdder();
+        private volatile long _size;
+    }
 }
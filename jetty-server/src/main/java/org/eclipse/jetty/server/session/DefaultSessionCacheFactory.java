@@ -25,6 +25,58 @@ package org.eclipse.jetty.server.session;
  */
 public class DefaultSessionCacheFactory extends AbstractSessionCacheFactory
 {
+    int _maxSessions = -1;
+    long _maxMemory = -1;
+    DefaultSessionCache.EvictionOrder _evictionOrder = DefaultSessionCache.EvictionOrder.LRU;
+
+    /**
+     * @return the max number of sessions in a cache, or -1 for no limit
+     */
+    public int getMaxSessions()
+    {
+        return _maxSessions;
+    }
+
+    /**
+     * @param maxSessions the max number of sessions in a cache, or -1 for no limit
+     */
+    public void setMaxSessions(int maxSessions)
+    {
+        _maxSessions = maxSessions;
+    }
+
+    /**
+     * @return the max estimated bytes of sessions in a cache, or -1 for no limit
+     */
+    public long getMaxMemory()
+    {
+        return _maxMemory;
+    }
+
+    /**
+     * @param maxMemory the max estimated bytes of sessions in a cache, or -1 for no limit
+     */
+    public void setMaxMemory(long maxMemory)
+    {
+        _maxMemory = maxMemory;
+    }
+
+    /**
+     * @return the order in which sessions are evicted from a full cache
+     */
+    public DefaultSessionCache.EvictionOrder getEvictionOrder()
+    {
+        return _evictionOrder;
+    }
+
+    /**
+     * @param evictionOrder the order in which sessions are evicted from a full cache
+     */
+    public void setEvictionOrder(DefaultSessionCache.EvictionOrder evictionOrder)
+    {
+        _evictionOrder = evictionOrder;
+    }
+
     @Override
     public SessionCache getSessionCache(SessionHandler handler)
     {
@@ -34,6 +86,10 @@ public class DefaultSessionCacheFactory extends AbstractSessionCacheFactory
         cache.setSaveOnCreate(isSaveOnCreate());
         cache.setRemoveUnloadableSessions(isRemoveUnloadableSessions());
         cache.setFlushOnResponseCommit(isFlushOnResponseCommit());
+        cache.setReadMostly(isReadMostly());
+        cache.setMaxSessions(getMaxSessions());
+        cache.setMaxMemory(getMaxMemory());
+        cache.setEvictionOrder(getEvictionOrder());
         return cache;
     }
 }
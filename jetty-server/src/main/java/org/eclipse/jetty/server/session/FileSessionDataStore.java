@@ -18,36 +18,75 @@
 
 package org.eclipse.jetty.server.session;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.eclipse.jetty.util.ClassLoadingObjectInputStream;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.ByteArrayOutputStream2;
 import org.eclipse.jetty.util.MultiException;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.LifeCycle;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.eclipse.jetty.util.thread.ThreadPool;
 
 /**
  * FileSessionDataStore
  *
  * A file-based store of session data.
+ *
+ * If {@link #setDeltaStore(boolean) deltaStore} is true, a session file is an append log:
+ * the first record holds the whole session, and each subsequent save of the session
+ * appends a record with its metadata and only the attributes changed since the previous
+ * save. The file is rewritten with a single full record after {@link #getMaxDeltas()}
+ * appended records. A truncated last record, eg after a crash, is ignored when loading.
+ *
+ * Whole session files are written to a temporary file that is then atomically renamed,
+ * so a session file is never seen partially written. If {@link #setShards(int) shards}
+ * is greater than 0, session files are spread over that many subdirectories of the store
+ * dir by the hash of their session id, and the subdirectories are indexed in parallel
+ * on startup. If {@link #setSyncWrites(boolean) syncWrites} is true, written files and
+ * their directories are fsynced in batches by a background thread, at most
+ * {@link #getSyncIntervalMs()} after they are written.
  */
 @ManagedObject
 public class FileSessionDataStore extends AbstractSessionDataStore
@@ -56,8 +95,25 @@ public class FileSessionDataStore extends AbstractSessionDataStore
     protected File _storeDir;
     protected boolean _deleteUnrestorableFiles = false;
     protected Map<String, String> _sessionFileMap = new ConcurrentHashMap<>();
+    protected SessionExpiryIndex _expiryIndex = new SessionExpiryIndex(); //ids of sessions in our map by expiry
     protected String _contextString;
     protected long _lastSweepTime = 0L;
+    protected boolean _deltaStore = false;
+    protected int _maxDeltas = 32;
+    protected Map<String, Integer> _deltaCounts = new ConcurrentHashMap<>(); //appended records per session file written by this store
+    protected int _shards = 0;
+    protected boolean _syncWrites = false;
+    protected long _syncIntervalMs = 10;
+    private final Set<Path> _unsyncedFiles = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean _syncScheduled = new AtomicBoolean();
+    private Scheduler _syncScheduler;
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int DELTA_LOG = 0xFF; //cannot be the first byte of a full session file, which is the high byte of the id length
+    private static final int DELTA_LOG_VERSION = 1;
+    private static final byte FULL_RECORD = 0;
+    private static final byte DELTA_RECORD = 1;
 
     @Override
     public void initialize(SessionContext context) throws Exception
@@ -70,13 +126,26 @@ public class FileSessionDataStore extends AbstractSessionDataStore
     protected void doStart() throws Exception
     {
         initializeStore();
+        if (_syncWrites)
+        {
+            _syncScheduler = new ScheduledExecutorScheduler(String.format("Session-FileSync-%x", hashCode()), true);
+            _syncScheduler.start();
+        }
         super.doStart();
     }
 
     @Override
     protected void doStop() throws Exception
     {
+        if (_syncScheduler != null)
+        {
+            syncFiles();
+            _syncScheduler.stop();
+            _syncScheduler = null;
+        }
         _sessionFileMap.clear();
+        _expiryIndex.clear();
+        _deltaCounts.clear();
         _lastSweepTime = 0;
         super.doStop();
     }
@@ -104,6 +173,84 @@ public class FileSessionDataStore extends AbstractSessionDataStore
         _deleteUnrestorableFiles = deleteUnrestorableFiles;
     }
 
+    @Override
+    @ManagedAttribute(value = "are changed attributes appended to session files", readonly = true)
+    public boolean isDeltaStore()
+    {
+        return _deltaStore;
+    }
+
+    /**
+     * @param deltaStore true to append the changed attributes to session files
+     * rather than rewriting whole sessions
+     */
+    public void setDeltaStore(boolean deltaStore)
+    {
+        checkStarted();
+        _deltaStore = deltaStore;
+    }
+
+    @ManagedAttribute(value = "max records appended to a session file before it is rewritten", readonly = true)
+    public int getMaxDeltas()
+    {
+        return _maxDeltas;
+    }
+
+    /**
+     * @param maxDeltas the max number of records appended to a session file before it is rewritten
+     */
+    public void setMaxDeltas(int maxDeltas)
+    {
+        _maxDeltas = maxDeltas;
+    }
+
+    @ManagedAttribute(value = "number of subdirectories session files are hashed into", readonly = true)
+    public int getShards()
+    {
+        return _shards;
+    }
+
+    /**
+     * @param shards the number of subdirectories of the store dir to spread
+     * session files over, or 0 to keep all session files in the store dir
+     */
+    public void setShards(int shards)
+    {
+        checkStarted();
+        _shards = Math.max(0, shards);
+    }
+
+    @ManagedAttribute(value = "are session files fsynced in the background", readonly = true)
+    public boolean isSyncWrites()
+    {
+        return _syncWrites;
+    }
+
+    /**
+     * @param syncWrites true to fsync written session files and their directories
+     * in batches on a background thread
+     */
+    public void setSyncWrites(boolean syncWrites)
+    {
+        checkStarted();
+        _syncWrites = syncWrites;
+    }
+
+    @ManagedAttribute(value = "max delay in ms before a written session file is fsynced", readonly = true)
+    public long getSyncIntervalMs()
+    {
+        return _syncIntervalMs;
+    }
+
+    /**
+     * @param syncIntervalMs the max delay in ms between writing a session file and
+     * fsyncing it. Files written during the interval are fsynced as one batch.
+     */
+    public void setSyncIntervalMs(long syncIntervalMs)
+    {
+        _syncIntervalMs = Math.max(0, syncIntervalMs);
+    }
+
     /**
      * Delete a session
      *
@@ -115,9 +262,11 @@ public class FileSessionDataStore extends AbstractSessionDataStore
         if (_storeDir != null)
         {
             //remove from our map
+            _deltaCounts.remove(getIdWithContext(id));
             String filename = _sessionFileMap.remove(getIdWithContext(id));
             if (filename == null)
                 return false;
+            _expiryIndex.remove(id);
 
             //remove the file
             return deleteFile(filename);
@@ -137,10 +286,35 @@ public class FileSessionDataStore extends AbstractSessionDataStore
     {
         if (filename == null)
             return false;
-        File file = new File(_storeDir, filename);
+        File file = getFile(filename);
         return Files.deleteIfExists(file.toPath());
     }
 
+    /**
+     * Get the directory that holds a session file: the store dir, or if
+     * the store is sharded, the subdirectory for the hash of its session id.
+     *
+     * @param filename the name of the session file
+     * @return the directory of the session file
+     */
+    protected File getShardDir(String filename)
+    {
+        if (_shards <= 0)
+            return _storeDir;
+        String idWithContext = getIdWithContextFromFilename(filename);
+        int hash = idWithContext == null ? 0 : idWithContext.hashCode();
+        return new File(_storeDir, Integer.toHexString((hash & Integer.MAX_VALUE) % _shards));
+    }
+
+    /**
+     * @param filename the name of the session file
+     * @return the location of the session file
+     */
+    protected File getFile(String filename)
+    {
+        return new File(getShardDir(filename), filename);
+    }
+
     /**
      * Check to see which sessions have expired.
      *
@@ -155,20 +329,8 @@ public class FileSessionDataStore extends AbstractSessionDataStore
         final long now = System.currentTimeMillis();
         HashSet<String> expired = new HashSet<String>();
 
-        //iterate over the files and work out which have expired
-        for (String filename : _sessionFileMap.values())
-        {
-            try
-            {
-                long expiry = getExpiryFromFilename(filename);
-                if (expiry > 0 && expiry < now)
-                    expired.add(getIdFromFilename(filename));
-            }
-            catch (Exception e)
-            {
-                LOG.warn(e);
-            }
-        }
+        //find the files that have expired from the index, rather than iterating over all files
+        expired.addAll(_expiryIndex.getExpiredBefore(now));
 
         //check candidates that were not found to be expired, perhaps 
         //because they no longer exist and they should be expired
@@ -196,6 +358,22 @@ public class FileSessionDataStore extends AbstractSessionDataStore
         return expired;
     }
 
+    /**
+     * The session files do not record the last node of a session, so the
+     * sessions are chosen by the expiry time in their filenames, which is
+     * latest for the most recently accessed sessions. Sessions that never
+     * expire are not chosen.
+     *
+     * @see org.eclipse.jetty.server.session.SessionDataStore#getMostRecentlyAccessed(int, java.lang.String)
+     */
+    @Override
+    public List<String> getMostRecentlyAccessed(int max, String lastNode) throws Exception
+    {
+        if (!isStarted())
+            throw new IllegalStateException("Not started");
+        return _expiryIndex.getLatestExpiringAfter(max, System.currentTimeMillis());
+    }
+
     /**
      * Check all session files that do not belong to this context and
      * remove any that expired long ago (ie at least 5 gracePeriods ago).
@@ -208,7 +386,8 @@ public class FileSessionDataStore extends AbstractSessionDataStore
             LOG.debug("Sweeping {} for old session files", _storeDir);
         try
         {
-            Files.walk(_storeDir.toPath(), 1, FileVisitOption.FOLLOW_LINKS)
+            //session files of other contexts may be in shard subdirectories
+            Files.walk(_storeDir.toPath(), 2, FileVisitOption.FOLLOW_LINKS)
                 .filter(p -> !Files.isDirectory(p)).filter(p -> !isOurContextSessionFilename(p.getFileName().toString()))
                 .filter(p -> isSessionFilename(p.getFileName().toString()))
                 .forEach(p ->
@@ -274,7 +453,7 @@ public class FileSessionDataStore extends AbstractSessionDataStore
                 LOG.debug("Unknown file {}", idWithContext);
             return null;
         }
-        File file = new File(_storeDir, filename);
+        File file = getFile(filename);
         if (!file.exists())
         {
             if (LOG.isDebugEnabled())
@@ -290,7 +469,7 @@ public class FileSessionDataStore extends AbstractSessionDataStore
         }
         catch (UnreadableSessionDataException e)
         {
-            if (isDeleteUnrestorableFiles() && file.exists() && file.getParentFile().equals(_storeDir))
+            if (isDeleteUnrestorableFiles() && file.exists() && file.getParentFile().equals(getShardDir(filename)))
             {
                 try
                 {
@@ -309,28 +488,209 @@ public class FileSessionDataStore extends AbstractSessionDataStore
     @Override
     public void doStore(String id, SessionData data, long lastSaveTime) throws Exception
     {
-        File file = null;
         if (_storeDir != null)
         {
-            delete(id);
-
             //make a fresh file using the latest session expiry
             String filename = getIdWithContextAndExpiry(data);
             String idWithContext = getIdWithContext(id);
-            file = new File(_storeDir, filename);
+            File file = getFile(filename);
+            File tmp = new File(file.getParentFile(), filename + TEMP_SUFFIX);
 
-            try (FileOutputStream fos = new FileOutputStream(file, false))
+            try
             {
-                save(fos, id, data);
-                _sessionFileMap.put(idWithContext, filename);
+                //write the whole session to a temporary file, then rename it into place so
+                //that the session file is never seen partially written
+                try (FileOutputStream fos = new FileOutputStream(tmp, false))
+                {
+                    if (isDeltaStore())
+                    {
+                        fos.write(DELTA_LOG);
+                        fos.write(DELTA_LOG_VERSION);
+                        appendRecord(fos, FULL_RECORD, id, data, null);
+                    }
+                    else
+                    {
+                        save(fos, id, data);
+                    }
+                }
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
             }
             catch (Exception e)
             {
-                if (file != null)
-                    file.delete(); // No point keeping the file if we didn't save the whole session
+                Files.deleteIfExists(tmp.toPath()); // No point keeping the file if we didn't save the whole session
                 throw new UnwriteableSessionDataException(id, _context, e);
             }
+
+            //the previous file of the session has a different expiry in its name
+            String previous = _sessionFileMap.put(idWithContext, filename);
+            if (previous != null && !previous.equals(filename))
+                deleteFile(previous);
+            _expiryIndex.update(id, data.getExpiry());
+            if (isDeltaStore())
+                _deltaCounts.put(idWithContext, 0);
+            else
+                _deltaCounts.remove(idWithContext);
+            scheduleSync(file.toPath());
+        }
+    }
+
+    @Override
+    public void doStoreDelta(String id, SessionData data, Set<String> dirtyAttributes, long lastSaveTime) throws Exception
+    {
+        String idWithContext = getIdWithContext(id);
+        String filename = _sessionFileMap.get(idWithContext);
+        Integer deltas = _deltaCounts.get(idWithContext);
+
+        //only append to files written as a log by this store, and compact long logs
+        if (_storeDir == null || filename == null || deltas == null || deltas >= _maxDeltas)
+        {
+            doStore(id, data, lastSaveTime);
+            return;
+        }
+
+        try
+        {
+            //keep the latest session expiry in the filename
+            File file = getFile(filename);
+            String newFilename = getIdWithContextAndExpiry(data);
+            if (!newFilename.equals(filename))
+            {
+                File newFile = getFile(newFilename);
+                Files.move(file.toPath(), newFile.toPath());
+                _sessionFileMap.put(idWithContext, newFilename);
+                _expiryIndex.update(id, data.getExpiry());
+                file = newFile;
+            }
+
+            try (FileOutputStream fos = new FileOutputStream(file, true))
+            {
+                appendRecord(fos, DELTA_RECORD, id, data, dirtyAttributes);
+            }
+            _deltaCounts.put(idWithContext, deltas + 1);
+            scheduleSync(file.toPath());
+        }
+        catch (Exception e)
+        {
+            //the file will be rewritten by the next save
+            _deltaCounts.remove(idWithContext);
+            throw new UnwriteableSessionDataException(id, _context, e);
+        }
+    }
+
+    /**
+     * Append a length prefixed record to a session file in delta log format.
+     *
+     * @param os the output stream of the session file
+     * @param type the type of record
+     * @param id identity of the session
+     * @param data the info of the session
+     * @param dirtyAttributes the names of the changed attributes for a delta record, or null for a full record
+     * @throws IOException if the record cannot be written
+     */
+    private void appendRecord(OutputStream os, byte type, String id, SessionData data, Set<String> dirtyAttributes) throws IOException
+    {
+        ByteArrayOutputStream2 buffer = new ByteArrayOutputStream2(1024);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeByte(type);
+        if (dirtyAttributes == null)
+        {
+            save(out, id, data);
+        }
+        else
+        {
+            SessionData delta = new SessionData(id, data.getContextPath(), data.getVhost(), 0, 0, 0, 0);
+            Set<String> removed = new HashSet<>();
+            for (String name : dirtyAttributes)
+            {
+                Object value = data.getAttribute(name);
+                if (value == null)
+                    removed.add(name);
+                else
+                    delta._attributes.put(name, value);
+            }
+
+            saveMetaData(out, id, data);
+            out.writeInt(removed.size());
+            for (String name : removed)
+            {
+                out.writeUTF(name);
+            }
+            _serializer.serializeAttributes(delta, out);
+        }
+        out.flush();
+
+        //write the record with a single write, so that a crash leaves at most the last record truncated
+        byte[] record = new byte[4 + buffer.getCount()];
+        int length = buffer.getCount();
+        record[0] = (byte)(length >>> 24);
+        record[1] = (byte)(length >>> 16);
+        record[2] = (byte)(length >>> 8);
+        record[3] = (byte)length;
+        System.arraycopy(buffer.getBuf(), 0, record, 4, length);
+        os.write(record);
+    }
+
+    /**
+     * Queue a written file to be fsynced with the next batch.
+     *
+     * @param path the written session file
+     */
+    private void scheduleSync(Path path)
+    {
+        Scheduler scheduler = _syncScheduler;
+        if (scheduler == null)
+            return;
+
+        _unsyncedFiles.add(path);
+        if (_syncScheduled.compareAndSet(false, true))
+            scheduler.schedule(this::syncFiles, _syncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fsync the session files written since the last sync, then
+     * each of their directories once, so that renames are durable.
+     */
+    @ManagedOperation(value = "fsync written session files", impact = "ACTION")
+    public void syncFiles()
+    {
+        _syncScheduled.set(false);
+
+        Set<Path> dirs = new HashSet<>();
+        for (Iterator<Path> i = _unsyncedFiles.iterator(); i.hasNext(); )
+        {
+            Path path = i.next();
+            i.remove();
+            dirs.add(path.getParent());
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE))
+            {
+                channel.force(true);
+            }
+            catch (NoSuchFileException e)
+            {
+                //deleted or renamed since it was written
+                LOG.ignore(e);
+            }
+            catch (IOException e)
+            {
+                LOG.warn("Unable to sync session file {}", path, e);
+            }
+        }
+
+        for (Path dir : dirs)
+        {
+            try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ))
+            {
+                channel.force(true);
+            }
+            catch (IOException e)
+            {
+                //not all platforms can sync a directory
+                LOG.ignore(e);
+            }
         }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("Synced {} session dirs", dirs.size());
     }
 
     /**
@@ -338,7 +698,8 @@ public class FileSessionDataStore extends AbstractSessionDataStore
      * fully qualified session ids (ie with context) to filename.  If there
      * is more than one file for the same session, only the most recently modified will
      * be kept and the rest deleted. At the same time, any files - for any context -
-     * that expired a long time ago will be cleaned up.
+     * that expired a long time ago will be cleaned up. The store dir and each of its
+     * shard subdirectories are read in parallel.
      *
      * @throws Exception if storeDir doesn't exist, isn't readable/writeable
      * or contains 2 files with the same lastmodify time for the same session. Throws IOException
@@ -352,81 +713,220 @@ public class FileSessionDataStore extends AbstractSessionDataStore
 
         if (!_storeDir.exists())
             _storeDir.mkdirs();
-        else
+        else if (!(_storeDir.isDirectory() && _storeDir.canWrite() && _storeDir.canRead()))
+            throw new IllegalStateException(_storeDir.getAbsolutePath() + " must be readable/writeable dir");
+
+        for (int i = 0; i < _shards; i++)
         {
-            if (!(_storeDir.isDirectory() && _storeDir.canWrite() && _storeDir.canRead()))
-                throw new IllegalStateException(_storeDir.getAbsolutePath() + " must be readable/writeable dir");
+            Files.createDirectories(_storeDir.toPath().resolve(Integer.toHexString(i)));
+        }
 
-            //iterate over files in _storeDir and build map of session id to filename.
-            //if we come across files for sessions in other contexts, check if they're
-            //ancient and remove if necessary.
-            MultiException me = new MultiException();
-            long now = System.currentTimeMillis();
+        //iterate over files in _storeDir and its subdirectories and build map of session id to filename.
+        //if we come across files for sessions in other contexts, check if they're
+        //ancient and remove if necessary.
+        List<Path> dirs = new ArrayList<>();
+        dirs.add(_storeDir.toPath());
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(_storeDir.toPath(), Files::isDirectory))
+        {
+            stream.forEach(dirs::add);
+        }
 
-            Files.walk(_storeDir.toPath(), 1, FileVisitOption.FOLLOW_LINKS)
-                .filter(p -> !Files.isDirectory(p)).filter(p -> isSessionFilename(p.getFileName().toString()))
-                .forEach(p ->
+        MultiException me = new MultiException();
+        long now = System.currentTimeMillis();
+        int threads = Math.min(dirs.size(), Runtime.getRuntime().availableProcessors());
+        if (threads <= 1)
+        {
+            for (Path dir : dirs)
+            {
+                initializeDir(dir, now, me);
+            }
+        }
+        else
+        {
+            //index the directories with a few tasks, so that the executor is not flooded by many shards
+            Queue<Path> pending = new ConcurrentLinkedQueue<>(dirs);
+            List<FutureTask<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < threads; i++)
+            {
+                tasks.add(new FutureTask<>(() ->
+                {
+                    Path dir;
+                    while ((dir = pending.poll()) != null)
+                    {
+                        initializeDir(dir, now, me);
+                    }
+                    return null;
+                }));
+            }
+
+            Executor executor = getServerExecutor();
+            ExecutorService dedicated = null;
+            if (executor == null)
+            {
+                AtomicInteger counter = new AtomicInteger();
+                executor = dedicated = Executors.newFixedThreadPool(threads, runnable ->
+                {
+                    Thread thread = new Thread(runnable, "FileSessionDataStore-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            try
+            {
+                for (FutureTask<Void> task : tasks)
+                {
+                    executor.execute(task);
+                }
+                for (FutureTask<Void> task : tasks)
                 {
-                    //first get rid of all ancient files, regardless of which
-                    //context they are for
                     try
                     {
-                        sweepFile(now, p);
+                        task.get();
                     }
-                    catch (Exception x)
+                    catch (ExecutionException e)
                     {
-                        me.add(x);
+                        addException(me, e.getCause());
                     }
+                }
+            }
+            finally
+            {
+                if (dedicated != null)
+                    dedicated.shutdownNow();
+            }
+        }
+        me.ifExceptionThrow();
+    }
+
+    /**
+     * @return the thread pool of the server, or null if this store is not used by a server
+     */
+    private Executor getServerExecutor()
+    {
+        SessionHandler handler = _context == null ? null : _context.getSessionHandler();
+        Server server = handler == null ? null : handler.getServer();
+        if (server == null)
+            return null;
+        ThreadPool threadPool = server.getThreadPool();
+        if (threadPool instanceof LifeCycle && !((LifeCycle)threadPool).isRunning())
+            return null;
+        return threadPool;
+    }
+
+    /**
+     * Index the session files in a directory of the store.
+     *
+     * @param dir the store dir or one of its subdirectories
+     * @param now the time now in msec
+     * @param me collects the failures
+     * @throws IOException if the directory cannot be read
+     */
+    private void initializeDir(Path dir, long now, MultiException me) throws IOException
+    {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir))
+        {
+            for (Path p : stream)
+            {
+                if (!Files.isDirectory(p))
+                    initializeFile(p, now, me);
+            }
+        }
+    }
+
+    private void initializeFile(Path p, long now, MultiException me)
+    {
+        String filename = p.getFileName().toString();
+
+        //remove temporary files left by a failed write of one of our sessions
+        if (filename.endsWith(TEMP_SUFFIX))
+        {
+            if (isOurContextSessionFilename(filename.substring(0, filename.length() - TEMP_SUFFIX.length())))
+            {
+                try
+                {
+                    Files.deleteIfExists(p);
+                }
+                catch (IOException x)
+                {
+                    addException(me, x);
+                }
+            }
+            return;
+        }
+
+        if (!isSessionFilename(filename))
+            return;
+
+        //first get rid of all ancient files, regardless of which
+        //context they are for
+        try
+        {
+            sweepFile(now, p);
+        }
+        catch (Exception x)
+        {
+            addException(me, x);
+        }
 
-                    String filename = p.getFileName().toString();
-                    String context = getContextFromFilename(filename);
-                    //now process it if it wasn't deleted, and it is for our context
-                    if (Files.exists(p) && _contextString.equals(context))
+        String context = getContextFromFilename(filename);
+        //now process it if it wasn't deleted, and it is for our context
+        if (!Files.exists(p) || !_contextString.equals(context))
+            return;
+
+        //the session is for our context, populate the map with it
+        String sessionIdWithContext = getIdWithContextFromFilename(filename);
+        if (sessionIdWithContext == null)
+            return;
+
+        try
+        {
+            //move files written with a different number of shards into place
+            Path path = getFile(filename).toPath();
+            if (!path.equals(p))
+            {
+                Files.move(p, path, StandardCopyOption.REPLACE_EXISTING);
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Moved {} to {}", p, path);
+            }
+
+            //handle multiple session files existing for the same session: remove all
+            //but the file with the most recent expiry time
+            String[] obsolete = new String[1];
+            _sessionFileMap.compute(sessionIdWithContext, (k, existing) ->
+            {
+                String kept = filename;
+                if (existing != null && !existing.equals(filename))
+                {
+                    if (getExpiryFromFilename(filename) > getExpiryFromFilename(existing))
+                        obsolete[0] = existing;
+                    else
                     {
-                        //the session is for our context, populate the map with it
-                        String sessionIdWithContext = getIdWithContextFromFilename(filename);
-                        if (sessionIdWithContext != null)
-                        {
-                            //handle multiple session files existing for the same session: remove all
-                            //but the file with the most recent expiry time
-                            String existing = _sessionFileMap.putIfAbsent(sessionIdWithContext, filename);
-                            if (existing != null)
-                            {
-                                //if there was a prior filename, work out which has the most
-                                //recent modify time
-                                try
-                                {
-                                    long existingExpiry = getExpiryFromFilename(existing);
-                                    long thisExpiry = getExpiryFromFilename(filename);
-
-                                    if (thisExpiry > existingExpiry)
-                                    {
-                                        //replace with more recent file
-                                        Path existingPath = _storeDir.toPath().resolve(existing);
-                                        //update the file we're keeping
-                                        _sessionFileMap.put(sessionIdWithContext, filename);
-                                        //delete the old file
-                                        Files.delete(existingPath);
-                                        if (LOG.isDebugEnabled())
-                                            LOG.debug("Replaced {} with {}", existing, filename);
-                                    }
-                                    else
-                                    {
-                                        //we found an older file, delete it
-                                        Files.delete(p);
-                                        if (LOG.isDebugEnabled())
-                                            LOG.debug("Deleted expired session file {}", filename);
-                                    }
-                                }
-                                catch (IOException e)
-                                {
-                                    me.add(e);
-                                }
-                            }
-                        }
+                        obsolete[0] = filename;
+                        kept = existing;
                     }
-                });
-            me.ifExceptionThrow();
+                }
+                _expiryIndex.update(getIdFromFilename(kept), getExpiryFromFilename(kept));
+                return kept;
+            });
+
+            if (obsolete[0] != null)
+            {
+                Files.deleteIfExists(getFile(obsolete[0]).toPath());
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Deleted expired session file {}", obsolete[0]);
+            }
+        }
+        catch (IOException e)
+        {
+            addException(me, e);
+        }
+    }
+
+    private static void addException(MultiException me, Throwable x)
+    {
+        synchronized (me)
+        {
+            me.add(x);
         }
     }
 
@@ -464,6 +964,12 @@ public class FileSessionDataStore extends AbstractSessionDataStore
     protected void save(OutputStream os, String id, SessionData data) throws IOException
     {
         DataOutputStream out = new DataOutputStream(os);
+        saveMetaData(out, id, data);
+        _serializer.serializeAttributes(data, out);
+    }
+
+    private void saveMetaData(DataOutputStream out, String id, SessionData data) throws IOException
+    {
         out.writeUTF(id);
         out.writeUTF(_context.getCanonicalContextPath());
         out.writeUTF(_context.getVhost());
@@ -474,9 +980,6 @@ public class FileSessionDataStore extends AbstractSessionDataStore
         out.writeLong(data.getCookieSet());
         out.writeLong(data.getExpiry());
         out.writeLong(data.getMaxInactiveMs());
-
-        ObjectOutputStream oos = new ObjectOutputStream(out);
-        SessionData.serializeAttributes(data, oos);
     }
 
     /**
@@ -550,6 +1053,8 @@ public class FileSessionDataStore extends AbstractSessionDataStore
     {
         if (StringUtil.isBlank(filename))
             return false;
+        if (filename.endsWith(TEMP_SUFFIX))
+            return false;
         String[] parts = filename.split("_");
 
         //Need at least 4 parts for a valid filename
@@ -567,6 +1072,8 @@ public class FileSessionDataStore extends AbstractSessionDataStore
     {
         if (StringUtil.isBlank(filename))
             return false;
+        if (filename.endsWith(TEMP_SUFFIX))
+            return false;
         String[] parts = filename.split("_");
 
         //Need at least 4 parts for a valid filename
@@ -590,35 +1097,19 @@ public class FileSessionDataStore extends AbstractSessionDataStore
     protected SessionData load(InputStream is, String expectedId)
         throws Exception
     {
-        String id = null; //the actual id from inside the file
-
         try
         {
-            SessionData data = null;
-            DataInputStream di = new DataInputStream(is);
-
-            id = di.readUTF();
-            String contextPath = di.readUTF();
-            String vhost = di.readUTF();
-            String lastNode = di.readUTF();
-            long created = di.readLong();
-            long accessed = di.readLong();
-            long lastAccessed = di.readLong();
-            long cookieSet = di.readLong();
-            long expiry = di.readLong();
-            long maxIdle = di.readLong();
-
-            data = newSessionData(id, created, accessed, lastAccessed, maxIdle);
-            data.setContextPath(contextPath);
-            data.setVhost(vhost);
-            data.setLastNode(lastNode);
-            data.setCookieSet(cookieSet);
-            data.setExpiry(expiry);
-            data.setMaxInactiveMs(maxIdle);
+            PushbackInputStream in = new PushbackInputStream(is, 1);
+            int first = in.read();
+            if (first == DELTA_LOG)
+                return loadDeltaLog(in);
+            if (first >= 0)
+                in.unread(first);
+
+            SessionData data = loadMetaData(new DataInputStream(in));
 
             // Attributes
-            ClassLoadingObjectInputStream ois = new ClassLoadingObjectInputStream(is);
-            SessionData.deserializeAttributes(data, ois);
+            _serializer.deserializeAttributes(data, in);
             return data;
         }
         catch (Exception e)
@@ -627,9 +1118,100 @@ public class FileSessionDataStore extends AbstractSessionDataStore
         }
     }
 
+    private SessionData loadMetaData(DataInputStream di) throws IOException
+    {
+        String id = di.readUTF(); //the actual id from inside the file
+        String contextPath = di.readUTF();
+        String vhost = di.readUTF();
+        String lastNode = di.readUTF();
+        long created = di.readLong();
+        long accessed = di.readLong();
+        long lastAccessed = di.readLong();
+        long cookieSet = di.readLong();
+        long expiry = di.readLong();
+        long maxIdle = di.readLong();
+
+        SessionData data = newSessionData(id, created, accessed, lastAccessed, maxIdle);
+        data.setContextPath(contextPath);
+        data.setVhost(vhost);
+        data.setLastNode(lastNode);
+        data.setCookieSet(cookieSet);
+        data.setExpiry(expiry);
+        data.setMaxInactiveMs(maxIdle);
+        return data;
+    }
+
+    /**
+     * Load a session file in delta log format: a full record followed by delta records.
+     *
+     * @param in the stream positioned after the delta log marker
+     * @return the session data
+     * @throws Exception if the session cannot be read
+     */
+    private SessionData loadDeltaLog(InputStream in) throws Exception
+    {
+        DataInputStream di = new DataInputStream(in);
+        int version = di.readUnsignedByte();
+        if (version != DELTA_LOG_VERSION)
+            throw new IOException("Unsupported session file version " + version);
+
+        SessionData data = null;
+        while (true)
+        {
+            byte[] record;
+            try
+            {
+                record = new byte[di.readInt()];
+                di.readFully(record);
+            }
+            catch (EOFException e)
+            {
+                //end of the log, or a record truncated by a failed append
+                break;
+            }
+
+            ByteArrayInputStream ri = new ByteArrayInputStream(record);
+            DataInputStream rdi = new DataInputStream(ri);
+            byte type = rdi.readByte();
+            SessionData entry = loadMetaData(rdi);
+            if (type == FULL_RECORD)
+            {
+                _serializer.deserializeAttributes(entry, ri);
+                data = entry;
+            }
+            else if (type == DELTA_RECORD && data != null)
+            {
+                Set<String> removed = new HashSet<>();
+                int count = rdi.readInt();
+                for (int i = 0; i < count; i++)
+                {
+                    removed.add(rdi.readUTF());
+                }
+                _serializer.deserializeAttributes(entry, ri);
+
+                data.setLastNode(entry.getLastNode());
+                data.setAccessed(entry.getAccessed());
+                data.setLastAccessed(entry.getLastAccessed());
+                data.setCookieSet(entry.getCookieSet());
+                data.setExpiry(entry.getExpiry());
+                data.setMaxInactiveMs(entry.getMaxInactiveMs());
+                data.putAllAttributes(entry.getAllAttributes());
+                data._attributes.keySet().removeAll(removed);
+            }
+            else
+            {
+                throw new IOException("Unexpected session file record " + type);
+            }
+        }
+
+        if (data == null)
+            throw new EOFException("No session record");
+        return data;
+    }
+
     @Override
     public String toString()
     {
-        return String.format("%s[dir=%s,deleteUnrestorableFiles=%b]", super.toString(), _storeDir, _deleteUnrestorableFiles);
+        return String.format("%s[dir=%s,deleteUnrestorableFiles=%b,deltaStore=%b,shards=%d,syncWrites=%b]", super.toString(), _storeDir, _deleteUnrestorableFiles, _deltaStore, _shards, _syncWrites);
     }
 }
@@ -27,6 +27,11 @@ public class FileSessionDataStoreFactory extends AbstractSessionDataStoreFactory
 {
     boolean _deleteUnrestorableFiles;
     File _storeDir;
+    boolean _deltaStore;
+    int _maxDeltas = 32;
+    int _shards = 0;
+    boolean _syncWrites;
+    long _syncIntervalMs = 10;
 
     /**
      * @return the deleteUnrestorableFiles
@@ -60,6 +65,86 @@ public class FileSessionDataStoreFactory extends AbstractSessionDataStoreFactory
         _storeDir = storeDir;
     }
 
+    /**
+     * @return true if changed attributes are appended to session files
+     */
+    public boolean isDeltaStore()
+    {
+        return _deltaStore;
+    }
+
+    /**
+     * @param deltaStore true to append changed attributes to session files
+     */
+    public void setDeltaStore(boolean deltaStore)
+    {
+        _deltaStore = deltaStore;
+    }
+
+    /**
+     * @return the max records appended to a session file before it is rewritten
+     */
+    public int getMaxDeltas()
+    {
+        return _maxDeltas;
+    }
+
+    /**
+     * @param maxDeltas the max records appended to a session file before it is rewritten
+     */
+    public void setMaxDeltas(int maxDeltas)
+    {
+        _maxDeltas = maxDeltas;
+    }
+
+    /**
+     * @return the number of subdirectories session files are hashed into
+     */
+    public int getShards()
+    {
+        return _shards;
+    }
+
+    /**
+     * @param shards the number of subdirectories session files are hashed into, or 0 for none
+     */
+    public void setShards(int shards)
+    {
+        _shards = shards;
+    }
+
+    /**
+     * @return true if session files are fsynced in the background
+     */
+    public boolean isSyncWrites()
+    {
+        return _syncWrites;
+    }
+
+    /**
+     * @param syncWrites true to fsync session files in batches in the background
+     */
+    public void setSyncWrites(boolean syncWrites)
+    {
+        _syncWrites = syncWrites;
+    }
+
+    /**
+     * @return the max delay in ms before a written session file is fsynced
+     */
+    public long getSyncIntervalMs()
+    {
+        return _syncIntervalMs;
+    }
+
+    /**
+     * @param syncIntervalMs the max delay in ms before a written session file is fsynced
+     */
+    public void setSyncIntervalMs(long syncIntervalMs)
+    {
+        _syncIntervalMs = syncIntervalMs;
+    }
+
     /**
      * @see org.eclipse.jetty.server.session.SessionDataStoreFactory#getSessionDataStore(org.eclipse.jetty.server.session.SessionHandler)
      */
@@ -71,6 +156,12 @@ public class FileSessionDataStoreFactory extends AbstractSessionDataStoreFactory
         fsds.setStoreDir(getStoreDir());
         fsds.setGracePeriodSec(getGracePeriodSec());
         fsds.setSavePeriodSec(getSavePeriodSec());
+        fsds.setSerializer(getSerializer());
+        fsds.setDeltaStore(isDeltaStore());
+        fsds.setMaxDeltas(getMaxDeltas());
+        fsds.setShards(getShards());
+        fsds.setSyncWrites(isSyncWrites());
+        fsds.setSyncIntervalMs(getSyncIntervalMs());
         return fsds;
     }
 }
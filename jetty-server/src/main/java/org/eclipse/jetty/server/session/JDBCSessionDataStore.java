@@ -21,27 +21,53 @@ package org.eclipse.jetty.server.session;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
-import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
-import org.eclipse.jetty.util.ClassLoadingObjectInputStream;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.statistic.HistogramStatistic;
 
 /**
  * JDBCSessionDataStore
  *
  * Session data stored in database
+ *
+ * If {@link #setMaxIdleConnections(int) maxIdleConnections} is greater than 0, up to that
+ * many connections are kept open between operations, each with a cache of the statements
+ * prepared on it, so that statements are not prepared again for every operation. A pooled
+ * connection that fails is closed rather than reused. A connection that has been idle for a
+ * while is validated before it is reused, and connections are closed once they have been idle
+ * for longer than maxConnectionIdleMs, or open for longer than maxConnectionAgeMs. Only connections
+ * from the DriverManager are pooled: a DataSource is expected to pool its own connections.
+ *
+ * The latencies of the operations on the database are recorded in histograms of microseconds.
  */
 @ManagedObject
 public class JDBCSessionDataStore extends AbstractSessionDataStore
@@ -53,10 +79,26 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
      */
     public static final String NULL_CONTEXT_PATH = "/";
 
+    private static final int LOAD_ALL_CHUNK = 100; //max ids in a bulk load statement
+    private static final long VALIDATION_IDLE_NS = TimeUnit.MILLISECONDS.toNanos(500); //pooled connections idle for longer are validated
+    private static final int VALIDATION_TIMEOUT_SEC = 5;
+
     protected boolean _initialized = false;
     protected DatabaseAdaptor _dbAdaptor;
     protected SessionTableSchema _sessionTableSchema;
     protected boolean _schemaProvided;
+    protected int _maxIdleConnections = 0;
+    protected int _maxCachedStatements = 32;
+    protected long _maxConnectionIdleMs = TimeUnit.MINUTES.toMillis(1);
+    protected long _maxConnectionAgeMs = TimeUnit.MINUTES.toMillis(30);
+    private final Deque<PooledConnection> _idleConnections = new ConcurrentLinkedDeque<>();
+    private final LongAdder _statementsPrepared = new LongAdder();
+    private final LongAdder _statementsReused = new LongAdder();
+    private final HistogramStatistic _loadLatency = new HistogramStatistic();
+    private final HistogramStatistic _storeLatency = new HistogramStatistic();
+    private final HistogramStatistic _deleteLatency = new HistogramStatistic();
+    private final HistogramStatistic _existsLatency = new HistogramStatistic();
+    private final HistogramStatistic _expiredLatency = new HistogramStatistic();
 
     /**
      * SessionTableSchema
@@ -80,6 +122,9 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
         protected String _expiryTimeColumn = "expiryTime";
         protected String _maxIntervalColumn = "maxInterval";
         protected String _mapColumn = "map";
+        protected String _attributeTableName = null;
+        protected String _attributeNameColumn = "attributeName";
+        protected String _attributeValueColumn = "attributeValue";
 
         protected void setDatabaseAdaptor(DatabaseAdaptor dbadaptor)
         {
@@ -245,6 +290,47 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
             _mapColumn = mapColumn;
         }
 
+        public String getAttributeTableName()
+        {
+            return _attributeTableName;
+        }
+
+        /**
+         * @param attributeTableName the name of a table holding a row per session attribute,
+         * so that only changed attributes are written, or null to keep all attributes in the map column
+         */
+        public void setAttributeTableName(String attributeTableName)
+        {
+            _attributeTableName = attributeTableName;
+        }
+
+        private String getSchemaAttributeTableName()
+        {
+            return (getSchemaName() != null ? getSchemaName() + "." : "") + getAttributeTableName();
+        }
+
+        public String getAttributeNameColumn()
+        {
+            return _attributeNameColumn;
+        }
+
+        public void setAttributeNameColumn(String attributeNameColumn)
+        {
+            checkNotNull(attributeNameColumn);
+            _attributeNameColumn = attributeNameColumn;
+        }
+
+        public String getAttributeValueColumn()
+        {
+            return _attributeValueColumn;
+        }
+
+        public void setAttributeValueColumn(String attributeValueColumn)
+        {
+            checkNotNull(attributeValueColumn);
+            _attributeValueColumn = attributeValueColumn;
+        }
+
         public String getCreateStatementAsString()
         {
             if (_dbAdaptor == null)
@@ -261,6 +347,20 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
                 _mapColumn + " " + blobType + ", primary key(" + _idColumn + ", " + _contextPathColumn + "," + _virtualHostColumn + "))";
         }
 
+        public String getCreateAttributeTableStatementAsString()
+        {
+            if (_dbAdaptor == null)
+                throw new IllegalStateException("No DBAdaptor");
+
+            String blobType = _dbAdaptor.getBlobType();
+            String stringType = _dbAdaptor.getStringType();
+
+            return "create table " + _attributeTableName + " (" + _idColumn + " " + stringType + "(120), " +
+                _contextPathColumn + " " + stringType + "(60), " + _virtualHostColumn + " " + stringType + "(60), " +
+                _attributeNameColumn + " " + stringType + "(120), " + _attributeValueColumn + " " + blobType +
+                ", primary key(" + _idColumn + ", " + _contextPathColumn + "," + _virtualHostColumn + "," + _attributeNameColumn + "))";
+        }
+
         public String getCreateIndexOverExpiryStatementAsString(String indexName)
         {
             return "create index " + indexName + " on " + getSchemaTableName() + " (" + getExpiryTimeColumn() + ")";
@@ -318,6 +418,100 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
             return statement;
         }
 
+        public PreparedStatement getUpdateSessionMetaDataStatement(Connection connection, String id, SessionContext context)
+            throws SQLException
+        {
+            String s = "update " + getSchemaTableName() +
+                " set " + getLastNodeColumn() + " = ?, " + getAccessTimeColumn() + " = ?, " +
+                getLastAccessTimeColumn() + " = ?, " + getLastSavedTimeColumn() + " = ?, " + getExpiryTimeColumn() + " = ?, " +
+                getMaxIntervalColumn() + " = ?, " + getMapColumn() + " = ? where " + getIdColumn() + " = ? and " +
+                getContextPathColumn() + " = ? and " + getVirtualHostColumn() + " = ?";
+
+            PreparedStatement statement = connection.prepareStatement(s);
+            statement.setString(8, id);
+            statement.setString(9, getContextPath(context));
+            statement.setString(10, context.getVhost());
+            return statement;
+        }
+
+        public String getInsertAttributeStatementAsString()
+        {
+            return "insert into " + getSchemaAttributeTableName() +
+                " (" + getIdColumn() + ", " + getContextPathColumn() + ", " + getVirtualHostColumn() + ", " +
+                getAttributeNameColumn() + ", " + getAttributeValueColumn() + ") values (?, ?, ?, ?, ?)";
+        }
+
+        /**
+         * Get an insert of an attribute row that replaces any existing row for the attribute,
+         * with the same parameters as {@link #getInsertAttributeStatementAsString()}.
+         *
+         * @return the upsert, or null if the database is not known to support upserts
+         */
+        public String getUpsertAttributeStatementAsString()
+        {
+            if (_dbAdaptor == null)
+                throw new IllegalStateException("No DB adaptor");
+
+            String dbName = _dbAdaptor.getDBName();
+            if (dbName == null)
+                return null;
+
+            String columns = getIdColumn() + ", " + getContextPathColumn() + ", " + getVirtualHostColumn() + ", " + getAttributeNameColumn();
+            if (dbName.startsWith("mysql") || dbName.startsWith("mariadb"))
+                return getInsertAttributeStatementAsString() + " on duplicate key update " +
+                    getAttributeValueColumn() + " = values(" + getAttributeValueColumn() + ")";
+            if (dbName.startsWith("postgres"))
+                return getInsertAttributeStatementAsString() + " on conflict (" + columns + ") do update set " +
+                    getAttributeValueColumn() + " = excluded." + getAttributeValueColumn();
+            if (dbName.startsWith("h2"))
+                return "merge into " + getSchemaAttributeTableName() + " (" + columns + ", " + getAttributeValueColumn() +
+                    ") key (" + columns + ") values (?, ?, ?, ?, ?)";
+            return null;
+        }
+
+        public String getDeleteAttributeStatementAsString()
+        {
+            return "delete from " + getSchemaAttributeTableName() +
+                " where " + getIdColumn() + " = ? and " + getContextPathColumn() + " = ? and " +
+                getVirtualHostColumn() + " = ? and " + getAttributeNameColumn() + " = ?";
+        }
+
+        public PreparedStatement getLoadAttributesStatement(Connection connection, String id, SessionContext context)
+            throws SQLException
+        {
+            PreparedStatement statement = connection.prepareStatement("select " + getAttributeNameColumn() + ", " + getAttributeValueColumn() +
+                " from " + getSchemaAttributeTableName() +
+                " where " + getIdColumn() + " = ? and " + getContextPathColumn() +
+                " = ? and " + getVirtualHostColumn() + " = ?");
+            statement.setString(1, id);
+            statement.setString(2, getContextPath(context));
+            statement.setString(3, context.getVhost());
+            return statement;
+        }
+
+        public PreparedStatement getDeleteAttributesStatement(Connection connection, String id, SessionContext context)
+            throws SQLException
+        {
+            PreparedStatement statement = connection.prepareStatement("delete from " + getSchemaAttributeTableName() +
+                " where " + getIdColumn() + " = ? and " + getContextPathColumn() +
+                " = ? and " + getVirtualHostColumn() + " = ?");
+            statement.setString(1, id);
+            statement.setString(2, getContextPath(context));
+            statement.setString(3, context.getVhost());
+            return statement;
+        }
+
+        private String getContextPath(SessionContext context)
+        {
+            if (_dbAdaptor == null)
+                throw new IllegalStateException("No DB adaptor");
+
+            String cp = context.getCanonicalContextPath();
+            if (_dbAdaptor.isEmptyStringNull() && StringUtil.isBlank(cp))
+                cp = NULL_CONTEXT_PATH;
+            return cp;
+        }
+
         public PreparedStatement getExpiredSessionsStatement(Connection connection, String canonicalContextPath, String vhost, long expiry)
             throws SQLException
         {
@@ -419,6 +613,53 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
             return statement;
         }
 
+        public PreparedStatement getLoadAllStatement(Connection connection, Collection<String> ids, SessionContext context)
+            throws SQLException
+        {
+            if (_dbAdaptor == null)
+                throw new IllegalStateException("No DB adaptor");
+
+            StringBuilder in = new StringBuilder();
+            for (int i = 0; i < ids.size(); i++)
+            {
+                in.append(i == 0 ? "?" : ", ?");
+            }
+
+            PreparedStatement statement = connection.prepareStatement("select * from " + getSchemaTableName() +
+                " where " + getContextPathColumn() + " = ? and " + getVirtualHostColumn() + " = ? and " +
+                getIdColumn() + " in (" + in + ")");
+            statement.setString(1, getContextPath(context));
+            statement.setString(2, context.getVhost());
+            int i = 3;
+            for (String id : ids)
+            {
+                statement.setString(i++, id);
+            }
+            return statement;
+        }
+
+        public PreparedStatement getMostRecentlyAccessedStatement(Connection connection, SessionContext context, String lastNode, long now, int max)
+            throws SQLException
+        {
+            if (_dbAdaptor == null)
+                throw new IllegalStateException("No DB adaptor");
+
+            PreparedStatement statement = connection.prepareStatement("select " + getIdColumn() +
+                " from " + getSchemaTableName() + " where " + getContextPathColumn() + " = ? and " +
+                getVirtualHostColumn() + " = ? and " +
+                (lastNode == null ? "" : getLastNodeColumn() + " = ? and ") +
+                "(" + getExpiryTimeColumn() + " <= 0 or " + getExpiryTimeColumn() + " > ?)" +
+                " order by " + getAccessTimeColumn() + " desc");
+            int i = 1;
+            statement.setString(i++, getContextPath(context));
+            statement.setString(i++, context.getVhost());
+            if (lastNode != null)
+                statement.setString(i++, lastNode);
+            statement.setLong(i, now);
+            statement.setMaxRows(max);
+            return statement;
+        }
+
         public PreparedStatement getUpdateStatement(Connection connection, String id, SessionContext contextId)
             throws SQLException
         {
@@ -551,15 +792,27 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
                     statement.executeUpdate(getCreateIndexOverExpiryStatementAsString(index1));
                 if (!index2Exists)
                     statement.executeUpdate(getCreateIndexOverSessionStatementAsString(index2));
+
+                //make the attribute table if necessary
+                if (getAttributeTableName() != null)
+                {
+                    String attributeTableName = _dbAdaptor.convertIdentifier(getAttributeTableName());
+                    try (ResultSet result = metaData.getTables(null, schemaName, attributeTableName, null))
+                    {
+                        if (!result.next())
+                            statement.executeUpdate(getCreateAttributeTableStatementAsString());
+                    }
+                }
             }
         }
 
         @Override
         public String toString()
         {
-            return String.format("%s[%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s]", super.toString(),
+            return String.format("%s[%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s]", super.toString(),
                 _schemaName, _tableName, _idColumn, _contextPathColumn, _virtualHostColumn, _cookieTimeColumn, _createTimeColumn,
-                _expiryTimeColumn, _accessTimeColumn, _lastAccessTimeColumn, _lastNodeColumn, _lastSavedTimeColumn, _maxIntervalColumn);
+                _expiryTimeColumn, _accessTimeColumn, _lastAccessTimeColumn, _lastNodeColumn, _lastSavedTimeColumn, _maxIntervalColumn,
+                _attributeTableName);
         }
     }
 
@@ -575,6 +828,8 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
             throw new IllegalStateException("No jdbc config");
 
         initialize();
+        if (_maxIdleConnections > 0 && _dbAdaptor.getDatasource() != null)
+            LOG.info("Connections from DataSource {} are not pooled, maxIdleConnections ignored", _dbAdaptor.getDatasource());
         super.doStart();
     }
 
@@ -582,6 +837,10 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
     protected void doStop() throws Exception
     {
         super.doStop();
+        for (PooledConnection pooled = _idleConnections.poll(); pooled != null; pooled = _idleConnections.poll())
+        {
+            pooled.destroy();
+        }
         _initialized = false;
         if (!_schemaProvided)
             _sessionTableSchema = null;
@@ -609,258 +868,712 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
     @Override
     public SessionData doLoad(String id) throws Exception
     {
-        try (Connection connection = _dbAdaptor.getConnection();
-             PreparedStatement statement = _sessionTableSchema.getLoadStatement(connection, id, _context);
-             ResultSet result = statement.executeQuery())
+        long start = System.nanoTime();
+        try
         {
-            SessionData data = null;
-            if (result.next())
-            {
-                data = newSessionData(id,
-                    result.getLong(_sessionTableSchema.getCreateTimeColumn()),
-                    result.getLong(_sessionTableSchema.getAccessTimeColumn()),
-                    result.getLong(_sessionTableSchema.getLastAccessTimeColumn()),
-                    result.getLong(_sessionTableSchema.getMaxIntervalColumn()));
-                data.setCookieSet(result.getLong(_sessionTableSchema.getCookieTimeColumn()));
-                data.setLastNode(result.getString(_sessionTableSchema.getLastNodeColumn()));
-                data.setLastSaved(result.getLong(_sessionTableSchema.getLastSavedTimeColumn()));
-                data.setExpiry(result.getLong(_sessionTableSchema.getExpiryTimeColumn()));
-                data.setContextPath(_context.getCanonicalContextPath());
-                data.setVhost(_context.getVhost());
-
-                try (InputStream is = _dbAdaptor.getBlobInputStream(result, _sessionTableSchema.getMapColumn());
-                     ClassLoadingObjectInputStream ois = new ClassLoadingObjectInputStream(is))
-                {
-                    SessionData.deserializeAttributes(data, ois);
-                }
-                catch (Exception e)
+            try (Connection connection = getConnection();
+                 PreparedStatement statement = _sessionTableSchema.getLoadStatement(connection, id, _context);
+                 ResultSet result = statement.executeQuery())
+            {
+                SessionData data = null;
+                if (result.next())
                 {
-                    throw new UnreadableSessionDataException(id, _context, e);
+                    data = readSession(connection, result, id);
+
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("LOADED session {}", data);
                 }
+                else if (LOG.isDebugEnabled())
+                    LOG.debug("No session {}", id);
 
-                if (LOG.isDebugEnabled())
-                    LOG.debug("LOADED session {}", data);
+                return data;
             }
-            else if (LOG.isDebugEnabled())
-                LOG.debug("No session {}", id);
+        }
+        finally
+        {
+            _loadLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Create the session from the current row of a result set of the session table.
+     *
+     * @param connection the connection
+     * @param result the result set
+     * @param id the session id
+     * @return the session
+     * @throws Exception if the session cannot be read
+     */
+    private SessionData readSession(Connection connection, ResultSet result, String id) throws Exception
+    {
+        SessionData data = newSessionData(id,
+            result.getLong(_sessionTableSchema.getCreateTimeColumn()),
+            result.getLong(_sessionTableSchema.getAccessTimeColumn()),
+            result.getLong(_sessionTableSchema.getLastAccessTimeColumn()),
+            result.getLong(_sessionTableSchema.getMaxIntervalColumn()));
+        data.setCookieSet(result.getLong(_sessionTableSchema.getCookieTimeColumn()));
+        data.setLastNode(result.getString(_sessionTableSchema.getLastNodeColumn()));
+        data.setLastSaved(result.getLong(_sessionTableSchema.getLastSavedTimeColumn()));
+        data.setExpiry(result.getLong(_sessionTableSchema.getExpiryTimeColumn()));
+        data.setContextPath(_context.getCanonicalContextPath());
+        data.setVhost(_context.getVhost());
+
+        try (InputStream is = _dbAdaptor.getBlobInputStream(result, _sessionTableSchema.getMapColumn()))
+        {
+            _serializer.deserializeAttributes(data, is);
+        }
+        catch (Exception e)
+        {
+            throw new UnreadableSessionDataException(id, _context, e);
+        }
 
-            return data;
+        if (isDeltaStore())
+        {
+            //attributes still in the map column were stored before the attribute table was used:
+            //mark them as changed, so the next save moves them to the attribute table
+            if (!data.getKeys().isEmpty())
+                data.addDirtyAttributes(data.getKeys());
+            loadAttributes(connection, id, data);
         }
+
+        return data;
     }
 
     @Override
-    public boolean delete(String id) throws Exception
+    public Map<String, SessionData> doLoadAll(Collection<String> ids) throws Exception
     {
-        try (Connection connection = _dbAdaptor.getConnection();
-             PreparedStatement statement = _sessionTableSchema.getDeleteStatement(connection, id, _context))
+        Map<String, SessionData> loaded = new HashMap<>();
+        List<String> chunk = new ArrayList<>(LOAD_ALL_CHUNK);
+        try (Connection connection = getConnection())
         {
-            connection.setAutoCommit(true);
-            int rows = statement.executeUpdate();
-            if (LOG.isDebugEnabled())
-                LOG.debug("Deleted Session {}:{}", id, (rows > 0));
+            Iterator<String> iterator = ids.iterator();
+            while (iterator.hasNext())
+            {
+                chunk.add(iterator.next());
+                if (chunk.size() < LOAD_ALL_CHUNK && iterator.hasNext())
+                    continue;
 
-            return rows > 0;
+                try (PreparedStatement statement = _sessionTableSchema.getLoadAllStatement(connection, chunk, _context);
+                     ResultSet result = statement.executeQuery())
+                {
+                    while (result.next())
+                    {
+                        String id = result.getString(_sessionTableSchema.getIdColumn());
+                        try
+                        {
+                            loaded.put(id, readSession(connection, result, id));
+                        }
+                        catch (UnreadableSessionDataException e)
+                        {
+                            LOG.warn(e);
+                            loaded.put(id, null);
+                        }
+                    }
+                }
+                chunk.clear();
+            }
         }
+
+        if (LOG.isDebugEnabled())
+            LOG.debug("LOADED {} of {} sessions", loaded.size(), ids.size());
+        return loaded;
     }
 
     @Override
-    public void doStore(String id, SessionData data, long lastSaveTime) throws Exception
+    public List<String> getMostRecentlyAccessed(int max, String lastNode) throws Exception
     {
-        if (data == null || id == null)
-            return;
+        if (!isStarted())
+            throw new IllegalStateException("Not started");
 
-        if (lastSaveTime <= 0)
-        {
-            doInsert(id, data);
-        }
-        else
+        List<String> ids = new ArrayList<>();
+        try (Connection connection = getConnection();
+             PreparedStatement statement = _sessionTableSchema.getMostRecentlyAccessedStatement(connection, _context, lastNode, System.currentTimeMillis(), max);
+             ResultSet result = statement.executeQuery())
         {
-            doUpdate(id, data);
+            while (result.next() && ids.size() < max)
+            {
+                ids.add(result.getString(_sessionTableSchema.getIdColumn()));
+            }
         }
+        return ids;
     }
 
-    protected void doInsert(String id, SessionData data)
-        throws Exception
+    /**
+     * Merge the rows of the attribute table into the loaded session.
+     *
+     * @param connection the connection
+     * @param id the session id
+     * @param data the session loaded from the session table
+     * @throws Exception if the attributes cannot be read
+     */
+    protected void loadAttributes(Connection connection, String id, SessionData data) throws Exception
     {
-        String s = _sessionTableSchema.getInsertSessionStatementAsString();
-
-        try (Connection connection = _dbAdaptor.getConnection())
+        try (PreparedStatement statement = _sessionTableSchema.getLoadAttributesStatement(connection, id, _context);
+             ResultSet result = statement.executeQuery())
         {
-            connection.setAutoCommit(true);
-            try (PreparedStatement statement = connection.prepareStatement(s))
+            while (result.next())
             {
-                statement.setString(1, id); //session id
-
-                String cp = _context.getCanonicalContextPath();
-                if (_dbAdaptor.isEmptyStringNull() && StringUtil.isBlank(cp))
-                    cp = NULL_CONTEXT_PATH;
-
-                statement.setString(2, cp); //context path
-
-                statement.setString(3, _context.getVhost()); //first vhost
-                statement.setString(4, data.getLastNode());//my node id
-                statement.setLong(5, data.getAccessed());//accessTime
-                statement.setLong(6, data.getLastAccessed()); //lastAccessTime
-                statement.setLong(7, data.getCreated()); //time created
-                statement.setLong(8, data.getCookieSet());//time cookie was set
-                statement.setLong(9, data.getLastSaved()); //last saved time
-                statement.setLong(10, data.getExpiry());
-                statement.setLong(11, data.getMaxInactiveMs());
-
-                try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                     ObjectOutputStream oos = new ObjectOutputStream(baos))
+                SessionData attribute = new SessionData(id, data.getContextPath(), data.getVhost(), 0, 0, 0, 0);
+                try (InputStream is = _dbAdaptor.getBlobInputStream(result, _sessionTableSchema.getAttributeValueColumn()))
                 {
-                    SessionData.serializeAttributes(data, oos);
-                    byte[] bytes = baos.toByteArray();
-                    ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
-                    statement.setBinaryStream(12, bais, bytes.length);//attribute map as blob
-                    statement.executeUpdate();
-                    if (LOG.isDebugEnabled())
-                        LOG.debug("Inserted session " + data);
+                    _serializer.deserializeAttributes(attribute, is);
                 }
+                catch (Exception e)
+                {
+                    throw new UnreadableSessionDataException(id, _context, e);
+                }
+                data.putAllAttributes(attribute.getAllAttributes());
             }
         }
     }
 
-    protected void doUpdate(String id, SessionData data)
-        throws Exception
+    @Override
+    public boolean delete(String id) throws Exception
     {
-        try (Connection connection = _dbAdaptor.getConnection())
+        long start = System.nanoTime();
+        try
         {
-            connection.setAutoCommit(true);
-            try (PreparedStatement statement = _sessionTableSchema.getUpdateSessionStatement(connection, data.getId(), _context))
+            try (Connection connection = getConnection();
+                 PreparedStatement statement = _sessionTableSchema.getDeleteStatement(connection, id, _context))
             {
-                statement.setString(1, data.getLastNode());//should be my node id
-                statement.setLong(2, data.getAccessed());//accessTime
-                statement.setLong(3, data.getLastAccessed()); //lastAccessTime
-                statement.setLong(4, data.getLastSaved()); //last saved time
-                statement.setLong(5, data.getExpiry());
-                statement.setLong(6, data.getMaxInactiveMs());
-
-                try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                     ObjectOutputStream oos = new ObjectOutputStream(baos))
+                connection.setAutoCommit(true);
+                if (isDeltaStore())
                 {
-                    SessionData.serializeAttributes(data, oos);
-                    byte[] bytes = baos.toByteArray();
-                    try (ByteArrayInputStream bais = new ByteArrayInputStream(bytes))
+                    try (PreparedStatement attributes = _sessionTableSchema.getDeleteAttributesStatement(connection, id, _context))
                     {
-                        statement.setBinaryStream(7, bais, bytes.length);//attribute map as blob
-                        statement.executeUpdate();
-
-                        if (LOG.isDebugEnabled())
-                            LOG.debug("Updated session " + data);
+                        attributes.executeUpdate();
                     }
                 }
+                int rows = statement.executeUpdate();
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Deleted Session {}:{}", id, (rows > 0));
+
+                return rows > 0;
             }
         }
+        finally
+        {
+            _deleteLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
     }
 
     @Override
-    public Set<String> doGetExpired(Set<String> candidates)
+    public void doStore(String id, SessionData data, long lastSaveTime) throws Exception
     {
-        if (LOG.isDebugEnabled())
-            LOG.debug("Getting expired sessions at time {}", System.currentTimeMillis());
-
-        long now = System.currentTimeMillis();
-
-        Set<String> expiredSessionKeys = new HashSet<>();
-        try (Connection connection = _dbAdaptor.getConnection())
+        long start = System.nanoTime();
+        try
         {
-            connection.setAutoCommit(true);
+            if (data == null || id == null)
+                return;
 
-            /*
-             * 1. Select sessions managed by this node for our context that have expired
-             */
-            long upperBound = now;
-            if (LOG.isDebugEnabled())
-                LOG.debug("{}- Pass 1: Searching for sessions for context {} managed by me and expired before {}", _context.getWorkerName(), _context.getCanonicalContextPath(), upperBound);
-
-            try (PreparedStatement statement = _sessionTableSchema.getExpiredSessionsStatement(connection, _context.getCanonicalContextPath(), _context.getVhost(), upperBound))
+            if (lastSaveTime <= 0)
             {
-                try (ResultSet result = statement.executeQuery())
-                {
-                    while (result.next())
-                    {
-                        String sessionId = result.getString(_sessionTableSchema.getIdColumn());
-                        long exp = result.getLong(_sessionTableSchema.getExpiryTimeColumn());
-                        expiredSessionKeys.add(sessionId);
-                        if (LOG.isDebugEnabled())
-                            LOG.debug(_context.getCanonicalContextPath() + "- Found expired sessionId=" + sessionId);
-                    }
-                }
+                doInsert(id, data);
             }
-
-            /*
-             *  2. Select sessions for any node or context that have expired
-             *  at least 1 graceperiod since the last expiry check. If we haven't done previous expiry checks, then check
-             *  those that have expired at least 3 graceperiod ago.
-             */
-            try (PreparedStatement selectExpiredSessions = _sessionTableSchema.getAllAncientExpiredSessionsStatement(connection))
+            else
             {
-                if (_lastExpiryCheckTime <= 0)
-                    upperBound = (now - (3 * (1000L * _gracePeriodSec)));
-                else
-                    upperBound = _lastExpiryCheckTime - (1000L * _gracePeriodSec);
-
-                if (LOG.isDebugEnabled())
-                    LOG.debug("{}- Pass 2: Searching for sessions expired before {}", _context.getWorkerName(), upperBound);
-
-                selectExpiredSessions.setLong(1, upperBound);
-                try (ResultSet result = selectExpiredSessions.executeQuery())
-                {
-                    while (result.next())
-                    {
-                        String sessionId = result.getString(_sessionTableSchema.getIdColumn());
-                        String ctxtpth = result.getString(_sessionTableSchema.getContextPathColumn());
-                        String vh = result.getString(_sessionTableSchema.getVirtualHostColumn());
-                        expiredSessionKeys.add(sessionId);
-                        if (LOG.isDebugEnabled())
-                            LOG.debug("{}- Found expired sessionId=", _context.getWorkerName(), sessionId);
-                    }
-                }
+                doUpdate(id, data);
             }
+        }
+        finally
+        {
+            _storeLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
 
-            Set<String> notExpiredInDB = new HashSet<>();
-            for (String k : candidates)
-            {
-                //there are some keys that the session store thought had expired, but were not
-                //found in our sweep either because it is no longer in the db, or its
-                //expiry time was updated
-                if (!expiredSessionKeys.contains(k))
-                    notExpiredInDB.add(k);
-            }
+    @Override
+    public boolean isDeltaStore()
+    {
+        return _sessionTableSchema != null && _sessionTableSchema.getAttributeTableName() != null;
+    }
+
+    @Override
+    public void doStoreDelta(String id, SessionData data, Set<String> dirtyAttributes, long lastSaveTime) throws Exception
+    {
+        long start = System.nanoTime();
+        try
+        {
+            if (data == null || id == null)
+                return;
 
-            if (!notExpiredInDB.isEmpty())
+            try (Connection connection = getConnection())
             {
-                //we have some sessions to check
-                try (PreparedStatement checkSessionExists = _sessionTableSchema.getCheckSessionExistsStatement(connection, _context))
+                connection.setAutoCommit(false);
+                try
                 {
-                    for (String k : notExpiredInDB)
+                    try (PreparedStatement statement = _sessionTableSchema.getUpdateSessionMetaDataStatement(connection, id, _context))
                     {
-                        checkSessionExists.setString(1, k);
-                        try (ResultSet result = checkSessionExists.executeQuery())
-                        {
-                            if (!result.next())
-                            {
-                                //session doesn't exist any more, can be expired
-                                expiredSessionKeys.add(k);
-                            }
-                            //else its expiry time has not been reached
-                        }
-                        catch (Exception e)
-                        {
-                            LOG.warn("{} Problem checking if potentially expired session {} exists in db", _context.getWorkerName(), k, e);
-                        }
+                        statement.setString(1, data.getLastNode());//should be my node id
+                        statement.setLong(2, data.getAccessed());//accessTime
+                        statement.setLong(3, data.getLastAccessed()); //lastAccessTime
+                        statement.setLong(4, data.getLastSaved()); //last saved time
+                        statement.setLong(5, data.getExpiry());
+                        statement.setLong(6, data.getMaxInactiveMs());
+                        //clear any attributes left in the map column, as they are now in the attribute table
+                        byte[] bytes = serializeMap(data);
+                        statement.setBinaryStream(7, new ByteArrayInputStream(bytes), bytes.length);
+                        statement.executeUpdate();
                     }
+                    storeAttributes(connection, id, data, dirtyAttributes);
+                    connection.commit();
+                }
+                catch (Exception e)
+                {
+                    connection.rollback();
+                    throw e;
+                }
+                finally
+                {
+                    connection.setAutoCommit(true);
                 }
-            }
 
-            return expiredSessionKeys;
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Updated attributes {} of session {}", dirtyAttributes, data);
+            }
         }
-        catch (Exception e)
+        finally
         {
-            LOG.warn(e);
-            return expiredSessionKeys; //return whatever we got
+            _storeLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Replace the rows of the attribute table for the named attributes,
+     * deleting the rows of attributes that have been removed. The rows are
+     * written with batched upserts if the database supports them, otherwise
+     * with batched deletes followed by batched inserts.
+     *
+     * @param connection the connection
+     * @param id the session id
+     * @param data the session
+     * @param names the names of the attributes to write
+     * @throws Exception if the attributes cannot be written
+     */
+    protected void storeAttributes(Connection connection, String id, SessionData data, Set<String> names) throws Exception
+    {
+        String cp = _context.getCanonicalContextPath();
+        if (_dbAdaptor.isEmptyStringNull() && StringUtil.isBlank(cp))
+            cp = NULL_CONTEXT_PATH;
+
+        String upsert = _sessionTableSchema.getUpsertAttributeStatementAsString();
+        List<String> deletes = new ArrayList<>();
+        Map<String, byte[]> inserts = new HashMap<>();
+        for (String name : names)
+        {
+            Object value = data.getAttribute(name);
+            if (value == null || upsert == null)
+                deletes.add(name);
+            if (value == null)
+                continue;
+
+            SessionData attribute = new SessionData(id, data.getContextPath(), data.getVhost(), 0, 0, 0, 0,
+                Collections.singletonMap(name, value));
+            try (ByteArrayOutputStream baos = new ByteArrayOutputStream())
+            {
+                _serializer.serializeAttributes(attribute, baos);
+                inserts.put(name, baos.toByteArray());
+            }
+        }
+
+        if (!deletes.isEmpty())
+        {
+            try (PreparedStatement delete = connection.prepareStatement(_sessionTableSchema.getDeleteAttributeStatementAsString()))
+            {
+                for (String name : deletes)
+                {
+                    delete.setString(1, id);
+                    delete.setString(2, cp);
+                    delete.setString(3, _context.getVhost());
+                    delete.setString(4, name);
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+            }
+        }
+
+        if (!inserts.isEmpty())
+        {
+            try (PreparedStatement insert = connection.prepareStatement(upsert != null ? upsert : _sessionTableSchema.getInsertAttributeStatementAsString()))
+            {
+                for (Map.Entry<String, byte[]> entry : inserts.entrySet())
+                {
+                    byte[] bytes = entry.getValue();
+                    insert.setString(1, id);
+                    insert.setString(2, cp);
+                    insert.setString(3, _context.getVhost());
+                    insert.setString(4, entry.getKey());
+                    insert.setBinaryStream(5, new ByteArrayInputStream(bytes), bytes.length);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * @param data the session
+     * @return the serialized attributes for the map column, which is empty if the attributes are kept in the attribute table
+     * @throws Exception if the attributes cannot be serialized
+     */
+    private byte[] serializeMap(SessionData data) throws Exception
+    {
+        if (isDeltaStore())
+            data = new SessionData(data.getId(), data.getContextPath(), data.getVhost(), 0, 0, 0, 0);
+
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream())
+        {
+            _serializer.serializeAttributes(data, baos);
+            return baos.toByteArray();
+        }
+    }
+
+    protected void doInsert(String id, SessionData data)
+        throws Exception
+    {
+        String s = _sessionTableSchema.getInsertSessionStatementAsString();
+
+        try (Connection connection = getConnection())
+        {
+            connection.setAutoCommit(!isDeltaStore());
+            try (PreparedStatement statement = connection.prepareStatement(s))
+            {
+                setInsertParameters(statement, id, data);
+                if (isDeltaStore())
+                    commitWithAttributes(connection, statement, id, data);
+                else
+                    statement.executeUpdate();
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Inserted session " + data);
+            }
+        }
+    }
+
+    private void setInsertParameters(PreparedStatement statement, String id, SessionData data) throws Exception
+    {
+        statement.setString(1, id); //session id
+
+        String cp = _context.getCanonicalContextPath();
+        if (_dbAdaptor.isEmptyStringNull() && StringUtil.isBlank(cp))
+            cp = NULL_CONTEXT_PATH;
+
+        statement.setString(2, cp); //context path
+
+        statement.setString(3, _context.getVhost()); //first vhost
+        statement.setString(4, data.getLastNode());//my node id
+        statement.setLong(5, data.getAccessed());//accessTime
+        statement.setLong(6, data.getLastAccessed()); //lastAccessTime
+        statement.setLong(7, data.getCreated()); //time created
+        statement.setLong(8, data.getCookieSet());//time cookie was set
+        statement.setLong(9, data.getLastSaved()); //last saved time
+        statement.setLong(10, data.getExpiry());
+        statement.setLong(11, data.getMaxInactiveMs());
+
+        byte[] bytes = serializeMap(data);
+        ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
+        statement.setBinaryStream(12, bais, bytes.length);//attribute map as blob
+    }
+
+    private void setUpdateParameters(PreparedStatement statement, SessionData data) throws Exception
+    {
+        statement.setString(1, data.getLastNode());//should be my node id
+        statement.setLong(2, data.getAccessed());//accessTime
+        statement.setLong(3, data.getLastAccessed()); //lastAccessTime
+        statement.setLong(4, data.getLastSaved()); //last saved time
+        statement.setLong(5, data.getExpiry());
+        statement.setLong(6, data.getMaxInactiveMs());
+
+        byte[] bytes = serializeMap(data);
+        statement.setBinaryStream(7, new ByteArrayInputStream(bytes), bytes.length);//attribute map as blob
+    }
+
+    /**
+     * Execute the write of the session row and replace all its attribute rows in one transaction.
+     */
+    private void commitWithAttributes(Connection connection, PreparedStatement session, String id, SessionData data) throws Exception
+    {
+        try
+        {
+            session.executeUpdate();
+            try (PreparedStatement statement = _sessionTableSchema.getDeleteAttributesStatement(connection, id, _context))
+            {
+                statement.executeUpdate();
+            }
+            storeAttributes(connection, id, data, data.getKeys());
+            connection.commit();
+        }
+        catch (Exception e)
+        {
+            connection.rollback();
+            throw e;
+        }
+        finally
+        {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    protected void doUpdate(String id, SessionData data)
+        throws Exception
+    {
+        try (Connection connection = getConnection())
+        {
+            connection.setAutoCommit(!isDeltaStore());
+            try (PreparedStatement statement = _sessionTableSchema.getUpdateSessionStatement(connection, data.getId(), _context))
+            {
+                setUpdateParameters(statement, data);
+                if (isDeltaStore())
+                    commitWithAttributes(connection, statement, id, data);
+                else
+                    statement.executeUpdate();
+
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Updated session " + data);
+            }
+        }
+    }
+
+    /**
+     * Store a batch of sessions using batched inserts and updates in a single
+     * transaction. If the attribute table is used, or if the batch fails, each
+     * session is stored in turn so that one session that cannot be stored does
+     * not prevent the others from being stored.
+     *
+     * @param sessions the sessions to store
+     * @throws Exception if some of the sessions could not be stored
+     */
+    @Override
+    public void storeAll(Collection<SessionData> sessions) throws Exception
+    {
+        if (!isStarted())
+            throw new IllegalStateException("Not started");
+
+        if (isDeltaStore())
+        {
+            super.storeAll(sessions);
+            return;
+        }
+
+        final AtomicReference<Exception> exception = new AtomicReference<>();
+        _context.run(() ->
+        {
+            Map<SessionData, Long> lastSaves = new HashMap<>();
+            List<SessionData> inserts = new ArrayList<>();
+            List<SessionData> updates = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            for (SessionData data : sessions)
+            {
+                if (!isStoreRequired(data.getId(), data))
+                    continue;
+                lastSaves.put(data, data.getLastSaved());
+                if (data.getLastSaved() <= 0)
+                    inserts.add(data);
+                else
+                    updates.add(data);
+                data.setLastSaved(now);
+            }
+
+            if (lastSaves.isEmpty())
+                return;
+
+            try
+            {
+                doStoreAll(inserts, updates);
+                for (SessionData data : lastSaves.keySet())
+                {
+                    data.takeDirtyAttributes();
+                    data.clean();
+                }
+            }
+            catch (Exception e)
+            {
+                //reset last save times if save failed
+                lastSaves.forEach(SessionData::setLastSaved);
+                exception.set(e);
+            }
+        });
+
+        if (exception.get() != null)
+        {
+            LOG.warn("Batch store of {} sessions failed, storing each in turn", sessions.size());
+            if (LOG.isDebugEnabled())
+                LOG.debug(exception.get());
+            super.storeAll(sessions);
+        }
+    }
+
+    protected void doStoreAll(List<SessionData> inserts, List<SessionData> updates)
+        throws Exception
+    {
+        long start = System.nanoTime();
+        try
+        {
+            try (Connection connection = getConnection())
+            {
+                connection.setAutoCommit(false);
+                try
+                {
+                    if (!inserts.isEmpty())
+                    {
+                        try (PreparedStatement statement = connection.prepareStatement(_sessionTableSchema.getInsertSessionStatementAsString()))
+                        {
+                            for (SessionData data : inserts)
+                            {
+                                setInsertParameters(statement, data.getId(), data);
+                                statement.addBatch();
+                            }
+                            statement.executeBatch();
+                        }
+                    }
+
+                    if (!updates.isEmpty())
+                    {
+                        try (PreparedStatement statement = _sessionTableSchema.getUpdateSessionStatement(connection, updates.get(0).getId(), _context))
+                        {
+                            for (SessionData data : updates)
+                            {
+                                setUpdateParameters(statement, data);
+                                statement.setString(8, data.getId());
+                                statement.addBatch();
+                            }
+                            statement.executeBatch();
+                        }
+                    }
+                    connection.commit();
+                }
+                catch (Exception e)
+                {
+                    connection.rollback();
+                    throw e;
+                }
+                finally
+                {
+                    connection.setAutoCommit(true);
+                }
+
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Inserted {} and updated {} sessions", inserts.size(), updates.size());
+            }
+        }
+        finally
+        {
+            _storeLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    @Override
+    public Set<String> doGetExpired(Set<String> candidates)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Getting expired sessions at time {}", System.currentTimeMillis());
+
+            long now = System.currentTimeMillis();
+
+            Set<String> expiredSessionKeys = new HashSet<>();
+            try (Connection connection = getConnection())
+            {
+                connection.setAutoCommit(true);
+
+                /*
+                 * 1. Select sessions managed by this node for our context that have expired
+                 */
+                long upperBound = now;
+                if (LOG.isDebugEnabled())
+                    LOG.debug("{}- Pass 1: Searching for sessions for context {} managed by me and expired before {}", _context.getWorkerName(), _context.getCanonicalContextPath(), upperBound);
+
+                try (PreparedStatement statement = _sessionTableSchema.getExpiredSessionsStatement(connection, _context.getCanonicalContextPath(), _context.getVhost(), upperBound))
+                {
+                    try (ResultSet result = statement.executeQuery())
+                    {
+                        while (result.next())
+                        {
+                            String sessionId = result.getString(_sessionTableSchema.getIdColumn());
+                            long exp = result.getLong(_sessionTableSchema.getExpiryTimeColumn());
+                            expiredSessionKeys.add(sessionId);
+                            if (LOG.isDebugEnabled())
+                                LOG.debug(_context.getCanonicalContextPath() + "- Found expired sessionId=" + sessionId);
+                        }
+                    }
+                }
+
+                /*
+                 *  2. Select sessions for any node or context that have expired
+                 *  at least 1 graceperiod since the last expiry check. If we haven't done previous expiry checks, then check
+                 *  those that have expired at least 3 graceperiod ago.
+                 */
+                try (PreparedStatement selectExpiredSessions = _sessionTableSchema.getAllAncientExpiredSessionsStatement(connection))
+                {
+                    if (_lastExpiryCheckTime <= 0)
+                        upperBound = (now - (3 * (1000L * _gracePeriodSec)));
+                    else
+                        upperBound = _lastExpiryCheckTime - (1000L * _gracePeriodSec);
+
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("{}- Pass 2: Searching for sessions expired before {}", _context.getWorkerName(), upperBound);
+
+                    selectExpiredSessions.setLong(1, upperBound);
+                    try (ResultSet result = selectExpiredSessions.executeQuery())
+                    {
+                        while (result.next())
+                        {
+                            String sessionId = result.getString(_sessionTableSchema.getIdColumn());
+                            String ctxtpth = result.getString(_sessionTableSchema.getContextPathColumn());
+                            String vh = result.getString(_sessionTableSchema.getVirtualHostColumn());
+                            expiredSessionKeys.add(sessionId);
+                            if (LOG.isDebugEnabled())
+                                LOG.debug("{}- Found expired sessionId=", _context.getWorkerName(), sessionId);
+                        }
+                    }
+                }
+
+                Set<String> notExpiredInDB = new HashSet<>();
+                for (String k : candidates)
+                {
+                    //there are some keys that the session store thought had expired, but were not
+                    //found in our sweep either because it is no longer in the db, or its
+                    //expiry time was updated
+                    if (!expiredSessionKeys.contains(k))
+                        notExpiredInDB.add(k);
+                }
+
+                if (!notExpiredInDB.isEmpty())
+                {
+                    //we have some sessions to check
+                    try (PreparedStatement checkSessionExists = _sessionTableSchema.getCheckSessionExistsStatement(connection, _context))
+                    {
+                        for (String k : notExpiredInDB)
+                        {
+                            checkSessionExists.setString(1, k);
+                            try (ResultSet result = checkSessionExists.executeQuery())
+                            {
+                                if (!result.next())
+                                {
+                                    //session doesn't exist any more, can be expired
+                                    expiredSessionKeys.add(k);
+                                }
+                                //else its expiry time has not been reached
+                            }
+                            catch (Exception e)
+                            {
+                                LOG.warn("{} Problem checking if potentially expired session {} exists in db", _context.getWorkerName(), k, e);
+                            }
+                        }
+                    }
+                }
+
+                return expiredSessionKeys;
+            }
+            catch (Exception e)
+            {
+                LOG.warn(e);
+                return expiredSessionKeys; //return whatever we got
+            }
+        }
+        finally
+        {
+            _expiredLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
         }
     }
 
@@ -879,6 +1592,208 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
         _schemaProvided = true;
     }
 
+    @ManagedAttribute(value = "max connections kept open with their prepared statements", readonly = true)
+    public int getMaxIdleConnections()
+    {
+        return _maxIdleConnections;
+    }
+
+    /**
+     * @param maxIdleConnections the max number of connections to keep open between operations,
+     * with the statements prepared on them, or 0 to close connections after each operation
+     */
+    public void setMaxIdleConnections(int maxIdleConnections)
+    {
+        checkStarted();
+        _maxIdleConnections = maxIdleConnections;
+    }
+
+    @ManagedAttribute(value = "max statements cached per pooled connection", readonly = true)
+    public int getMaxCachedStatements()
+    {
+        return _maxCachedStatements;
+    }
+
+    /**
+     * @param maxCachedStatements the max number of prepared statements cached per pooled connection
+     */
+    public void setMaxCachedStatements(int maxCachedStatements)
+    {
+        checkStarted();
+        _maxCachedStatements = maxCachedStatements;
+    }
+
+    @ManagedAttribute(value = "max ms a pooled connection is kept idle", readonly = true)
+    public long getMaxConnectionIdleMs()
+    {
+        return _maxConnectionIdleMs;
+    }
+
+    /**
+     * @param maxConnectionIdleMs the max time in ms a pooled connection is kept idle
+     * before it is closed, or 0 for no limit
+     */
+    public void setMaxConnectionIdleMs(long maxConnectionIdleMs)
+    {
+        checkStarted();
+        _maxConnectionIdleMs = maxConnectionIdleMs;
+    }
+
+    @ManagedAttribute(value = "max ms a pooled connection is kept open", readonly = true)
+    public long getMaxConnectionAgeMs()
+    {
+        return _maxConnectionAgeMs;
+    }
+
+    /**
+     * @param maxConnectionAgeMs the max time in ms a pooled connection is kept open,
+     * after which it is closed instead of reused, or 0 for no limit
+     */
+    public void setMaxConnectionAgeMs(long maxConnectionAgeMs)
+    {
+        checkStarted();
+        _maxConnectionAgeMs = maxConnectionAgeMs;
+    }
+
+    @ManagedAttribute("number of connections kept open")
+    public int getIdleConnections()
+    {
+        return _idleConnections.size();
+    }
+
+    @ManagedAttribute("number of statements prepared on pooled connections")
+    public long getStatementsPrepared()
+    {
+        return _statementsPrepared.sum();
+    }
+
+    @ManagedAttribute("number of prepared statements reused from the cache")
+    public long getStatementsReused()
+    {
+        return _statementsReused.sum();
+    }
+
+    /**
+     * @return the latencies in us of loading sessions
+     */
+    public HistogramStatistic getLoadLatency()
+    {
+        return _loadLatency;
+    }
+
+    /**
+     * @return the latencies in us of storing sessions
+     */
+    public HistogramStatistic getStoreLatency()
+    {
+        return _storeLatency;
+    }
+
+    /**
+     * @return the latencies in us of deleting sessions
+     */
+    public HistogramStatistic getDeleteLatency()
+    {
+        return _deleteLatency;
+    }
+
+    /**
+     * @return the latencies in us of checking sessions exist
+     */
+    public HistogramStatistic getExistsLatency()
+    {
+        return _existsLatency;
+    }
+
+    /**
+     * @return the latencies in us of finding expired sessions
+     */
+    public HistogramStatistic getExpiredLatency()
+    {
+        return _expiredLatency;
+    }
+
+    @ManagedAttribute("latency histograms of the database operations in us")
+    public String getLatencies()
+    {
+        return String.format("load=%s, store=%s, delete=%s, exists=%s, expired=%s", _loadLatency, _storeLatency,
+            _deleteLatency, _existsLatency, _expiredLatency);
+    }
+
+    @ManagedOperation(value = "reset statistics", impact = "ACTION")
+    public void resetStats()
+    {
+        _statementsPrepared.reset();
+        _statementsReused.reset();
+        _loadLatency.reset();
+        _storeLatency.reset();
+        _deleteLatency.reset();
+        _existsLatency.reset();
+        _expiredLatency.reset();
+    }
+
+    /**
+     * Get a connection for an operation. If connections are pooled, closing the
+     * returned connection returns it to the pool, and closing the statements
+     * it prepared leaves them cached.
+     *
+     * @return a connection
+     * @throws SQLException if a connection cannot be obtained
+     */
+    protected Connection getConnection() throws SQLException
+    {
+        if (_maxIdleConnections <= 0 || _dbAdaptor.getDatasource() != null)
+            return _dbAdaptor.getConnection();
+
+        long now = System.nanoTime();
+        PooledConnection pooled = _idleConnections.pollFirst();
+        while (pooled != null && !pooled.isUsable(now))
+        {
+            pooled.destroy();
+            pooled = _idleConnections.pollFirst();
+        }
+        if (pooled == null)
+            pooled = new PooledConnection(_dbAdaptor.getConnection());
+        pooled._inUse = true;
+        return pooled._proxy;
+    }
+
+    private void release(PooledConnection pooled)
+    {
+        if (!pooled._failed)
+        {
+            try
+            {
+                if (!pooled._connection.getAutoCommit())
+                {
+                    pooled._connection.rollback();
+                    pooled._connection.setAutoCommit(true);
+                }
+            }
+            catch (SQLException e)
+            {
+                LOG.ignore(e);
+                pooled._failed = true;
+            }
+        }
+
+        long now = System.nanoTime();
+        if (!pooled._failed && !pooled.isExpired(now) && isRunning() && _idleConnections.size() < _maxIdleConnections)
+        {
+            pooled._released = now;
+            _idleConnections.offerFirst(pooled);
+        }
+        else
+            pooled.destroy();
+
+        //the least recently used connections are last, close those idle for too long
+        for (PooledConnection idle = _idleConnections.peekLast(); idle != null && idle.isExpired(now); idle = _idleConnections.peekLast())
+        {
+            if (_idleConnections.removeLastOccurrence(idle))
+                idle.destroy();
+        }
+    }
+
     @Override
     @ManagedAttribute(value = "does this store serialize sessions", readonly = true)
     public boolean isPassivating()
@@ -890,30 +1805,178 @@ public class JDBCSessionDataStore extends AbstractSessionDataStore
     public boolean exists(String id)
         throws Exception
     {
-        try (Connection connection = _dbAdaptor.getConnection())
+        long start = System.nanoTime();
+        try
         {
-            connection.setAutoCommit(true);
-
-            //non-expired session exists?
-            try (PreparedStatement checkSessionExists = _sessionTableSchema.getCheckSessionExistsStatement(connection, _context))
+            try (Connection connection = getConnection())
             {
-                checkSessionExists.setString(1, id);
-                try (ResultSet result = checkSessionExists.executeQuery())
+                connection.setAutoCommit(true);
+
+                //non-expired session exists?
+                try (PreparedStatement checkSessionExists = _sessionTableSchema.getCheckSessionExistsStatement(connection, _context))
                 {
-                    if (!result.next())
-                    {
-                        return false; //no such session
-                    }
-                    else
+                    checkSessionExists.setString(1, id);
+                    try (ResultSet result = checkSessionExists.executeQuery())
                     {
-                        long expiry = result.getLong(_sessionTableSchema.getExpiryTimeColumn());
-                        if (expiry <= 0) //never expires
-                            return true;
+                        if (!result.next())
+                        {
+                            return false; //no such session
+                        }
                         else
-                            return (expiry > System.currentTimeMillis()); //hasn't already expired
+                        {
+                            long expiry = result.getLong(_sessionTableSchema.getExpiryTimeColumn());
+                            if (expiry <= 0) //never expires
+                                return true;
+                            else
+                                return (expiry > System.currentTimeMillis()); //hasn't already expired
+                        }
                     }
                 }
             }
         }
+        finally
+        {
+            _existsLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * A connection kept open between operations, with a cache of the statements
+     * prepared on it. Any exception from the connection or its statements marks it
+     * as failed, so that it is closed rather than pooled.
+     */
+    private class PooledConnection implements InvocationHandler
+    {
+        private final Connection _connection;
+        private final Connection _proxy;
+        private final Map<String, PreparedStatement> _statements = new HashMap<>();
+        private final long _created = System.nanoTime();
+        private volatile long _released = _created;
+        private volatile boolean _failed;
+        private boolean _inUse;
+
+        PooledConnection(Connection connection)
+        {
+            _connection = connection;
+            _proxy = (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+        }
+
+        /**
+         * @param now the current nano time
+         * @return true if the connection has been idle or open for too long
+         */
+        boolean isExpired(long now)
+        {
+            return (_maxConnectionIdleMs > 0 && now - _released > TimeUnit.MILLISECONDS.toNanos(_maxConnectionIdleMs)) ||
+                (_maxConnectionAgeMs > 0 && now - _created > TimeUnit.MILLISECONDS.toNanos(_maxConnectionAgeMs));
+        }
+
+        /**
+         * @param now the current nano time
+         * @return true if the idle connection can be reused, validating it if it was not used recently
+         */
+        boolean isUsable(long now)
+        {
+            if (isExpired(now))
+                return false;
+            if (now - _released < VALIDATION_IDLE_NS)
+                return true;
+            try
+            {
+                return _connection.isValid(VALIDATION_TIMEOUT_SEC);
+            }
+            catch (SQLException e)
+            {
+                LOG.ignore(e);
+                return false;
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch (method.getName())
+            {
+                case "close":
+                    if (_inUse)
+                    {
+                        _inUse = false;
+                        release(this);
+                    }
+                    return null;
+                case "prepareStatement":
+                    if (args.length == 1)
+                        return prepareStatement((String)args[0]);
+                    break;
+                default:
+                    break;
+            }
+            return call(_connection, method, args);
+        }
+
+        private Object call(Object target, Method method, Object[] args) throws Throwable
+        {
+            try
+            {
+                return method.invoke(target, args);
+            }
+            catch (InvocationTargetException e)
+            {
+                _failed = true;
+                throw e.getCause();
+            }
+        }
+
+        private PreparedStatement prepareStatement(String sql) throws SQLException
+        {
+            PreparedStatement statement = _statements.get(sql);
+            if (statement != null)
+            {
+                _statementsReused.increment();
+                return statement;
+            }
+
+            _statementsPrepared.increment();
+            PreparedStatement prepared;
+            try
+            {
+                prepared = _connection.prepareStatement(sql);
+            }
+            catch (SQLException e)
+            {
+                _failed = true;
+                throw e;
+            }
+            if (_statements.size() >= _maxCachedStatements)
+                return prepared;
+
+            //closing the cached statement only clears its parameters
+            statement = (PreparedStatement)Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (p, method, args) ->
+                {
+                    if ("close".equals(method.getName()))
+                    {
+                        call(prepared, PreparedStatement.class.getMethod("clearParameters"), null);
+                        return null;
+                    }
+                    if ("getConnection".equals(method.getName()))
+                        return _proxy;
+                    return call(prepared, method, args);
+                });
+            _statements.put(sql, statement);
+            return statement;
+        }
+
+        void destroy()
+        {
+            try
+            {
+                _connection.close();
+            }
+            catch (SQLException e)
+            {
+                LOG.ignore(e);
+            }
+        }
     }
 }
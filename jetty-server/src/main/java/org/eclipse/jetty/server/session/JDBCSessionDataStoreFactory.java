@@ -18,6 +18,8 @@
 
 package org.eclipse.jetty.server.session;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * JDBCSessionDataStoreFactory
  */
@@ -34,6 +36,14 @@ public class JDBCSessionDataStoreFactory extends AbstractSessionDataStoreFactory
      */
     JDBCSessionDataStore.SessionTableSchema _schema;
 
+    int _maxIdleConnections = 0;
+
+    int _maxCachedStatements = 32;
+
+    long _maxConnectionIdleMs = TimeUnit.MINUTES.toMillis(1);
+
+    long _maxConnectionAgeMs = TimeUnit.MINUTES.toMillis(30);
+
     /**
      * @see org.eclipse.jetty.server.session.SessionDataStoreFactory#getSessionDataStore(org.eclipse.jetty.server.session.SessionHandler)
      */
@@ -45,6 +55,11 @@ public class JDBCSessionDataStoreFactory extends AbstractSessionDataStoreFactory
         ds.setSessionTableSchema(_schema);
         ds.setGracePeriodSec(getGracePeriodSec());
         ds.setSavePeriodSec(getSavePeriodSec());
+        ds.setSerializer(getSerializer());
+        ds.setMaxIdleConnections(getMaxIdleConnections());
+        ds.setMaxCachedStatements(getMaxCachedStatements());
+        ds.setMaxConnectionIdleMs(getMaxConnectionIdleMs());
+        ds.setMaxConnectionAgeMs(getMaxConnectionAgeMs());
         return ds;
     }
 
@@ -63,4 +78,68 @@ public class JDBCSessionDataStoreFactory extends AbstractSessionDataStoreFactory
     {
         _schema = schema;
     }
+
+    /**
+     * @return the max number of connections kept open with their prepared statements
+     */
+    public int getMaxIdleConnections()
+    {
+        return _maxIdleConnections;
+    }
+
+    /**
+     * @param maxIdleConnections the max number of connections kept open with their prepared statements
+     */
+    public void setMaxIdleConnections(int maxIdleConnections)
+    {
+        _maxIdleConnections = maxIdleConnections;
+    }
+
+    /**
+     * @return the max number of prepared statements cached per pooled connection
+     */
+    public int getMaxCachedStatements()
+    {
+        return _maxCachedStatements;
+    }
+
+    /**
+     * @param maxCachedStatements the max number of prepared statements cached per pooled connection
+     */
+    public void setMaxCachedStatements(int maxCachedStatements)
+    {
+        _maxCachedStatements = maxCachedStatements;
+    }
+
+    /**
+     * @return the max time in ms a pooled connection is kept idle
+     */
+    public long getMaxConnectionIdleMs()
+    {
+        return _maxConnectionIdleMs;
+    }
+
+    /**
+     * @param maxConnectionIdleMs the max time in ms a pooled connection is kept idle, or 0 for no limit
+     */
+    public void setMaxConnectionIdleMs(long maxConnectionIdleMs)
+    {
+        _maxConnectionIdleMs = maxConnectionIdleMs;
+    }
+
+    /**
+     * @return the max time in ms a pooled connection is kept open
+     */
+    public long getMaxConnectionAgeMs()
+    {
+        return _maxConnectionAgeMs;
+    }
+
+    /**
+     * @param maxConnectionAgeMs the max time in ms a pooled connection is kept open, or 0 for no limit
+     */
+    public void setMaxConnectionAgeMs(long maxConnectionAgeMs)
+    {
+        _maxConnectionAgeMs = maxConnectionAgeMs;
+    }
 }
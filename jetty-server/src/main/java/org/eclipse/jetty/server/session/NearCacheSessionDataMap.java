@@ -0,0 +1,283 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * NearCacheSessionDataMap
+ *
+ * A SessionDataMap that keeps local copies of the session data stored in, or
+ * loaded from, another, usually remote, SessionDataMap. Loading a session with
+ * a local copy only reads the {@link SessionDataMap#getVersion(String) version}
+ * of the session from the remote map: the local copy is used if it is the same
+ * version, otherwise the session is loaded from the remote map. If the remote
+ * map is not {@link SessionDataMap#isVersioned() versioned}, sessions are
+ * always loaded from it, unless maxStaleMs is set.
+ *
+ * If {@link #getMaxStaleMs()} is greater than 0, a local copy is used without
+ * checking its version for that long after it was last checked. This is only
+ * safe if requests for a session always go to the same node.
+ */
+@ManagedObject
+public class NearCacheSessionDataMap extends ContainerLifeCycle implements SessionDataMap
+{
+    private static final Logger LOG = Log.getLogger("org.eclipse.jetty.server.session");
+
+    /**
+     * The remote map for the session data
+     */
+    protected SessionDataMap _map;
+
+    private final Map<String, Entry> _entries = new ConcurrentHashMap<>();
+    private int _maxEntries = 10000;
+    private long _maxStaleMs = 0;
+    private boolean _versioned;
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+
+    /**
+     * @param map the remote map for the session data
+     */
+    public NearCacheSessionDataMap(SessionDataMap map)
+    {
+        _map = map;
+        addBean(_map, true);
+    }
+
+    /**
+     * @return the remote map for the session data
+     */
+    public SessionDataMap getSessionDataMap()
+    {
+        return _map;
+    }
+
+    @ManagedAttribute(value = "max sessions with local copies", readonly = true)
+    public int getMaxEntries()
+    {
+        return _maxEntries;
+    }
+
+    /**
+     * @param maxEntries the max number of sessions to keep local copies of
+     */
+    public void setMaxEntries(int maxEntries)
+    {
+        _maxEntries = maxEntries;
+    }
+
+    @ManagedAttribute(value = "max ms a local copy is used without checking its version", readonly = true)
+    public long getMaxStaleMs()
+    {
+        return _maxStaleMs;
+    }
+
+    /**
+     * @param maxStaleMs the max time in ms a local copy is used without checking its version,
+     * or 0 to always check the version
+     */
+    public void setMaxStaleMs(long maxStaleMs)
+    {
+        _maxStaleMs = maxStaleMs;
+    }
+
+    @ManagedAttribute("number of sessions with local copies")
+    public int getEntries()
+    {
+        return _entries.size();
+    }
+
+    @ManagedAttribute("number of sessions loaded from local copies")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute("number of sessions loaded from the remote map")
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedOperation(value = "reset statistics", impact = "ACTION")
+    public void resetStats()
+    {
+        _hits.reset();
+        _misses.reset();
+    }
+
+    @Override
+    public void initialize(SessionContext context) throws Exception
+    {
+        _map.initialize(context);
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        super.doStart();
+        _versioned = _map.isVersioned();
+        if (!_versioned)
+        {
+            if (_maxStaleMs > 0)
+                LOG.info("{} is not versioned, local copies are only used for maxStaleMs={}", _map, _maxStaleMs);
+            else
+                LOG.warn("{} is not versioned, sessions are always loaded from it", _map);
+        }
+    }
+
+    /**
+     * @return true if local copies are kept: the remote map is versioned or maxStaleMs is set
+     */
+    private boolean isKeepingCopies()
+    {
+        return _versioned || _maxStaleMs > 0;
+    }
+
+    @Override
+    public SessionData load(String id) throws Exception
+    {
+        Entry entry = _entries.get(id);
+        if (entry != null)
+        {
+            long now = System.currentTimeMillis();
+            if (_maxStaleMs > 0 && now - entry._checked < _maxStaleMs)
+            {
+                _hits.increment();
+                return copy(entry._data);
+            }
+
+            if (_versioned && _map.getVersion(id) == entry._data.getLastSaved())
+            {
+                entry._checked = now;
+                _hits.increment();
+                return copy(entry._data);
+            }
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("Stale local copy of session {}", id);
+            _entries.remove(id, entry);
+        }
+
+        //the data loaded from a versioned map has the version it was stored with
+        _misses.increment();
+        SessionData data = _map.load(id);
+        if (data != null && isKeepingCopies())
+            put(id, copy(data));
+        return data;
+    }
+
+    @Override
+    public void store(String id, SessionData data) throws Exception
+    {
+        try
+        {
+            _map.store(id, data);
+        }
+        catch (Exception e)
+        {
+            _entries.remove(id);
+            throw e;
+        }
+        if (isKeepingCopies())
+            put(id, copy(data));
+    }
+
+    @Override
+    public boolean delete(String id) throws Exception
+    {
+        _entries.remove(id);
+        return _map.delete(id);
+    }
+
+    @Override
+    public boolean isVersioned()
+    {
+        return _map.isVersioned();
+    }
+
+    @Override
+    public long getVersion(String id) throws Exception
+    {
+        return _map.getVersion(id);
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        _entries.clear();
+        super.doStop();
+    }
+
+    private void put(String id, SessionData data)
+    {
+        _entries.put(id, new Entry(data));
+
+        //make room by dropping arbitrary copies, which are cheap to reload
+        if (_maxEntries >= 0)
+        {
+            for (Iterator<String> i = _entries.keySet().iterator(); _entries.size() > _maxEntries && i.hasNext(); )
+            {
+                String key = i.next();
+                if (!key.equals(id))
+                    i.remove();
+            }
+        }
+    }
+
+    private static SessionData copy(SessionData data)
+    {
+        SessionData copy = new SessionData(data.getId(), data.getContextPath(), data.getVhost(), data.getCreated(),
+            data.getAccessed(), data.getLastAccessed(), data.getMaxInactiveMs());
+        copy.copy(data);
+        return copy;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[map=%s,entries=%d,maxEntries=%d,maxStaleMs=%d]", getClass().getSimpleName(), hashCode(), _map, _entries.size(), _maxEntries, _maxStaleMs);
+    }
+
+    /**
+     * A local copy of session data, and when its version was last checked.
+     */
+    private static class Entry
+    {
+        final SessionData _data;
+        volatile long _checked;
+
+        Entry(SessionData data)
+        {
+            _data = data;
+            _checked = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+/**
+ * NearCacheSessionDataMapFactory
+ */
+public class NearCacheSessionDataMapFactory implements SessionDataMapFactory
+{
+    /**
+     * The factory for the remote SessionDataMap.
+     */
+    protected SessionDataMapFactory _mapFactory;
+    protected int _maxEntries = 10000;
+    protected long _maxStaleMs = 0;
+
+    /**
+     * @param mapFactory the factory for the remote SessionDataMap that
+     * the NearCacheSessionDataMap will keep local copies of
+     */
+    public void setSessionDataMapFactory(SessionDataMapFactory mapFactory)
+    {
+        _mapFactory = mapFactory;
+    }
+
+    /**
+     * @return the max number of sessions to keep local copies of
+     */
+    public int getMaxEntries()
+    {
+        return _maxEntries;
+    }
+
+    /**
+     * @param maxEntries the max number of sessions to keep local copies of
+     */
+    public void setMaxEntries(int maxEntries)
+    {
+        _maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the max time in ms a local copy is used without checking its version
+     */
+    public long getMaxStaleMs()
+    {
+        return _maxStaleMs;
+    }
+
+    /**
+     * @param maxStaleMs the max time in ms a local copy is used without checking its version
+     */
+    public void setMaxStaleMs(long maxStaleMs)
+    {
+        _maxStaleMs = maxStaleMs;
+    }
+
+    /**
+     * @see org.eclipse.jetty.server.session.SessionDataMapFactory#getSessionDataMap()
+     */
+    @Override
+    public SessionDataMap getSessionDataMap()
+    {
+        NearCacheSessionDataMap map = new NearCacheSessionDataMap(_mapFactory.getSessionDataMap());
+        map.setMaxEntries(getMaxEntries());
+        map.setMaxStaleMs(getMaxStaleMs());
+        return map;
+    }
+}
@@ -18,6 +18,7 @@
 
 package org.eclipse.jetty.server.session;
 
+import java.util.Collection;
 import javax.servlet.http.HttpServletRequest;
 
 /**
@@ -75,6 +76,16 @@ public class NullSessionCache extends AbstractSessionCache
         return null;
     }
 
+    /**
+     * @see org.eclipse.jetty.server.session.AbstractSessionCache#warmup(java.util.Collection)
+     */
+    @Override
+    public int warmup(Collection<String> ids) throws Exception
+    {
+        //nothing is kept in the cache to warm up
+        return 0;
+    }
+
     /**
      * @see org.eclipse.jetty.server.session.AbstractSessionCache#doPutIfAbsent(java.lang.String, org.eclipse.jetty.server.session.Session)
      */
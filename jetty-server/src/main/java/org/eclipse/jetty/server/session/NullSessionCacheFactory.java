@@ -63,6 +63,7 @@ public class NullSessionCacheFactory extends AbstractSessionCacheFactory
         cache.setSaveOnCreate(isSaveOnCreate());
         cache.setRemoveUnloadableSessions(isRemoveUnloadableSessions());
         cache.setFlushOnResponseCommit(isFlushOnResponseCommit());
+        cache.setReadMostly(isReadMostly());
         return cache;
     }
 }
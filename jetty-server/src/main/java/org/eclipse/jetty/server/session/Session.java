@@ -25,6 +25,7 @@ import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.StampedLock;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSessionActivationListener;
@@ -98,6 +99,8 @@ public class Session implements SessionHandler.SessionIf
     protected Condition _stateChangeCompleted = _lock.newCondition();
     protected boolean _resident = false;
     protected final SessionInactivityTimer _sessionInactivityTimer;
+    protected final boolean _readMostly; // attributes and validity are read without the lock
+    protected final StampedLock _readLock = new StampedLock(); // validates lock free reads against changes of state, residency and attributes
 
     /**
      * SessionInactivityTimer
@@ -198,6 +201,9 @@ public class Session implements SessionHandler.SessionIf
         _newSession = true;
         _sessionData.setDirty(true);
         _sessionInactivityTimer = new SessionInactivityTimer();
+        _readMostly = isReadMostly(handler);
+        if (_readMostly)
+            _sessionData.setCopyOnWrite(true);
     }
 
     /**
@@ -211,6 +217,52 @@ public class Session implements SessionHandler.SessionIf
         _handler = handler;
         _sessionData = data;
         _sessionInactivityTimer = new SessionInactivityTimer();
+        _readMostly = isReadMostly(handler);
+        if (_readMostly)
+            _sessionData.setCopyOnWrite(true);
+    }
+
+    private static boolean isReadMostly(SessionHandler handler)
+    {
+        SessionCache cache = (handler == null ? null : handler.getSessionCache());
+        return cache != null && cache.isReadMostly();
+    }
+
+    /**
+     * Start a change that lock free reads must not see half done. Other
+     * changes are already excluded by the session lock, which is held for
+     * all changes except of residency.
+     *
+     * @return the stamp to end the change with
+     */
+    private long beginChange()
+    {
+        return _readMostly ? _readLock.writeLock() : 0L;
+    }
+
+    private void endChange(long stamp)
+    {
+        if (stamp != 0L)
+            _readLock.unlockWrite(stamp);
+    }
+
+    /**
+     * @return the stamp of a lock free read, or 0 if the session is not read lock free
+     */
+    private long beginRead()
+    {
+        return _readMostly ? _readLock.tryOptimisticRead() : 0L;
+    }
+
+    /**
+     * @param stamp the stamp of the lock free read
+     * @param state the state read
+     * @param resident the residency read
+     * @return true if the values read are consistent and readable, otherwise the read is retried with the lock
+     */
+    private boolean endRead(long stamp, State state, boolean resident)
+    {
+        return stamp != 0L && _readLock.validate(stamp) && resident && (state == State.VALID || state == State.CHANGING);
     }
 
     /**
@@ -425,6 +477,14 @@ public class Session implements SessionHandler.SessionIf
 
     public boolean isValid()
     {
+        long stamp = beginRead();
+        if (stamp != 0L)
+        {
+            State state = _state;
+            if (_readLock.validate(stamp))
+                return state == State.VALID;
+        }
+
         try (Lock lock = _lock.lock())
         {
             return _state == State.VALID;
@@ -433,6 +493,14 @@ public class Session implements SessionHandler.SessionIf
 
     public boolean isInvalid()
     {
+        long stamp = beginRead();
+        if (stamp != 0L)
+        {
+            State state = _state;
+            if (_readLock.validate(stamp))
+                return state == State.INVALID || state == State.INVALIDATING;
+        }
+
         try (Lock lock = _lock.lock())
         {
             return _state == State.INVALID || _state == State.INVALIDATING;
@@ -710,6 +778,16 @@ public class Session implements SessionHandler.SessionIf
     @Override
     public Object getAttribute(String name)
     {
+        long stamp = beginRead();
+        if (stamp != 0L)
+        {
+            State state = _state;
+            boolean resident = _resident;
+            Object value = _sessionData.getAttribute(name);
+            if (endRead(stamp, state, resident))
+                return value;
+        }
+
         try (Lock lock = _lock.lock())
         {
             checkValidForRead();
@@ -724,11 +802,7 @@ public class Session implements SessionHandler.SessionIf
     @Deprecated
     public Object getValue(String name)
     {
-        try (Lock lock = _lock.lock())
-        {
-            checkValidForRead();
-            return _sessionData.getAttribute(name);
-        }
+        return getAttribute(name);
     }
 
     /**
@@ -737,6 +811,16 @@ public class Session implements SessionHandler.SessionIf
     @Override
     public Enumeration<String> getAttributeNames()
     {
+        long stamp = beginRead();
+        if (stamp != 0L)
+        {
+            State state = _state;
+            boolean resident = _resident;
+            Set<String> names = _sessionData.getKeys(); //a snapshot, as the attributes are copied on write
+            if (endRead(stamp, state, resident))
+                return Collections.enumeration(names);
+        }
+
         try (Lock lock = _lock.lock())
         {
             checkValidForRead();
@@ -804,7 +888,7 @@ public class Session implements SessionHandler.SessionIf
         {
             // if session is not valid, don't accept the set
             checkValidForWrite();
-            old = _sessionData.setAttribute(name, value);
+            old = changeAttribute(name, value);
         }
         if (value == null && old == null)
             return; // if same as remove attribute but attribute was already
@@ -876,7 +960,7 @@ public class Session implements SessionHandler.SessionIf
                         continue;
 
                     case VALID:
-                        _state = State.CHANGING;
+                        setState(State.CHANGING);
                         break;
                     default:
                         throw new IllegalStateException();
@@ -907,7 +991,7 @@ public class Session implements SessionHandler.SessionIf
                     setExtendedId(_handler._sessionIdManager.getExtendedId(newId, request));
                     setIdChanged(true);
 
-                    _state = State.VALID;
+                    setState(State.VALID);
                     _stateChangeCompleted.signalAll();
                     break;
 
@@ -963,6 +1047,40 @@ public class Session implements SessionHandler.SessionIf
         }
     }
 
+    /**
+     * @param state the new state of the session, changed with the lock held
+     */
+    private void setState(State state)
+    {
+        long stamp = beginChange();
+        try
+        {
+            _state = state;
+        }
+        finally
+        {
+            endChange(stamp);
+        }
+    }
+
+    /**
+     * @param name the attribute name
+     * @param value the new value of the attribute, changed with the lock held
+     * @return the previous value of the attribute
+     */
+    private Object changeAttribute(String name, Object value)
+    {
+        long stamp = beginChange();
+        try
+        {
+            return _sessionData.setAttribute(name, value);
+        }
+        finally
+        {
+            endChange(stamp);
+        }
+    }
+
     /**
      * Grab the lock on the session
      *
@@ -1019,7 +1137,7 @@ public class Session implements SessionHandler.SessionIf
                         // only first change from valid to invalidating should
                         // be actionable
                         result = true;
-                        _state = State.INVALIDATING;
+                        setState(State.INVALIDATING);
                         break;
                     }
                     default:
@@ -1064,7 +1182,7 @@ public class Session implements SessionHandler.SessionIf
                         keys = _sessionData.getKeys();
                         for (String key : keys)
                         {
-                            Object old = _sessionData.setAttribute(key, null);
+                            Object old = changeAttribute(key, null);
                             // if same as remove attribute but attribute was
                             // already removed, no change
                             if (old == null)
@@ -1078,7 +1196,7 @@ public class Session implements SessionHandler.SessionIf
             finally
             {
                 // mark as invalid
-                _state = State.INVALID;
+                setState(State.INVALID);
                 _handler.recordSessionTime(this);
                 _stateChangeCompleted.signalAll();
             }
@@ -1128,7 +1246,15 @@ public class Session implements SessionHandler.SessionIf
      */
     public void setResident(boolean resident)
     {
-        _resident = resident;
+        long stamp = beginChange();
+        try
+        {
+            _resident = resident;
+        }
+        finally
+        {
+            endChange(stamp);
+        }
 
         if (!_resident)
             _sessionInactivityTimer.destroy();
@@ -18,6 +18,7 @@
 
 package org.eclipse.jetty.server.session;
 
+import java.util.Collection;
 import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 
@@ -129,6 +130,20 @@ public interface SessionCache extends LifeCycle
      */
     void add(String id, Session session) throws Exception;
 
+    /**
+     * Load sessions from the configured SessionDataStore into the cache
+     * before they are first requested. Sessions that are already in the
+     * cache, no longer exist or have expired are skipped.
+     *
+     * @param ids the ids of the sessions to load
+     * @return the number of sessions added to the cache
+     * @throws Exception if the sessions could not be loaded
+     */
+    default int warmup(Collection<String> ids) throws Exception
+    {
+        return 0;
+    }
+
     /**
      * Get an existing Session. If necessary, the cache will load the data for
      * the session from the configured SessionDataStore.
@@ -312,4 +327,19 @@ public interface SessionCache extends LifeCycle
      * before the response is committed.
      */
     boolean isFlushOnResponseCommit();
+
+    /**
+     * If true, the attributes and validity of sessions are read without
+     * locking the session, and each change of an attribute copies the
+     * session's attributes. This suits sessions whose attributes are read
+     * by many concurrent requests, and rarely changed.
+     *
+     * @param readMostly <code>true</code> to read sessions without locking them
+     */
+    void setReadMostly(boolean readMostly);
+
+    /**
+     * @return <code>true</code> if sessions are read without locking them
+     */
+    boolean isReadMostly();
 }
@@ -21,6 +21,8 @@ package org.eclipse.jetty.server.session;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -55,10 +57,12 @@ public class SessionData implements Serializable
     protected long _accessed;         // the time of the last access
     protected long _lastAccessed;     // the time of the last access excluding this one
     protected long _maxInactiveMs;
-    protected Map<String, Object> _attributes;
+    protected volatile Map<String, Object> _attributes;
+    protected transient boolean _copyOnWrite; //attribute changes replace the attribute map
     protected boolean _dirty;
     protected long _lastSaved; //time in msec since last save
     protected boolean _metaDataDirty; //non-attribute data has changed
+    protected transient Set<String> _dirtyAttributes = ConcurrentHashMap.newKeySet(); //names of attributes changed since last save
 
     /**
      * Serialize the attribute map of the session.
@@ -80,41 +84,55 @@ public class SessionData implements Serializable
             out.writeUTF(entry.getKey());
 
             Class<?> clazz = entry.getValue().getClass();
-            ClassLoader loader = clazz.getClassLoader();
-            ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
-            boolean isContextLoader;
+            boolean isServerLoader = isServerLoader(clazz);
+            if (LOG.isDebugEnabled())
+                LOG.debug("Attribute {} class={} isServerLoader={}", entry.getKey(), clazz.getName(), isServerLoader);
+            out.writeBoolean(isServerLoader);
+            out.writeObject(entry.getValue());
+        }
+    }
+
+    /**
+     * Determine which classloader should be used to load an attribute value of the given class
+     * when it is deserialized: the webapp's classloader if it can load the class, otherwise the
+     * container classloader.
+     *
+     * @param clazz the class of the attribute value
+     * @return true if the container classloader should be used
+     */
+    static boolean isServerLoader(Class<?> clazz)
+    {
+        ClassLoader loader = clazz.getClassLoader();
+        ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        boolean isContextLoader;
 
-            if (loader == contextLoader) //is it the context classloader?
-                isContextLoader = true;
-            else if (contextLoader == null) //not context classloader
-                isContextLoader = false;
-            else if (contextLoader instanceof ClassVisibilityChecker)
+        if (loader == contextLoader) //is it the context classloader?
+            isContextLoader = true;
+        else if (contextLoader == null) //not context classloader
+            isContextLoader = false;
+        else if (contextLoader instanceof ClassVisibilityChecker)
+        {
+            //Clazz not loaded by context classloader, but ask if loadable by context classloader,
+            //because preferable to use context classloader if possible (eg for deep structures).
+            ClassVisibilityChecker checker = (ClassVisibilityChecker)(contextLoader);
+            isContextLoader = (checker.isSystemClass(clazz) && !(checker.isServerClass(clazz)));
+        }
+        else
+        {
+            //Class wasn't loaded by context classloader, but try loading from context loader,
+            //because preferable to use context classloader if possible (eg for deep structures).
+            try
             {
-                //Clazz not loaded by context classloader, but ask if loadable by context classloader,
-                //because preferable to use context classloader if possible (eg for deep structures).
-                ClassVisibilityChecker checker = (ClassVisibilityChecker)(contextLoader);
-                isContextLoader = (checker.isSystemClass(clazz) && !(checker.isServerClass(clazz)));
+                Class<?> result = contextLoader.loadClass(clazz.getName());
+                isContextLoader = (result == clazz); //only if TTCL loaded this instance of the class
             }
-            else
+            catch (Throwable e)
             {
-                //Class wasn't loaded by context classloader, but try loading from context loader,
-                //because preferable to use context classloader if possible (eg for deep structures).
-                try
-                {
-                    Class<?> result = contextLoader.loadClass(clazz.getName());
-                    isContextLoader = (result == clazz); //only if TTCL loaded this instance of the class
-                }
-                catch (Throwable e)
-                {
-                    isContextLoader = false; //TCCL can't see the class
-                }
+                isContextLoader = false; //TCCL can't see the class
             }
-
-            if (LOG.isDebugEnabled())
-                LOG.debug("Attribute {} class={} isServerLoader={}", entry.getKey(), clazz.getName(), (!isContextLoader));
-            out.writeBoolean(!isContextLoader);
-            out.writeObject(entry.getValue());
         }
+
+        return !isContextLoader;
     }
 
     /**
@@ -271,7 +289,18 @@ public class SessionData implements Serializable
 
     public Object setAttribute(String name, Object value)
     {
-        Object old = (value == null ? _attributes.remove(name) : _attributes.put(name, value));
+        Object old;
+        if (_copyOnWrite)
+        {
+            synchronized (this)
+            {
+                Map<String, Object> attributes = new HashMap<>(_attributes);
+                old = (value == null ? attributes.remove(name) : attributes.put(name, value));
+                _attributes = attributes;
+            }
+        }
+        else
+            old = (value == null ? _attributes.remove(name) : _attributes.put(name, value));
         if (value == null && old == null)
             return old; //if same as remove attribute but attribute was already removed, no change
 
@@ -281,9 +310,42 @@ public class SessionData implements Serializable
 
     public void setDirty(String name)
     {
+        _dirtyAttributes.add(name);
         setDirty(true);
     }
 
+    /**
+     * @return the names of the attributes set or removed since the session was last saved
+     */
+    public Set<String> getDirtyAttributes()
+    {
+        return Collections.unmodifiableSet(_dirtyAttributes);
+    }
+
+    /**
+     * Take the names of the attributes set or removed since the session
+     * was last saved. Attributes changed after this call will be returned
+     * by the next call.
+     *
+     * @return the names of the changed attributes
+     */
+    public Set<String> takeDirtyAttributes()
+    {
+        Set<String> names = new HashSet<>(_dirtyAttributes);
+        _dirtyAttributes.removeAll(names);
+        return names;
+    }
+
+    /**
+     * Mark attributes as changed again, eg because saving them failed.
+     *
+     * @param names the names of the changed attributes
+     */
+    public void addDirtyAttributes(Set<String> names)
+    {
+        _dirtyAttributes.addAll(names);
+    }
+
     /**
      * Clear all dirty flags.
      */
@@ -295,7 +357,17 @@ public class SessionData implements Serializable
 
     public void putAllAttributes(Map<String, Object> attributes)
     {
-        _attributes.putAll(attributes);
+        if (_copyOnWrite)
+        {
+            synchronized (this)
+            {
+                Map<String, Object> copy = new HashMap<>(_attributes);
+                copy.putAll(attributes);
+                _attributes = copy;
+            }
+        }
+        else
+            _attributes.putAll(attributes);
     }
 
     /**
@@ -303,7 +375,42 @@ public class SessionData implements Serializable
      */
     public void clearAllAttributes()
     {
-        _attributes.clear();
+        if (_copyOnWrite)
+        {
+            synchronized (this)
+            {
+                _attributes = new HashMap<>();
+            }
+        }
+        else
+            _attributes.clear();
+    }
+
+    /**
+     * @return true if changing an attribute replaces the attribute map
+     */
+    public boolean isCopyOnWrite()
+    {
+        return _copyOnWrite;
+    }
+
+    /**
+     * Set whether changing an attribute replaces the attribute map with a changed copy,
+     * rather than changing the map. Reads of a copy on write map are cheaper and
+     * the attribute names are a snapshot, but each change copies all the attributes,
+     * so it suits sessions whose attributes are read much more often than changed.
+     *
+     * @param copyOnWrite true to copy the attribute map on each change
+     */
+    public void setCopyOnWrite(boolean copyOnWrite)
+    {
+        synchronized (this)
+        {
+            if (copyOnWrite == _copyOnWrite)
+                return;
+            _attributes = copyOnWrite ? new HashMap<>(_attributes) : new ConcurrentHashMap<>(_attributes);
+            _copyOnWrite = copyOnWrite;
+        }
     }
 
     /**
@@ -487,6 +594,7 @@ public class SessionData implements Serializable
         _lastNode = in.readUTF(); //last managing node
         _expiry = in.readLong();
         _maxInactiveMs = in.readLong();
+        _dirtyAttributes = ConcurrentHashMap.newKeySet();
         deserializeAttributes(this, in);
     }
 
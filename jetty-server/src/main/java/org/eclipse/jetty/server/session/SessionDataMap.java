@@ -63,4 +63,30 @@ public interface SessionDataMap extends LifeCycle
      * @throws Exception if unable to delete session data
      */
     boolean delete(String id) throws Exception;
+
+    /**
+     * @return true if the map keeps versions of the session data: {@link #getVersion(String)}
+     * is supported, and the session data loaded has the {@link SessionData#getLastSaved() lastSaved}
+     * time it was stored with
+     */
+    default boolean isVersioned()
+    {
+        return false;
+    }
+
+    /**
+     * Get the version of the session data, if possible without reading the session data.
+     * The version is the {@link SessionData#getLastSaved() lastSaved} time of
+     * the session data when it was stored.
+     *
+     * @param id identity of session
+     * @return the version of the session data, or -1 if there is no session data
+     * or it was stored without a version
+     * @throws Exception if unable to read the version
+     * @throws UnsupportedOperationException if the map is not {@link #isVersioned() versioned}
+     */
+    default long getVersion(String id) throws Exception
+    {
+        throw new UnsupportedOperationException("Versions not supported by " + getClass().getName());
+    }
 }
@@ -0,0 +1,55 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * SessionDataSerializer
+ *
+ * Converts the attributes of a {@link SessionData} to and from the bytes
+ * persisted by a {@link SessionDataStore}.
+ *
+ * The attributes are always the last item written to, and read from, a stream,
+ * so implementations may buffer beyond the end of the attributes when reading.
+ * Implementations must flush, but not close, the stream when writing.
+ */
+public interface SessionDataSerializer
+{
+    /**
+     * Serialize the attributes of the session.
+     *
+     * @param data the SessionData for which to serialize the attributes
+     * @param out the stream to which to serialize
+     * @throws IOException if the attributes cannot be written
+     */
+    void serializeAttributes(SessionData data, OutputStream out) throws IOException;
+
+    /**
+     * De-serialize the attributes of a session, replacing any existing attributes.
+     *
+     * @param data the SessionData for which to deserialize the attributes
+     * @param in the stream from which to deserialize
+     * @throws IOException if the attributes cannot be read
+     * @throws ClassNotFoundException if the class of an attribute value cannot be loaded
+     */
+    void deserializeAttributes(SessionData data, InputStream in) throws IOException, ClassNotFoundException;
+}
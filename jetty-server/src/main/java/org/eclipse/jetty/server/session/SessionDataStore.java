@@ -18,8 +18,15 @@
 
 package org.eclipse.jetty.server.session;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.jetty.util.log.Log;
+
 /**
  * SessionDataStore
  *
@@ -68,4 +75,51 @@ public interface SessionDataStore extends SessionDataMap
      * @throws Exception if problem checking existence with persistence layer
      */
     boolean exists(String id) throws Exception;
+
+    /**
+     * Get the ids of the unexpired sessions of the context that were most
+     * recently accessed, most recent first. Used to warm up a
+     * {@link SessionCache} when a context starts.
+     *
+     * @param max the max number of ids to return
+     * @param lastNode if not null, only return sessions last managed by this node;
+     * stores that do not record the last node of a session may ignore it
+     * @return the ids of the most recently accessed sessions, which
+     * is empty if the store cannot find them
+     * @throws Exception if unable to query the persistence layer
+     */
+    default List<String> getMostRecentlyAccessed(int max, String lastNode) throws Exception
+    {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Read in the session data for many sessions. By default each
+     * session is loaded as if by {@link #load(String)}; stores able
+     * to read many sessions at once may override.
+     *
+     * @param ids identities of the sessions to load
+     * @return the SessionData of the ids, which omits sessions that
+     * do not exist, and maps sessions that cannot be read to null
+     * @throws Exception if unable to load session data
+     */
+    default Map<String, SessionData> loadAll(Collection<String> ids) throws Exception
+    {
+        Map<String, SessionData> loaded = new HashMap<>();
+        for (String id : ids)
+        {
+            try
+            {
+                SessionData data = load(id);
+                if (data != null)
+                    loaded.put(id, data);
+            }
+            catch (UnreadableSessionDataException e)
+            {
+                Log.getLogger("org.eclipse.jetty.server.session").warn(e);
+                loaded.put(id, null);
+            }
+        }
+        return loaded;
+    }
 }
@@ -0,0 +1,159 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * SessionExpiryIndex
+ *
+ * An index of session ids ordered by expiry time, so that a SessionDataStore
+ * can find the expired sessions in time proportional to their number, rather
+ * than to the number of sessions it holds. Sessions that never expire are not
+ * indexed.
+ */
+public class SessionExpiryIndex
+{
+    private final Map<String, Long> _expiries = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> _index = new ConcurrentSkipListSet<>();
+
+    /**
+     * Set the expiry time of a session.
+     *
+     * @param id the session id
+     * @param expiry the expiry time, or 0 or less if the session never expires
+     */
+    public void update(String id, long expiry)
+    {
+        _expiries.compute(id, (k, previous) ->
+        {
+            if (previous != null)
+            {
+                if (previous == expiry)
+                    return previous;
+                _index.remove(new Entry(previous, id));
+            }
+            if (expiry <= 0)
+                return null;
+            _index.add(new Entry(expiry, id));
+            return expiry;
+        });
+    }
+
+    /**
+     * @param id the session id to remove from the index
+     */
+    public void remove(String id)
+    {
+        _expiries.computeIfPresent(id, (k, expiry) ->
+        {
+            _index.remove(new Entry(expiry, id));
+            return null;
+        });
+    }
+
+    /**
+     * @param time the time in ms
+     * @return the ids of the sessions that expire before the time
+     */
+    public Set<String> getExpiredBefore(long time)
+    {
+        Set<String> expired = new HashSet<>();
+        for (Entry entry : _index.headSet(new Entry(time, ""), false))
+        {
+            expired.add(entry._id);
+        }
+        return expired;
+    }
+
+    /**
+     * @param max the max number of ids to return
+     * @param time the time in ms
+     * @return the ids of the sessions that expire after the time, latest expiry first
+     */
+    public List<String> getLatestExpiringAfter(int max, long time)
+    {
+        List<String> latest = new ArrayList<>();
+        for (Entry entry : _index.tailSet(new Entry(time + 1, ""), true).descendingSet())
+        {
+            if (latest.size() >= max)
+                break;
+            latest.add(entry._id);
+        }
+        return latest;
+    }
+
+    /**
+     * @return the number of sessions indexed
+     */
+    public int size()
+    {
+        return _expiries.size();
+    }
+
+    public void clear()
+    {
+        _expiries.clear();
+        _index.clear();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[size=%d]", getClass().getSimpleName(), hashCode(), size());
+    }
+
+    private static class Entry implements Comparable<Entry>
+    {
+        private final long _expiry;
+        private final String _id;
+
+        private Entry(long expiry, String id)
+        {
+            _expiry = expiry;
+            _id = id;
+        }
+
+        @Override
+        public int compareTo(Entry o)
+        {
+            int c = Long.compare(_expiry, o._expiry);
+            return c != 0 ? c : _id.compareTo(o._id);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof Entry && compareTo((Entry)o) == 0;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Long.hashCode(_expiry) * 31 + _id.hashCode();
+        }
+    }
+}
@@ -29,6 +29,11 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.servlet.DispatcherType;
 import javax.servlet.ServletException;
 import javax.servlet.SessionCookieConfig;
@@ -197,6 +202,12 @@ public class SessionHandler extends ScopedHandler
     protected Scheduler _scheduler;
     protected boolean _ownScheduler = false;
 
+    protected int _warmupSessions = 0; //max sessions to load into the cache on start, 0 for no warmup
+    protected long _warmupTimeMs = 10000;
+    protected int _warmupBatchSize = 100;
+    protected boolean _warmupAffinity = true;
+    protected volatile int _warmedSessions;
+
     /**
      * Constructor.
      */
@@ -502,6 +513,82 @@ public class SessionHandler extends ScopedHandler
         _sessionContext = new SessionContext(_sessionIdManager.getWorkerName(), _context);
         _sessionCache.initialize(_sessionContext);
         super.doStart();
+
+        if (_warmupSessions > 0)
+            warmupSessionCache();
+    }
+
+    /**
+     * Load the most recently accessed sessions into the SessionCache, so that
+     * the first requests after a restart do not all load their sessions from the
+     * SessionDataStore. The sessions are loaded in batches in parallel by the
+     * server's thread pool, and the wait for them is limited by the warmup time.
+     *
+     * @throws InterruptedException if interrupted waiting for the sessions to load
+     * @see #setWarmupSessions(int)
+     */
+    protected void warmupSessionCache() throws InterruptedException
+    {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(_warmupTimeMs);
+
+        List<String> ids;
+        try
+        {
+            //with session affinity, requests return to the node that last managed their session
+            String lastNode = _warmupAffinity ? _sessionContext.getWorkerName() : null;
+            ids = _sessionCache.getSessionDataStore().getMostRecentlyAccessed(_warmupSessions, lastNode);
+        }
+        catch (Exception e)
+        {
+            LOG.warn("Unable to find sessions to warm up", e);
+            return;
+        }
+
+        if (ids.isEmpty())
+            return;
+
+        int batchSize = Math.max(1, _warmupBatchSize);
+        CountDownLatch latch = new CountDownLatch((ids.size() + batchSize - 1) / batchSize);
+        AtomicInteger warmed = new AtomicInteger();
+        Executor executor = getServer().getThreadPool();
+        for (int i = 0; i < ids.size(); i += batchSize)
+        {
+            List<String> batch = ids.subList(i, Math.min(ids.size(), i + batchSize));
+            Runnable task = () ->
+            {
+                try
+                {
+                    if (System.nanoTime() - deadline < 0)
+                        warmed.addAndGet(_sessionCache.warmup(batch));
+                }
+                catch (Throwable x)
+                {
+                    LOG.warn("Unable to warm up sessions", x);
+                }
+                finally
+                {
+                    latch.countDown();
+                }
+            };
+
+            try
+            {
+                executor.execute(task);
+            }
+            catch (RejectedExecutionException e)
+            {
+                task.run();
+            }
+        }
+
+        boolean complete = latch.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        _warmedSessions = warmed.get();
+        if (LOG.isDebugEnabled())
+            LOG.debug("Warmed up {} of {} sessions for {} in {}ms{}", _warmedSessions, ids.size(), this,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), complete ? "" : ", time exceeded");
+        else if (!complete)
+            LOG.info("Warmed up {} of {} sessions before the warmup time of {}ms was exceeded", _warmedSessions, ids.size(), _warmupTimeMs);
     }
 
     /*
@@ -567,6 +654,91 @@ public class SessionHandler extends ScopedHandler
         return _dftMaxIdleSecs;
     }
 
+    /**
+     * @return the max number of sessions loaded into the SessionCache on start, or 0 for none
+     */
+    @ManagedAttribute("max sessions loaded into the cache on start, 0 for none")
+    public int getWarmupSessions()
+    {
+        return _warmupSessions;
+    }
+
+    /**
+     * Set the max number of the most recently accessed sessions to load into the
+     * SessionCache when the context starts. The SessionDataStore must be able to
+     * find its most recently accessed sessions, as the JDBC and file stores can.
+     *
+     * @param warmupSessions the max number of sessions to load on start, or 0 for none
+     */
+    public void setWarmupSessions(int warmupSessions)
+    {
+        _warmupSessions = warmupSessions;
+    }
+
+    /**
+     * @return the max time in ms that start waits for the sessions to load
+     */
+    @ManagedAttribute("max time start waits for sessions to load into the cache (in ms)")
+    public long getWarmupTimeMs()
+    {
+        return _warmupTimeMs;
+    }
+
+    /**
+     * @param warmupTimeMs the max time in ms that start waits for the sessions to load;
+     * batches of sessions not started loading by then are skipped
+     */
+    public void setWarmupTimeMs(long warmupTimeMs)
+    {
+        _warmupTimeMs = warmupTimeMs;
+    }
+
+    /**
+     * @return the number of sessions loaded together by a thread of the warmup
+     */
+    @ManagedAttribute("number of sessions loaded together by a thread of the warmup")
+    public int getWarmupBatchSize()
+    {
+        return _warmupBatchSize;
+    }
+
+    /**
+     * @param warmupBatchSize the number of sessions loaded together by a thread of the warmup
+     */
+    public void setWarmupBatchSize(int warmupBatchSize)
+    {
+        _warmupBatchSize = warmupBatchSize;
+    }
+
+    /**
+     * @return true if only the sessions last managed by this node are loaded on start
+     */
+    @ManagedAttribute("if true, only sessions last managed by this node are loaded on start")
+    public boolean isWarmupAffinity()
+    {
+        return _warmupAffinity;
+    }
+
+    /**
+     * With session affinity, the requests for a session return to the node
+     * that last managed it, so only those sessions are worth loading on start.
+     *
+     * @param warmupAffinity true to only load the sessions last managed by this node
+     */
+    public void setWarmupAffinity(boolean warmupAffinity)
+    {
+        _warmupAffinity = warmupAffinity;
+    }
+
+    /**
+     * @return the number of sessions loaded into the SessionCache on the last start
+     */
+    @ManagedAttribute("sessions loaded into the cache on the last start")
+    public int getWarmedSessions()
+    {
+        return _warmedSessions;
+    }
+
     @ManagedAttribute("time before a session cookie is re-set (in s)")
     public int getRefreshCookieAge()
     {
@@ -0,0 +1,471 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.Locker;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+/**
+ * WriteBehindSessionDataStore
+ *
+ * A SessionDataStore that delegates to another SessionDataStore, but does not
+ * store sessions while the request that released them waits. Instead a snapshot
+ * of the session is queued, and queued sessions are written in batches by a
+ * background thread at most {@link #getFlushDelayMs()} after they were queued,
+ * or as soon as {@link #getMaxBatchSize()} sessions are queued. Repeated writes
+ * of the same session before it is flushed are coalesced into one.
+ *
+ * Loading or deleting a queued session first flushes or discards the queued
+ * write, and all queued writes are flushed when this store is stopped. Queued
+ * writes are lost if the process does not stop gracefully.
+ */
+@ManagedObject
+public class WriteBehindSessionDataStore extends ContainerLifeCycle implements SessionDataStore
+{
+    private static final Logger LOG = Log.getLogger("org.eclipse.jetty.server.session");
+
+    /**
+     * The actual store for the session data
+     */
+    protected SessionDataStore _store;
+
+    private final Map<String, Pending> _pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean _scheduled = new AtomicBoolean();
+    private final AtomicBoolean _batchFull = new AtomicBoolean();
+    private final Locker _locker = new Locker();
+    private Scheduler _scheduler;
+    private long _flushDelayMs = 1000;
+    private int _maxBatchSize = 64;
+    private final AtomicLong _flushes = new AtomicLong();
+    private final AtomicLong _coalesced = new AtomicLong();
+
+    /**
+     * @param store the actual store for the session data
+     */
+    public WriteBehindSessionDataStore(SessionDataStore store)
+    {
+        _store = store;
+        addBean(_store, true);
+    }
+
+    /**
+     * @return the delegate session store
+     */
+    public SessionDataStore getSessionStore()
+    {
+        return _store;
+    }
+
+    @ManagedAttribute(value = "max time in ms a session waits to be stored", readonly = true)
+    public long getFlushDelayMs()
+    {
+        return _flushDelayMs;
+    }
+
+    /**
+     * @param flushDelayMs the max time in ms between queuing a session and storing it
+     */
+    public void setFlushDelayMs(long flushDelayMs)
+    {
+        _flushDelayMs = flushDelayMs;
+    }
+
+    @ManagedAttribute(value = "max number of sessions stored in a batch", readonly = true)
+    public int getMaxBatchSize()
+    {
+        return _maxBatchSize;
+    }
+
+    /**
+     * @param maxBatchSize the number of queued sessions that triggers a flush, and the max stored in a batch
+     */
+    public void setMaxBatchSize(int maxBatchSize)
+    {
+        _maxBatchSize = maxBatchSize;
+    }
+
+    @ManagedAttribute("number of sessions waiting to be stored")
+    public int getPendingCount()
+    {
+        return _pending.size();
+    }
+
+    @ManagedAttribute("number of batches stored")
+    public long getFlushCount()
+    {
+        return _flushes.get();
+    }
+
+    @ManagedAttribute("number of writes coalesced with a queued write")
+    public long getCoalescedCount()
+    {
+        return _coalesced.get();
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        _scheduler = new ScheduledExecutorScheduler(String.format("Session-WriteBehind-%x", hashCode()), true);
+        _scheduler.start();
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        _scheduler.stop();
+        _scheduled.set(false);
+        _batchFull.set(false);
+        flush();
+        if (!_pending.isEmpty())
+            LOG.warn("Unable to store {} sessions on stop", _pending.size());
+        _pending.clear();
+        super.doStop();
+    }
+
+    /**
+     * @see org.eclipse.jetty.server.session.SessionDataStore#store(java.lang.String, org.eclipse.jetty.server.session.SessionData)
+     */
+    @Override
+    public void store(String id, SessionData data) throws Exception
+    {
+        if (!isStarted())
+            throw new IllegalStateException("Not started");
+
+        if (data == null)
+            return;
+
+        if (!data.isDirty() && !data.isMetaDataDirty() && data.getLastSaved() > 0)
+            return; //nothing to store
+
+        if (_store instanceof AbstractSessionDataStore && !((AbstractSessionDataStore)_store).isStoreRequired(id, data))
+            return; //not yet time to store the metadata
+
+        //take a snapshot, which is called with the session locked
+        SessionData snapshot = _store.newSessionData(id, data.getCreated(), data.getAccessed(), data.getLastAccessed(), data.getMaxInactiveMs());
+        snapshot.copy(data);
+        snapshot.setMetaDataDirty(data.isMetaDataDirty());
+        snapshot.addDirtyAttributes(data.takeDirtyAttributes());
+        snapshot.setDirty(data.isDirty());
+
+        //the session is only changed here, while it is locked: from now on the snapshot
+        //is responsible for storing the changes, and is queued again if storing it fails
+        data.setLastSaved(System.currentTimeMillis());
+        data.setDirty(false);
+        data.setMetaDataDirty(false);
+
+        Pending previous = _pending.put(id, new Pending(snapshot));
+        if (previous != null)
+        {
+            _coalesced.incrementAndGet();
+            merge(snapshot, previous._snapshot);
+        }
+
+        if (_pending.size() >= _maxBatchSize)
+        {
+            if (_batchFull.compareAndSet(false, true))
+                _scheduler.schedule(this::batchFullFlush, 0, TimeUnit.MILLISECONDS);
+        }
+        else if (_scheduled.compareAndSet(false, true))
+            _scheduler.schedule(this::scheduledFlush, _flushDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void batchFullFlush()
+    {
+        //cleared first, so that a batch filled while flushing schedules another flush
+        _batchFull.set(false);
+        flush();
+    }
+
+    private void scheduledFlush()
+    {
+        _scheduled.set(false);
+        flush();
+        if (!_pending.isEmpty() && isRunning() && _scheduled.compareAndSet(false, true))
+            _scheduler.schedule(this::scheduledFlush, _flushDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Keep the unstored changes of an older snapshot of a session in a newer snapshot.
+     *
+     * @param snapshot the newer snapshot
+     * @param older the older snapshot
+     */
+    private static void merge(SessionData snapshot, SessionData older)
+    {
+        snapshot.addDirtyAttributes(older.getDirtyAttributes());
+        if (older.isDirty())
+            snapshot.setDirty(true);
+        if (older.isMetaDataDirty())
+            snapshot.setMetaDataDirty(true);
+        //a session never stored must still be inserted
+        if (older.getLastSaved() < snapshot.getLastSaved())
+            snapshot.setLastSaved(older.getLastSaved());
+    }
+
+    /**
+     * Store all queued sessions now. Sessions that fail to be stored
+     * are queued again, and retried by the next flush.
+     */
+    @ManagedOperation(value = "store all queued sessions", impact = "ACTION")
+    public void flush()
+    {
+        //only the sessions queued now, so that failures queued again are not retried in a loop
+        Set<String> ids = new HashSet<>(_pending.keySet());
+        while (!ids.isEmpty())
+        {
+            try (Locker.Lock lock = _locker.lock())
+            {
+                List<Pending> batch = new ArrayList<>();
+                for (Iterator<String> i = ids.iterator(); i.hasNext() && batch.size() < _maxBatchSize; )
+                {
+                    String id = i.next();
+                    i.remove();
+                    Pending pending = _pending.get(id);
+                    //a newer write queued since the get is left for the next batch
+                    if (pending != null && _pending.remove(id, pending))
+                        batch.add(pending);
+                }
+                if (!batch.isEmpty())
+                    write(batch);
+            }
+        }
+    }
+
+    private void write(List<Pending> batch)
+    {
+        List<SessionData> snapshots = new ArrayList<>(batch.size());
+        for (Pending pending : batch)
+        {
+            pending._lastSaved = pending._snapshot.getLastSaved();
+            snapshots.add(pending._snapshot);
+        }
+
+        boolean failed = false;
+        try
+        {
+            if (_store instanceof AbstractSessionDataStore)
+            {
+                ((AbstractSessionDataStore)_store).storeAll(snapshots);
+            }
+            else
+            {
+                for (SessionData snapshot : snapshots)
+                {
+                    _store.store(snapshot.getId(), snapshot);
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            failed = true;
+            LOG.warn("Unable to store {} sessions", batch.size(), e);
+        }
+        finally
+        {
+            _flushes.incrementAndGet();
+        }
+
+        if (failed)
+        {
+            for (Pending pending : batch)
+            {
+                if (pending.isStored())
+                    continue;
+
+                //queue the snapshot again, keeping its changes behind any newer write
+                SessionData snapshot = pending._snapshot;
+                _pending.merge(snapshot.getId(), pending, (newer, older) ->
+                {
+                    merge(newer._snapshot, older._snapshot);
+                    return newer;
+                });
+            }
+            if (isRunning() && _scheduled.compareAndSet(false, true))
+                _scheduler.schedule(this::scheduledFlush, _flushDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @see org.eclipse.jetty.server.session.SessionDataStore#load(java.lang.String)
+     */
+    @Override
+    public SessionData load(String id) throws Exception
+    {
+        if (_pending.containsKey(id))
+        {
+            try (Locker.Lock lock = _locker.lock())
+            {
+                Pending pending = _pending.remove(id);
+                if (pending != null)
+                {
+                    List<Pending> batch = new ArrayList<>(1);
+                    batch.add(pending);
+                    write(batch);
+                }
+            }
+        }
+        return _store.load(id);
+    }
+
+    /**
+     * @see org.eclipse.jetty.server.session.SessionDataStore#loadAll(java.util.Collection)
+     */
+    @Override
+    public Map<String, SessionData> loadAll(Collection<String> ids) throws Exception
+    {
+        //sessions with pending writes are written before being loaded
+        List<String> unpending = new ArrayList<>(ids.size());
+        Map<String, SessionData> loaded = new HashMap<>();
+        for (String id : ids)
+        {
+            if (_pending.containsKey(id))
+            {
+                SessionData data = load(id);
+                if (data != null)
+                    loaded.put(id, data);
+            }
+            else
+                unpending.add(id);
+        }
+
+        loaded.putAll(_store.loadAll(unpending));
+        return loaded;
+    }
+
+    /**
+     * @see org.eclipse.jetty.server.session.SessionDataStore#delete(java.lang.String)
+     */
+    @Override
+    public boolean delete(String id) throws Exception
+    {
+        try (Locker.Lock lock = _locker.lock())
+        {
+            boolean pending = _pending.remove(id) != null;
+            return _store.delete(id) || pending;
+        }
+    }
+
+    /**
+     * @see org.eclipse.jetty.server.session.SessionDataStore#getExpired(Set)
+     */
+    @Override
+    public Set<String> getExpired(Set<String> candidates)
+    {
+        //pass thru to the delegate store
+        return _store.getExpired(candidates);
+    }
+
+    /**
+     * @see org.eclipse.jetty.server.session.SessionDataStore#getMostRecentlyAccessed(int, java.lang.String)
+     */
+    @Override
+    public List<String> getMostRecentlyAccessed(int max, String lastNode) throws Exception
+    {
+        //pass thru to the delegate store
+        return _store.getMostRecentlyAccessed(max, lastNode);
+    }
+
+    /**
+     * @see org.eclipse.jetty.server.session.SessionDataStore#isPassivating()
+     */
+    @Override
+    public boolean isPassivating()
+    {
+        return _store.isPassivating();
+    }
+
+    /**
+     * @see org.eclipse.jetty.server.session.SessionDataStore#exists(java.lang.String)
+     */
+    @Override
+    public boolean exists(String id) throws Exception
+    {
+        return _pending.containsKey(id) || _store.exists(id);
+    }
+
+    /**
+     * @see org.eclipse.jetty.server.session.SessionDataStore#initialize(org.eclipse.jetty.server.session.SessionContext)
+     */
+    @Override
+    public void initialize(SessionContext context) throws Exception
+    {
+        //pass through
+        _store.initialize(context);
+    }
+
+    /**
+     * @see org.eclipse.jetty.server.session.SessionDataStore#newSessionData(java.lang.String, long, long, long, long)
+     */
+    @Override
+    public SessionData newSessionData(String id, long created, long accessed, long lastAccessed, long maxInactiveMs)
+    {
+        return _store.newSessionData(id, created, accessed, lastAccessed, maxInactiveMs);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[delay=%d,batch=%d,pending=%d]", getClass().getSimpleName(), hashCode(), _flushDelayMs, _maxBatchSize, _pending.size());
+    }
+
+    /**
+     * A queued write of a session
+     */
+    private static class Pending
+    {
+        private final SessionData _snapshot;
+        private long _lastSaved;
+
+        private Pending(SessionData snapshot)
+        {
+            _snapshot = snapshot;
+        }
+
+        /**
+         * @return true if the snapshot was stored, or did not need to be
+         */
+        private boolean isStored()
+        {
+            if (_snapshot.isDirty())
+                return false;
+            return !_snapshot.isMetaDataDirty() || _snapshot.getLastSaved() != _lastSaved;
+        }
+    }
+}
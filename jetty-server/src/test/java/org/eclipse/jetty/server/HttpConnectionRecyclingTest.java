@@ -0,0 +1,228 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.server.LocalConnector.LocalEndPoint;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HttpConnectionRecyclingTest
+{
+    private final Set<HttpConnection> _connections = ConcurrentHashMap.newKeySet();
+    private Server _server;
+    private LocalConnector _connector;
+    private HttpConnectionFactory _factory;
+
+    @BeforeEach
+    public void prepare() throws Exception
+    {
+        _server = new Server();
+        _factory = new HttpConnectionFactory();
+        _connector = new LocalConnector(_server, _factory);
+        _server.addConnector(_connector);
+        _server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                _connections.add(HttpConnection.getCurrentConnection());
+                response.setHeader("X-Secret", String.valueOf(request.getHeader("X-Secret")));
+                response.getWriter().print("id=" + request.getHeader("X-Id"));
+            }
+        });
+    }
+
+    @AfterEach
+    public void dispose() throws Exception
+    {
+        _server.stop();
+    }
+
+    @Test
+    public void testRecyclingDisabledByDefault() throws Exception
+    {
+        _server.start();
+
+        for (int i = 0; i < 3; i++)
+        {
+            String response = _connector.getResponse(request(i, false));
+            assertThat(response, containsString("id=" + i));
+        }
+
+        assertThat(_factory.getMaxRecycledConnections(), is(0));
+        assertThat(_factory.getReusedConnections(), is(0L));
+        assertThat(_connections.size(), is(3));
+    }
+
+    @Test
+    public void testClosedConnectionIsReused() throws Exception
+    {
+        _factory.setMaxRecycledConnections(2);
+        _server.start();
+
+        for (int i = 0; i < 10; i++)
+        {
+            String response = _connector.getResponse(request(i, i == 0));
+            assertThat(response, containsString("HTTP/1.1 200 "));
+            assertThat(response, containsString("id=" + i));
+            if (i > 0)
+                assertThat(response, containsString("X-Secret: null"));
+            awaitRecycled(1);
+        }
+
+        assertThat(_factory.getReusedConnections(), is(9L));
+        assertThat(_connections.size(), is(1));
+        HttpConnection connection = _connections.iterator().next();
+        assertThat(connection.getMessagesIn(), is(1L));
+    }
+
+    @Test
+    public void testPoolIsBounded() throws Exception
+    {
+        LocalEndPoint[] endPoints = new LocalEndPoint[4];
+        CountDownLatch openLatch = new CountDownLatch(endPoints.length);
+        _connector.addBean(new Connection.Listener.Adapter()
+        {
+            @Override
+            public void onOpened(Connection connection)
+            {
+                openLatch.countDown();
+            }
+        });
+        _factory.setMaxRecycledConnections(2);
+        _server.start();
+
+        for (int i = 0; i < endPoints.length; i++)
+        {
+            endPoints[i] = _connector.connect();
+        }
+        assertTrue(openLatch.await(5, TimeUnit.SECONDS));
+        for (LocalEndPoint endPoint : endPoints)
+        {
+            endPoint.close();
+        }
+
+        awaitRecycled(2);
+        assertThat(_factory.getMaxRecycledConnections(), is(2));
+
+        _server.stop();
+        assertThat(_factory.getRecycledConnections(), is(0));
+    }
+
+    @Test
+    public void testAsyncConnectionIsNotRecycled() throws Exception
+    {
+        CountDownLatch asyncLatch = new CountDownLatch(1);
+        AtomicReference<AsyncContext> asyncContext = new AtomicReference<>();
+        _factory.setMaxRecycledConnections(2);
+        _server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                if (request.getHeader("X-Async") != null)
+                {
+                    AsyncContext async = request.startAsync();
+                    async.setTimeout(0);
+                    asyncContext.set(async);
+                    asyncLatch.countDown();
+                }
+                else
+                {
+                    response.getWriter().print("id=" + request.getHeader("X-Id"));
+                }
+            }
+        });
+        _server.start();
+
+        LocalEndPoint endPoint = _connector.executeRequest(
+            "GET / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "X-Async: true\r\n" +
+                "\r\n");
+        assertTrue(asyncLatch.await(5, TimeUnit.SECONDS));
+        endPoint.close();
+        endPoint.waitUntilClosed();
+
+        // The async request is still pending, so the connection cannot be recycled.
+        assertThat(_factory.getRecycledConnections(), is(0));
+        asyncContext.get().complete();
+
+        String response = _connector.getResponse(request(1, false));
+        assertThat(response, containsString("HTTP/1.1 200 "));
+        assertThat(response, containsString("id=1"));
+    }
+
+    @Test
+    public void testUnconsumedInputIsNotRecycled() throws Exception
+    {
+        _factory.setMaxRecycledConnections(2);
+        _server.start();
+
+        // The second, pipelined, request is not parsed because the first closes the connection.
+        String response = _connector.getResponse(request(0, false) + request(1, false));
+        assertThat(response, containsString("id=0"));
+        assertThat(response, not(containsString("id=1")));
+
+        awaitRecycled(0);
+        response = _connector.getResponse(request(2, false));
+        assertThat(response, containsString("id=2"));
+    }
+
+    private void awaitRecycled(int recycled) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (_factory.getRecycledConnections() != recycled && System.nanoTime() < deadline)
+        {
+            Thread.sleep(1);
+        }
+        assertThat(_factory.getRecycledConnections(), is(recycled));
+    }
+
+    private static String request(int id, boolean secret)
+    {
+        return "GET / HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "X-Id: " + id + "\r\n" +
+            (secret ? "X-Secret: s3cr3t\r\n" : "") +
+            "Connection: close\r\n" +
+            "\r\n";
+    }
+}
@@ -19,21 +19,32 @@
 package org.eclipse.jetty.server;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.eclipse.jetty.io.AbstractConnection;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.MappedByteBufferPool;
 import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.TypeUtil;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ProxyProtocolTest
@@ -193,4 +204,290 @@ public class ProxyProtocolTest
             }
         }
     }
+
+    @Test
+    public void testProxyProtocolV2WithTLVs() throws Exception
+    {
+        final String remoteAddr = "192.168.0.1";
+        final int remotePort = 12345;
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                EndPoint endPoint = baseRequest.getHttpChannel().getEndPoint();
+                if (endPoint instanceof ProxyConnectionFactory.ProxyEndPoint)
+                {
+                    ProxyConnectionFactory.ProxyEndPoint proxyEndPoint = (ProxyConnectionFactory.ProxyEndPoint)endPoint;
+                    if (remoteAddr.equals(request.getRemoteAddr()) &&
+                        remotePort == request.getRemotePort() &&
+                        "TLSv1.2".equals(proxyEndPoint.getAttribute(ProxyConnectionFactory.TLS_VERSION)) &&
+                        "ECDHE-RSA-AES128-GCM-SHA256".equals(proxyEndPoint.getAttribute(ProxyConnectionFactory.TLS_CIPHER)) &&
+                        "www.example.com".equals(proxyEndPoint.getAttribute(ProxyConnectionFactory.AUTHORITY)) &&
+                        Arrays.equals(TypeUtil.fromHexString("DEADBEEF"), (byte[])proxyEndPoint.getAttribute(ProxyConnectionFactory.UNIQUE_ID)) &&
+                        Arrays.equals(TypeUtil.fromHexString("ABCDEF"), proxyEndPoint.getTLV(0xE0)))
+                        baseRequest.setHandled(true);
+                }
+            }
+        });
+
+        try (Socket socket = new Socket("localhost", connector.getLocalPort()))
+        {
+            String proxy =
+                // Preamble
+                "0D0A0D0A000D0A515549540A" +
+
+                    // V2, PROXY
+                    "21" +
+
+                    // 0x1 : AF_INET    0x1 : STREAM.  Address length is 2*4 + 2*2 = 12 bytes.
+                    "11" +
+
+                    // length of remaining header (4+4+2+2+48+18+7+6 = 91)
+                    "005B" +
+
+                    // uint32_t src_addr; uint32_t dst_addr; uint16_t src_port; uint16_t dst_port;
+                    "C0A80001" +
+                    "7f000001" +
+                    "3039" +
+                    "1F90" +
+
+                    // SSL, client SSL|CERT_CONN|CERT_SESS, verify 0
+                    "20002D" + "07" + "00000000" +
+                    // SSL version TLSv1.2
+                    "210007" + "544C5376312E32" +
+                    // SSL cipher ECDHE-RSA-AES128-GCM-SHA256
+                    "23001B" + "45434448452D5253412D4145533132382D47434D2D534841323536" +
+
+                    // Authority www.example.com
+                    "02000F" + "7777772E6578616D706C652E636F6D" +
+
+                    // Unique id DEADBEEF
+                    "050004" + "DEADBEEF" +
+
+                    // Custom value ABCDEF
+                    "E00003ABCDEF";
+
+            // Send the PROXY header and the request in the same write,
+            // so that they are likely read by the same fill.
+            String request1 =
+                "GET /1 HTTP/1.1\r\n" +
+                    "Host: localhost\r\n" +
+                    "Connection: close\r\n" +
+                    "\r\n";
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.write(TypeUtil.fromHexString(proxy));
+            bytes.write(request1.getBytes(StandardCharsets.UTF_8));
+            OutputStream output = socket.getOutputStream();
+            output.write(bytes.toByteArray());
+            output.flush();
+
+            InputStream input = socket.getInputStream();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            String response1 = reader.readLine();
+            assertTrue(response1.startsWith("HTTP/1.1 200 "));
+        }
+    }
+
+    @Test
+    public void testProxyProtocolV2Split() throws Exception
+    {
+        final String remoteAddr = "192.168.0.1";
+        final int remotePort = 12345;
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                if (remoteAddr.equals(request.getRemoteAddr()) &&
+                    remotePort == request.getRemotePort())
+                    baseRequest.setHandled(true);
+            }
+        });
+
+        try (Socket socket = new Socket("localhost", connector.getLocalPort()))
+        {
+            byte[] proxy = TypeUtil.fromHexString("0D0A0D0A000D0A515549540A" + "21" + "11" + "000C" + "C0A80001" + "7f000001" + "3039" + "1F90");
+            String request1 =
+                "GET /1 HTTP/1.1\r\n" +
+                    "Host: localhost\r\n" +
+                    "Connection: close\r\n" +
+                    "\r\n";
+
+            // Split the PROXY header across multiple writes.
+            OutputStream output = socket.getOutputStream();
+            output.write(proxy, 0, 10);
+            output.flush();
+            Thread.sleep(100);
+            output.write(proxy, 10, 10);
+            output.flush();
+            Thread.sleep(100);
+            output.write(proxy, 20, proxy.length - 20);
+            output.write(request1.getBytes(StandardCharsets.UTF_8));
+            output.flush();
+
+            InputStream input = socket.getInputStream();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            String response1 = reader.readLine();
+            assertTrue(response1.startsWith("HTTP/1.1 200 "));
+        }
+    }
+
+    @Test
+    public void testProxyProtocolV2BytesAfterHeaderReadByNextConnection() throws Exception
+    {
+        // The echo connection does not implement Connection.UpgradeTo,
+        // so the bytes after the header must be left in the endpoint.
+        server = new Server();
+        connector = new ServerConnector(server, new ProxyConnectionFactory(), new EchoConnectionFactory());
+        server.addConnector(connector);
+        server.start();
+
+        try (Socket socket = new Socket("localhost", connector.getLocalPort()))
+        {
+            String proxy =
+                // Preamble
+                "0D0A0D0A000D0A515549540A" +
+
+                    // V2, PROXY
+                    "21" +
+
+                    // 0x1 : AF_INET    0x1 : STREAM.  Address length is 2*4 + 2*2 = 12 bytes.
+                    "11" +
+
+                    // length of remaining header (4+4+2+2 = 12)
+                    "000C" +
+
+                    // uint32_t src_addr; uint32_t dst_addr; uint16_t src_port; uint16_t dst_port;
+                    "C0A80001" +
+                    "7f000001" +
+                    "3039" +
+                    "1F90";
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.write(TypeUtil.fromHexString(proxy));
+            bytes.write("hello".getBytes(StandardCharsets.UTF_8));
+            OutputStream output = socket.getOutputStream();
+            output.write(bytes.toByteArray());
+            output.flush();
+
+            InputStream input = socket.getInputStream();
+            byte[] echo = new byte[5];
+            for (int read = 0; read < echo.length; )
+            {
+                int r = input.read(echo, read, echo.length - read);
+                assertTrue(r > 0);
+                read += r;
+            }
+            assertEquals("hello", new String(echo, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testProxyProtocolBuffersReleased() throws Exception
+    {
+        AtomicInteger acquired = new AtomicInteger();
+        ByteBufferPool pool = new MappedByteBufferPool()
+        {
+            @Override
+            public ByteBuffer acquire(int size, boolean direct)
+            {
+                acquired.incrementAndGet();
+                return super.acquire(size, direct);
+            }
+
+            @Override
+            public void release(ByteBuffer buffer)
+            {
+                acquired.decrementAndGet();
+                super.release(buffer);
+            }
+        };
+        server = new Server();
+        connector = new ServerConnector(server, null, null, pool, -1, -1, new ProxyConnectionFactory(), new EchoConnectionFactory());
+        server.addConnector(connector);
+        server.start();
+
+        byte[] v1 = "PROXY TCP4 192.168.0.1 127.0.0.1 12345 8080\r\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] v2 = TypeUtil.fromHexString("0D0A0D0A000D0A515549540A" + "21" + "11" + "000C" + "C0A80001" + "7f000001" + "3039" + "1F90");
+        for (byte[] proxy : Arrays.asList(v1, v2))
+        {
+            try (Socket socket = new Socket("localhost", connector.getLocalPort()))
+            {
+                // Split the PROXY header, so that it is read by more than one fill.
+                OutputStream output = socket.getOutputStream();
+                output.write(proxy, 0, 10);
+                output.flush();
+                Thread.sleep(100);
+                output.write(proxy, 10, proxy.length - 10);
+                output.write("hello".getBytes(StandardCharsets.UTF_8));
+                output.flush();
+
+                InputStream input = socket.getInputStream();
+                byte[] echo = new byte[5];
+                for (int read = 0; read < echo.length; )
+                {
+                    int r = input.read(echo, read, echo.length - read);
+                    assertTrue(r > 0);
+                    read += r;
+                }
+                assertEquals("hello", new String(echo, StandardCharsets.UTF_8));
+            }
+        }
+
+        assertEquals(0, acquired.get());
+    }
+
+    private static class EchoConnectionFactory extends AbstractConnectionFactory
+    {
+        private EchoConnectionFactory()
+        {
+            super("echo");
+        }
+
+        @Override
+        public Connection newConnection(Connector connector, EndPoint endPoint)
+        {
+            return configure(new AbstractConnection(endPoint, connector.getExecutor())
+            {
+                @Override
+                public void onOpen()
+                {
+                    super.onOpen();
+                    fillInterested();
+                }
+
+                @Override
+                public void onFillable()
+                {
+                    try
+                    {
+                        ByteBuffer buffer = BufferUtil.allocate(1024);
+                        while (true)
+                        {
+                            int filled = getEndPoint().fill(buffer);
+                            if (filled > 0)
+                            {
+                                getEndPoint().flush(buffer);
+                            }
+                            else if (filled == 0)
+                            {
+                                fillInterested();
+                                return;
+                            }
+                            else
+                            {
+                                close();
+                                return;
+                            }
+                        }
+                    }
+                    catch (IOException x)
+                    {
+                        close();
+                    }
+                }
+            }, connector, endPoint);
+        }
+    }
 }
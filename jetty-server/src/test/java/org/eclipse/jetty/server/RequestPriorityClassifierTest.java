@@ -0,0 +1,147 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.thread.PrioritizedQueue;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class RequestPriorityClassifierTest
+{
+    private Server _server;
+    private LocalConnector _connector;
+    private LocalConnector _admin;
+    private RequestPriorityClassifier _classifier;
+    private final BlockingQueue<Integer> _priorities = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Integer> _queued = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    public void before() throws Exception
+    {
+        PrioritizedQueue<Runnable> queue = new PrioritizedQueue<Runnable>(1, 100, 100, 100)
+        {
+            @Override
+            public boolean offer(Runnable job)
+            {
+                if (job instanceof HttpChannel)
+                    _queued.offer(((HttpChannel)job).getPriority());
+                return super.offer(job);
+            }
+        };
+        _server = new Server(new QueuedThreadPool(200, 8, queue));
+        _classifier = new RequestPriorityClassifier();
+        HttpConfiguration config = new HttpConfiguration();
+        config.setPriorityClassifier(_classifier);
+        _connector = new LocalConnector(_server, new HttpConnectionFactory(config));
+        _admin = new LocalConnector(_server, new HttpConnectionFactory(config));
+        _admin.setName("admin");
+        _server.addConnector(_connector);
+        _server.addConnector(_admin);
+        _server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            {
+                baseRequest.setHandled(true);
+                _priorities.offer(baseRequest.getHttpChannel().getPriority());
+            }
+        });
+        _server.start();
+    }
+
+    @AfterEach
+    public void after() throws Exception
+    {
+        _server.stop();
+    }
+
+    private int classify(LocalConnector connector, String path, String header) throws Exception
+    {
+        String response = connector.getResponse(
+            "GET " + path + " HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                (header == null ? "" : header + "\r\n") +
+                "\r\n");
+        assertThat(response, containsString(" 200 "));
+        return _priorities.poll();
+    }
+
+    @Test
+    public void testClassification() throws Exception
+    {
+        _classifier.addConnector("admin", 0);
+        _classifier.addPath("/health", 1);
+        _classifier.addPath("/api/*", 2);
+        _classifier.addPath("*.zip", 4);
+        _classifier.addHeader("X-Priority", "high", 1);
+        _classifier.addHeader("X-Batch", null, 3);
+
+        assertThat(classify(_connector, "/other", null), is(-1));
+        assertThat(classify(_connector, "/health", null), is(1));
+        assertThat(classify(_connector, "/api/users", null), is(2));
+        assertThat(classify(_connector, "/files/data.zip", null), is(4));
+        assertThat(classify(_connector, "/files/data.zip", "X-Batch: yes"), is(3));
+        assertThat(classify(_connector, "/api/users", "X-Priority: HIGH"), is(1));
+        assertThat(classify(_connector, "/api/users", "X-Priority: low"), is(2));
+        // The most urgent matching rule wins.
+        assertThat(classify(_admin, "/files/data.zip", "X-Batch: yes"), is(0));
+
+        _classifier.setDefaultPriority(5);
+        assertThat(classify(_connector, "/other", null), is(5));
+    }
+
+    @Test
+    public void testClassifiedHttp11RequestIsQueuedAtItsLevel() throws Exception
+    {
+        _classifier.addPath("/health", 0);
+        _classifier.addPath("/files/*", 2);
+
+        String request = "GET %s HTTP/1.1\r\nHost: localhost\r\n%s\r\n";
+        LocalConnector.LocalEndPoint endPoint = _connector.executeRequest(
+            String.format(request, "/health", "") +
+                String.format(request, "/other", "") +
+                String.format(request, "/files/data.zip", "Connection: close\r\n"));
+        endPoint.waitUntilClosed();
+        String responses = endPoint.takeOutputString();
+
+        assertThat(responses.split(" 200 ").length, is(4));
+        assertThat(_priorities.poll(), is(0));
+        assertThat(_priorities.poll(), is(-1));
+        assertThat(_priorities.poll(), is(2));
+
+        // Classified requests are submitted to the thread pool at their level,
+        // unclassified requests are handled inline by the connection.
+        assertThat(_queued.poll(), is(0));
+        assertThat(_queued.poll(), is(2));
+        assertThat(_queued.poll(), nullValue());
+    }
+}
@@ -0,0 +1,57 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.io.MappedByteBufferPool;
+
+/**
+ * A {@link MappedByteBufferPool} that counts the bytes of the buffers
+ * that have been acquired and not yet released.
+ */
+public class RetainedBytesByteBufferPool extends MappedByteBufferPool
+{
+    private final AtomicLong retained = new AtomicLong();
+
+    @Override
+    public ByteBuffer acquire(int size, boolean direct)
+    {
+        ByteBuffer buffer = super.acquire(size, direct);
+        retained.addAndGet(buffer.capacity());
+        return buffer;
+    }
+
+    @Override
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer != null)
+            retained.addAndGet(-buffer.capacity());
+        super.release(buffer);
+    }
+
+    /**
+     * @return the bytes of the buffers acquired and not yet released
+     */
+    public long getRetainedBytes()
+    {
+        return retained.get();
+    }
+}
@@ -43,6 +43,7 @@ import org.eclipse.jetty.server.handler.AbstractHandler;
 import org.eclipse.jetty.server.handler.DefaultHandler;
 import org.eclipse.jetty.server.handler.HandlerList;
 import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.JavaVersion;
 import org.eclipse.jetty.util.log.StacklessLogging;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
@@ -58,6 +59,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class ServerConnectorTest
 {
@@ -322,4 +325,46 @@ public class ServerConnectorTest
             assertThat(x.getMessage(), containsString("0.0.0.0:" + port));
         }
     }
+
+    @Test
+    public void testReusePort() throws Exception
+    {
+        assumeTrue(JavaVersion.VERSION.getPlatform() >= 9);
+        assumeFalse(org.junit.jupiter.api.condition.OS.WINDOWS.isCurrentOs());
+
+        Server server = new Server();
+        ServerConnector connector = new ServerConnector(server, 0, 4);
+        connector.setPort(0);
+        connector.setReusePort(true);
+        server.addConnector(connector);
+        server.setHandler(new DefaultHandler());
+
+        try
+        {
+            server.start();
+
+            // One listening socket per selector.
+            assertThat(connector.getBeans(ServerSocketChannel.class).size(), is(4));
+
+            for (int i = 0; i < 20; ++i)
+            {
+                try (Socket client = new Socket("localhost", connector.getLocalPort()))
+                {
+                    client.getOutputStream().write((
+                        "GET / HTTP/1.1\r\n" +
+                            "Host: localhost\r\n" +
+                            "Connection: close\r\n" +
+                            "\r\n").getBytes(StandardCharsets.UTF_8));
+                    String response = IO.toString(client.getInputStream());
+                    assertThat(response, containsString("HTTP/1.1 404 "));
+                }
+            }
+        }
+        finally
+        {
+            server.stop();
+        }
+
+        assertThat(connector.getBeans(ServerSocketChannel.class).size(), is(0));
+    }
 }
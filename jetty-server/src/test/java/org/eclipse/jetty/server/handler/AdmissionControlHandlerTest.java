@@ -0,0 +1,152 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.handler;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpTester;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionControlHandlerTest
+{
+    private Server _server;
+    private LocalConnector _connector;
+    private AdmissionControlHandler _admission;
+
+    @BeforeEach
+    public void before() throws Exception
+    {
+        _server = new Server();
+        _connector = new LocalConnector(_server);
+        _server.addConnector(_connector);
+
+        // Simulates the time a request waited before dispatch.
+        HandlerWrapper delay = new HandlerWrapper()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                String value = request.getHeader("X-Delay");
+                if (value != null)
+                    baseRequest.setTimeStamp(System.currentTimeMillis() - Long.parseLong(value));
+                super.handle(target, baseRequest, request, response);
+            }
+        };
+        _admission = new AdmissionControlHandler();
+        _admission.setTarget(5);
+        _admission.setInterval(500);
+        // Only the request delays are sampled by the tests.
+        _admission.setProbePeriod(TimeUnit.MINUTES.toMillis(1));
+        _server.setHandler(delay);
+        delay.setHandler(_admission);
+        _admission.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            {
+                baseRequest.setHandled(true);
+            }
+        });
+        _server.start();
+    }
+
+    @AfterEach
+    public void after() throws Exception
+    {
+        _server.stop();
+    }
+
+    private HttpTester.Response request(long delay) throws Exception
+    {
+        return HttpTester.parseResponse(_connector.getResponse(
+            "GET / HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "X-Delay: " + delay + "\r\n" +
+                "\r\n"));
+    }
+
+    private int await(long delay, int status) throws Exception
+    {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < end)
+        {
+            int actual = request(delay).getStatus();
+            if (actual == status)
+                return actual;
+            Thread.sleep(10);
+        }
+        return -1;
+    }
+
+    @Test
+    public void testStandingDelayShedsLoad() throws Exception
+    {
+        // Below the interval, a single delayed request is admitted.
+        assertThat(request(50).getStatus(), is(200));
+        assertFalse(_admission.isOverloaded());
+
+        // A standing delay above the target for a whole interval sheds requests.
+        assertThat(await(50, 503), is(503));
+        assertTrue(_admission.isOverloaded());
+        assertThat(_admission.getStandingDelay(), greaterThan(5L));
+
+        // Requests are rejected progressively, not for the whole interval.
+        assertThat(request(50).getStatus(), is(200));
+        // Requests below the target are admitted while overloaded.
+        assertThat(request(0).getStatus(), is(200));
+
+        // Once an interval ends below the target, the handler is no longer overloaded.
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (_admission.isOverloaded() && System.nanoTime() < end)
+        {
+            assertThat(request(0).getStatus(), is(200));
+            Thread.sleep(10);
+        }
+        assertFalse(_admission.isOverloaded());
+        assertThat(_admission.getRejected(), is(1L));
+    }
+
+    @Test
+    public void testRequestWaitingLongerThanIntervalRejected() throws Exception
+    {
+        _admission.setCloseConnection(true);
+
+        HttpTester.Response response = request(1000);
+        assertThat(response.getStatus(), is(503));
+        assertThat(response.get("Connection"), is("close"));
+
+        _admission.setEnabled(false);
+        assertThat(request(1000).getStatus(), is(200));
+    }
+}
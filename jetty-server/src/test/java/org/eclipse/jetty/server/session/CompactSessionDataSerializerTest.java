@@ -0,0 +1,190 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompactSessionDataSerializerTest
+{
+    private final CompactSessionDataSerializer _serializer = new CompactSessionDataSerializer();
+
+    @Test
+    public void testCommonTypes() throws Exception
+    {
+        Map<Object, Object> nested = new HashMap<>();
+        nested.put("n", null);
+        nested.put(7, 1.5F);
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("z", "last");
+        map.put("a", nested);
+
+        SessionData data = newSessionData();
+        data.setAttribute("string", "h\u00e9llo \u20ac \ud83d\ude00 \ud800");
+        data.setAttribute("empty", "");
+        data.setAttribute("true", Boolean.TRUE);
+        data.setAttribute("false", Boolean.FALSE);
+        data.setAttribute("byte", (byte)-1);
+        data.setAttribute("short", Short.MIN_VALUE);
+        data.setAttribute("char", '\uFFFF');
+        data.setAttribute("int", -42);
+        data.setAttribute("maxInt", Integer.MAX_VALUE);
+        data.setAttribute("long", Long.MIN_VALUE);
+        data.setAttribute("float", Float.NaN);
+        data.setAttribute("double", -0.0D);
+        data.setAttribute("bytes", new byte[]{0, 1, (byte)0xFF});
+        data.setAttribute("map", map);
+
+        SessionData copy = roundTrip(data);
+
+        assertThat(copy.getKeys().size(), is(data.getKeys().size()));
+        for (String name : data.getKeys())
+        {
+            if (!"bytes".equals(name))
+                assertThat(name, copy.getAttribute(name), is(data.getAttribute(name)));
+        }
+        assertArrayEquals((byte[])data.getAttribute("bytes"), (byte[])copy.getAttribute("bytes"));
+        assertThat(copy.getAttribute("map"), instanceOf(LinkedHashMap.class));
+        assertThat(((Map<?, ?>)copy.getAttribute("map")).keySet().iterator().next(), is("z"));
+        assertThat(((Map<?, ?>)copy.getAttribute("map")).get("a"), instanceOf(HashMap.class));
+    }
+
+    @Test
+    public void testJavaSerializationFallback() throws Exception
+    {
+        Map<String, Object> map = new HashMap<>();
+        map.put("value", new Value("in-map"));
+
+        SessionData data = newSessionData();
+        data.setAttribute("compact", "string");
+        data.setAttribute("java", new Value("direct"));
+        data.setAttribute("concurrentMap", new java.util.concurrent.ConcurrentHashMap<>(map));
+        data.setAttribute("map", map);
+
+        SessionData copy = roundTrip(data);
+
+        assertThat(copy.getAttribute("compact"), is("string"));
+        assertThat(copy.getAttribute("java"), is(new Value("direct")));
+        assertThat(copy.getAttribute("concurrentMap"), instanceOf(java.util.concurrent.ConcurrentHashMap.class));
+        assertThat(copy.getAttribute("map"), is(map));
+    }
+
+    @Test
+    public void testReadsJavaSerializedAttributes() throws Exception
+    {
+        SessionData data = newSessionData();
+        data.setAttribute("string", "value");
+        data.setAttribute("java", new Value("direct"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JavaSessionDataSerializer().serializeAttributes(data, out);
+
+        SessionData copy = newSessionData();
+        _serializer.deserializeAttributes(copy, new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(copy.getAttribute("string"), is("value"));
+        assertThat(copy.getAttribute("java"), is(new Value("direct")));
+    }
+
+    @Test
+    public void testSmallerThanJavaSerialization() throws Exception
+    {
+        SessionData data = newSessionData();
+        data.setAttribute("user", "jane.doe@example.com");
+        data.setAttribute("userId", 1234567L);
+        data.setAttribute("locale", "en_GB");
+        data.setAttribute("authenticated", Boolean.TRUE);
+        data.setAttribute("visits", 12);
+
+        ByteArrayOutputStream java = new ByteArrayOutputStream();
+        new JavaSessionDataSerializer().serializeAttributes(data, java);
+        ByteArrayOutputStream compact = new ByteArrayOutputStream();
+        _serializer.serializeAttributes(data, compact);
+
+        assertThat(compact.size(), lessThan(java.size() / 2));
+    }
+
+    @Test
+    public void testTruncated() throws Exception
+    {
+        SessionData data = newSessionData();
+        data.setAttribute("string", "value");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        _serializer.serializeAttributes(data, out);
+        byte[] bytes = out.toByteArray();
+
+        assertThrows(IOException.class, () ->
+            _serializer.deserializeAttributes(newSessionData(), new ByteArrayInputStream(bytes, 0, bytes.length - 2)));
+    }
+
+    private SessionData roundTrip(SessionData data) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        _serializer.serializeAttributes(data, out);
+        SessionData copy = newSessionData();
+        copy.setAttribute("stale", "value");
+        _serializer.deserializeAttributes(copy, new ByteArrayInputStream(out.toByteArray()));
+        assertThat(copy.getAttribute("stale"), is((Object)null));
+        return copy;
+    }
+
+    private static SessionData newSessionData()
+    {
+        long now = System.currentTimeMillis();
+        return new SessionData("1234", "/test", "0.0.0.0", now, now, now, TimeUnit.MINUTES.toMillis(30));
+    }
+
+    private static class Value implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+        private final String _value;
+
+        private Value(String value)
+        {
+            _value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Value && ((Value)obj)._value.equals(_value);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return _value.hashCode();
+        }
+    }
+}
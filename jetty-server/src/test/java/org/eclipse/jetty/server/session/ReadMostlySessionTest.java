@@ -0,0 +1,167 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReadMostlySessionTest
+{
+    private Server _server;
+    private SessionHandler _sessionHandler;
+    private DefaultSessionCache _cache;
+
+    @BeforeEach
+    public void before() throws Exception
+    {
+        _server = new Server();
+        ContextHandler context = new ContextHandler("/test");
+        _sessionHandler = new SessionHandler();
+        context.setHandler(_sessionHandler);
+        _server.setHandler(context);
+
+        DefaultSessionCacheFactory cacheFactory = new DefaultSessionCacheFactory();
+        cacheFactory.setReadMostly(true);
+        _cache = (DefaultSessionCache)cacheFactory.getSessionCache(_sessionHandler);
+        _cache.setSessionDataStore(new NullSessionDataStore());
+        _sessionHandler.setSessionCache(_cache);
+        _server.start();
+    }
+
+    @AfterEach
+    public void after() throws Exception
+    {
+        _server.stop();
+    }
+
+    private Session newSession(String id) throws Exception
+    {
+        long now = System.currentTimeMillis();
+        Session session = _cache.newSession(new SessionData(id, "/test", "0.0.0.0", now, now, now, TimeUnit.MINUTES.toMillis(10)));
+        _cache.add(id, session);
+        return session;
+    }
+
+    @Test
+    public void testCopyOnWriteAttributes() throws Exception
+    {
+        Session session = newSession("s1");
+        assertTrue(session.getSessionData().isCopyOnWrite());
+
+        session.setAttribute("a", "1");
+        List<String> names = Collections.list(session.getAttributeNames());
+        session.setAttribute("b", "2");
+        session.removeAttribute("a");
+
+        //the names read before the changes are a snapshot
+        assertThat(names, is(Collections.singletonList("a")));
+        assertThat(Collections.list(session.getAttributeNames()), is(Collections.singletonList("b")));
+        assertThat(session.getAttribute("a"), nullValue());
+        assertThat(session.getAttribute("b"), is("2"));
+        assertTrue(session.getSessionData().isDirty());
+        _cache.release("s1", session);
+    }
+
+    @Test
+    public void testInvalidSessionNotReadable() throws Exception
+    {
+        Session session = newSession("s2");
+        session.setAttribute("a", "1");
+        _cache.release("s2", session);
+
+        session.invalidate();
+        assertFalse(session.isValid());
+        assertTrue(session.isInvalid());
+        assertThrows(IllegalStateException.class, () -> session.getAttribute("a"));
+        assertThrows(IllegalStateException.class, () -> session.getAttributeNames());
+    }
+
+    @Test
+    public void testNonResidentSessionNotReadable() throws Exception
+    {
+        Session session = newSession("s3");
+        session.setAttribute("a", "1");
+        session.setResident(false);
+        assertThrows(IllegalStateException.class, () -> session.getAttribute("a"));
+    }
+
+    @Test
+    public void testConcurrentReadsAndWrites() throws Exception
+    {
+        Session session = newSession("s4");
+        session.setAttribute("counter", 0);
+
+        int readers = 4;
+        CountDownLatch done = new CountDownLatch(readers);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int i = 0; i < readers; i++)
+        {
+            Thread thread = new Thread(() ->
+            {
+                try
+                {
+                    int last = 0;
+                    while (last < 1000)
+                    {
+                        //the counter only increases, and is always present
+                        int counter = (Integer)session.getAttribute("counter");
+                        if (counter < last)
+                            throw new IllegalStateException("read " + counter + " after " + last);
+                        last = counter;
+                    }
+                }
+                catch (Throwable x)
+                {
+                    failure.set(x);
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            });
+            thread.start();
+        }
+
+        for (int i = 1; i <= 1000; i++)
+        {
+            session.setAttribute("counter", i);
+            session.setAttribute("other" + (i % 10), i);
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertThat(failure.get(), nullValue());
+        _cache.release("s4", session);
+    }
+}
@@ -0,0 +1,190 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.toolchain.test.FS;
+import org.eclipse.jetty.toolchain.test.MavenTestingUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SessionCacheWarmupTest
+{
+    private File _storeDir;
+    private Server _server;
+
+    @BeforeEach
+    public void before() throws Exception
+    {
+        _storeDir = MavenTestingUtils.getTargetTestingDir(SessionCacheWarmupTest.class.getSimpleName());
+        FS.ensureEmpty(_storeDir);
+    }
+
+    @AfterEach
+    public void after() throws Exception
+    {
+        if (_server != null)
+            _server.stop();
+    }
+
+    private void storeSessions(int count) throws Exception
+    {
+        FileSessionDataStore store = new FileSessionDataStore();
+        store.setStoreDir(_storeDir);
+        store.initialize(new SessionContext("node0", new ContextHandler("/test").getServletContext()));
+        store.start();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++)
+        {
+            //later sessions were accessed more recently
+            SessionData data = store.newSessionData("session" + i, now - 1000, now - 1000 + i, now - 1000, 60000);
+            data.setLastNode("node0");
+            data.calcAndSetExpiry(now - 1000 + i);
+            data.setAttribute("i", i);
+            store.store(data.getId(), data);
+        }
+        store.stop();
+    }
+
+    private SessionHandler newServer(int warmupSessions)
+    {
+        return newServer(warmupSessions, 2);
+    }
+
+    private SessionHandler newServer(int warmupSessions, int batchSize)
+    {
+        _server = new Server();
+        ContextHandler context = new ContextHandler("/test");
+        SessionHandler sessionHandler = new SessionHandler();
+        sessionHandler.setWarmupSessions(warmupSessions);
+        sessionHandler.setWarmupBatchSize(batchSize);
+        context.setHandler(sessionHandler);
+        _server.setHandler(context);
+
+        DefaultSessionCache cache = new DefaultSessionCache(sessionHandler);
+        FileSessionDataStore store = new FileSessionDataStore();
+        store.setStoreDir(_storeDir);
+        cache.setSessionDataStore(store);
+        sessionHandler.setSessionCache(cache);
+        return sessionHandler;
+    }
+
+    @Test
+    public void testWarmupLoadsMostRecentSessions() throws Exception
+    {
+        storeSessions(10);
+
+        SessionHandler sessionHandler = newServer(5);
+        _server.start();
+
+        assertThat(sessionHandler.getWarmedSessions(), is(5));
+        DefaultSessionCache cache = (DefaultSessionCache)sessionHandler.getSessionCache();
+        for (int i = 0; i < 10; i++)
+        {
+            if (i < 5)
+                assertFalse(cache.contains("session" + i));
+            else
+                assertTrue(cache.contains("session" + i));
+        }
+
+        //a warmed session is used by a request without being loaded again
+        Session session = sessionHandler.getSession("session9");
+        assertThat(session.getAttribute("i"), is(9));
+        assertTrue(session.isResident());
+        sessionHandler.complete(session);
+    }
+
+    @Test
+    public void testNoWarmup() throws Exception
+    {
+        storeSessions(3);
+
+        SessionHandler sessionHandler = newServer(0);
+        _server.start();
+
+        assertThat(sessionHandler.getWarmedSessions(), is(0));
+        assertThat(((DefaultSessionCache)sessionHandler.getSessionCache()).getSessionsCurrent(), is(0L));
+    }
+
+    @Test
+    public void testWarmupCappedAtMaxSessions() throws Exception
+    {
+        storeSessions(10);
+
+        //a single batch, so that the sessions are added in order
+        SessionHandler sessionHandler = newServer(10, 10);
+        DefaultSessionCache cache = (DefaultSessionCache)sessionHandler.getSessionCache();
+        cache.setMaxSessions(3);
+        _server.start();
+
+        assertThat(sessionHandler.getWarmedSessions(), is(3));
+        assertThat(cache.getSessionsCurrent(), is(3L));
+        assertThat(cache.getSizeEvictions(), is(0L));
+    }
+
+    @Test
+    public void testWarmupCappedAtMaxMemory() throws Exception
+    {
+        storeSessions(10);
+
+        SessionHandler sessionHandler = newServer(10, 10);
+        DefaultSessionCache cache = (DefaultSessionCache)sessionHandler.getSessionCache();
+        cache.setMaxMemory(1);
+        _server.start();
+
+        //the first session warmed up takes the cache to its bounds
+        assertThat(sessionHandler.getWarmedSessions(), is(1));
+        assertTrue(cache.getMemoryUsed() > 0);
+    }
+
+    @Test
+    public void testUnreadableSessionRemoved() throws Exception
+    {
+        storeSessions(3);
+        Path unreadable;
+        try (Stream<Path> files = Files.walk(_storeDir.toPath()))
+        {
+            List<Path> found = files.filter(p -> p.getFileName().toString().endsWith("session2")).collect(Collectors.toList());
+            assertThat(found.size(), is(1));
+            unreadable = found.get(0);
+        }
+        Files.write(unreadable, new byte[]{1, 2, 3});
+
+        SessionHandler sessionHandler = newServer(3, 3);
+        sessionHandler.getSessionCache().setRemoveUnloadableSessions(true);
+        _server.start();
+
+        assertThat(sessionHandler.getWarmedSessions(), is(2));
+        assertFalse(Files.exists(unreadable));
+    }
+}
@@ -0,0 +1,85 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SessionExpiryIndexTest
+{
+    @Test
+    public void testExpiredBefore()
+    {
+        SessionExpiryIndex index = new SessionExpiryIndex();
+        index.update("a", 100);
+        index.update("b", 200);
+        index.update("c", 200);
+        index.update("d", 300);
+        index.update("never", 0);
+
+        assertThat(index.size(), is(4));
+        assertTrue(index.getExpiredBefore(100).isEmpty());
+        assertThat(index.getExpiredBefore(101), is(Collections.singleton("a")));
+        assertThat(index.getExpiredBefore(201), is(new HashSet<>(Arrays.asList("a", "b", "c"))));
+    }
+
+    @Test
+    public void testUpdateAndRemove()
+    {
+        SessionExpiryIndex index = new SessionExpiryIndex();
+        index.update("a", 100);
+        index.update("b", 200);
+
+        //extending the expiry moves the session in the index
+        index.update("a", 1000);
+        assertThat(index.getExpiredBefore(500), is(Collections.singleton("b")));
+
+        //a session that no longer expires leaves the index
+        index.update("a", -1);
+        assertThat(index.size(), is(1));
+        assertThat(index.getExpiredBefore(Long.MAX_VALUE), is(Collections.singleton("b")));
+
+        index.remove("b");
+        index.remove("unknown");
+        assertThat(index.size(), is(0));
+        assertTrue(index.getExpiredBefore(Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void testLatestExpiringAfter()
+    {
+        SessionExpiryIndex index = new SessionExpiryIndex();
+        index.update("a", 100);
+        index.update("b", 200);
+        index.update("c", 300);
+        index.update("d", 400);
+        index.update("never", 0);
+
+        assertThat(index.getLatestExpiringAfter(2, 0), is(Arrays.asList("d", "c")));
+        assertThat(index.getLatestExpiringAfter(10, 200), is(Arrays.asList("d", "c")));
+        assertTrue(index.getLatestExpiringAfter(10, 400).isEmpty());
+    }
+}
@@ -0,0 +1,169 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.ssl;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLSocketFactory;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.RetainedBytesByteBufferPool;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.SslConnectionFactory;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures the pooled buffer bytes retained by idle connections.
+ */
+public class IdleConnectionBuffersTest
+{
+    private final RetainedBytesByteBufferPool byteBufferPool = new RetainedBytesByteBufferPool();
+    private Server server;
+    private ServerConnector connector;
+    private SslContextFactory clientSslContextFactory;
+
+    private void start(ConnectionFactory... factories) throws Exception
+    {
+        server = new Server();
+        connector = new ServerConnector(server, null, null, byteBufferPool, 1, 1, factories);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            {
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+    }
+
+    private SslConnectionFactory newSslConnectionFactory() throws Exception
+    {
+        File keystore = new File("src/test/resources/keystore");
+        SslContextFactory sslContextFactory = new SslContextFactory.Server();
+        sslContextFactory.setKeyStorePath(keystore.getAbsolutePath());
+        sslContextFactory.setKeyStorePassword("storepwd");
+        sslContextFactory.setKeyManagerPassword("keypwd");
+
+        clientSslContextFactory = new SslContextFactory.Client(true);
+        clientSslContextFactory.start();
+
+        return new SslConnectionFactory(sslContextFactory, "http/1.1");
+    }
+
+    @AfterEach
+    public void dispose() throws Exception
+    {
+        if (clientSslContextFactory != null)
+            clientSslContextFactory.stop();
+        if (server != null)
+            server.stop();
+    }
+
+    @Test
+    public void testIdleHTTP11ConnectionRetainsNoBuffers() throws Exception
+    {
+        start(new HttpConnectionFactory());
+
+        try (Socket socket = new Socket("localhost", connector.getLocalPort()))
+        {
+            request(socket);
+            awaitRetainedBytes(0);
+        }
+    }
+
+    @Test
+    public void testIdleTLSConnectionRetainsNoBuffers() throws Exception
+    {
+        start(newSslConnectionFactory(), new HttpConnectionFactory());
+
+        SSLSocketFactory socketFactory = clientSslContextFactory.getSslContext().getSocketFactory();
+        try (Socket socket = socketFactory.createSocket("localhost", connector.getLocalPort()))
+        {
+            request(socket);
+            awaitRetainedBytes(0);
+        }
+    }
+
+    @Test
+    public void testPartialTLSRecordRetainsSmallBuffer() throws Exception
+    {
+        start(newSslConnectionFactory(), new HttpConnectionFactory());
+
+        try (Socket socket = new Socket("localhost", connector.getLocalPort()))
+        {
+            // Only the beginning of a TLS record containing a ClientHello.
+            OutputStream output = socket.getOutputStream();
+            output.write(new byte[]{0x16, 0x03, 0x01, 0x02, 0x00, 0x01, 0x00, 0x01, (byte)0xFC, 0x03, 0x03});
+            output.flush();
+
+            // Wait for the server to read the fragment.
+            Thread.sleep(500);
+
+            int packetBufferSize = clientSslContextFactory.newSSLEngine().getSession().getPacketBufferSize();
+            assertThat(byteBufferPool.getRetainedBytes(), lessThan((long)packetBufferSize));
+        }
+
+        awaitRetainedBytes(0);
+    }
+
+    private void request(Socket socket) throws Exception
+    {
+        OutputStream output = socket.getOutputStream();
+        output.write(("" +
+            "GET / HTTP/1.1\r\n" +
+            "Host: localhost\r\n" +
+            "\r\n").getBytes(StandardCharsets.UTF_8));
+        output.flush();
+
+        InputStream input = socket.getInputStream();
+        byte[] bytes = new byte[1024];
+        int read = input.read(bytes);
+        assertThat(new String(bytes, 0, read, StandardCharsets.UTF_8), containsString(" 200 "));
+    }
+
+    private void awaitRetainedBytes(long expected) throws Exception
+    {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (byteBufferPool.getRetainedBytes() != expected && System.nanoTime() < end)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, byteBufferPool.getRetainedBytes());
+    }
+}
@@ -40,6 +40,8 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.io.ssl.SslDelegatedTaskExecutor;
+import org.eclipse.jetty.io.ssl.SslHandshakeStatistics;
 import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.Request;
@@ -190,6 +192,50 @@ public class SslConnectionFactoryTest
         assertEquals(0, history.size());
     }
 
+    @Test
+    public void testDelegatedTaskExecutor() throws Exception
+    {
+        SslDelegatedTaskExecutor executor = new SslDelegatedTaskExecutor(_server.getThreadPool(), 1, 16);
+        _connector.getConnectionFactory(SslConnectionFactory.class).setDelegatedTaskExecutor(executor);
+
+        for (int i = 0; i < 3; ++i)
+        {
+            String response = getResponse("127.0.0.1", null);
+            assertThat(response, Matchers.containsString("host=127.0.0.1"));
+        }
+
+        assertThat(executor.getTasks(), Matchers.greaterThan(0L));
+        assertEquals(0, executor.getRejectedTasks());
+    }
+
+    @Test
+    public void testHandshakeStatistics() throws Exception
+    {
+        SslHandshakeStatistics statistics = new SslHandshakeStatistics();
+        _connector.addBean(statistics);
+
+        SslContextFactory clientContextFactory = new SslContextFactory.Client(true);
+        clientContextFactory.start();
+        SSLSocketFactory factory = clientContextFactory.getSslContext().getSocketFactory();
+        for (int i = 0; i < 3; ++i)
+        {
+            try (SSLSocket sslSocket = (SSLSocket)factory.createSocket("127.0.0.1", _port))
+            {
+                sslSocket.getOutputStream().write(("GET /ctx/path HTTP/1.0\r\nHost: 127.0.0.1:" + _port + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                String response = IO.toString(sslSocket.getInputStream());
+                assertThat(response, Matchers.startsWith("HTTP/1.1 200 OK"));
+            }
+        }
+        clientContextFactory.stop();
+
+        // The client reuses its SSLContext, so the first handshake
+        // is a full handshake and the following ones resume the session.
+        assertEquals(3, statistics.getHandshakes());
+        assertEquals(1, statistics.getFullHandshakes());
+        assertEquals(2, statistics.getResumedHandshakes());
+        assertEquals(0, statistics.getFailedHandshakes());
+    }
+
     @Test
     public void testServerWithoutHttpConnectionFactory() throws Exception
     {
@@ -0,0 +1,160 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.unixsocket;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>A {@link UnixSocketProvider} using the UNIX domain socket channels of the
+ * standard NIO stack, available from Java 16.</p>
+ * <p>The channels are plain {@link SocketChannel}s and {@link ServerSocketChannel}s
+ * selected by the default {@link Selector}, so no native library is needed.
+ * The Java 16 APIs are looked up reflectively so that this class can be
+ * compiled and loaded on earlier Java versions, where {@link #isSupported()}
+ * returns false.</p>
+ */
+public class JdkUnixSocketProvider extends UnixSocketProvider
+{
+    private static final Logger LOG = Log.getLogger(JdkUnixSocketProvider.class);
+    private static final ProtocolFamily UNIX;
+    private static final Method OPEN_SERVER;
+    private static final Method OPEN_CLIENT;
+    private static final Method ADDRESS_OF;
+
+    static
+    {
+        ProtocolFamily unix = null;
+        Method openServer = null;
+        Method openClient = null;
+        Method addressOf = null;
+        try
+        {
+            unix = StandardProtocolFamily.valueOf("UNIX");
+            openServer = ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+            openClient = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+            addressOf = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", String.class);
+        }
+        catch (Throwable x)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("UNIX domain socket channels not supported", x);
+            unix = null;
+        }
+        UNIX = unix;
+        OPEN_SERVER = openServer;
+        OPEN_CLIENT = openClient;
+        ADDRESS_OF = addressOf;
+    }
+
+    /**
+     * @return whether the running JVM supports UNIX domain socket channels
+     */
+    public static boolean isSupported()
+    {
+        return UNIX != null;
+    }
+
+    public JdkUnixSocketProvider()
+    {
+        if (!isSupported())
+            throw new UnsupportedOperationException("UNIX domain socket channels require Java 16");
+    }
+
+    @Override
+    public Selector openSelector() throws IOException
+    {
+        return Selector.open();
+    }
+
+    @Override
+    public SelectableChannel bind(String path, int backlog) throws IOException
+    {
+        ServerSocketChannel channel = (ServerSocketChannel)invoke(OPEN_SERVER, null, UNIX);
+        try
+        {
+            channel.bind(newAddress(path), backlog);
+            return channel;
+        }
+        catch (Throwable x)
+        {
+            channel.close();
+            throw x;
+        }
+    }
+
+    @Override
+    public SocketChannel accept(SelectableChannel server) throws IOException
+    {
+        return ((ServerSocketChannel)server).accept();
+    }
+
+    @Override
+    public SocketChannel connect(String path) throws IOException
+    {
+        SocketChannel channel = (SocketChannel)invoke(OPEN_CLIENT, null, UNIX);
+        try
+        {
+            channel.connect(newAddress(path));
+            return channel;
+        }
+        catch (Throwable x)
+        {
+            channel.close();
+            throw x;
+        }
+    }
+
+    private SocketAddress newAddress(String path) throws IOException
+    {
+        return (SocketAddress)invoke(ADDRESS_OF, null, path);
+    }
+
+    private static Object invoke(Method method, Object target, Object arg) throws IOException
+    {
+        try
+        {
+            return method.invoke(target, arg);
+        }
+        catch (InvocationTargetException x)
+        {
+            Throwable cause = x.getCause();
+            if (cause instanceof IOException)
+                throw (IOException)cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            throw new IOException(cause);
+        }
+        catch (IllegalAccessException x)
+        {
+            throw new IOException(x);
+        }
+    }
+}
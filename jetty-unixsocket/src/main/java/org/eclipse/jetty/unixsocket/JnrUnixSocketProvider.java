@@ -0,0 +1,71 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.unixsocket;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+import jnr.enxio.channels.NativeSelectorProvider;
+import jnr.unixsocket.UnixServerSocketChannel;
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+
+/**
+ * <p>A {@link UnixSocketProvider} using jnr-unixsocket channels, which must be
+ * selected by the jnr {@link NativeSelectorProvider}.</p>
+ */
+public class JnrUnixSocketProvider extends UnixSocketProvider
+{
+    @Override
+    public Selector openSelector() throws IOException
+    {
+        return NativeSelectorProvider.getInstance().openSelector();
+    }
+
+    @Override
+    public SelectableChannel bind(String path, int backlog) throws IOException
+    {
+        UnixServerSocketChannel channel = UnixServerSocketChannel.open();
+        try
+        {
+            channel.socket().bind(new UnixSocketAddress(new File(path)), backlog);
+            return channel;
+        }
+        catch (Throwable x)
+        {
+            channel.close();
+            throw x;
+        }
+    }
+
+    @Override
+    public SocketChannel accept(SelectableChannel server) throws IOException
+    {
+        return ((UnixServerSocketChannel)server).accept();
+    }
+
+    @Override
+    public SocketChannel connect(String path) throws IOException
+    {
+        return UnixSocketChannel.open(new UnixSocketAddress(path));
+    }
+}
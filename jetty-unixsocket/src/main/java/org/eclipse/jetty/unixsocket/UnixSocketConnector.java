@@ -21,18 +21,14 @@ package org.eclipse.jetty.unixsocket;
 import java.io.File;
 import java.io.IOException;
 import java.net.ServerSocket;
-import java.net.SocketAddress;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.concurrent.Executor;
 
-import jnr.enxio.channels.NativeSelectorProvider;
-import jnr.unixsocket.UnixServerSocketChannel;
-import jnr.unixsocket.UnixSocketAddress;
-import jnr.unixsocket.UnixSocketChannel;
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
@@ -54,6 +50,9 @@ import org.eclipse.jetty.util.thread.Scheduler;
 
 /**
  * <p>A server-side connector for UNIX sockets.</p>
+ * <p>The UNIX socket channels and their selectors are created by a
+ * {@link UnixSocketProvider}, by default the one of the standard NIO stack
+ * when the JVM supports it, otherwise the jnr-unixsocket one.</p>
  */
 @ManagedObject("Connector using UNIX Socket")
 public class UnixSocketConnector extends AbstractConnector
@@ -64,7 +63,8 @@ public class UnixSocketConnector extends AbstractConnector
 
     private final SelectorManager _manager;
     private String _unixSocket = "/tmp/jetty.sock";
-    private volatile UnixServerSocketChannel _acceptChannel;
+    private UnixSocketProvider _provider = UnixSocketProvider.getDefault();
+    private volatile SelectableChannel _acceptChannel;
     private volatile int _acceptQueueSize = 0;
     private volatile boolean _reuseAddress = true;
 
@@ -177,6 +177,30 @@ public class UnixSocketConnector extends AbstractConnector
         _unixSocket = filename;
     }
 
+    /**
+     * @return the provider of UNIX socket channels and selectors
+     */
+    public UnixSocketProvider getProvider()
+    {
+        return _provider;
+    }
+
+    /**
+     * @param provider the provider of UNIX socket channels and selectors
+     */
+    public void setProvider(UnixSocketProvider provider)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        _provider = provider;
+    }
+
+    @ManagedAttribute("The provider of UNIX socket channels")
+    public String getProviderName()
+    {
+        return String.valueOf(_provider);
+    }
+
     protected SelectorManager newSelectorManager(Executor executor, Scheduler scheduler, int selectors)
     {
         return new UnixSocketConnectorManager(executor, scheduler, selectors);
@@ -200,7 +224,7 @@ public class UnixSocketConnector extends AbstractConnector
 
     public boolean isOpen()
     {
-        UnixServerSocketChannel channel = _acceptChannel;
+        SelectableChannel channel = _acceptChannel;
         return channel != null && channel.isOpen();
     }
 
@@ -210,18 +234,17 @@ public class UnixSocketConnector extends AbstractConnector
         {
             File file = new File(_unixSocket);
             file.deleteOnExit();
-            SocketAddress bindAddress = new UnixSocketAddress(file);
-            UnixServerSocketChannel serverChannel = UnixServerSocketChannel.open();
-            serverChannel.configureBlocking(getAcceptors() > 0);
+            SelectableChannel serverChannel;
             try
             {
-                serverChannel.socket().bind(bindAddress, getAcceptQueueSize());
+                serverChannel = _provider.bind(_unixSocket, getAcceptQueueSize());
             }
             catch (IOException e)
             {
                 LOG.warn("cannot bind {} exists={} writable={}", file, file.exists(), file.canWrite());
                 throw e;
             }
+            serverChannel.configureBlocking(getAcceptors() > 0);
             addBean(serverChannel);
             if (LOG.isDebugEnabled())
                 LOG.debug("opened {}", serverChannel);
@@ -231,7 +254,7 @@ public class UnixSocketConnector extends AbstractConnector
 
     public void close()
     {
-        UnixServerSocketChannel serverChannel = _acceptChannel;
+        SelectableChannel serverChannel = _acceptChannel;
         _acceptChannel = null;
 
         if (serverChannel != null)
@@ -266,17 +289,17 @@ public class UnixSocketConnector extends AbstractConnector
     public void accept(int acceptorID) throws IOException
     {
         LOG.debug("Blocking UnixSocket accept used.  Might not be able to be interrupted!");
-        UnixServerSocketChannel serverChannel = _acceptChannel;
+        SelectableChannel serverChannel = _acceptChannel;
         if (serverChannel != null && serverChannel.isOpen())
         {
             LOG.debug("accept {}", serverChannel);
-            UnixSocketChannel channel = serverChannel.accept();
+            SocketChannel channel = _provider.accept(serverChannel);
             LOG.debug("accepted {}", channel);
             accepted(channel);
         }
     }
 
-    protected void accepted(UnixSocketChannel channel) throws IOException
+    protected void accepted(SocketChannel channel) throws IOException
     {
         channel.configureBlocking(false);
         _manager.accept(channel);
@@ -295,7 +318,7 @@ public class UnixSocketConnector extends AbstractConnector
 
     protected UnixSocketEndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey key)
     {
-        return new UnixSocketEndPoint((UnixSocketChannel)channel, selector, key, getScheduler());
+        return new UnixSocketEndPoint((SocketChannel)channel, selector, key, getScheduler());
     }
 
     /**
@@ -337,7 +360,7 @@ public class UnixSocketConnector extends AbstractConnector
     @Override
     public String toString()
     {
-        return String.format("%s{%s}", super.toString(), _unixSocket);
+        return String.format("%s{%s,%s}", super.toString(), _unixSocket, _provider);
     }
 
     protected class UnixSocketConnectorManager extends SelectorManager
@@ -350,13 +373,13 @@ public class UnixSocketConnector extends AbstractConnector
         @Override
         protected void accepted(SelectableChannel channel) throws IOException
         {
-            UnixSocketConnector.this.accepted((UnixSocketChannel)channel);
+            UnixSocketConnector.this.accepted((SocketChannel)channel);
         }
 
         @Override
         protected Selector newSelector() throws IOException
         {
-            return NativeSelectorProvider.getInstance().openSelector();
+            return _provider.openSelector();
         }
 
         @Override
@@ -390,13 +413,13 @@ public class UnixSocketConnector extends AbstractConnector
         @Override
         protected boolean doFinishConnect(SelectableChannel channel) throws IOException
         {
-            return ((UnixSocketChannel)channel).finishConnect();
+            return ((SocketChannel)channel).finishConnect();
         }
 
         @Override
         protected boolean isConnectionPending(SelectableChannel channel)
         {
-            return ((UnixSocketChannel)channel).isConnectionPending();
+            return ((SocketChannel)channel).isConnectionPending();
         }
 
         @Override
@@ -404,7 +427,7 @@ public class UnixSocketConnector extends AbstractConnector
         {
             if (LOG.isDebugEnabled())
                 LOG.debug("doAccept async {}", server);
-            UnixSocketChannel channel = ((UnixServerSocketChannel)server).accept();
+            SocketChannel channel = _provider.accept(server);
             if (LOG.isDebugEnabled())
                 LOG.debug("accepted async {}", channel);
             return channel;
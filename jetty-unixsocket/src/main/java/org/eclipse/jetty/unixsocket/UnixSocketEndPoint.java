@@ -21,6 +21,7 @@ package org.eclipse.jetty.unixsocket;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
 
 import jnr.unixsocket.UnixSocketChannel;
 import org.eclipse.jetty.io.ChannelEndPoint;
@@ -33,9 +34,28 @@ public class UnixSocketEndPoint extends ChannelEndPoint
 {
     private static final Logger LOG = Log.getLogger(UnixSocketEndPoint.class);
 
-    private final UnixSocketChannel _channel;
+    private final SocketChannel _channel;
 
+    /**
+     * @param channel the jnr-unixsocket channel
+     * @param selector the selector the channel is registered with
+     * @param key the selection key of the channel
+     * @param scheduler the scheduler used for idle timeouts
+     * @deprecated use {@link #UnixSocketEndPoint(SocketChannel, ManagedSelector, SelectionKey, Scheduler)} instead
+     */
+    @Deprecated
     public UnixSocketEndPoint(UnixSocketChannel channel, ManagedSelector selector, SelectionKey key, Scheduler scheduler)
+    {
+        this((SocketChannel)channel, selector, key, scheduler);
+    }
+
+    /**
+     * @param channel a UNIX socket channel created by a {@link UnixSocketProvider}
+     * @param selector the selector the channel is registered with
+     * @param key the selection key of the channel
+     * @param scheduler the scheduler used for idle timeouts
+     */
+    public UnixSocketEndPoint(SocketChannel channel, ManagedSelector selector, SelectionKey key, Scheduler scheduler)
     {
         super(channel, selector, key, scheduler);
         _channel = channel;
@@ -0,0 +1,83 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.unixsocket;
+
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * <p>Abstracts the creation of UNIX socket channels and of the selectors they
+ * can be registered with, so that UNIX sockets can be used through the same
+ * {@link org.eclipse.jetty.io.ManagedSelector} and
+ * {@link org.eclipse.jetty.io.ChannelEndPoint} as TCP sockets.</p>
+ * <p>Two implementations are available:</p>
+ * <ul>
+ * <li>{@link JdkUnixSocketProvider}, using the UNIX domain socket channels of the
+ * standard NIO stack available from Java 16;</li>
+ * <li>{@link JnrUnixSocketProvider}, using jnr-unixsocket channels and its native selector.</li>
+ * </ul>
+ */
+public abstract class UnixSocketProvider
+{
+    /**
+     * @return the JDK provider if supported by the running JVM, otherwise the jnr-unixsocket provider
+     */
+    public static UnixSocketProvider getDefault()
+    {
+        if (JdkUnixSocketProvider.isSupported())
+            return new JdkUnixSocketProvider();
+        return new JnrUnixSocketProvider();
+    }
+
+    /**
+     * @return a new selector that can select the channels created by this provider
+     * @throws IOException if the selector cannot be opened
+     */
+    public abstract Selector openSelector() throws IOException;
+
+    /**
+     * @param path the path of the UNIX socket file
+     * @param backlog the accept queue size, or 0 for a default value
+     * @return a server channel bound to the given path
+     * @throws IOException if the channel cannot be bound
+     */
+    public abstract SelectableChannel bind(String path, int backlog) throws IOException;
+
+    /**
+     * @param server a server channel created by {@link #bind(String, int)}
+     * @return the accepted channel, or null if the server channel is non blocking and no connection is pending
+     * @throws IOException if the connection cannot be accepted
+     */
+    public abstract SocketChannel accept(SelectableChannel server) throws IOException;
+
+    /**
+     * @param path the path of the UNIX socket file
+     * @return a blocking channel connected to the given path
+     * @throws IOException if the channel cannot be connected
+     */
+    public abstract SocketChannel connect(String path) throws IOException;
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName();
+    }
+}
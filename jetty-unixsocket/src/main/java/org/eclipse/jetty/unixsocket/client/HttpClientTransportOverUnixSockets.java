@@ -26,11 +26,9 @@ import java.net.SocketException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
 import java.util.Map;
 
-import jnr.enxio.channels.NativeSelectorProvider;
-import jnr.unixsocket.UnixSocketAddress;
-import jnr.unixsocket.UnixSocketChannel;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.HttpDestination;
 import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
@@ -38,6 +36,7 @@ import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.ManagedSelector;
 import org.eclipse.jetty.io.SelectorManager;
 import org.eclipse.jetty.unixsocket.UnixSocketEndPoint;
+import org.eclipse.jetty.unixsocket.UnixSocketProvider;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 
@@ -45,13 +44,32 @@ public class HttpClientTransportOverUnixSockets extends HttpClientTransportOverH
 {
     private static final Logger LOG = Log.getLogger(HttpClientTransportOverUnixSockets.class);
 
+    private final UnixSocketProvider _provider;
     private String _unixSocket;
 
     public HttpClientTransportOverUnixSockets(String unixSocket)
+    {
+        this(unixSocket, UnixSocketProvider.getDefault());
+    }
+
+    /**
+     * @param unixSocket the path of the UNIX socket file to connect to
+     * @param provider the provider of UNIX socket channels and selectors
+     */
+    public HttpClientTransportOverUnixSockets(String unixSocket, UnixSocketProvider provider)
     {
         if (unixSocket == null)
             throw new IllegalArgumentException("Unix socket file cannot be null");
         this._unixSocket = unixSocket;
+        this._provider = provider;
+    }
+
+    /**
+     * @return the provider of UNIX socket channels and selectors
+     */
+    public UnixSocketProvider getProvider()
+    {
+        return _provider;
     }
 
     @Override
@@ -63,15 +81,14 @@ public class HttpClientTransportOverUnixSockets extends HttpClientTransportOverH
     @Override
     public void connect(InetSocketAddress address, Map<String, Object> context)
     {
-        UnixSocketChannel channel = null;
+        SocketChannel channel = null;
         try
         {
             InetAddress inet = address.getAddress();
             if (!inet.isLoopbackAddress() && !inet.isLinkLocalAddress() && !inet.isSiteLocalAddress())
                 throw new ConnectException("UnixSocket cannot connect to " + address.getHostString());
 
-            UnixSocketAddress unixAddress = new UnixSocketAddress(_unixSocket);
-            channel = UnixSocketChannel.open(unixAddress);
+            channel = _provider.connect(_unixSocket);
 
             HttpDestination destination = (HttpDestination)context.get(HTTP_DESTINATION_CONTEXT_KEY);
             HttpClient client = destination.getHttpClient();
@@ -106,6 +123,12 @@ public class HttpClientTransportOverUnixSockets extends HttpClientTransportOverH
         }
     }
 
+    @Override
+    protected void configure(HttpClient client, SocketChannel channel) throws IOException
+    {
+        // TCP options do not apply to UNIX sockets.
+    }
+
     public class UnixSocketSelectorManager extends ClientSelectorManager
     {
         protected UnixSocketSelectorManager(HttpClient client, int selectors)
@@ -116,13 +139,13 @@ public class HttpClientTransportOverUnixSockets extends HttpClientTransportOverH
         @Override
         protected Selector newSelector() throws IOException
         {
-            return NativeSelectorProvider.getInstance().openSelector();
+            return _provider.openSelector();
         }
 
         @Override
         protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey key)
         {
-            UnixSocketEndPoint endp = new UnixSocketEndPoint((UnixSocketChannel)channel, selector, key, getScheduler());
+            UnixSocketEndPoint endp = new UnixSocketEndPoint((SocketChannel)channel, selector, key, getScheduler());
             endp.setIdleTimeout(getHttpClient().getIdleTimeout());
             return endp;
         }
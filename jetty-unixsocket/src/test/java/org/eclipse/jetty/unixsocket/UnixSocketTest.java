@@ -95,11 +95,25 @@ public class UnixSocketTest
 
     @Test
     public void testUnixSocket() throws Exception
+    {
+        testUnixSocket(null);
+    }
+
+    @Test
+    public void testUnixSocketWithJdkProvider() throws Exception
+    {
+        assumeTrue(JdkUnixSocketProvider.isSupported());
+        testUnixSocket(new JdkUnixSocketProvider());
+    }
+
+    private void testUnixSocket(UnixSocketProvider provider) throws Exception
     {
         server = new Server();
         HttpConnectionFactory http = new HttpConnectionFactory();
         UnixSocketConnector connector = new UnixSocketConnector(server, http);
         connector.setUnixSocket(sockFile.toString());
+        if (provider != null)
+            connector.setProvider(provider);
         server.addConnector(connector);
 
         server.setHandler(new AbstractHandler.ErrorDispatchHandler()
@@ -133,7 +147,10 @@ public class UnixSocketTest
 
         server.start();
 
-        httpClient = new HttpClient(new HttpClientTransportOverUnixSockets(sockFile.toString()), null);
+        HttpClientTransportOverUnixSockets transport = provider == null
+            ? new HttpClientTransportOverUnixSockets(sockFile.toString())
+            : new HttpClientTransportOverUnixSockets(sockFile.toString(), provider);
+        httpClient = new HttpClient(transport, null);
         httpClient.start();
 
         ContentResponse contentResponse = httpClient
@@ -0,0 +1,369 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>A concurrent map with primitive {@code int} keys.</p>
+ * <p>This map avoids the boxing of keys performed by
+ * {@link java.util.concurrent.ConcurrentHashMap ConcurrentHashMap&lt;Integer, V&gt;}
+ * on every lookup, which matters for hot paths such as looking up
+ * HTTP/2 streams by id for every frame.</p>
+ * <p>The map is split into segments, each guarded by its own lock for
+ * mutations; lookups are lock-free and never allocate.
+ * Bulk read operations such as {@link #values()} return weakly consistent
+ * snapshots of the map.</p>
+ * <p>Null values are not allowed.</p>
+ *
+ * @param <V> the type of the values
+ */
+public class ConcurrentIntHashMap<V>
+{
+    private static final int MAX_SEGMENTS = 1 << 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final Segment<V>[] _segments;
+    private final int _segmentShift;
+
+    public ConcurrentIntHashMap()
+    {
+        this(64, 16);
+    }
+
+    /**
+     * @param initialCapacity the initial number of entries the map can hold without resizing
+     * @param concurrencyLevel the estimated number of concurrently updating threads
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public ConcurrentIntHashMap(int initialCapacity, int concurrencyLevel)
+    {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Invalid initial capacity " + initialCapacity);
+        if (concurrencyLevel <= 0)
+            throw new IllegalArgumentException("Invalid concurrency level " + concurrencyLevel);
+
+        int segments = 1;
+        int shift = 0;
+        while (segments < Math.min(concurrencyLevel, MAX_SEGMENTS))
+        {
+            segments <<= 1;
+            ++shift;
+        }
+        _segmentShift = 32 - shift;
+        _segments = new Segment[segments];
+
+        int perSegment = Math.min(MAX_CAPACITY, Math.max(initialCapacity / segments, 1));
+        int capacity = 2;
+        while (capacity < perSegment)
+        {
+            capacity <<= 1;
+        }
+        for (int i = 0; i < segments; ++i)
+        {
+            _segments[i] = new Segment<>(capacity);
+        }
+    }
+
+    private static int hash(int key)
+    {
+        // Stream ids and similar keys are sequential, spread them across all bits.
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Segment<V> segmentFor(int hash)
+    {
+        // With a single segment the shift is 32, which Java treats as 0.
+        return _segments.length == 1 ? _segments[0] : _segments[hash >>> _segmentShift];
+    }
+
+    /**
+     * @param key the key
+     * @return the value associated with the key, or null if there is no such value
+     */
+    public V get(int key)
+    {
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    /**
+     * @param key the key
+     * @return whether the map contains a value for the key
+     */
+    public boolean containsKey(int key)
+    {
+        return get(key) != null;
+    }
+
+    /**
+     * @param key the key
+     * @param value the value
+     * @return the previous value associated with the key, or null if there was no such value
+     */
+    public V put(int key, V value)
+    {
+        Objects.requireNonNull(value);
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * @param key the key
+     * @param value the value
+     * @return the value already associated with the key, or null if the given value was associated with the key
+     */
+    public V putIfAbsent(int key, V value)
+    {
+        Objects.requireNonNull(value);
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, true);
+    }
+
+    /**
+     * @param key the key
+     * @return the value that was associated with the key, or null if there was no such value
+     */
+    public V remove(int key)
+    {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, null);
+    }
+
+    /**
+     * <p>Removes the entry for the given key only if it is currently mapped to the given value.</p>
+     *
+     * @param key the key
+     * @param value the value expected to be associated with the key
+     * @return whether the entry was removed
+     */
+    public boolean remove(int key, V value)
+    {
+        Objects.requireNonNull(value);
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, value) != null;
+    }
+
+    /**
+     * @return the number of entries in the map
+     */
+    public int size()
+    {
+        long size = 0;
+        for (Segment<V> segment : _segments)
+        {
+            size += segment._count;
+        }
+        return (int)Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return whether the map has no entries
+     */
+    public boolean isEmpty()
+    {
+        for (Segment<V> segment : _segments)
+        {
+            if (segment._count != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * <p>Removes all the entries from the map.</p>
+     */
+    public void clear()
+    {
+        for (Segment<V> segment : _segments)
+        {
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return a snapshot list of the values in the map
+     */
+    public List<V> values()
+    {
+        List<V> result = new ArrayList<>(size());
+        for (Segment<V> segment : _segments)
+        {
+            segment.collectValues(result);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{size=%d}", getClass().getSimpleName(), hashCode(), size());
+    }
+
+    private static class Node<V>
+    {
+        private final int _key;
+        private final Node<V> _next;
+        private volatile V _value;
+
+        private Node(int key, V value, Node<V> next)
+        {
+            _key = key;
+            _value = value;
+            _next = next;
+        }
+    }
+
+    /**
+     * <p>A hash table whose bucket chains are immutable apart from the values,
+     * so that readers can traverse them without locking while writers,
+     * serialized by the segment lock, publish new chain heads.</p>
+     */
+    private static class Segment<V>
+    {
+        private volatile AtomicReferenceArray<Node<V>> _table;
+        private volatile int _count;
+        private int _threshold;
+
+        private Segment(int capacity)
+        {
+            setTable(new AtomicReferenceArray<>(capacity));
+        }
+
+        private void setTable(AtomicReferenceArray<Node<V>> table)
+        {
+            _threshold = (int)(table.length() * 0.75F);
+            _table = table;
+        }
+
+        private V get(int key, int hash)
+        {
+            if (_count == 0)
+                return null;
+            AtomicReferenceArray<Node<V>> table = _table;
+            Node<V> node = table.get(hash & (table.length() - 1));
+            while (node != null)
+            {
+                if (node._key == key)
+                    return node._value;
+                node = node._next;
+            }
+            return null;
+        }
+
+        private synchronized V put(int key, int hash, V value, boolean onlyIfAbsent)
+        {
+            AtomicReferenceArray<Node<V>> table = _table;
+            int index = hash & (table.length() - 1);
+            Node<V> first = table.get(index);
+            for (Node<V> node = first; node != null; node = node._next)
+            {
+                if (node._key == key)
+                {
+                    V old = node._value;
+                    if (!onlyIfAbsent)
+                        node._value = value;
+                    return old;
+                }
+            }
+
+            if (_count >= _threshold && table.length() < MAX_CAPACITY)
+            {
+                table = rehash(table);
+                index = hash & (table.length() - 1);
+                first = table.get(index);
+            }
+            table.set(index, new Node<>(key, value, first));
+            _count = _count + 1;
+            return null;
+        }
+
+        private synchronized V remove(int key, int hash, V expected)
+        {
+            AtomicReferenceArray<Node<V>> table = _table;
+            int index = hash & (table.length() - 1);
+            Node<V> first = table.get(index);
+            Node<V> node = first;
+            while (node != null && node._key != key)
+            {
+                node = node._next;
+            }
+            if (node == null)
+                return null;
+
+            V value = node._value;
+            if (expected != null && !expected.equals(value))
+                return null;
+
+            // Chains are immutable, so copy the nodes preceding the removed one.
+            Node<V> head = node._next;
+            for (Node<V> p = first; p != node; p = p._next)
+            {
+                head = new Node<>(p._key, p._value, head);
+            }
+            table.set(index, head);
+            _count = _count - 1;
+            return value;
+        }
+
+        private AtomicReferenceArray<Node<V>> rehash(AtomicReferenceArray<Node<V>> table)
+        {
+            int length = table.length();
+            AtomicReferenceArray<Node<V>> newTable = new AtomicReferenceArray<>(length << 1);
+            int mask = newTable.length() - 1;
+            for (int i = 0; i < length; ++i)
+            {
+                for (Node<V> node = table.get(i); node != null; node = node._next)
+                {
+                    int index = hash(node._key) & mask;
+                    newTable.set(index, new Node<>(node._key, node._value, newTable.get(index)));
+                }
+            }
+            setTable(newTable);
+            return newTable;
+        }
+
+        private synchronized void clear()
+        {
+            if (_count > 0)
+            {
+                _table = new AtomicReferenceArray<>(_table.length());
+                _count = 0;
+            }
+        }
+
+        private void collectValues(List<V> values)
+        {
+            if (_count == 0)
+                return;
+            AtomicReferenceArray<Node<V>> table = _table;
+            for (int i = 0; i < table.length(); ++i)
+            {
+                for (Node<V> node = table.get(i); node != null; node = node._next)
+                {
+                    values.add(node._value);
+                }
+            }
+        }
+    }
+}
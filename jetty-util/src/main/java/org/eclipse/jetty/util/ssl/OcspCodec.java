@@ -0,0 +1,266 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util.ssl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.cert.X509Certificate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * <p>Minimal DER encoding and decoding of the OCSP messages defined in
+ * <a href="https://tools.ietf.org/html/rfc6960">RFC 6960</a>.</p>
+ * <p>Only the fields needed to request a response for a single
+ * certificate and to schedule its refresh are processed; the
+ * verification of the responses is left to the JDK.</p>
+ */
+class OcspCodec
+{
+    private static final int INTEGER = 0x02;
+    private static final int BIT_STRING = 0x03;
+    private static final int OCTET_STRING = 0x04;
+    private static final int OBJECT_IDENTIFIER = 0x06;
+    private static final int ENUMERATED = 0x0A;
+    private static final int GENERALIZED_TIME = 0x18;
+    private static final int SEQUENCE = 0x30;
+    private static final int CONTEXT_0 = 0xA0;
+    private static final int URI_NAME = 0x86;
+    // AlgorithmIdentifier for SHA-1 (1.3.14.3.2.26) with NULL parameters.
+    private static final byte[] SHA1_ALGORITHM = {0x30, 0x09, 0x06, 0x05, 0x2B, 0x0E, 0x03, 0x02, 0x1A, 0x05, 0x00};
+    // id-ad-ocsp (1.3.6.1.5.5.7.48.1).
+    private static final byte[] OCSP_ACCESS_METHOD = {0x2B, 0x06, 0x01, 0x05, 0x05, 0x07, 0x30, 0x01};
+    private static final String AUTHORITY_INFO_ACCESS = "1.3.6.1.5.5.7.1.1";
+    private static final DateTimeFormatter GENERALIZED_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private OcspCodec()
+    {
+    }
+
+    /**
+     * @param certificate the certificate to get the status of
+     * @param issuer the issuer of the certificate
+     * @return the DER encoded OCSPRequest
+     * @throws GeneralSecurityException if the request cannot be created
+     */
+    static byte[] encodeRequest(X509Certificate certificate, X509Certificate issuer) throws GeneralSecurityException
+    {
+        try
+        {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            byte[] issuerNameHash = sha1.digest(issuer.getSubjectX500Principal().getEncoded());
+            byte[] issuerKeyHash = sha1.digest(subjectPublicKey(issuer));
+            byte[] certId = encode(SEQUENCE, SHA1_ALGORITHM,
+                encode(OCTET_STRING, issuerNameHash),
+                encode(OCTET_STRING, issuerKeyHash),
+                encode(INTEGER, certificate.getSerialNumber().toByteArray()));
+            byte[] request = encode(SEQUENCE, certId);
+            byte[] requestList = encode(SEQUENCE, request);
+            byte[] tbsRequest = encode(SEQUENCE, requestList);
+            return encode(SEQUENCE, tbsRequest);
+        }
+        catch (IOException x)
+        {
+            throw new GeneralSecurityException("Invalid issuer public key", x);
+        }
+    }
+
+    /**
+     * @param encoded the DER encoded OCSPResponse
+     * @return the nextUpdate time in milliseconds since the epoch of the first
+     * response contained in the OCSPResponse, or -1 if the response has no nextUpdate
+     * @throws IOException if the OCSPResponse is not successful or cannot be decoded
+     */
+    static long decodeNextUpdate(byte[] encoded) throws IOException
+    {
+        Reader response = new Reader(encoded).next(SEQUENCE);
+        byte[] status = response.next(ENUMERATED).bytes();
+        if (status.length != 1 || status[0] != 0)
+            throw new IOException("Unsuccessful OCSP response status " + Arrays.toString(status));
+        Reader responseBytes = response.next(CONTEXT_0).next(SEQUENCE);
+        responseBytes.next(OBJECT_IDENTIFIER);
+        Reader basicResponse = new Reader(responseBytes.next(OCTET_STRING).bytes()).next(SEQUENCE);
+        Reader responseData = basicResponse.next(SEQUENCE);
+        if (responseData.peek() == CONTEXT_0)
+            responseData.next(CONTEXT_0);
+        // ResponderID.
+        responseData.next(-1);
+        // ProducedAt.
+        responseData.next(GENERALIZED_TIME);
+        Reader singleResponse = responseData.next(SEQUENCE).next(SEQUENCE);
+        // CertID, CertStatus and ThisUpdate.
+        singleResponse.next(SEQUENCE);
+        singleResponse.next(-1);
+        singleResponse.next(GENERALIZED_TIME);
+        if (singleResponse.hasMore() && singleResponse.peek() == CONTEXT_0)
+            return decodeTime(singleResponse.next(CONTEXT_0).next(GENERALIZED_TIME).bytes());
+        return -1;
+    }
+
+    /**
+     * @param certificate the certificate
+     * @return the OCSP responder URI from the Authority Information Access extension, or null
+     * @throws IOException if the extension cannot be decoded
+     */
+    static String decodeResponderURI(X509Certificate certificate) throws IOException
+    {
+        byte[] extension = certificate.getExtensionValue(AUTHORITY_INFO_ACCESS);
+        if (extension == null)
+            return null;
+        Reader accessDescriptions = new Reader(new Reader(extension).next(OCTET_STRING).bytes()).next(SEQUENCE);
+        while (accessDescriptions.hasMore())
+        {
+            Reader accessDescription = accessDescriptions.next(SEQUENCE);
+            byte[] accessMethod = accessDescription.next(OBJECT_IDENTIFIER).bytes();
+            if (Arrays.equals(OCSP_ACCESS_METHOD, accessMethod) && accessDescription.peek() == URI_NAME)
+                return new String(accessDescription.next(URI_NAME).bytes(), StandardCharsets.US_ASCII);
+        }
+        return null;
+    }
+
+    private static byte[] subjectPublicKey(X509Certificate certificate) throws IOException
+    {
+        // SubjectPublicKeyInfo ::= SEQUENCE { algorithm AlgorithmIdentifier, subjectPublicKey BIT STRING }
+        Reader publicKeyInfo = new Reader(certificate.getPublicKey().getEncoded()).next(SEQUENCE);
+        publicKeyInfo.next(SEQUENCE);
+        byte[] bits = publicKeyInfo.next(BIT_STRING).bytes();
+        // Skip the number of unused bits.
+        return Arrays.copyOfRange(bits, 1, bits.length);
+    }
+
+    private static long decodeTime(byte[] bytes) throws IOException
+    {
+        String time = new String(bytes, StandardCharsets.US_ASCII);
+        try
+        {
+            // Times are in UTC, fractions of seconds are ignored.
+            return LocalDateTime.parse(time.substring(0, 14), GENERALIZED_TIME_FORMAT).toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+        catch (IndexOutOfBoundsException | DateTimeParseException x)
+        {
+            throw new IOException("Invalid GeneralizedTime " + time, x);
+        }
+    }
+
+    private static byte[] encode(int tag, byte[]... values)
+    {
+        int length = 0;
+        for (byte[] value : values)
+        {
+            length += value.length;
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream(length + 6);
+        output.write(tag);
+        if (length < 0x80)
+        {
+            output.write(length);
+        }
+        else
+        {
+            int bytes = (32 - Integer.numberOfLeadingZeros(length) + 7) / 8;
+            output.write(0x80 | bytes);
+            for (int i = bytes - 1; i >= 0; --i)
+            {
+                output.write(length >>> (8 * i));
+            }
+        }
+        for (byte[] value : values)
+        {
+            output.write(value, 0, value.length);
+        }
+        return output.toByteArray();
+    }
+
+    private static class Reader
+    {
+        private final byte[] data;
+        private final int end;
+        private int position;
+
+        private Reader(byte[] data)
+        {
+            this(data, 0, data.length);
+        }
+
+        private Reader(byte[] data, int position, int end)
+        {
+            this.data = data;
+            this.position = position;
+            this.end = end;
+        }
+
+        private boolean hasMore()
+        {
+            return position < end;
+        }
+
+        private int peek() throws IOException
+        {
+            if (!hasMore())
+                throw new IOException("Truncated DER value");
+            return data[position] & 0xFF;
+        }
+
+        /**
+         * @param tag the expected tag, or -1 to accept any tag
+         * @return a reader for the value of the next element
+         * @throws IOException if the next element cannot be decoded or does not have the expected tag
+         */
+        private Reader next(int tag) throws IOException
+        {
+            int actual = peek();
+            if (tag >= 0 && actual != tag)
+                throw new IOException(String.format("Unexpected DER tag 0x%02x, expected 0x%02x", actual, tag));
+            ++position;
+            if (!hasMore())
+                throw new IOException("Truncated DER value");
+            int length = data[position++] & 0xFF;
+            if (length >= 0x80)
+            {
+                int bytes = length & 0x7F;
+                if (bytes == 0 || bytes > 3)
+                    throw new IOException("Unsupported DER length");
+                length = 0;
+                for (int i = 0; i < bytes; ++i)
+                {
+                    if (!hasMore())
+                        throw new IOException("Truncated DER value");
+                    length = (length << 8) | (data[position++] & 0xFF);
+                }
+            }
+            if (length > end - position)
+                throw new IOException("Truncated DER value");
+            Reader result = new Reader(data, position, position + length);
+            position += length;
+            return result;
+        }
+
+        private byte[] bytes()
+        {
+            return Arrays.copyOfRange(data, position, end);
+        }
+    }
+}
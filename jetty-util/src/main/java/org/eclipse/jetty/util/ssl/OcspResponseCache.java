@@ -0,0 +1,698 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util.ssl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.cert.CertPath;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.PKIXCertPathChecker;
+import java.security.cert.PKIXParameters;
+import java.security.cert.PKIXRevocationChecker;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+/**
+ * <p>A cache of OCSP responses that are fetched and refreshed in the background.</p>
+ * <p>Certificates are added to the cache, either explicitly via
+ * {@link #addCertificate(X509Certificate, X509Certificate)} or lazily when
+ * they are first checked; their OCSP responses are then fetched from a
+ * {@link Responder} and refreshed via the {@link Scheduler} before they expire,
+ * so that {@link #getResponse(X509Certificate)} always serves them from memory.</p>
+ * <p>When configured with {@link SslContextFactory#setOcspResponseCache(OcspResponseCache)},
+ * the revocation status of peer certificates is verified by the JDK against the
+ * cached responses, rather than by querying the OCSP responder during the TLS
+ * handshake as the {@code ocsp.enable} security property does, so handshakes never
+ * block on the responder latency.
+ * Certificates with no valid cached response yet are accepted, unless
+ * {@link #setFailOnMissingResponse(boolean)} is enabled.</p>
+ * <p>The cache holds at most {@link #getMaxSize()} certificates, evicting the least
+ * recently used ones; certificates that have not been looked up for
+ * {@link #getMaxIdleTime()} or that have expired are dropped instead of being refreshed.</p>
+ * <p>The {@link Responder} is pluggable, so that tests can use a local stub responder.</p>
+ */
+@ManagedObject("OCSP response cache")
+public class OcspResponseCache extends ContainerLifeCycle
+{
+    private static final Logger LOG = Log.getLogger(OcspResponseCache.class);
+
+    private final ConcurrentMap<X509Certificate, Entry> _entries = new ConcurrentHashMap<>();
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _fetches = new LongAdder();
+    private final LongAdder _fetchFailures = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    private final Scheduler _scheduler;
+    private final Executor _executor;
+    private final Responder _responder;
+    private long _defaultRefreshInterval = TimeUnit.HOURS.toMillis(1);
+    private long _retryInterval = TimeUnit.MINUTES.toMillis(1);
+    private boolean _failOnMissingResponse;
+    private int _maxSize = 1024;
+    private long _maxIdleTime = TimeUnit.HOURS.toMillis(24);
+
+    public OcspResponseCache()
+    {
+        this(new HttpResponder());
+    }
+
+    public OcspResponseCache(Responder responder)
+    {
+        this(null, null, responder);
+    }
+
+    /**
+     * @param scheduler the scheduler used to refresh the responses, or null to use a dedicated scheduler
+     * @param executor the executor used to fetch the responses, or null to fetch them from the scheduler thread
+     * @param responder the responder to fetch the responses from
+     */
+    public OcspResponseCache(Scheduler scheduler, Executor executor, Responder responder)
+    {
+        _scheduler = scheduler == null ? new ScheduledExecutorScheduler("OcspResponseCache", true) : scheduler;
+        _executor = executor == null ? Runnable::run : executor;
+        _responder = Objects.requireNonNull(responder);
+        addBean(_scheduler);
+    }
+
+    public Responder getResponder()
+    {
+        return _responder;
+    }
+
+    /**
+     * @return the interval in milliseconds to refresh responses that do not specify when they expire
+     */
+    @ManagedAttribute("The refresh interval in ms of responses without nextUpdate")
+    public long getDefaultRefreshInterval()
+    {
+        return _defaultRefreshInterval;
+    }
+
+    public void setDefaultRefreshInterval(long defaultRefreshInterval)
+    {
+        _defaultRefreshInterval = defaultRefreshInterval;
+    }
+
+    /**
+     * @return the interval in milliseconds to retry failed fetches
+     */
+    @ManagedAttribute("The interval in ms to retry failed fetches")
+    public long getRetryInterval()
+    {
+        return _retryInterval;
+    }
+
+    public void setRetryInterval(long retryInterval)
+    {
+        _retryInterval = retryInterval;
+    }
+
+    /**
+     * @return whether certificates without a valid cached response fail the revocation check
+     */
+    @ManagedAttribute("Whether certificates without a valid cached response fail the revocation check")
+    public boolean isFailOnMissingResponse()
+    {
+        return _failOnMissingResponse;
+    }
+
+    public void setFailOnMissingResponse(boolean failOnMissingResponse)
+    {
+        _failOnMissingResponse = failOnMissingResponse;
+    }
+
+    /**
+     * @return the max number of cached certificates
+     */
+    @ManagedAttribute("The max number of cached certificates")
+    public int getMaxSize()
+    {
+        return _maxSize;
+    }
+
+    public void setMaxSize(int maxSize)
+    {
+        _maxSize = maxSize;
+    }
+
+    /**
+     * @return the time in milliseconds after which certificates that have not been looked up are dropped
+     */
+    @ManagedAttribute("The time in ms after which certificates not looked up are dropped")
+    public long getMaxIdleTime()
+    {
+        return _maxIdleTime;
+    }
+
+    public void setMaxIdleTime(long maxIdleTime)
+    {
+        _maxIdleTime = maxIdleTime;
+    }
+
+    @ManagedAttribute("The number of cached certificates")
+    public int getSize()
+    {
+        return _entries.size();
+    }
+
+    @ManagedAttribute("The number of lookups served from the cache")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute("The number of lookups without a valid cached response")
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedAttribute("The number of responses fetched from the responder")
+    public long getFetches()
+    {
+        return _fetches.sum();
+    }
+
+    @ManagedAttribute("The number of failed fetches from the responder")
+    public long getFetchFailures()
+    {
+        return _fetchFailures.sum();
+    }
+
+    @ManagedAttribute("The number of certificates evicted or dropped from the cache")
+    public long getEvictions()
+    {
+        return _evictions.sum();
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        super.doStart();
+        for (Entry entry : _entries.values())
+        {
+            entry.schedule(0);
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        for (Entry entry : _entries.values())
+        {
+            entry.cancel();
+        }
+        super.doStop();
+    }
+
+    /**
+     * <p>Adds a certificate to the cache, fetching its OCSP response in the background.</p>
+     *
+     * @param certificate the certificate
+     * @param issuer the issuer of the certificate
+     */
+    public void addCertificate(X509Certificate certificate, X509Certificate issuer)
+    {
+        Objects.requireNonNull(issuer);
+        Entry entry = new Entry(certificate, issuer);
+        if (_entries.putIfAbsent(certificate, entry) == null)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Added {}", entry);
+            if (isRunning())
+                entry.schedule(0);
+            while (_entries.size() > getMaxSize())
+            {
+                if (!evictLeastRecentlyUsed())
+                    break;
+            }
+        }
+    }
+
+    private boolean evictLeastRecentlyUsed()
+    {
+        Entry eldest = null;
+        for (Entry entry : _entries.values())
+        {
+            if (eldest == null || entry.lastUsed < eldest.lastUsed)
+                eldest = entry;
+        }
+        return eldest != null && evict(eldest);
+    }
+
+    private boolean evict(Entry entry)
+    {
+        if (!_entries.remove(entry.certificate, entry))
+            return false;
+        entry.cancel();
+        _evictions.increment();
+        if (LOG.isDebugEnabled())
+            LOG.debug("Evicted {}", entry);
+        return true;
+    }
+
+    /**
+     * @param certificate the certificate to remove from the cache
+     * @return whether the certificate was removed
+     */
+    public boolean removeCertificate(X509Certificate certificate)
+    {
+        Entry entry = _entries.remove(certificate);
+        if (entry == null)
+            return false;
+        entry.cancel();
+        return true;
+    }
+
+    /**
+     * <p>Returns the cached OCSP response for the given certificate, without blocking.</p>
+     *
+     * @param certificate the certificate
+     * @return the DER encoded OCSP response, or null if there is no valid cached response
+     */
+    public byte[] getResponse(X509Certificate certificate)
+    {
+        Entry entry = _entries.get(certificate);
+        byte[] response = entry == null ? null : entry.use(System.currentTimeMillis());
+        if (response == null)
+            _misses.increment();
+        else
+            _hits.increment();
+        return response;
+    }
+
+    /**
+     * <p>Fetches again the responses of all the cached certificates.</p>
+     */
+    @ManagedOperation(value = "Refreshes all the cached responses", impact = "ACTION")
+    public void refresh()
+    {
+        for (Entry entry : _entries.values())
+        {
+            entry.schedule(0);
+        }
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        _hits.reset();
+        _misses.reset();
+        _fetches.reset();
+        _fetchFailures.reset();
+        _evictions.reset();
+    }
+
+    /**
+     * @param trustAnchors the trust anchors of the certification paths to check
+     * @return a checker that verifies the revocation status of the certificates of
+     * a certification path against the cached responses
+     */
+    public PKIXCertPathChecker newCertPathChecker(Set<TrustAnchor> trustAnchors)
+    {
+        List<X509Certificate> anchors = new ArrayList<>();
+        for (TrustAnchor trustAnchor : trustAnchors)
+        {
+            if (trustAnchor.getTrustedCert() != null)
+                anchors.add(trustAnchor.getTrustedCert());
+        }
+        return new CachedResponseChecker(anchors);
+    }
+
+    private void check(X509Certificate certificate, X509Certificate issuer) throws CertPathValidatorException
+    {
+        Entry entry = _entries.get(certificate);
+        byte[] response = entry == null ? null : entry.use(System.currentTimeMillis());
+        if (response == null)
+        {
+            _misses.increment();
+            if (issuer != null)
+                addCertificate(certificate, issuer);
+            if (isFailOnMissingResponse())
+                throw new CertPathValidatorException("No OCSP response for " + certificate.getSubjectX500Principal());
+            if (LOG.isDebugEnabled())
+                LOG.debug("No OCSP response for {}", certificate.getSubjectX500Principal());
+            return;
+        }
+        _hits.increment();
+
+        try
+        {
+            // Let the JDK verify the cached response, without falling back to network lookups.
+            CertPathValidator validator = CertPathValidator.getInstance("PKIX");
+            PKIXRevocationChecker revocationChecker = (PKIXRevocationChecker)validator.getRevocationChecker();
+            revocationChecker.setOptions(EnumSet.of(PKIXRevocationChecker.Option.ONLY_END_ENTITY, PKIXRevocationChecker.Option.NO_FALLBACK));
+            revocationChecker.setOcspResponses(Collections.singletonMap(certificate, response));
+            PKIXParameters parameters = new PKIXParameters(Collections.singleton(new TrustAnchor(entry.issuer, null)));
+            parameters.addCertPathChecker(revocationChecker);
+            CertPath certPath = CertificateFactory.getInstance("X.509").generateCertPath(Collections.singletonList(certificate));
+            validator.validate(certPath, parameters);
+        }
+        catch (CertPathValidatorException x)
+        {
+            throw x;
+        }
+        catch (GeneralSecurityException x)
+        {
+            throw new CertPathValidatorException(x);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[size=%d/%d,hits=%d,misses=%d]", getClass().getSimpleName(), hashCode(), getSize(), getMaxSize(), getHits(), getMisses());
+    }
+
+    /**
+     * <p>Fetches OCSP responses.</p>
+     */
+    @FunctionalInterface
+    public interface Responder
+    {
+        /**
+         * <p>Fetches the OCSP response for the given certificate; this method may block.</p>
+         *
+         * @param certificate the certificate
+         * @param issuer the issuer of the certificate
+         * @return the OCSP response
+         * @throws Exception if the response cannot be fetched
+         */
+        Response fetch(X509Certificate certificate, X509Certificate issuer) throws Exception;
+    }
+
+    /**
+     * <p>An OCSP response and its expiration time.</p>
+     */
+    public static class Response
+    {
+        private final byte[] encoded;
+        private final long nextUpdate;
+
+        /**
+         * @param encoded the DER encoded OCSP response
+         * @param nextUpdate the time in milliseconds since the epoch when the response expires, or -1 if unknown
+         */
+        public Response(byte[] encoded, long nextUpdate)
+        {
+            this.encoded = Objects.requireNonNull(encoded);
+            this.nextUpdate = nextUpdate;
+        }
+
+        public byte[] getEncoded()
+        {
+            return encoded;
+        }
+
+        public long getNextUpdate()
+        {
+            return nextUpdate;
+        }
+    }
+
+    /**
+     * <p>A {@link Responder} that sends HTTP POST requests to the OCSP responder
+     * specified by the certificates, or to a configured OCSP responder.</p>
+     */
+    public static class HttpResponder implements Responder
+    {
+        private final String responderURL;
+        private int timeout = 5000;
+
+        public HttpResponder()
+        {
+            this(null);
+        }
+
+        /**
+         * @param responderURL the OCSP responder URL that overrides the one specified by the certificates, or null
+         */
+        public HttpResponder(String responderURL)
+        {
+            this.responderURL = responderURL;
+        }
+
+        /**
+         * @return the connect and read timeout in milliseconds
+         */
+        public int getTimeout()
+        {
+            return timeout;
+        }
+
+        public void setTimeout(int timeout)
+        {
+            this.timeout = timeout;
+        }
+
+        @Override
+        public Response fetch(X509Certificate certificate, X509Certificate issuer) throws Exception
+        {
+            String url = responderURL != null ? responderURL : OcspCodec.decodeResponderURI(certificate);
+            if (url == null)
+                throw new CertificateException("No OCSP responder for " + certificate.getSubjectX500Principal());
+
+            byte[] request = OcspCodec.encodeRequest(certificate, issuer);
+            HttpURLConnection connection = (HttpURLConnection)new URL(url).openConnection();
+            try
+            {
+                connection.setConnectTimeout(timeout);
+                connection.setReadTimeout(timeout);
+                connection.setRequestMethod("POST");
+                connection.setRequestProperty("Content-Type", "application/ocsp-request");
+                connection.setRequestProperty("Accept", "application/ocsp-response");
+                connection.setDoOutput(true);
+                try (OutputStream output = connection.getOutputStream())
+                {
+                    output.write(request);
+                }
+
+                int status = connection.getResponseCode();
+                if (status != HttpURLConnection.HTTP_OK)
+                    throw new IOException("OCSP responder " + url + " replied " + status);
+
+                byte[] encoded;
+                try (InputStream input = connection.getInputStream())
+                {
+                    encoded = IO.readBytes(input);
+                }
+                return new Response(encoded, OcspCodec.decodeNextUpdate(encoded));
+            }
+            finally
+            {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private class Entry implements Runnable
+    {
+        private final X509Certificate certificate;
+        private final X509Certificate issuer;
+        private volatile Response response;
+        private volatile long lastUsed = System.nanoTime();
+        private Scheduler.Task task;
+
+        private Entry(X509Certificate certificate, X509Certificate issuer)
+        {
+            this.certificate = certificate;
+            this.issuer = issuer;
+        }
+
+        private byte[] use(long now)
+        {
+            lastUsed = System.nanoTime();
+            return getResponse(now);
+        }
+
+        private boolean isStale(long now)
+        {
+            if (certificate.getNotAfter().getTime() <= now)
+                return true;
+            long idle = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastUsed);
+            return idle > getMaxIdleTime();
+        }
+
+        private byte[] getResponse(long now)
+        {
+            Response response = this.response;
+            if (response == null)
+                return null;
+            long nextUpdate = response.getNextUpdate();
+            if (nextUpdate >= 0 && nextUpdate <= now)
+                return null;
+            return response.getEncoded();
+        }
+
+        private void schedule(long delay)
+        {
+            synchronized (this)
+            {
+                if (task != null)
+                    task.cancel();
+                task = null;
+                if (!isRunning() || _entries.get(certificate) != this)
+                    return;
+                task = _scheduler.schedule(() -> _executor.execute(this), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void cancel()
+        {
+            synchronized (this)
+            {
+                if (task != null)
+                    task.cancel();
+                task = null;
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            if (isStale(System.currentTimeMillis()))
+            {
+                // Do not keep fetching responses for certificates that are not used anymore.
+                evict(this);
+                return;
+            }
+
+            long delay;
+            try
+            {
+                Response response = _responder.fetch(certificate, issuer);
+                this.response = response;
+                _fetches.increment();
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Fetched {}", this);
+                delay = refreshDelay(response.getNextUpdate(), System.currentTimeMillis());
+            }
+            catch (Throwable x)
+            {
+                // Keep the previous response, if any, until it expires.
+                _fetchFailures.increment();
+                LOG.warn("Could not fetch OCSP response for " + certificate.getSubjectX500Principal(), x);
+                delay = getRetryInterval();
+            }
+            schedule(delay);
+        }
+
+        private long refreshDelay(long nextUpdate, long now)
+        {
+            if (nextUpdate < 0)
+                return getDefaultRefreshInterval();
+            long remaining = nextUpdate - now;
+            if (remaining <= 0)
+                return getRetryInterval();
+            // Refresh halfway to the expiration, leaving time to retry failures.
+            return remaining / 2;
+        }
+
+        @Override
+        public String toString()
+        {
+            Response response = this.response;
+            return String.format("%s@%x[%s,nextUpdate=%d]", getClass().getSimpleName(), hashCode(),
+                certificate.getSubjectX500Principal(), response == null ? 0 : response.getNextUpdate());
+        }
+    }
+
+    private class CachedResponseChecker extends PKIXCertPathChecker
+    {
+        private final List<X509Certificate> anchors;
+        private X509Certificate previous;
+
+        private CachedResponseChecker(List<X509Certificate> anchors)
+        {
+            this.anchors = anchors;
+        }
+
+        @Override
+        public void init(boolean forward) throws CertPathValidatorException
+        {
+            if (forward)
+                throw new CertPathValidatorException("Forward checking not supported");
+            previous = null;
+        }
+
+        @Override
+        public boolean isForwardCheckingSupported()
+        {
+            return false;
+        }
+
+        @Override
+        public Set<String> getSupportedExtensions()
+        {
+            return null;
+        }
+
+        @Override
+        public void check(Certificate cert, Collection<String> unresolvedCritExts) throws CertPathValidatorException
+        {
+            // Certificates are checked from the trust anchor to the target,
+            // so the issuer is either the previous certificate or a trust anchor.
+            X509Certificate certificate = (X509Certificate)cert;
+            X509Certificate issuer = previous != null ? previous : findAnchor(certificate);
+            previous = certificate;
+            OcspResponseCache.this.check(certificate, issuer);
+        }
+
+        private X509Certificate findAnchor(X509Certificate certificate)
+        {
+            for (X509Certificate anchor : anchors)
+            {
+                if (anchor.getSubjectX500Principal().equals(certificate.getIssuerX500Principal()))
+                    return anchor;
+            }
+            return null;
+        }
+    }
+}
@@ -140,9 +140,9 @@ public class SslContextFactory extends AbstractLifeCycle implements Dumpable
     private final Set<String> _includeProtocols = new LinkedHashSet<>();
     private final Set<String> _excludeCipherSuites = new LinkedHashSet<>();
     private final List<String> _includeCipherSuites = new ArrayList<>();
-    private final Map<String, X509> _aliasX509 = new HashMap<>();
-    private final Map<String, X509> _certHosts = new HashMap<>();
-    private final Map<String, X509> _certWilds = new HashMap<>();
+    private volatile Map<String, X509> _aliasX509 = Collections.emptyMap();
+    private volatile Map<String, X509> _certHosts = Collections.emptyMap();
+    private volatile Map<String, X509> _certWilds = Collections.emptyMap();
     private String[] _selectedProtocols;
     private boolean _useCipherSuitesOrder = true;
     private Comparator<String> _cipherComparator;
@@ -171,6 +171,7 @@ public class SslContextFactory extends AbstractLifeCycle implements Dumpable
     private boolean _enableCRLDP = false;
     private boolean _enableOCSP = false;
     private String _ocspResponderURL;
+    private OcspResponseCache _ocspResponseCache;
     private KeyStore _setKeyStore;
     private KeyStore _setTrustStore;
     private boolean _sessionCachingEnabled = true;
@@ -292,11 +293,37 @@ public class SslContextFactory extends AbstractLifeCycle implements Dumpable
         }
     }
 
+    /**
+     * Build a new SSLContext and the certificate maps from the configuration.
+     * Nothing is changed unless the whole load succeeds, so that a failed
+     * reload keeps the current keys.
+     */
     private void load() throws Exception
+    {
+        Map<String, X509> oldAliasX509 = _aliasX509;
+        Map<String, X509> oldCertHosts = _certHosts;
+        Map<String, X509> oldCertWilds = _certWilds;
+        try
+        {
+            doLoad();
+        }
+        catch (Throwable x)
+        {
+            _aliasX509 = oldAliasX509;
+            _certHosts = oldCertHosts;
+            _certWilds = oldCertWilds;
+            throw x;
+        }
+    }
+
+    private void doLoad() throws Exception
     {
         SSLContext context = _setContext;
         KeyStore keyStore = _setKeyStore;
         KeyStore trustStore = _setTrustStore;
+        Map<String, X509> aliasX509 = new HashMap<>();
+        Map<String, X509> certHosts = new HashMap<>();
+        Map<String, X509> certWilds = new HashMap<>();
 
         if (context == null)
         {
@@ -343,7 +370,7 @@ public class SslContextFactory extends AbstractLifeCycle implements Dumpable
                                 continue;
                             }
                             X509 x509 = new X509(alias, x509C);
-                            _aliasX509.put(alias, x509);
+                            aliasX509.put(alias, x509);
 
                             if (isValidateCerts())
                             {
@@ -359,16 +386,22 @@ public class SslContextFactory extends AbstractLifeCycle implements Dumpable
 
                             for (String h : x509.getHosts())
                             {
-                                _certHosts.put(h, x509);
+                                certHosts.put(h, x509);
                             }
                             for (String w : x509.getWilds())
                             {
-                                _certWilds.put(w, x509);
+                                certWilds.put(w, x509);
                             }
                         }
                     }
                 }
 
+                // The certificate maps decide whether getKeyManagers() selects certificates
+                // by SNI, so set them first; they are restored below if the load fails.
+                _aliasX509 = aliasX509;
+                _certHosts = certHosts;
+                _certWilds = certWilds;
+
                 // Instantiate key and trust managers
                 KeyManager[] keyManagers = getKeyManagers(keyStore);
                 TrustManager[] trustManagers = getTrustManagers(trustStore, crls);
@@ -395,6 +428,9 @@ public class SslContextFactory extends AbstractLifeCycle implements Dumpable
         selectCipherSuites(enabled.getCipherSuites(), supported.getCipherSuites());
         selectProtocols(enabled.getProtocols(), supported.getProtocols());
 
+        _aliasX509 = aliasX509;
+        _certHosts = certHosts;
+        _certWilds = certWilds;
         _factory = new Factory(keyStore, trustStore, context);
         if (LOG.isDebugEnabled())
         {
@@ -475,9 +511,9 @@ public class SslContextFactory extends AbstractLifeCycle implements Dumpable
         _factory = null;
         _selectedProtocols = null;
         _selectedCipherSuites = null;
-        _aliasX509.clear();
-        _certHosts.clear();
-        _certWilds.clear();
+        _aliasX509 = Collections.emptyMap();
+        _certHosts = Collections.emptyMap();
+        _certWilds = Collections.emptyMap();
     }
 
     @ManagedAttribute(value = "The selected TLS protocol versions", readonly = true)
@@ -1314,6 +1350,15 @@ public class SslContextFactory extends AbstractLifeCycle implements Dumpable
             System.setProperty("com.sun.security.enableCRLDP", "true");
         }
 
+        if (_ocspResponseCache != null)
+        {
+            pbParams.addCertPathChecker(_ocspResponseCache.newCertPathChecker(pbParams.getTrustAnchors()));
+            // The cached OCSP responses replace the default revocation checking
+            // that would query the OCSP responder during the TLS handshake.
+            if ((crls == null || crls.isEmpty()) && !_enableCRLDP && !_enableOCSP)
+                pbParams.setRevocationEnabled(false);
+        }
+
         if (_enableOCSP)
         {
             // Enable On-Line Certificate Status Protocol (OCSP) support
@@ -1500,6 +1545,26 @@ public class SslContextFactory extends AbstractLifeCycle implements Dumpable
         _ocspResponderURL = ocspResponderURL;
     }
 
+    /**
+     * @return the cache of OCSP responses used to check the revocation status of peer certificates
+     */
+    public OcspResponseCache getOcspResponseCache()
+    {
+        return _ocspResponseCache;
+    }
+
+    /**
+     * <p>Sets the cache of OCSP responses used to check the revocation status
+     * of peer certificates when {@link #isValidatePeerCerts() validating peer certificates}.</p>
+     * <p>The cache must be started independently, typically by adding it as a bean to the Server.</p>
+     *
+     * @param ocspResponseCache the cache of OCSP responses
+     */
+    public void setOcspResponseCache(OcspResponseCache ocspResponseCache)
+    {
+        _ocspResponseCache = ocspResponseCache;
+    }
+
     /**
      * Set the key store.
      *
@@ -1962,7 +2027,7 @@ public class SslContextFactory extends AbstractLifeCycle implements Dumpable
         synchronized (this)
         {
             consumer.accept(this);
-            unload();
+            // load() only replaces the current context once the new one is built
             load();
         }
     }
@@ -0,0 +1,160 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Histogram of a sampled value, such as a latency.</p>
+ * <p>Samples are counted in buckets with power of 2 bounds: bucket 0 counts samples of 0,
+ * and bucket {@code n} counts samples from {@code 2^(n-1)} up to {@code 2^n - 1}.
+ * Percentiles are estimated as the upper bound of the bucket that contains them,
+ * so they are accurate to within a factor of 2.</p>
+ */
+public class HistogramStatistic
+{
+    private final LongAdder[] _buckets = new LongAdder[Long.SIZE];
+    private final LongAccumulator _max = new LongAccumulator(Math::max, 0L);
+    private final LongAdder _total = new LongAdder();
+
+    public HistogramStatistic()
+    {
+        for (int i = 0; i < _buckets.length; i++)
+        {
+            _buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Resets the statistics.
+     */
+    public void reset()
+    {
+        for (LongAdder bucket : _buckets)
+        {
+            bucket.reset();
+        }
+        _max.reset();
+        _total.reset();
+    }
+
+    /**
+     * Records a sample value.
+     *
+     * @param sample the value to record, negative values are recorded as 0
+     */
+    public void record(long sample)
+    {
+        sample = Math.max(0, sample);
+        _buckets[Long.SIZE - Long.numberOfLeadingZeros(sample)].increment();
+        _max.accumulate(sample);
+        _total.add(sample);
+    }
+
+    /**
+     * @return the number of samples recorded
+     */
+    public long getCount()
+    {
+        long count = 0;
+        for (LongAdder bucket : _buckets)
+        {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return the max value of the recorded samples
+     */
+    public long getMax()
+    {
+        return _max.get();
+    }
+
+    /**
+     * @return the average value of the samples recorded, or zero if there are no samples
+     */
+    public double getMean()
+    {
+        long count = getCount();
+        return count > 0 ? (double)_total.sum() / count : 0.0D;
+    }
+
+    /**
+     * @return the number of samples in each bucket, up to the last non empty bucket
+     */
+    public long[] getBuckets()
+    {
+        int last = _buckets.length - 1;
+        while (last >= 0 && _buckets[last].sum() == 0)
+        {
+            last--;
+        }
+        long[] counts = new long[last + 1];
+        for (int i = 0; i <= last; i++)
+        {
+            counts[i] = _buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * @param bucket the index of a bucket
+     * @return the largest sample counted by the bucket
+     */
+    public static long getUpperBound(int bucket)
+    {
+        return bucket >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return an upper bound of the samples at the percentile, or zero if there are no samples
+     */
+    public long getPercentile(double percentile)
+    {
+        long[] counts = getBuckets();
+        long count = 0;
+        for (long c : counts)
+        {
+            count += c;
+        }
+        if (count == 0)
+            return 0;
+
+        long rank = (long)Math.ceil(count * Math.min(100.0D, Math.max(0.0D, percentile)) / 100.0D);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(getUpperBound(i), getMax());
+        }
+        return getMax();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{count=%d,mean=%.1f,p50=%d,p99=%d,max=%d}", getClass().getSimpleName(), hashCode(),
+            getCount(), getMean(), getPercentile(50), getPercentile(99), getMax());
+    }
+}
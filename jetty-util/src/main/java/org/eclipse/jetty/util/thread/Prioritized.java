@@ -0,0 +1,46 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+/**
+ * <p>A task that declares the priority level it should be queued with
+ * by a {@link PrioritizedQueue}.</p>
+ * <p>Levels are numbered from {@code 0}, the most urgent, upwards;
+ * a negative level indicates that the task has not been classified.</p>
+ */
+public interface Prioritized
+{
+    /**
+     * @return the priority level of this task, or a negative value if unclassified
+     */
+    int getPriority();
+
+    /**
+     * Get the priority level of an Object.
+     *
+     * @param o the object to check the priority level of
+     * @return the priority level of the object if it is {@link Prioritized}, otherwise -1
+     */
+    static int getPriority(Object o)
+    {
+        if (o instanceof Prioritized)
+            return ((Prioritized)o).getPriority();
+        return -1;
+    }
+}
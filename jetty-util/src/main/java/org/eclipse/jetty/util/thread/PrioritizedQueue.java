@@ -0,0 +1,410 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>A multi-level {@link BlockingQueue}, typically used as the job queue
+ * of a {@link QueuedThreadPool}, that serves elements from the most urgent
+ * non empty level first.</p>
+ * <p>The level of each element is obtained from {@link Prioritized#getPriority(Object)};
+ * unclassified elements are queued at the default level and levels beyond
+ * the last one are queued at the last level.</p>
+ * <p>Each level has its own capacity, so that a flood of elements at one level
+ * cannot take the queue capacity reserved for the other levels: an element
+ * is rejected by {@link #offer(Object)} only if its own level is full.</p>
+ * <p>Levels are served in strict priority order, so elements at a level wait
+ * for as long as more urgent levels have queued elements.</p>
+ *
+ * @param <E> The element type
+ */
+public class PrioritizedQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>
+{
+    private final ReentrantLock _lock = new ReentrantLock();
+    private final Condition _notEmpty = _lock.newCondition();
+    private final ArrayDeque<E>[] _levels;
+    private final int[] _capacities;
+    private final int _defaultLevel;
+    private int _size;
+
+    /**
+     * Creates a queue with the given capacity for each level.
+     *
+     * @param defaultLevel the level of unclassified elements
+     * @param capacities the capacity of each level, the length being the number of levels
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public PrioritizedQueue(int defaultLevel, int... capacities)
+    {
+        if (capacities.length == 0)
+            throw new IllegalArgumentException("No levels");
+        if (defaultLevel < 0 || defaultLevel >= capacities.length)
+            throw new IllegalArgumentException("Invalid default level " + defaultLevel);
+        for (int capacity : capacities)
+        {
+            if (capacity <= 0)
+                throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        _capacities = capacities.clone();
+        _defaultLevel = defaultLevel;
+        _levels = new ArrayDeque[capacities.length];
+        for (int i = 0; i < _levels.length; ++i)
+        {
+            _levels[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * @return the number of levels
+     */
+    public int getLevels()
+    {
+        return _levels.length;
+    }
+
+    /**
+     * @return the level of unclassified elements
+     */
+    public int getDefaultLevel()
+    {
+        return _defaultLevel;
+    }
+
+    /**
+     * @param level the level
+     * @return the capacity of the given level
+     */
+    public int getCapacity(int level)
+    {
+        return _capacities[level];
+    }
+
+    /**
+     * @param level the level
+     * @return the number of elements queued at the given level
+     */
+    public int size(int level)
+    {
+        _lock.lock();
+        try
+        {
+            return _levels[level].size();
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * @param e the element
+     * @return the level the element is queued at
+     */
+    protected int getLevel(E e)
+    {
+        int priority = Prioritized.getPriority(e);
+        if (priority < 0)
+            return _defaultLevel;
+        return Math.min(priority, _levels.length - 1);
+    }
+
+    @Override
+    public boolean offer(E e)
+    {
+        Objects.requireNonNull(e);
+        int level = getLevel(e);
+        _lock.lock();
+        try
+        {
+            ArrayDeque<E> queue = _levels[level];
+            if (queue.size() >= _capacities[level])
+                return false;
+            queue.offer(e);
+            ++_size;
+            _notEmpty.signal();
+            return true;
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException
+    {
+        // The mechanism to await and signal when a level is full is not implemented
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        // The mechanism to await and signal when a level is full is not implemented
+        throw new UnsupportedOperationException();
+    }
+
+    private E dequeue()
+    {
+        for (ArrayDeque<E> queue : _levels)
+        {
+            E e = queue.poll();
+            if (e != null)
+            {
+                --_size;
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E poll()
+    {
+        _lock.lock();
+        try
+        {
+            return _size == 0 ? null : dequeue();
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException
+    {
+        _lock.lockInterruptibly();
+        try
+        {
+            while (_size == 0)
+            {
+                _notEmpty.await();
+            }
+            E e = dequeue();
+            if (_size > 0)
+                _notEmpty.signal();
+            return e;
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long nanos = unit.toNanos(timeout);
+        _lock.lockInterruptibly();
+        try
+        {
+            while (_size == 0)
+            {
+                if (nanos <= 0)
+                    return null;
+                nanos = _notEmpty.awaitNanos(nanos);
+            }
+            E e = dequeue();
+            if (_size > 0)
+                _notEmpty.signal();
+            return e;
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public E peek()
+    {
+        _lock.lock();
+        try
+        {
+            for (ArrayDeque<E> queue : _levels)
+            {
+                E e = queue.peek();
+                if (e != null)
+                    return e;
+            }
+            return null;
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        _lock.lock();
+        try
+        {
+            for (ArrayDeque<E> queue : _levels)
+            {
+                if (queue.remove(o))
+                {
+                    --_size;
+                    return true;
+                }
+            }
+            return false;
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        _lock.lock();
+        try
+        {
+            return _size;
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity()
+    {
+        _lock.lock();
+        try
+        {
+            int remaining = 0;
+            for (int i = 0; i < _levels.length; ++i)
+            {
+                remaining += _capacities[i] - _levels[i].size();
+            }
+            return remaining;
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        _lock.lock();
+        try
+        {
+            for (ArrayDeque<E> queue : _levels)
+            {
+                queue.clear();
+            }
+            _size = 0;
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c)
+    {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements)
+    {
+        if (c == this)
+            throw new IllegalArgumentException();
+        _lock.lock();
+        try
+        {
+            int drained = 0;
+            while (drained < maxElements && _size > 0)
+            {
+                c.add(dequeue());
+                ++drained;
+            }
+            return drained;
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * @return an iterator over a snapshot of the queued elements, in the order they would be served
+     */
+    @Override
+    public Iterator<E> iterator()
+    {
+        _lock.lock();
+        try
+        {
+            List<E> snapshot = new ArrayList<>(_size);
+            for (ArrayDeque<E> queue : _levels)
+            {
+                snapshot.addAll(queue);
+            }
+            return Collections.unmodifiableList(snapshot).iterator();
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        _lock.lock();
+        try
+        {
+            int[] sizes = new int[_levels.length];
+            for (int i = 0; i < sizes.length; ++i)
+            {
+                sizes[i] = _levels[i].size();
+            }
+            return String.format("%s@%x{size=%d,levels=%s,capacities=%s}", getClass().getSimpleName(), hashCode(), _size, Arrays.toString(sizes), Arrays.toString(_capacities));
+        }
+        finally
+        {
+            _lock.unlock();
+        }
+    }
+}
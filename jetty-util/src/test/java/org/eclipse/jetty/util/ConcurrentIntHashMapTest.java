@@ -0,0 +1,150 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentIntHashMapTest
+{
+    @Test
+    public void testPutGetRemove()
+    {
+        ConcurrentIntHashMap<String> map = new ConcurrentIntHashMap<>();
+        assertTrue(map.isEmpty());
+
+        assertThat(map.put(1, "one"), nullValue());
+        assertThat(map.put(-3, "minus three"), nullValue());
+        assertThat(map.putIfAbsent(1, "uno"), is("one"));
+        assertThat(map.get(1), is("one"));
+        assertThat(map.put(1, "uno"), is("one"));
+        assertThat(map.get(1), is("uno"));
+        assertThat(map.get(-3), is("minus three"));
+        assertThat(map.get(2), nullValue());
+        assertThat(map.size(), is(2));
+        assertThat(map.values(), containsInAnyOrder("uno", "minus three"));
+
+        assertFalse(map.remove(1, "one"));
+        assertTrue(map.remove(1, "uno"));
+        assertFalse(map.containsKey(1));
+        assertThat(map.remove(-3), is("minus three"));
+        assertThat(map.remove(-3), nullValue());
+        assertTrue(map.isEmpty());
+
+        assertThrows(NullPointerException.class, () -> map.put(5, null));
+    }
+
+    @Test
+    public void testClear()
+    {
+        ConcurrentIntHashMap<Integer> map = new ConcurrentIntHashMap<>();
+        for (int i = 1; i < 1000; i += 2)
+        {
+            map.put(i, i);
+        }
+        assertThat(map.size(), is(500));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertThat(map.get(1), nullValue());
+        assertThat(map.values().size(), is(0));
+    }
+
+    @Test
+    public void testAgainstHashMap()
+    {
+        ConcurrentIntHashMap<Integer> map = new ConcurrentIntHashMap<>(4, 2);
+        Map<Integer, Integer> reference = new HashMap<>();
+        Random random = new Random(8080);
+        for (int i = 0; i < 100_000; ++i)
+        {
+            int key = random.nextInt(4096) - 128;
+            switch (random.nextInt(3))
+            {
+                case 0:
+                    assertThat(map.put(key, i), is(reference.put(key, i)));
+                    break;
+                case 1:
+                    assertThat(map.remove(key), is(reference.remove(key)));
+                    break;
+                default:
+                    assertThat(map.get(key), is(reference.get(key)));
+                    break;
+            }
+            assertThat(map.size(), is(reference.size()));
+        }
+        assertThat(map.values(), containsInAnyOrder(reference.values().toArray()));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception
+    {
+        ConcurrentIntHashMap<Integer> map = new ConcurrentIntHashMap<>(1, 1);
+        int threads = 8;
+        int iterations = 20_000;
+        CountDownLatch latch = new CountDownLatch(threads);
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < threads; ++t)
+        {
+            int base = t * iterations;
+            new Thread(() ->
+            {
+                try
+                {
+                    for (int i = 0; i < iterations; ++i)
+                    {
+                        int key = base + i;
+                        map.put(key, key);
+                        assertThat(map.get(key), is(key));
+                        if (i % 2 == 0)
+                            assertThat(map.remove(key), is(key));
+                    }
+                }
+                catch (Throwable x)
+                {
+                    synchronized (failures)
+                    {
+                        failures.add(x);
+                    }
+                }
+                finally
+                {
+                    latch.countDown();
+                }
+            }).start();
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertThat(failures.size(), is(0));
+        assertThat(map.size(), is(threads * iterations / 2));
+    }
+}
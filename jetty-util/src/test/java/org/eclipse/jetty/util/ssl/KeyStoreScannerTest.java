@@ -0,0 +1,161 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util.ssl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+
+import org.eclipse.jetty.toolchain.test.MavenTestingUtils;
+import org.eclipse.jetty.toolchain.test.jupiter.WorkDir;
+import org.eclipse.jetty.toolchain.test.jupiter.WorkDirExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(WorkDirExtension.class)
+public class KeyStoreScannerTest
+{
+    public WorkDir testdir;
+    private SslContextFactory.Server sslContextFactory;
+    private KeyStoreScanner keyStoreScanner;
+
+    private Path start(Path keystore) throws Exception
+    {
+        sslContextFactory = new SslContextFactory.Server();
+        sslContextFactory.setKeyStorePath(keystore.toString());
+        sslContextFactory.setKeyStorePassword("storepwd");
+        sslContextFactory.setKeyManagerPassword("keypwd");
+        sslContextFactory.start();
+
+        keyStoreScanner = new KeyStoreScanner(sslContextFactory);
+        // Scan manually to make the test deterministic.
+        keyStoreScanner.setScanInterval(0);
+        keyStoreScanner.start();
+        return keystore;
+    }
+
+    private void assertHandshake() throws Exception
+    {
+        SslContextFactory.Client client = new SslContextFactory.Client(true);
+        client.start();
+        try (SSLServerSocket serverSocket = sslContextFactory.newSslServerSocket("localhost", 0, 0);
+             SSLSocket socket = client.newSslSocket())
+        {
+            CompletableFuture<Void> accepted = CompletableFuture.runAsync(() ->
+            {
+                try (SSLSocket accept = (SSLSocket)serverSocket.accept())
+                {
+                    accept.startHandshake();
+                }
+                catch (IOException x)
+                {
+                    throw new UncheckedIOException(x);
+                }
+            });
+            socket.connect(new InetSocketAddress("localhost", serverSocket.getLocalPort()));
+            socket.startHandshake();
+            accepted.get(10, TimeUnit.SECONDS);
+        }
+        finally
+        {
+            client.stop();
+        }
+    }
+
+    @AfterEach
+    public void dispose() throws Exception
+    {
+        if (keyStoreScanner != null)
+            keyStoreScanner.stop();
+        if (sslContextFactory != null)
+            sslContextFactory.stop();
+    }
+
+    @Test
+    public void testKeystoreRotation() throws Exception
+    {
+        Path dir = testdir.getEmptyPathDir();
+        Path keystore = dir.resolve("keystore");
+        Files.copy(MavenTestingUtils.getTestResourcePathFile("keystore"), keystore);
+        start(keystore);
+        assertThat(sslContextFactory.getAliases(), containsInAnyOrder("mykey"));
+        SSLContext sslContext = sslContextFactory.getSslContext();
+
+        // Nothing changed, no reload.
+        keyStoreScanner.scan();
+        assertThat(sslContextFactory.getSslContext(), sameInstance(sslContext));
+
+        // Atomically replace the keystore with one containing new keys.
+        Path newKeystore = dir.resolve("keystore.new");
+        Files.copy(MavenTestingUtils.getTestResourcePathFile("snikeystore"), newKeystore);
+        Files.move(newKeystore, keystore, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        keyStoreScanner.scan();
+
+        assertThat(sslContextFactory.getSslContext(), not(sameInstance(sslContext)));
+        assertThat(sslContextFactory.getAliases(), containsInAnyOrder("jetty", "other", "san", "wild"));
+    }
+
+    @Test
+    public void testInvalidKeystoreKeepsCurrentKeys() throws Exception
+    {
+        Path dir = testdir.getEmptyPathDir();
+        Path keystore = dir.resolve("keystore");
+        Files.copy(MavenTestingUtils.getTestResourcePathFile("keystore"), keystore);
+        start(keystore);
+        SSLContext sslContext = sslContextFactory.getSslContext();
+
+        Files.write(keystore, new byte[]{'x'});
+        keyStoreScanner.scan();
+
+        // The reload failed, the current keys are still used.
+        assertThat(sslContextFactory.getSslContext(), sameInstance(sslContext));
+        assertThat(sslContextFactory.getAliases(), containsInAnyOrder("mykey"));
+        assertHandshake();
+
+        // The reload failed, but the scanner keeps running for the next rotation.
+        Files.copy(MavenTestingUtils.getTestResourcePathFile("snikeystore"), keystore, StandardCopyOption.REPLACE_EXISTING);
+        keyStoreScanner.scan();
+        assertThat(sslContextFactory.getSslContext(), not(sameInstance(sslContext)));
+        assertThat(sslContextFactory.getAliases(), containsInAnyOrder("jetty", "other", "san", "wild"));
+    }
+
+    @Test
+    public void testMissingKeystore()
+    {
+        SslContextFactory.Server server = new SslContextFactory.Server();
+        server.setKeyStorePath(testdir.getEmptyPathDir().resolve("missing").toString());
+        assertThrows(IllegalArgumentException.class, () -> new KeyStoreScanner(server));
+    }
+}
@@ -0,0 +1,241 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+
+package org.eclipse.jetty.util.ssl;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.PKIXCertPathChecker;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.toolchain.test.MavenTestingUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OcspResponseCacheTest
+{
+    private KeyStore keyStore;
+    private X509Certificate certificate;
+    private OcspResponseCache cache;
+
+    @BeforeEach
+    public void prepare() throws Exception
+    {
+        keyStore = KeyStore.getInstance("JKS");
+        try (InputStream input = Files.newInputStream(MavenTestingUtils.getTestResourcePathFile("snikeystore")))
+        {
+            keyStore.load(input, "storepwd".toCharArray());
+        }
+        // A certificate that has not expired.
+        certificate = (X509Certificate)keyStore.getCertificate("godaddy");
+    }
+
+    @AfterEach
+    public void dispose() throws Exception
+    {
+        if (cache != null)
+            cache.stop();
+    }
+
+    private void awaitFetches(long fetches) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.getFetches() + cache.getFetchFailures() < fetches)
+        {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for fetches");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testResponseRefreshedBeforeExpiration() throws Exception
+    {
+        AtomicInteger fetches = new AtomicInteger();
+        cache = new OcspResponseCache((cert, issuer) ->
+            new OcspResponseCache.Response(new byte[]{(byte)fetches.incrementAndGet()}, System.currentTimeMillis() + 1000));
+        cache.start();
+
+        // The certificate is self-signed.
+        cache.addCertificate(certificate, certificate);
+
+        awaitFetches(1);
+        assertNotNull(cache.getResponse(certificate));
+
+        // The response is refreshed before it expires.
+        awaitFetches(2);
+        assertTrue(fetches.get() >= 2);
+        assertNotNull(cache.getResponse(certificate));
+        assertEquals(0, cache.getMisses());
+        assertEquals(0, cache.getFetchFailures());
+    }
+
+    @Test
+    public void testFetchFailureKeepsResponse() throws Exception
+    {
+        byte[] response = new byte[]{1};
+        AtomicInteger fetches = new AtomicInteger();
+        cache = new OcspResponseCache((cert, issuer) ->
+        {
+            if (fetches.incrementAndGet() > 1)
+                throw new IllegalStateException("explicitly_thrown_by_test");
+            return new OcspResponseCache.Response(response, System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        });
+        cache.start();
+        cache.addCertificate(certificate, certificate);
+        awaitFetches(1);
+
+        cache.refresh();
+        awaitFetches(2);
+
+        assertEquals(1, cache.getFetchFailures());
+        assertArrayEquals(response, cache.getResponse(certificate));
+    }
+
+    @Test
+    public void testExpiredResponseIsNotServed() throws Exception
+    {
+        cache = new OcspResponseCache((cert, issuer) ->
+            new OcspResponseCache.Response(new byte[]{1}, System.currentTimeMillis() - 1));
+        cache.setRetryInterval(TimeUnit.HOURS.toMillis(1));
+        cache.start();
+        cache.addCertificate(certificate, certificate);
+        awaitFetches(1);
+
+        assertNull(cache.getResponse(certificate));
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testCertPathCheckerWithMissingResponse() throws Exception
+    {
+        BlockingQueue<X509Certificate> fetched = new LinkedBlockingQueue<>();
+        cache = new OcspResponseCache((cert, issuer) ->
+        {
+            fetched.offer(issuer);
+            throw new IllegalStateException("explicitly_thrown_by_test");
+        });
+        cache.setRetryInterval(TimeUnit.HOURS.toMillis(1));
+        cache.start();
+
+        PKIXCertPathChecker checker = cache.newCertPathChecker(Collections.singleton(new TrustAnchor(certificate, null)));
+
+        cache.setFailOnMissingResponse(true);
+        checker.init(false);
+        assertThrows(CertPathValidatorException.class, () -> checker.check(certificate, Collections.emptySet()));
+
+        // The missing certificate has been added to the cache, with the trust anchor as issuer.
+        assertEquals(1, cache.getSize());
+        assertEquals(certificate, fetched.poll(5, TimeUnit.SECONDS));
+
+        // By default, certificates without a response are accepted.
+        cache.setFailOnMissingResponse(false);
+        checker.init(false);
+        checker.check(certificate, Collections.emptySet());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedCertificateEvicted() throws Exception
+    {
+        X509Certificate other1 = (X509Certificate)keyStore.getCertificate("jetty");
+        X509Certificate other2 = (X509Certificate)keyStore.getCertificate("other");
+        // The cache is not started, so that the responses are not fetched.
+        cache = new OcspResponseCache((cert, issuer) -> new OcspResponseCache.Response(new byte[]{1}, -1));
+        cache.setMaxSize(2);
+
+        cache.addCertificate(certificate, certificate);
+        cache.addCertificate(other1, other1);
+        // Use the first certificate, so that the second is the least recently used.
+        Thread.sleep(1);
+        cache.getResponse(certificate);
+        cache.addCertificate(other2, other2);
+
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+        assertFalse(cache.removeCertificate(other1));
+        assertTrue(cache.removeCertificate(certificate));
+        assertTrue(cache.removeCertificate(other2));
+    }
+
+    @Test
+    public void testIdleCertificateDropped() throws Exception
+    {
+        cache = new OcspResponseCache((cert, issuer) ->
+            new OcspResponseCache.Response(new byte[]{1}, System.currentTimeMillis() + 500));
+        cache.setMaxIdleTime(100);
+        cache.start();
+        cache.addCertificate(certificate, certificate);
+        awaitFetches(1);
+
+        // The certificate is not looked up, so it is dropped instead of being refreshed.
+        awaitEvictions(1);
+        assertEquals(0, cache.getSize());
+        assertEquals(1, cache.getFetches());
+    }
+
+    @Test
+    public void testExpiredCertificateDropped() throws Exception
+    {
+        KeyStore expired = KeyStore.getInstance("JKS");
+        try (InputStream input = Files.newInputStream(MavenTestingUtils.getTestResourcePathFile("keystore")))
+        {
+            expired.load(input, "storepwd".toCharArray());
+        }
+        X509Certificate expiredCertificate = (X509Certificate)expired.getCertificate("mykey");
+        AtomicInteger fetches = new AtomicInteger();
+        cache = new OcspResponseCache((cert, issuer) ->
+        {
+            fetches.incrementAndGet();
+            return new OcspResponseCache.Response(new byte[]{1}, -1);
+        });
+        cache.start();
+        cache.addCertificate(expiredCertificate, expiredCertificate);
+
+        awaitEvictions(1);
+        assertEquals(0, cache.getSize());
+        assertEquals(0, fetches.get());
+    }
+
+    private void awaitEvictions(long evictions) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.getEvictions() < evictions)
+        {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for evictions");
+            Thread.sleep(10);
+        }
+    }
+}
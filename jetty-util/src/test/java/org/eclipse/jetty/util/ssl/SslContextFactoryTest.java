@@ -23,8 +23,10 @@ import java.io.InputStream;
 import java.security.KeyStore;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 
@@ -40,6 +42,7 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.matchesRegex;
 import static org.hamcrest.Matchers.not;
@@ -286,6 +289,32 @@ public class SslContextFactoryTest
         assertNotNull(cf.getIncludeCipherSuites());
     }
 
+    @Test
+    public void testSNIKeyManager() throws Exception
+    {
+        AtomicReference<KeyManager[]> keyManagers = new AtomicReference<>();
+        cf = new SslContextFactory.Server()
+        {
+            @Override
+            protected KeyManager[] getKeyManagers(KeyStore keyStore) throws Exception
+            {
+                KeyManager[] managers = super.getKeyManagers(keyStore);
+                keyManagers.set(managers);
+                return managers;
+            }
+        };
+        cf.setKeyStoreResource(Resource.newSystemResource("snikeystore"));
+        cf.setKeyStorePassword("storepwd");
+        cf.setKeyManagerPassword("keypwd");
+
+        // The keystore has certificates for several hosts, so they are selected by SNI.
+        cf.start();
+        assertThat(keyManagers.get()[0], instanceOf(SniX509ExtendedKeyManager.class));
+
+        cf.reload(f -> {});
+        assertThat(keyManagers.get()[0], instanceOf(SniX509ExtendedKeyManager.class));
+    }
+
     @Test
     public void testSNICertificates() throws Exception
     {
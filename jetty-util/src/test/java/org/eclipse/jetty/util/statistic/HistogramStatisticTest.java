@@ -0,0 +1,66 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.statistic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HistogramStatisticTest
+{
+    @Test
+    public void testBuckets()
+    {
+        HistogramStatistic stats = new HistogramStatistic();
+        for (long x : new long[]{0, 1, 2, 3, 4, 7, 8, 1000})
+        {
+            stats.record(x);
+        }
+
+        assertArrayEquals(new long[]{1, 1, 2, 2, 1, 0, 0, 0, 0, 0, 1}, stats.getBuckets());
+        assertThat(stats.getCount(), is(8L));
+        assertThat(stats.getMax(), is(1000L));
+        assertEquals(128.125D, stats.getMean(), 0.001D);
+        assertThat(HistogramStatistic.getUpperBound(10), is(1023L));
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        HistogramStatistic stats = new HistogramStatistic();
+        assertThat(stats.getPercentile(50), is(0L));
+
+        for (int i = 0; i < 99; i++)
+        {
+            stats.record(100);
+        }
+        stats.record(5000);
+
+        assertThat(stats.getPercentile(50), is(127L));
+        assertThat(stats.getPercentile(99), is(127L));
+        assertThat(stats.getPercentile(100), is(5000L));
+
+        stats.reset();
+        assertThat(stats.getCount(), is(0L));
+        assertThat(stats.getBuckets().length, is(0));
+    }
+}
@@ -0,0 +1,173 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PrioritizedQueueTest
+{
+    private static class Job implements Runnable, Prioritized
+    {
+        private final String _name;
+        private final int _priority;
+
+        private Job(String name, int priority)
+        {
+            _name = name;
+            _priority = priority;
+        }
+
+        @Override
+        public int getPriority()
+        {
+            return _priority;
+        }
+
+        @Override
+        public void run()
+        {
+        }
+
+        @Override
+        public String toString()
+        {
+            return _name;
+        }
+    }
+
+    @Test
+    public void testServedByLevel() throws Exception
+    {
+        PrioritizedQueue<Runnable> queue = new PrioritizedQueue<>(1, 10, 10, 10);
+        assertTrue(queue.offer(new Job("bulk1", 2)));
+        assertTrue(queue.offer(new Job("default1", -1)));
+        assertTrue(queue.offer(new Job("bulk2", 7)));
+        assertTrue(queue.offer(new Job("urgent1", 0)));
+        assertTrue(queue.offer(() -> {}));
+        assertTrue(queue.offer(new Job("urgent2", 0)));
+
+        assertThat(queue.size(), is(6));
+        assertThat(queue.size(0), is(2));
+        assertThat(queue.size(1), is(2));
+        assertThat(queue.size(2), is(2));
+
+        List<String> order = new ArrayList<>();
+        Runnable job;
+        while ((job = queue.poll(0, TimeUnit.MILLISECONDS)) != null)
+        {
+            order.add(job instanceof Job ? job.toString() : "plain");
+        }
+        assertThat(order.toString(), is("[urgent1, urgent2, default1, plain, bulk1, bulk2]"));
+        assertThat(queue.poll(), nullValue());
+    }
+
+    @Test
+    public void testCapacityPerLevel()
+    {
+        PrioritizedQueue<Runnable> queue = new PrioritizedQueue<>(1, 1, 2);
+        assertTrue(queue.offer(new Job("bulk1", 1)));
+        assertTrue(queue.offer(new Job("bulk2", 1)));
+        assertFalse(queue.offer(new Job("bulk3", 1)));
+
+        // The capacity reserved for the urgent level is still available.
+        assertThat(queue.remainingCapacity(), is(1));
+        assertTrue(queue.offer(new Job("urgent1", 0)));
+        assertFalse(queue.offer(new Job("urgent2", 0)));
+
+        assertThat(queue.peek().toString(), is("urgent1"));
+        queue.clear();
+        assertThat(queue.size(), is(0));
+        assertThat(queue.remainingCapacity(), is(3));
+    }
+
+    @Test
+    public void testInvalidLevels()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new PrioritizedQueue<Runnable>(0));
+        assertThrows(IllegalArgumentException.class, () -> new PrioritizedQueue<Runnable>(2, 10, 10));
+        assertThrows(IllegalArgumentException.class, () -> new PrioritizedQueue<Runnable>(0, 0));
+    }
+
+    @Test
+    public void testThreadPoolDispatchOrder() throws Exception
+    {
+        QueuedThreadPool threadPool = new QueuedThreadPool(1, 1, 60000, new PrioritizedQueue<>(1, 16, 16));
+        threadPool.setReservedThreads(0);
+        threadPool.start();
+        try
+        {
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            threadPool.execute(() ->
+            {
+                blocked.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException x)
+                {
+                    throw new RuntimeException(x);
+                }
+            });
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            List<String> order = new ArrayList<>();
+            CountDownLatch done = new CountDownLatch(2);
+            threadPool.execute(new Job("bulk", 1)
+            {
+                @Override
+                public void run()
+                {
+                    order.add(toString());
+                    done.countDown();
+                }
+            });
+            threadPool.execute(new Job("urgent", 0)
+            {
+                @Override
+                public void run()
+                {
+                    order.add(toString());
+                    done.countDown();
+                }
+            });
+            release.countDown();
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertThat(order.toString(), is("[urgent, bulk]"));
+        }
+        finally
+        {
+            threadPool.stop();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * FileSessionDataStoreDeltaTest
+ *
+ * Test writing sessions as a log of the changed attributes.
+ */
+public class FileSessionDataStoreDeltaTest
+{
+    private static final byte[] STATIC_DATA = new byte[50 * 1024];
+
+    private FileSessionDataStore _store;
+
+    @BeforeEach
+    public void before() throws Exception
+    {
+        FileTestHelper.setup();
+        Arrays.fill(STATIC_DATA, (byte)7);
+        _store = newStore(true);
+    }
+
+    @AfterEach
+    public void after() throws Exception
+    {
+        _store.stop();
+        FileTestHelper.teardown();
+    }
+
+    private FileSessionDataStore newStore(boolean deltaStore) throws Exception
+    {
+        FileSessionDataStoreFactory factory = FileTestHelper.newSessionDataStoreFactory();
+        factory.setDeltaStore(deltaStore);
+        return FileTestHelper.newSessionDataStore(factory);
+    }
+
+    private SessionData newSessionData()
+    {
+        SessionData data = FileTestHelper.newSessionData(_store, "1234");
+        data.setAttribute("static", STATIC_DATA);
+        data.setAttribute("counter", 0);
+        return data;
+    }
+
+    private File getSessionFile()
+    {
+        FileTestHelper.assertStoreDirEmpty(false);
+        File file = FileTestHelper.getFile("1234");
+        assertNotNull(file);
+        return file;
+    }
+
+    @Test
+    public void testDirtyAttributes()
+    {
+        SessionData data = new SessionData("1234", "", "0.0.0.0", 0, 0, 0, 0);
+        data.setAttribute("a", 1);
+        data.setAttribute("b", 2);
+        assertThat(data.getDirtyAttributes(), is(new HashSet<>(Arrays.asList("a", "b"))));
+
+        assertThat(data.takeDirtyAttributes(), is(new HashSet<>(Arrays.asList("a", "b"))));
+        assertTrue(data.getDirtyAttributes().isEmpty());
+
+        data.setAttribute("a", null);
+        assertThat(data.getDirtyAttributes(), is(Collections.singleton("a")));
+    }
+
+    @Test
+    public void testDeltaAppendsChangedAttributes() throws Exception
+    {
+        SessionData data = newSessionData();
+        data.setAttribute("removed", "value");
+        _store.store("1234", data);
+        long fullLength = getSessionFile().length();
+
+        data.setAttribute("counter", 1);
+        data.setAttribute("removed", null);
+        data.calcAndSetExpiry(data.getAccessed() + 1000);
+        _store.store("1234", data);
+        long deltaLength = getSessionFile().length() - fullLength;
+        assertThat(deltaLength, lessThan(1024L));
+
+        FileSessionDataStore store = newStore(true);
+        try
+        {
+            SessionData loaded = store.load("1234");
+            assertThat(loaded.getAttribute("counter"), is(1));
+            assertThat(loaded.getAttribute("removed"), nullValue());
+            assertArrayEquals(STATIC_DATA, (byte[])loaded.getAttribute("static"));
+            assertThat(loaded.getExpiry(), is(data.getExpiry()));
+            assertTrue(getSessionFile().getName().startsWith(data.getExpiry() + "_"));
+        }
+        finally
+        {
+            store.stop();
+        }
+    }
+
+    @Test
+    public void testLogIsCompacted() throws Exception
+    {
+        _store.setMaxDeltas(2);
+        SessionData data = newSessionData();
+        _store.store("1234", data);
+        long fullLength = getSessionFile().length();
+
+        for (int i = 1; i <= 3; i++)
+        {
+            data.setAttribute("counter", i);
+            _store.store("1234", data);
+        }
+        assertThat(getSessionFile().length(), lessThan(fullLength + 128));
+        assertThat(_store.load("1234").getAttribute("counter"), is(3));
+    }
+
+    @Test
+    public void testTruncatedRecordIgnored() throws Exception
+    {
+        SessionData data = newSessionData();
+        _store.store("1234", data);
+        data.setAttribute("counter", 1);
+        _store.store("1234", data);
+
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(getSessionFile(), true)))
+        {
+            out.writeInt(100);
+            out.write(new byte[]{1, 2, 3});
+        }
+
+        assertThat(_store.load("1234").getAttribute("counter"), is(1));
+    }
+
+    @Test
+    public void testLoadsFullSessionFile() throws Exception
+    {
+        _store.stop();
+        _store = newStore(false);
+        SessionData data = newSessionData();
+        _store.store("1234", data);
+        _store.stop();
+
+        _store = newStore(true);
+        data = _store.load("1234");
+        assertThat(data.getAttribute("counter"), is(0));
+
+        //the first store of a file not written as a log rewrites it
+        data.setAttribute("counter", 1);
+        _store.store("1234", data);
+        assertThat(_store.load("1234").getAttribute("counter"), is(1));
+        assertArrayEquals(STATIC_DATA, (byte[])_store.load("1234").getAttribute("static"));
+    }
+}
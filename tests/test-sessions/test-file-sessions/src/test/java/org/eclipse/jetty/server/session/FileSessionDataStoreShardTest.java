@@ -0,0 +1,178 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * FileSessionDataStoreShardTest
+ *
+ * Test spreading the session files over subdirectories of the store dir.
+ */
+public class FileSessionDataStoreShardTest
+{
+    private File _storeDir;
+    private FileSessionDataStore _store;
+
+    @BeforeEach
+    public void before() throws Exception
+    {
+        FileTestHelper.setup();
+        _storeDir = FileTestHelper._tmpDir;
+    }
+
+    @AfterEach
+    public void after() throws Exception
+    {
+        if (_store != null)
+            _store.stop();
+        FileTestHelper.teardown();
+    }
+
+    private FileSessionDataStore newStore(int shards, boolean syncWrites) throws Exception
+    {
+        FileSessionDataStoreFactory factory = FileTestHelper.newSessionDataStoreFactory();
+        factory.setShards(shards);
+        factory.setSyncWrites(syncWrites);
+        return FileTestHelper.newSessionDataStore(factory);
+    }
+
+    private SessionData newSessionData(String id)
+    {
+        SessionData data = FileTestHelper.newSessionData(_store, id);
+        data.setAttribute("id", id);
+        return data;
+    }
+
+    private List<File> getSessionFiles(File dir)
+    {
+        List<File> files = new ArrayList<>();
+        for (File file : dir.listFiles())
+        {
+            if (file.isDirectory())
+                files.addAll(getSessionFiles(file));
+            else
+                files.add(file);
+        }
+        return files;
+    }
+
+    @Test
+    public void testShardedFiles() throws Exception
+    {
+        _store = newStore(4, false);
+        for (int i = 0; i < 20; i++)
+        {
+            _store.store("session" + i, newSessionData("session" + i));
+        }
+
+        //all files are in the shard dirs, and no temporary files are left behind
+        List<File> files = getSessionFiles(_storeDir);
+        assertThat(files.size(), is(20));
+        for (File file : files)
+        {
+            assertFalse(file.getParentFile().equals(_storeDir));
+            assertFalse(file.getName().endsWith(".tmp"));
+        }
+        int used = 0;
+        for (File dir : _storeDir.listFiles())
+        {
+            if (dir.list().length > 0)
+                used++;
+        }
+        assertThat(used, greaterThan(1));
+
+        //the files are indexed again on restart
+        _store.stop();
+        _store = newStore(4, false);
+        for (int i = 0; i < 20; i++)
+        {
+            assertTrue(_store.exists("session" + i));
+            assertThat(_store.load("session" + i).getAttribute("id"), is("session" + i));
+        }
+    }
+
+    @Test
+    public void testFilesMovedWhenShardsChange() throws Exception
+    {
+        _store = newStore(0, false);
+        _store.store("1234", newSessionData("1234"));
+        assertTrue(new File(_storeDir, getSessionFiles(_storeDir).get(0).getName()).exists());
+        _store.stop();
+
+        _store = newStore(8, false);
+        List<File> files = getSessionFiles(_storeDir);
+        assertThat(files.size(), is(1));
+        assertFalse(files.get(0).getParentFile().equals(_storeDir));
+        assertThat(_store.load("1234").getAttribute("id"), is("1234"));
+    }
+
+    @Test
+    public void testOlderFileDeletedOnStart() throws Exception
+    {
+        _store = newStore(4, false);
+        SessionData data = newSessionData("1234");
+        _store.store("1234", data);
+        _store.stop();
+
+        //an older file for the same session, and a temporary file left by a failed write
+        File file = getSessionFiles(_storeDir).get(0);
+        String name = file.getName();
+        String older = (data.getExpiry() - 1000) + name.substring(name.indexOf('_'));
+        Files.copy(file.toPath(), new File(_storeDir, older).toPath());
+        Files.copy(file.toPath(), new File(file.getParentFile(), name + ".tmp").toPath());
+
+        _store = newStore(4, false);
+        List<File> files = getSessionFiles(_storeDir);
+        assertThat(files.size(), is(1));
+        assertThat(files.get(0).getName(), is(name));
+        assertThat(_store.load("1234").getExpiry(), is(data.getExpiry()));
+    }
+
+    @Test
+    public void testStoreReplacesFile() throws Exception
+    {
+        _store = newStore(4, true);
+        SessionData data = newSessionData("1234");
+        _store.store("1234", data);
+
+        data.setAttribute("id", "changed");
+        data.calcAndSetExpiry(data.getAccessed() + 1000);
+        _store.store("1234", data);
+        _store.syncFiles();
+
+        List<File> files = getSessionFiles(_storeDir);
+        assertThat(files.size(), is(1));
+        assertTrue(files.get(0).getName().startsWith(data.getExpiry() + "_"));
+        assertThat(_store.load("1234").getAttribute("id"), is("changed"));
+    }
+}
@@ -253,4 +253,22 @@ public class FileTestHelper
         storeFactory.setStoreDir(_tmpDir);
         return storeFactory;
     }
+
+    public static FileSessionDataStore newSessionDataStore(FileSessionDataStoreFactory storeFactory)
+        throws Exception
+    {
+        FileSessionDataStore store = (FileSessionDataStore)storeFactory.getSessionDataStore(null);
+        store.initialize(new SessionContext("node0", null));
+        store.start();
+        return store;
+    }
+
+    public static SessionData newSessionData(SessionDataStore store, String id)
+    {
+        long now = System.currentTimeMillis();
+        SessionData data = store.newSessionData(id, now, now, now, 60000);
+        data.setLastNode("node0");
+        data.calcAndSetExpiry(now);
+        return data;
+    }
 }
@@ -0,0 +1,202 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.util.ClassLoadingObjectInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * JDBCAttributeTableTest
+ *
+ * Test storing the session attributes in a table holding a row per attribute.
+ */
+public class JDBCAttributeTableTest
+{
+    public static final String ATTRIBUTE_TABLE = "myattributes";
+
+    private ServletContextHandler _context;
+
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        _context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        _context.setContextPath("/test");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception
+    {
+        JdbcTestHelper.shutdown(null);
+    }
+
+    private JDBCSessionDataStore newStore(String attributeTableName) throws Exception
+    {
+        DatabaseAdaptor da = new DatabaseAdaptor();
+        da.setDriverInfo(JdbcTestHelper.DRIVER_CLASS, JdbcTestHelper.DEFAULT_CONNECTION_URL);
+        JDBCSessionDataStoreFactory factory = new JDBCSessionDataStoreFactory();
+        factory.setDatabaseAdaptor(da);
+        JDBCSessionDataStore.SessionTableSchema schema = JdbcTestHelper.newSessionTableSchema();
+        schema.setAttributeTableName(attributeTableName);
+        factory.setSessionTableSchema(schema);
+        JDBCSessionDataStore store = (JDBCSessionDataStore)factory.getSessionDataStore(_context.getSessionHandler());
+        store.initialize(new SessionContext("foo", _context.getServletContext()));
+        store.start();
+        return store;
+    }
+
+    private static Set<String> getAttributeRows(String id) throws Exception
+    {
+        Set<String> names = new HashSet<>();
+        try (Connection connection = DriverManager.getConnection(JdbcTestHelper.DEFAULT_CONNECTION_URL);
+             PreparedStatement statement = connection.prepareStatement("select attributeName from " + ATTRIBUTE_TABLE +
+                 " where " + JdbcTestHelper.ID_COL + " = ?"))
+        {
+            statement.setString(1, id);
+            try (ResultSet result = statement.executeQuery())
+            {
+                while (result.next())
+                {
+                    names.add(result.getString(1));
+                }
+            }
+        }
+        return names;
+    }
+
+    private static Set<String> getMapColumn(String id) throws Exception
+    {
+        try (Connection connection = DriverManager.getConnection(JdbcTestHelper.DEFAULT_CONNECTION_URL);
+             PreparedStatement statement = connection.prepareStatement("select " + JdbcTestHelper.MAP_COL + " from " + JdbcTestHelper.TABLE +
+                 " where " + JdbcTestHelper.ID_COL + " = ?"))
+        {
+            statement.setString(1, id);
+            try (ResultSet result = statement.executeQuery())
+            {
+                assertThat(result.next(), is(true));
+                SessionData data = new SessionData(id, "", "", 0, 0, 0, 0);
+                try (InputStream is = result.getBlob(1).getBinaryStream();
+                     ClassLoadingObjectInputStream ois = new ClassLoadingObjectInputStream(is))
+                {
+                    SessionData.deserializeAttributes(data, ois);
+                }
+                return new HashSet<>(data.getKeys());
+            }
+        }
+    }
+
+    @Test
+    public void testDeltaStore() throws Exception
+    {
+        JDBCSessionDataStore store = newStore(ATTRIBUTE_TABLE);
+        try
+        {
+            assertThat(store.isDeltaStore(), is(true));
+
+            long now = System.currentTimeMillis();
+            SessionData data = store.newSessionData("1234", now, now, now, 60000);
+            data.setAttribute("a", "A");
+            data.setAttribute("b", "B");
+            store.store("1234", data);
+
+            //the attributes are stored as rows, not in the map column
+            assertThat(getAttributeRows("1234"), is(new HashSet<>(Arrays.asList("a", "b"))));
+            assertThat(getMapColumn("1234").isEmpty(), is(true));
+
+            //only the changed attributes are written
+            data = store.load("1234");
+            assertThat(data.getAttribute("a"), is("A"));
+            assertThat(data.getAttribute("b"), is("B"));
+            data.setAttribute("a", null);
+            data.setAttribute("b", "BB");
+            data.setAttribute("c", "C");
+            store.store("1234", data);
+
+            assertThat(getAttributeRows("1234"), is(new HashSet<>(Arrays.asList("b", "c"))));
+            data = store.load("1234");
+            assertThat(data.getKeys(), is(new HashSet<>(Arrays.asList("b", "c"))));
+            assertThat(data.getAttribute("b"), is("BB"));
+            assertThat(data.getAttribute("c"), is("C"));
+
+            //deleting the session deletes its attribute rows
+            assertThat(store.delete("1234"), is(true));
+            assertThat(getAttributeRows("1234").isEmpty(), is(true));
+        }
+        finally
+        {
+            store.stop();
+        }
+    }
+
+    @Test
+    public void testAttributesMovedFromMapColumn() throws Exception
+    {
+        //store a session before the attribute table is used
+        JDBCSessionDataStore store = newStore(null);
+        long now = System.currentTimeMillis();
+        try
+        {
+            assertThat(store.isDeltaStore(), is(false));
+            SessionData data = store.newSessionData("1234", now, now, now, 60000);
+            data.setAttribute("a", "A");
+            data.setAttribute("b", "B");
+            store.store("1234", data);
+        }
+        finally
+        {
+            store.stop();
+        }
+        assertThat(getMapColumn("1234"), is(new HashSet<>(Arrays.asList("a", "b"))));
+
+        store = newStore(ATTRIBUTE_TABLE);
+        try
+        {
+            SessionData data = store.load("1234");
+            assertThat(data.getKeys(), is(new HashSet<>(Arrays.asList("a", "b"))));
+
+            //a removed attribute does not come back from the map column
+            data.setAttribute("a", null);
+            store.store("1234", data);
+
+            assertThat(getMapColumn("1234").isEmpty(), is(true));
+            assertThat(getAttributeRows("1234"), is(new HashSet<>(Arrays.asList("b"))));
+            data = store.load("1234");
+            assertThat(data.getKeys(), is(new HashSet<>(Arrays.asList("b"))));
+            assertThat(data.getAttribute("b"), is("B"));
+        }
+        finally
+        {
+            store.stop();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * JDBCStatementCacheTest
+ *
+ * Test that pooled connections reuse their prepared statements.
+ */
+public class JDBCStatementCacheTest
+{
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        JdbcTestHelper.prepareTables();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception
+    {
+        JdbcTestHelper.shutdown(null);
+    }
+
+    private JDBCSessionDataStore newStore(int maxIdleConnections) throws Exception
+    {
+        return newStore(maxIdleConnections, 0);
+    }
+
+    private JDBCSessionDataStore newStore(int maxIdleConnections, long maxConnectionIdleMs) throws Exception
+    {
+        JDBCSessionDataStoreFactory factory = (JDBCSessionDataStoreFactory)JdbcTestHelper.newSessionDataStoreFactory();
+        factory.setMaxIdleConnections(maxIdleConnections);
+        factory.setMaxConnectionIdleMs(maxConnectionIdleMs);
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath("/test");
+        JDBCSessionDataStore store = (JDBCSessionDataStore)factory.getSessionDataStore(context.getSessionHandler());
+        store.initialize(new SessionContext("foo", context.getServletContext()));
+        store.start();
+        return store;
+    }
+
+    private void storeAndLoad(JDBCSessionDataStore store) throws Exception
+    {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 20; i++)
+        {
+            String id = "session" + i;
+            SessionData data = store.newSessionData(id, now, now, now, 60000);
+            data.setAttribute("count", i);
+            store.store(id, data);
+            assertThat(store.load(id).getAttribute("count"), is(i));
+            assertThat(store.exists(id), is(true));
+        }
+    }
+
+    @Test
+    public void testStatementsReused() throws Exception
+    {
+        JDBCSessionDataStore store = newStore(2);
+        try
+        {
+            storeAndLoad(store);
+
+            //the insert, load and exists statements are each prepared once on the single pooled connection
+            assertThat(store.getStatementsPrepared(), is(3L));
+            assertThat(store.getStatementsReused(), is(57L));
+            assertThat(store.getIdleConnections(), is(1));
+            assertThat(store.getStoreLatency().getCount(), is(20L));
+            assertThat(store.getLoadLatency().getCount(), is(20L));
+            assertThat(store.getExistsLatency().getCount(), is(20L));
+        }
+        finally
+        {
+            store.stop();
+        }
+        assertThat(store.getIdleConnections(), is(0));
+    }
+
+    @Test
+    public void testNoPooling() throws Exception
+    {
+        JDBCSessionDataStore store = newStore(0);
+        try
+        {
+            storeAndLoad(store);
+            assertThat(store.getStatementsPrepared(), is(0L));
+            assertThat(store.getIdleConnections(), is(0));
+            assertThat(store.getStoreLatency().getCount(), is(20L));
+        }
+        finally
+        {
+            store.stop();
+        }
+    }
+
+    @Test
+    public void testIdleConnectionClosed() throws Exception
+    {
+        JDBCSessionDataStore store = newStore(2, 100);
+        try
+        {
+            storeAndLoad(store);
+            assertThat(store.getStatementsPrepared(), is(3L));
+            assertThat(store.getIdleConnections(), is(1));
+
+            //the idle connection is closed rather than reused, so its statements are prepared again
+            Thread.sleep(500);
+            assertThat(store.exists("session0"), is(true));
+            assertThat(store.getStatementsPrepared(), is(4L));
+            assertThat(store.getIdleConnections(), is(1));
+        }
+        finally
+        {
+            store.stop();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * JDBCWarmupTest
+ *
+ * Test finding and bulk loading the sessions used to warm up a SessionCache.
+ */
+public class JDBCWarmupTest
+{
+    private JDBCSessionDataStore _store;
+
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        JdbcTestHelper.prepareTables();
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath("/test");
+        _store = (JDBCSessionDataStore)JdbcTestHelper.newSessionDataStoreFactory().getSessionDataStore(context.getSessionHandler());
+        _store.initialize(new SessionContext("foo", context.getServletContext()));
+        _store.start();
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++)
+        {
+            //later sessions were accessed more recently, the last two by another node
+            String id = "session" + i;
+            SessionData data = _store.newSessionData(id, now - 1000, now - 1000 + i, now - 1000, 60000);
+            data.setLastNode(i < 8 ? "foo" : "bar");
+            data.calcAndSetExpiry(now - 1000 + i);
+            data.setAttribute("count", i);
+            _store.store(id, data);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception
+    {
+        _store.stop();
+        JdbcTestHelper.shutdown(null);
+    }
+
+    @Test
+    public void testMostRecentlyAccessed() throws Exception
+    {
+        assertThat(_store.getMostRecentlyAccessed(3, null), is(Arrays.asList("session9", "session8", "session7")));
+        assertThat(_store.getMostRecentlyAccessed(3, "foo"), is(Arrays.asList("session7", "session6", "session5")));
+        assertThat(_store.getMostRecentlyAccessed(3, "other").isEmpty(), is(true));
+    }
+
+    @Test
+    public void testLoadAll() throws Exception
+    {
+        //more ids than fit in a single statement, most of which do not exist
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 150; i++)
+        {
+            ids.add("session" + i);
+        }
+
+        Map<String, SessionData> loaded = _store.loadAll(ids);
+        assertThat(loaded.size(), is(10));
+        for (int i = 0; i < 10; i++)
+        {
+            assertThat(loaded.get("session" + i).getAttribute("count"), is(i));
+        }
+    }
+}
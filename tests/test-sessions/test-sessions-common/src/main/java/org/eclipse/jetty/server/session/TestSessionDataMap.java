@@ -0,0 +1,105 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+
+/**
+ * TestSessionDataMap
+ *
+ * An in-process stand-in for a remote SessionDataMap, that keeps versions and
+ * returns a new SessionData object every time load(id) is called. Several
+ * instances can share the same map to act as the nodes of a cluster.
+ */
+public class TestSessionDataMap extends AbstractLifeCycle implements SessionDataMap
+{
+    public final Map<String, SessionData> _map;
+    public AtomicInteger _numLoads = new AtomicInteger(0);
+    public AtomicInteger _numVersions = new AtomicInteger(0);
+    public final boolean _versioned;
+
+    public TestSessionDataMap()
+    {
+        this(new ConcurrentHashMap<>());
+    }
+
+    public TestSessionDataMap(Map<String, SessionData> map)
+    {
+        this(map, true);
+    }
+
+    public TestSessionDataMap(Map<String, SessionData> map, boolean versioned)
+    {
+        _map = map;
+        _versioned = versioned;
+    }
+
+    @Override
+    public boolean isVersioned()
+    {
+        return _versioned;
+    }
+
+    @Override
+    public void initialize(SessionContext context) throws Exception
+    {
+    }
+
+    @Override
+    public SessionData load(String id) throws Exception
+    {
+        _numLoads.incrementAndGet();
+        return copy(_map.get(id));
+    }
+
+    @Override
+    public void store(String id, SessionData data) throws Exception
+    {
+        _map.put(id, copy(data));
+    }
+
+    @Override
+    public boolean delete(String id) throws Exception
+    {
+        return (_map.remove(id) != null);
+    }
+
+    @Override
+    public long getVersion(String id) throws Exception
+    {
+        if (!_versioned)
+            return SessionDataMap.super.getVersion(id);
+        _numVersions.incrementAndGet();
+        SessionData data = _map.get(id);
+        return (data == null ? -1 : data.getLastSaved());
+    }
+
+    private static SessionData copy(SessionData data)
+    {
+        if (data == null)
+            return null;
+        SessionData copy = new SessionData(data.getId(), "", "", 0, 0, 0, 0);
+        copy.copy(data);
+        return copy;
+    }
+}
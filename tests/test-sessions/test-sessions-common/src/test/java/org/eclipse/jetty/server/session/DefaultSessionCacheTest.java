@@ -18,6 +18,9 @@
 
 package org.eclipse.jetty.server.session;
 
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
@@ -508,4 +511,182 @@ public class DefaultSessionCacheTest extends AbstractSessionCacheTest
         SessionData retrieved = store.load("1234");
         assertEquals(accessed, retrieved.getAccessed()); //check that we persisted the session before we evicted
     }
+
+    /**
+     * Test that the least recently used sessions are evicted from a full cache.
+     */
+    @Test
+    public void testMaxSessionsEvictsLeastRecentlyUsed()
+        throws Exception
+    {
+        Server server = new Server();
+
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath("/test");
+        context.setServer(server);
+
+        DefaultSessionCacheFactory cacheFactory = new DefaultSessionCacheFactory();
+        cacheFactory.setEvictionPolicy(SessionCache.NEVER_EVICT);
+        cacheFactory.setMaxSessions(3);
+        DefaultSessionCache cache = (DefaultSessionCache)cacheFactory.getSessionCache(context.getSessionHandler());
+
+        TestSessionDataStore store = new TestSessionDataStore();
+        cache.setSessionDataStore(store);
+        context.getSessionHandler().setSessionCache(cache);
+        context.start();
+
+        long now = System.currentTimeMillis();
+        for (int i = 1; i <= 4; i++)
+        {
+            String id = "s" + i;
+            SessionData data = store.newSessionData(id, now - 100, now - 100 + i, now - 100, TimeUnit.MINUTES.toMillis(10));
+            Session session = cache.newSession(data);
+            cache.add(id, session);
+            cache.release(id, session);
+        }
+
+        //evicted to under 90% of the max sessions
+        assertFalse(cache.contains("s1"));
+        assertFalse(cache.contains("s2"));
+        assertTrue(cache.contains("s3"));
+        assertTrue(cache.contains("s4"));
+        assertTrue(store.exists("s1"));
+        assertTrue(store.exists("s2"));
+        assertEquals(2, cache.getSizeEvictions());
+        assertEquals(2, cache.getSessionsCurrent());
+    }
+
+    /**
+     * Test that the least frequently used sessions are evicted from a full cache.
+     */
+    @Test
+    public void testMaxSessionsEvictsLeastFrequentlyUsed()
+        throws Exception
+    {
+        Server server = new Server();
+
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath("/test");
+        context.setServer(server);
+
+        DefaultSessionCacheFactory cacheFactory = new DefaultSessionCacheFactory();
+        cacheFactory.setEvictionPolicy(SessionCache.NEVER_EVICT);
+        cacheFactory.setMaxSessions(4);
+        cacheFactory.setEvictionOrder(DefaultSessionCache.EvictionOrder.LFU);
+        DefaultSessionCache cache = (DefaultSessionCache)cacheFactory.getSessionCache(context.getSessionHandler());
+
+        TestSessionDataStore store = new TestSessionDataStore();
+        cache.setSessionDataStore(store);
+        context.getSessionHandler().setSessionCache(cache);
+        context.start();
+
+        long now = System.currentTimeMillis();
+        for (int i = 1; i <= 5; i++)
+        {
+            String id = "s" + i;
+            SessionData data = store.newSessionData(id, now - 100, now - 100 + i, now - 100, TimeUnit.MINUTES.toMillis(10));
+            Session session = cache.newSession(data);
+            cache.add(id, session);
+            cache.release(id, session);
+
+            //the oldest sessions are the most used
+            for (int j = i; j < 4; j++)
+            {
+                cache.release(id, cache.get(id));
+            }
+        }
+
+        assertTrue(cache.contains("s1"));
+        assertTrue(cache.contains("s2"));
+        assertTrue(cache.contains("s3"));
+        assertFalse(cache.contains("s4"));
+        assertFalse(cache.contains("s5"));
+        assertTrue(store.exists("s4"));
+        assertTrue(store.exists("s5"));
+    }
+
+    /**
+     * Test that sessions are evicted when the estimated memory of the cache exceeds its max.
+     */
+    @Test
+    public void testMaxMemoryEvicts()
+        throws Exception
+    {
+        Server server = new Server();
+
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath("/test");
+        context.setServer(server);
+
+        DefaultSessionCacheFactory cacheFactory = new DefaultSessionCacheFactory();
+        cacheFactory.setEvictionPolicy(SessionCache.NEVER_EVICT);
+        cacheFactory.setMaxMemory(3200);
+        DefaultSessionCache cache = (DefaultSessionCache)cacheFactory.getSessionCache(context.getSessionHandler());
+
+        TestSessionDataStore store = new TestSessionDataStore();
+        cache.setSessionDataStore(store);
+        context.getSessionHandler().setSessionCache(cache);
+        context.start();
+
+        long now = System.currentTimeMillis();
+        for (int i = 1; i <= 3; i++)
+        {
+            String id = "s" + i;
+            SessionData data = store.newSessionData(id, now - 100, now - 100 + i, now - 100, TimeUnit.MINUTES.toMillis(10));
+            Session session = cache.newSession(data);
+            cache.add(id, session);
+            session.setAttribute("data", new byte[1000]);
+            cache.release(id, session);
+            assertTrue(cache.getMemoryUsed() > 0);
+        }
+
+        assertFalse(cache.contains("s1"));
+        assertTrue(cache.contains("s2"));
+        assertTrue(cache.contains("s3"));
+        assertTrue(store.exists("s1"));
+        assertTrue(cache.getMemoryUsed() <= 2880);
+        assertEquals(1, cache.getSizeEvictions());
+    }
+
+    /**
+     * Test that a session whose size cannot be estimated is still released.
+     */
+    @Test
+    public void testFailedSizeEstimate()
+        throws Exception
+    {
+        Server server = new Server();
+
+        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        context.setContextPath("/test");
+        context.setServer(server);
+
+        DefaultSessionCacheFactory cacheFactory = new DefaultSessionCacheFactory();
+        cacheFactory.setEvictionPolicy(SessionCache.NEVER_EVICT);
+        cacheFactory.setMaxMemory(100000);
+        DefaultSessionCache cache = (DefaultSessionCache)cacheFactory.getSessionCache(context.getSessionHandler());
+
+        TestSessionDataStore store = new TestSessionDataStore();
+        cache.setSessionDataStore(store);
+        context.getSessionHandler().setSessionCache(cache);
+        context.start();
+
+        long now = System.currentTimeMillis();
+        SessionData data = store.newSessionData("1234", now - 100, now - 100, now - 100, TimeUnit.MINUTES.toMillis(10));
+        Session session = cache.newSession(data);
+        cache.add("1234", session);
+        //an attribute changed by the application while it is being sized
+        session.setAttribute("list", new ArrayList<String>()
+        {
+            @Override
+            public Iterator<String> iterator()
+            {
+                throw new ConcurrentModificationException();
+            }
+        });
+        cache.release("1234", session);
+
+        assertTrue(cache.contains("1234"));
+        assertTrue(cache.getMemoryUsed() > 0);
+    }
 }
@@ -0,0 +1,159 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * NearCacheSessionDataMapTest
+ */
+public class NearCacheSessionDataMapTest
+{
+    private SessionData newSessionData(String id, long lastSaved)
+    {
+        long now = System.currentTimeMillis();
+        SessionData data = new SessionData(id, "/test", "0.0.0.0", now, now, now, TimeUnit.MINUTES.toMillis(10));
+        data.setLastSaved(lastSaved);
+        data.setAttribute("a", "1");
+        return data;
+    }
+
+    /**
+     * Test that a session stored on this node is loaded from its local copy
+     * after only checking its version.
+     */
+    @Test
+    public void testLoadValidatesVersion() throws Exception
+    {
+        TestSessionDataMap remote = new TestSessionDataMap();
+        NearCacheSessionDataMap map = new NearCacheSessionDataMap(remote);
+        map.start();
+
+        SessionData data = newSessionData("1234", 100);
+        map.store("1234", data);
+
+        SessionData loaded = map.load("1234");
+        assertThat(loaded, not(sameInstance(data)));
+        assertThat(loaded.getAttribute("a"), is("1"));
+        assertThat(loaded.getLastSaved(), is(100L));
+        loaded.setAttribute("a", "2");
+        assertThat(map.load("1234").getAttribute("a"), is("1"));
+
+        assertThat(remote._numLoads.get(), is(0));
+        assertThat(remote._numVersions.get(), is(2));
+        assertThat(map.getHits(), is(2L));
+        map.stop();
+    }
+
+    /**
+     * Test that a session changed or deleted by another node is loaded from the remote map.
+     */
+    @Test
+    public void testStaleCopyReloaded() throws Exception
+    {
+        Map<String, SessionData> shared = new ConcurrentHashMap<>();
+        TestSessionDataMap remote1 = new TestSessionDataMap(shared);
+        NearCacheSessionDataMap node1 = new NearCacheSessionDataMap(remote1);
+        NearCacheSessionDataMap node2 = new NearCacheSessionDataMap(new TestSessionDataMap(shared));
+        node1.start();
+        node2.start();
+
+        node1.store("1234", newSessionData("1234", 100));
+        SessionData data = node2.load("1234");
+        data.setAttribute("a", "2");
+        data.setLastSaved(200);
+        node2.store("1234", data);
+
+        assertThat(node1.load("1234").getAttribute("a"), is("2"));
+        assertThat(remote1._numLoads.get(), is(1));
+        assertThat(node1.getMisses(), is(1L));
+
+        //now it is valid again
+        assertThat(node1.load("1234").getAttribute("a"), is("2"));
+        assertThat(remote1._numLoads.get(), is(1));
+
+        node2.delete("1234");
+        assertThat(node1.load("1234"), nullValue());
+        assertThat(node1.getEntries(), is(0));
+
+        node1.stop();
+        node2.stop();
+    }
+
+    /**
+     * Test that a local copy is used without checking its version for maxStaleMs.
+     */
+    @Test
+    public void testMaxStale() throws Exception
+    {
+        TestSessionDataMap remote = new TestSessionDataMap();
+        NearCacheSessionDataMap map = new NearCacheSessionDataMap(remote);
+        map.setMaxStaleMs(TimeUnit.MINUTES.toMillis(1));
+        map.setMaxEntries(1);
+        map.start();
+
+        map.store("1234", newSessionData("1234", 100));
+        assertThat(map.load("1234").getAttribute("a"), is("1"));
+        assertThat(remote._numVersions.get(), is(0));
+
+        //the copy of the first session is dropped
+        map.store("5678", newSessionData("5678", 100));
+        assertThat(map.getEntries(), is(1));
+        assertThat(map.load("1234").getAttribute("a"), is("1"));
+        assertThat(remote._numLoads.get(), is(1));
+        map.stop();
+    }
+
+    /**
+     * Test that sessions are always loaded from a remote map without versions.
+     */
+    @Test
+    public void testUnversionedMapAlwaysLoaded() throws Exception
+    {
+        TestSessionDataMap remote = new TestSessionDataMap(new ConcurrentHashMap<>(), false);
+        NearCacheSessionDataMap map = new NearCacheSessionDataMap(remote);
+        map.start();
+
+        map.store("1234", newSessionData("1234", 100));
+        assertThat(map.getEntries(), is(0));
+        assertThat(map.load("1234").getAttribute("a"), is("1"));
+        assertThat(map.load("1234").getAttribute("a"), is("1"));
+        assertThat(remote._numLoads.get(), is(2));
+        assertThat(map.getMisses(), is(2L));
+        map.stop();
+
+        //local copies are still used for maxStaleMs
+        map.setMaxStaleMs(TimeUnit.MINUTES.toMillis(1));
+        map.start();
+        map.store("1234", newSessionData("1234", 100));
+        assertThat(map.load("1234").getAttribute("a"), is("1"));
+        assertThat(remote._numLoads.get(), is(2));
+        map.stop();
+    }
+}
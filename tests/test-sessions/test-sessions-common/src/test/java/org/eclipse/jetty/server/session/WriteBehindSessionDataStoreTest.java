@@ -0,0 +1,264 @@
+//
+//  ========================================================================
+//  Copyright (c) 1995-2019 Mort Bay Consulting Pty. Ltd.
+//  ------------------------------------------------------------------------
+//  All rights reserved. This program and the accompanying materials
+//  are made available under the terms of the Eclipse Public License v1.0
+//  and Apache License v2.0 which accompanies this distribution.
+//
+//      The Eclipse Public License is available at
+//      http://www.eclipse.org/legal/epl-v10.html
+//
+//      The Apache License v2.0 is available at
+//      http://www.opensource.org/licenses/apache2.0.php
+//
+//  You may elect to redistribute this code under either of these licenses.
+//  ========================================================================
+//
+
+package org.eclipse.jetty.server.session;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * WriteBehindSessionDataStoreTest
+ */
+public class WriteBehindSessionDataStoreTest
+{
+    private BatchingSessionDataStore _delegate;
+    private WriteBehindSessionDataStore _store;
+
+    @BeforeEach
+    public void before() throws Exception
+    {
+        _delegate = new BatchingSessionDataStore();
+        _store = new WriteBehindSessionDataStore(_delegate);
+        _store.setFlushDelayMs(TimeUnit.HOURS.toMillis(1));
+        _store.initialize(new SessionContext("node0", null));
+    }
+
+    @AfterEach
+    public void after() throws Exception
+    {
+        _store.stop();
+    }
+
+    private SessionData newSessionData(String id)
+    {
+        long now = System.currentTimeMillis();
+        SessionData data = _store.newSessionData(id, now, now, now, 60000);
+        data.setLastNode("node0");
+        data.setAttribute("counter", 0);
+        return data;
+    }
+
+    private static void await(AtomicInteger counter, int expected) throws InterruptedException
+    {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (counter.get() < expected && System.nanoTime() < end)
+        {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testWritesCoalescedAndFlushedAfterDelay() throws Exception
+    {
+        _store.setFlushDelayMs(200);
+        _store.start();
+
+        SessionData data = newSessionData("1234");
+        for (int i = 1; i <= 3; i++)
+        {
+            data.setAttribute("counter", i);
+            _store.store("1234", data);
+        }
+        assertThat(_delegate._numSaves.get(), is(0));
+        assertThat(_store.getCoalescedCount(), is(2L));
+        assertTrue(data.getLastSaved() > 0);
+        assertFalse(data.isDirty());
+
+        await(_delegate._numSaves, 1);
+        assertThat(_delegate._numSaves.get(), is(1));
+        assertThat(_delegate._map.get("1234").getAttribute("counter"), is(3));
+
+        //a session not changed since it was queued is not queued again
+        _store.store("1234", data);
+        assertThat(_store.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testFullBatchIsFlushed() throws Exception
+    {
+        _store.setMaxBatchSize(3);
+        _store.start();
+
+        for (int i = 0; i < 3; i++)
+        {
+            _store.store("id" + i, newSessionData("id" + i));
+        }
+
+        await(_delegate._numSaves, 3);
+        assertThat(_delegate._numSaves.get(), is(3));
+        assertThat(_delegate._batches.get(), is(1));
+    }
+
+    @Test
+    public void testFlushedOnStop() throws Exception
+    {
+        _store.start();
+        _store.store("1234", newSessionData("1234"));
+        assertThat(_delegate._numSaves.get(), is(0));
+
+        _store.stop();
+        assertThat(_delegate._numSaves.get(), is(1));
+        assertTrue(_delegate._map.containsKey("1234"));
+    }
+
+    @Test
+    public void testDeleteDiscardsQueuedWrite() throws Exception
+    {
+        _store.start();
+        _store.store("1234", newSessionData("1234"));
+        assertTrue(_store.exists("1234"));
+
+        assertTrue(_store.delete("1234"));
+        _store.flush();
+        assertThat(_delegate._numSaves.get(), is(0));
+        assertFalse(_store.exists("1234"));
+    }
+
+    @Test
+    public void testLoadFlushesQueuedWrite() throws Exception
+    {
+        _store.start();
+        SessionData data = newSessionData("1234");
+        data.setAttribute("counter", 7);
+        _store.store("1234", data);
+
+        assertThat(_store.load("1234").getAttribute("counter"), is(7));
+        assertThat(_delegate._numSaves.get(), is(1));
+    }
+
+    @Test
+    public void testWriteQueuedWhileFlushingIsKept() throws Exception
+    {
+        _store.start();
+        SessionData data = newSessionData("1234");
+        _store.store("1234", data);
+
+        //queue a newer write of the session while its older snapshot is being stored
+        _delegate._onStore = () ->
+        {
+            _delegate._onStore = null;
+            data.setAttribute("counter", 1);
+            try
+            {
+                _store.store("1234", data);
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException(e);
+            }
+        };
+        _store.flush();
+        assertThat(_store.getPendingCount(), is(1));
+
+        _store.flush();
+        assertThat(_delegate._numSaves.get(), is(2));
+        assertThat(_delegate._map.get("1234").getAttribute("counter"), is(1));
+    }
+
+    @Test
+    public void testFailedWriteIsRetried() throws Exception
+    {
+        _store.start();
+        SessionData data = newSessionData("1234");
+        _delegate._fail = true;
+        _store.store("1234", data);
+        data.setAttribute("counter", 1);
+        _store.store("1234", data);
+        _store.flush();
+
+        //the failed write is queued again, without changing the session
+        assertThat(_delegate._numSaves.get(), is(0));
+        assertThat(_store.getPendingCount(), is(1));
+        assertFalse(data.isDirty());
+
+        //a newer write is merged with the failed one, which is still an insert
+        data.setAttribute("other", 2);
+        _store.store("1234", data);
+        _delegate._fail = false;
+        _store.flush();
+        assertThat(_store.getPendingCount(), is(0));
+        assertThat(_delegate._numSaves.get(), is(1));
+        assertThat(_delegate._lastSaveTime, is(0L));
+        assertThat(_delegate._map.get("1234").getAttribute("counter"), is(1));
+        assertThat(_delegate._map.get("1234").getAttribute("other"), is(2));
+    }
+
+    @Test
+    public void testOnlyFailedSessionIsRetried() throws Exception
+    {
+        _store.start();
+        _delegate._failId = "bad";
+        _store.store("good", newSessionData("good"));
+        _store.store("bad", newSessionData("bad"));
+        _store.flush();
+
+        //the session that was stored is not queued again
+        assertThat(_delegate._numSaves.get(), is(1));
+        assertTrue(_delegate._map.containsKey("good"));
+        assertThat(_store.getPendingCount(), is(1));
+        assertTrue(_store.exists("bad"));
+
+        _delegate._failId = null;
+        _store.flush();
+        assertThat(_store.getPendingCount(), is(0));
+        assertThat(_delegate._numSaves.get(), is(2));
+        assertTrue(_delegate._map.containsKey("bad"));
+    }
+
+    /**
+     * Counts the batches stored, and can be made to fail.
+     */
+    private static class BatchingSessionDataStore extends TestSessionDataStore
+    {
+        final AtomicInteger _batches = new AtomicInteger();
+        volatile boolean _fail;
+        volatile String _failId;
+        volatile Runnable _onStore;
+        volatile long _lastSaveTime = -1;
+
+        @Override
+        public void storeAll(Collection<SessionData> sessions) throws Exception
+        {
+            _batches.incrementAndGet();
+            super.storeAll(sessions);
+        }
+
+        @Override
+        public void doStore(String id, SessionData data, long lastSaveTime) throws Exception
+        {
+            Runnable onStore = _onStore;
+            if (onStore != null)
+                onStore.run();
+            if (_fail || id.equals(_failId))
+                throw new IOException("Test failure");
+            _lastSaveTime = lastSaveTime;
+            super.doStore(id, data, lastSaveTime);
+        }
+    }
+}